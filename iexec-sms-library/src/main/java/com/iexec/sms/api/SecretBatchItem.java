@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.api;
+
+import lombok.*;
+
+/**
+ * Signed secret to provision in a batch.
+ * <p>
+ * The {@code authorization} is the same signature as the one expected by the single secret endpoint
+ * matching the {@link SecretType}.
+ *
+ * @see SecretType
+ */
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class SecretBatchItem {
+
+    private SecretType type;
+    private String address;
+    private String key;
+    @ToString.Exclude
+    private String value;
+    @ToString.Exclude
+    private String authorization;
+
+}
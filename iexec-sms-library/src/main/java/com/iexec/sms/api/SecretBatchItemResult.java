@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.api;
+
+import lombok.*;
+
+/**
+ * Status of a secret provisioned in a batch, results are returned in the order of the submitted items.
+ */
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class SecretBatchItemResult {
+
+    private SecretType type;
+    private String address;
+    private String key;
+    private SecretBatchItemStatus status;
+
+}
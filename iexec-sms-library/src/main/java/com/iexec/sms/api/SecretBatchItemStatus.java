@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.api;
+
+/**
+ * Outcome of the provisioning of a single secret in a batch.
+ */
+public enum SecretBatchItemStatus {
+    ADDED,
+    ALREADY_EXISTS,
+    DUPLICATED_IN_BATCH,
+    INVALID,
+    PAYLOAD_TOO_LARGE,
+    UNAUTHORIZED,
+    FAILED
+}
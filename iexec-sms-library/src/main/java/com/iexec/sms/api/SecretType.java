@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.api;
+
+/**
+ * Kinds of secrets which can be provisioned in a batch.
+ * <ul>
+ * <li>{@code WEB2}: {@code address} is the owner address, {@code key} is the secret name.
+ * <li>{@code WEB3}: {@code address} is the secret address, {@code key} is ignored.
+ * <li>{@code APP_DEVELOPER}: {@code address} is the application address, {@code key} is ignored.
+ * <li>{@code REQUESTER}: {@code address} is the requester address, {@code key} is the secret key.
+ * </ul>
+ */
+public enum SecretType {
+    WEB2,
+    WEB3,
+    APP_DEVELOPER,
+    REQUESTER
+}
@@ -115,6 +115,24 @@ public interface SmsClient {
             @Param("secretAddress") String secretAddress,
             String secretValue
     );
+
+    /**
+     * Provisions several signed secrets of any {@link SecretType} in a single call.
+     *
+     * @param secrets Signed secrets to add
+     * @return The status of each secret, in the order of the submitted list
+     */
+    @RequestLine("POST /secrets/batch")
+    List<SecretBatchItemResult> addSecrets(List<SecretBatchItem> secrets);
+
+    /**
+     * Checks whether several secrets of any {@link SecretType} exist in a single call.
+     *
+     * @param headers Secrets to look for
+     * @return The presence of each secret, in the order of the submitted list
+     */
+    @RequestLine("POST /secrets/batch/presence")
+    List<SecretPresence> areSecretsPresent(List<SecretHeader> headers);
     // endregion
 
     // region TEE
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms;
+
+import com.iexec.sms.admin.AdminService;
+import com.iexec.sms.config.PersistenceConfig;
+import com.iexec.sms.config.SecretsConfig;
+import com.iexec.sms.encryption.EncryptionConfiguration;
+import com.iexec.sms.encryption.EncryptionService;
+import com.iexec.sms.metric.MetricsService;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretService;
+import com.iexec.sms.secret.store.SecretExistenceFilterService;
+import com.iexec.sms.secret.web2.Web2SecretService;
+import com.iexec.sms.secret.web3.Web3SecretService;
+import com.iexec.sms.tee.challenge.EthereumCredentialsPool;
+import com.iexec.sms.tee.challenge.TeeChallengeService;
+import com.iexec.sms.tee.session.scone.SconeSessionSecurityConfig;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Minimal context for benchmarks, with secret services and TEE challenges stored in an in-memory H2 database.
+ * <p>
+ * No blockchain, CAS or SPS client is loaded, sessions are generated but never sent.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableConfigurationProperties(EncryptionConfiguration.class)
+@Import({
+        AdminService.class,
+        MetricsService.class,
+        PersistenceConfig.class,
+        SecretExistenceFilterService.class,
+        SecretsConfig.class,
+        EncryptionService.class,
+        Web2SecretService.class,
+        Web3SecretService.class,
+        TeeTaskComputeSecretService.class,
+        EthereumCredentialsPool.class,
+        TeeChallengeService.class,
+        SconeSessionSecurityConfig.class
+})
+public class BenchmarkApplication {
+
+    /**
+     * Starts a context on a new in-memory database and a new AES key.
+     *
+     * @param properties Additional properties, e.g. {@code secrets.value-cache.enabled=true}
+     * @return The started context, to be closed at the end of the trial
+     * @throws IOException if the AES key folder could not be created
+     */
+    public static ConfigurableApplicationContext start(String... properties) throws IOException {
+        final Path aesKeyPath = Files.createTempDirectory("iexec-sms-jmh").resolve("iexec-sms-aes.key");
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .profiles("scone")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "encryption.aesKeyPath=" + aesKeyPath,
+                        "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.encryption;
+
+import com.iexec.common.security.CipherHelper;
+import com.iexec.common.utils.FileHelper;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encryption and decryption of secret values with the AES key of the SMS,
+ * values stored with the legacy AES-CBC format are also decrypted.
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhIncludes=EncryptionServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EncryptionServiceBenchmark {
+
+    @Param({"64", "256", "4096"})
+    public int valueLength;
+
+    private EncryptionService encryptionService;
+    private String value;
+    private String encryptedValue;
+    private String legacyEncryptedValue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final String aesKeyPath = Files.createTempDirectory("iexec-sms-jmh").resolve("iexec-sms-aes.key").toString();
+        encryptionService = new EncryptionService(new EncryptionConfiguration(aesKeyPath));
+        value = RandomStringUtils.randomAlphanumeric(valueLength);
+        encryptedValue = encryptionService.encrypt(value);
+        legacyEncryptedValue = new String(CipherHelper.aesEncrypt(
+                value.getBytes(StandardCharsets.UTF_8), FileHelper.readFileBytes(aesKeyPath)));
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return encryptionService.encrypt(value);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return encryptionService.decrypt(encryptedValue);
+    }
+
+    @Benchmark
+    public String decryptLegacy() {
+        return encryptionService.decrypt(legacyEncryptedValue);
+    }
+}
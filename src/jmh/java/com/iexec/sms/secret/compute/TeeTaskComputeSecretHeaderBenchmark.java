@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.compute;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the creation of compute secret headers, which happens on each compute secret lookup.
+ * <p>
+ * {@code buildValidatorPerHeader} measures the former validation, where each header built its own validator factory.
+ * {@code sharedValidator} measures a validation with a validator built once, {@code newHeader} the current creation.
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhIncludes=TeeTaskComputeSecretHeaderBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TeeTaskComputeSecretHeaderBenchmark {
+    private static final String REQUESTER_ADDRESS = "0x123456789abcdef0123456789abcdef012345678";
+
+    private TeeTaskComputeSecretHeader header;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        header = newHeader();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public TeeTaskComputeSecretHeader newHeader() {
+        return new TeeTaskComputeSecretHeader(
+                OnChainObjectType.APPLICATION,
+                "",
+                SecretOwnerRole.REQUESTER,
+                REQUESTER_ADDRESS,
+                "1");
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TeeTaskComputeSecretHeader>> sharedValidator() {
+        return validator.validate(header);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TeeTaskComputeSecretHeader>> buildValidatorPerHeader() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            return factory.getValidator().validate(header);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.session;
+
+import com.iexec.commons.poco.task.TaskDescription;
+import com.iexec.commons.poco.tee.TeeEnclaveConfiguration;
+import com.iexec.commons.poco.tee.TeeFramework;
+import com.iexec.sms.BenchmarkApplication;
+import com.iexec.sms.api.config.GramineServicesProperties;
+import com.iexec.sms.api.config.SconeServicesProperties;
+import com.iexec.sms.api.config.TeeAppProperties;
+import com.iexec.sms.secret.compute.OnChainObjectType;
+import com.iexec.sms.secret.compute.SecretOwnerRole;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretService;
+import com.iexec.sms.secret.web2.Web2SecretService;
+import com.iexec.sms.secret.web3.Web3SecretService;
+import com.iexec.sms.tee.challenge.TeeChallengeService;
+import com.iexec.sms.tee.session.base.SecretSessionBase;
+import com.iexec.sms.tee.session.base.SecretSessionBaseService;
+import com.iexec.sms.tee.session.generic.TeeSessionGenerationException;
+import com.iexec.sms.tee.session.generic.TeeSessionRequest;
+import com.iexec.sms.tee.session.gramine.GramineSessionMakerService;
+import com.iexec.sms.tee.session.gramine.sps.GramineSession;
+import com.iexec.sms.tee.session.scone.SconeSessionMakerService;
+import com.iexec.sms.tee.session.scone.SconeSessionSecurityConfig;
+import com.iexec.sms.tee.session.scone.cas.SconeSession;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.iexec.sms.secret.ReservedSecretKeyName.IEXEC_RESULT_ENCRYPTION_PUBLIC_KEY;
+import static com.iexec.sms.secret.ReservedSecretKeyName.IEXEC_RESULT_IEXEC_IPFS_TOKEN;
+
+/**
+ * Benchmarks TEE session generation, from secrets retrieval to the session document sent to CAS or SPS.
+ * <p>
+ * Secrets are read from an in-memory H2 database, a task uses a dataset, an application developer secret,
+ * {@code requesterSecretsCount} requester secrets, result encryption and an IPFS storage token.
+ * Run with {@code ./gradlew jmh -PjmhIncludes=TeeSessionBenchmark}, allocation rates are reported by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TeeSessionBenchmark {
+    private static final String TASK_ID = "0x1111111111111111111111111111111111111111111111111111111111111111";
+    private static final String APP_ADDRESS = "0x2222222222222222222222222222222222222222";
+    private static final String DATASET_ADDRESS = "0x3333333333333333333333333333333333333333";
+    private static final String REQUESTER_ADDRESS = "0x4444444444444444444444444444444444444444";
+    private static final String BENEFICIARY_ADDRESS = "0x5555555555555555555555555555555555555555";
+    private static final String WORKER_ADDRESS = "0x6666666666666666666666666666666666666666";
+    private static final String ENCLAVE_CHALLENGE = "0x7777777777777777777777777777777777777777";
+    private static final String APP_FINGERPRINT = "01ba4719c80b6fe911b091a7c05124b64eeece964e09c058ef8f9805daca546b";
+    private static final int SECRET_VALUE_LENGTH = 256;
+
+    @Param({"1", "10", "50"})
+    public int requesterSecretsCount;
+
+    @Param({"false", "true"})
+    public boolean valueCacheEnabled;
+
+    private ConfigurableApplicationContext context;
+    private SecretSessionBaseService secretSessionBaseService;
+    private SconeSessionMakerService sconeSessionMakerService;
+    private GramineSessionMakerService gramineSessionMakerService;
+    private TeeSessionRequest request;
+    private SconeSession sconeSession;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, TeeSessionGenerationException {
+        context = BenchmarkApplication.start("secrets.value-cache.enabled=" + valueCacheEnabled);
+        final Web3SecretService web3SecretService = context.getBean(Web3SecretService.class);
+        final Web2SecretService web2SecretService = context.getBean(Web2SecretService.class);
+        final TeeTaskComputeSecretService teeTaskComputeSecretService = context.getBean(TeeTaskComputeSecretService.class);
+        final TeeChallengeService teeChallengeService = context.getBean(TeeChallengeService.class);
+
+        web3SecretService.addSecret(DATASET_ADDRESS, randomSecretValue());
+        teeTaskComputeSecretService.encryptAndSaveSecret(OnChainObjectType.APPLICATION, APP_ADDRESS,
+                SecretOwnerRole.APPLICATION_DEVELOPER, "", "1", randomSecretValue());
+        final Map<String, String> requesterSecrets = new HashMap<>();
+        for (int i = 1; i <= requesterSecretsCount; i++) {
+            final String secretKey = "requester-secret-" + i;
+            teeTaskComputeSecretService.encryptAndSaveSecret(OnChainObjectType.APPLICATION, "",
+                    SecretOwnerRole.REQUESTER, REQUESTER_ADDRESS, secretKey, randomSecretValue());
+            requesterSecrets.put(String.valueOf(i), secretKey);
+        }
+        web2SecretService.addSecret(BENEFICIARY_ADDRESS, IEXEC_RESULT_ENCRYPTION_PUBLIC_KEY, randomSecretValue());
+        web2SecretService.addSecret(REQUESTER_ADDRESS, IEXEC_RESULT_IEXEC_IPFS_TOKEN, randomSecretValue());
+
+        final TeeAppProperties preComputeProperties = TeeAppProperties.builder()
+                .image("pre-compute-image")
+                .fingerprint(APP_FINGERPRINT)
+                .entrypoint("java -jar /app/app.jar")
+                .heapSizeInBytes(3L * 1024 * 1024 * 1024)
+                .build();
+        final TeeAppProperties postComputeProperties = TeeAppProperties.builder()
+                .image("post-compute-image")
+                .fingerprint(APP_FINGERPRINT)
+                .entrypoint("java -jar /app/app.jar")
+                .heapSizeInBytes(3L * 1024 * 1024 * 1024)
+                .build();
+        final SconeServicesProperties sconeServicesProperties =
+                new SconeServicesProperties(preComputeProperties, postComputeProperties, "las-image");
+        secretSessionBaseService = new SecretSessionBaseService(web3SecretService, web2SecretService,
+                teeChallengeService, sconeServicesProperties, teeTaskComputeSecretService);
+        sconeSessionMakerService = new SconeSessionMakerService(secretSessionBaseService, sconeServicesProperties,
+                context.getBean(SconeSessionSecurityConfig.class));
+        gramineSessionMakerService = new GramineSessionMakerService(new SecretSessionBaseService(web3SecretService,
+                web2SecretService, teeChallengeService,
+                new GramineServicesProperties(preComputeProperties, postComputeProperties),
+                teeTaskComputeSecretService));
+
+        final TaskDescription taskDescription = TaskDescription.builder()
+                .chainTaskId(TASK_ID)
+                .appUri("docker.io/iexechub/app:1.0.0")
+                .appAddress(APP_ADDRESS)
+                .appEnclaveConfiguration(TeeEnclaveConfiguration.builder()
+                        .framework(TeeFramework.SCONE)
+                        .entrypoint("/app/entrypoint.sh")
+                        .fingerprint(APP_FINGERPRINT)
+                        .heapSize(1024 * 1024 * 1024)
+                        .build())
+                .datasetAddress(DATASET_ADDRESS)
+                .datasetUri("http://dataset-url")
+                .datasetName("dataset-name")
+                .datasetChecksum("dataset-checksum")
+                .requester(REQUESTER_ADDRESS)
+                .beneficiary(BENEFICIARY_ADDRESS)
+                .cmd("--arg1 value1 --arg2 value2")
+                .inputFiles(List.of("http://host/file1", "http://host/file2"))
+                .isResultEncryption(true)
+                .resultStorageProvider("ipfs")
+                .resultStorageProxy("https://result.v8-bellecour.iex.ec")
+                .secrets(requesterSecrets)
+                .botSize(1)
+                .botFirstIndex(0)
+                .botIndex(0)
+                .build();
+        request = TeeSessionRequest.builder()
+                .sessionId("benchmark-session")
+                .workerAddress(WORKER_ADDRESS)
+                .enclaveChallenge(ENCLAVE_CHALLENGE)
+                .taskDescription(taskDescription)
+                .build();
+        // Creates the TEE challenge, it is expected to exist when workers ask for a session
+        sconeSession = sconeSessionMakerService.generateSession(request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SecretSessionBase getSecretsTokens() throws TeeSessionGenerationException {
+        return secretSessionBaseService.getSecretsTokens(request);
+    }
+
+    @Benchmark
+    public SconeSession generateSconeSession() throws TeeSessionGenerationException {
+        return sconeSessionMakerService.generateSession(request);
+    }
+
+    @Benchmark
+    public String serializeSconeSession() {
+        return sconeSession.toString();
+    }
+
+    @Benchmark
+    public void writeSconeSession() throws IOException {
+        sconeSession.writeTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public String generateAndSerializeSconeSession() throws TeeSessionGenerationException {
+        return sconeSessionMakerService.generateSession(request).toString();
+    }
+
+    @Benchmark
+    public GramineSession generateGramineSession() throws TeeSessionGenerationException {
+        return gramineSessionMakerService.generateSession(request);
+    }
+
+    private static String randomSecretValue() {
+        return RandomStringUtils.randomAlphanumeric(SECRET_VALUE_LENGTH);
+    }
+}
@@ -16,18 +16,23 @@
 
 package com.iexec.sms.admin;
 
+import com.iexec.sms.encryption.KeyRotationService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 @Slf4j
 @RestController
@@ -35,10 +40,11 @@ import java.util.concurrent.locks.ReentrantLock;
 public class AdminController {
 
     /**
-     * Enum representing different types of backup operations: BACKUP, COPY,DELETE, REPLICATE and RESTORE.
+     * Enum representing different types of backup operations: BACKUP, COPY,DELETE, REPLICATE and RESTORE,
+     * and their incremental counterparts INCREMENTAL_BACKUP and INCREMENTAL_RESTORE.
      */
     private enum BackupAction {
-        BACKUP, COPY, DELETE, REPLICATE, RESTORE;
+        BACKUP, COPY, DELETE, REPLICATE, RESTORE, INCREMENTAL_BACKUP, INCREMENTAL_RESTORE;
     }
 
     /**
@@ -47,22 +53,42 @@ public class AdminController {
      */
     private static final String BACKUP_STORAGE_LOCATION = "/work/";
 
-    /**
-     * The name of the database backup file.
-     */
-    private static final String BACKUP_DATABASE_FILENAME = "backup.sql";
-
     /**
      * We want to perform one operation at a time. This ReentrantLock is used to set up the lock mechanism.
      */
     private final ReentrantLock rLock = new ReentrantLock(true);
 
     private final AdminService adminService;
+    private final KeyRotationService keyRotationService;
+    private final IncrementalBackupService incrementalBackupService;
+    private final AdminJobService adminJobService;
     private final String adminStorageLocation;
+    /**
+     * Backups, restores and key rotations only cover the H2 database, they would lose secrets stored in MVStore.
+     */
+    private final boolean mvStoreBackend;
 
-    public AdminController(AdminService adminService, @Value("${admin.storage-location}") String adminStorageLocation) {
+    @Autowired
+    public AdminController(AdminService adminService,
+                           KeyRotationService keyRotationService,
+                           IncrementalBackupService incrementalBackupService,
+                           AdminJobService adminJobService,
+                           @Value("${admin.storage-location}") String adminStorageLocation,
+                           @Value("${persistence.backend}") String persistenceBackend) {
         this.adminService = adminService;
+        this.keyRotationService = keyRotationService;
+        this.incrementalBackupService = incrementalBackupService;
+        this.adminJobService = adminJobService;
         this.adminStorageLocation = adminStorageLocation;
+        this.mvStoreBackend = "MVSTORE".equalsIgnoreCase(persistenceBackend);
+    }
+
+    AdminController(AdminService adminService,
+                    KeyRotationService keyRotationService,
+                    IncrementalBackupService incrementalBackupService,
+                    AdminJobService adminJobService,
+                    String adminStorageLocation) {
+        this(adminService, keyRotationService, incrementalBackupService, adminJobService, adminStorageLocation, "H2");
     }
 
     /**
@@ -77,6 +103,7 @@ public class AdminController {
      * <li>HTTP 201 (Created) - If the backup has been successfully created.
      * <li>HTTP 429 (Too Many Requests) - If another operation (backup/restore/delete) is already in progress.
      * <li>HTTP 500 (Internal Server Error) - If an unexpected error occurs during the backup process.
+     * <li>HTTP 501 (Not Implemented) - If secrets are stored in MVStore, they are not covered by backups.
      * </ul>
      */
     @PostMapping("/backup")
@@ -120,6 +147,7 @@ public class AdminController {
      * <li>HTTP 404 (Not Found) - If the backup file specified by {@code fileName} does not exist.
      * <li>HTTP 429 (Too Many Requests) - If another operation (backup/restore/delete) is already in progress.
      * <li>HTTP 500 (Internal Server Error) - If an unexpected error occurs during the restore process.
+     * <li>HTTP 501 (Not Implemented) - If secrets are stored in MVStore, they are not covered by backups.
      * </ul>
      */
     @PostMapping("/{storageID}/restore-backup")
@@ -173,6 +201,265 @@ public class AdminController {
         return performOperation(sourceStorageID, sourceFileName, destinationStorageID, destinationFileName, BackupAction.COPY);
     }
 
+    /**
+     * Endpoint to initiate an incremental database backup.
+     * <p>
+     * The backup is written in a new {@code backupName} directory next to the full backup. When {@code baseBackupName}
+     * is provided, only chunks of rows modified since this previous backup are written, others are referenced.
+     *
+     * @param backupName     The name of the new backup directory.
+     * @param baseBackupName The name of a previous incremental backup, a full backup is created if missing.
+     * @return A response entity indicating the status and details of the backup operation.
+     * <ul>
+     * <li>HTTP 201 (Created) - If the backup has been successfully created.
+     * <li>HTTP 404 (Not Found) - If the base backup does not exist.
+     * <li>HTTP 429 (Too Many Requests) - If another operation (backup/restore/delete) is already in progress.
+     * <li>HTTP 500 (Internal Server Error) - If an unexpected error occurs during the backup process.
+     * <li>HTTP 501 (Not Implemented) - If secrets are stored in MVStore, they are not covered by backups.
+     * </ul>
+     */
+    @PostMapping("/incremental-backup")
+    ResponseEntity<Void> createIncrementalBackup(@RequestParam String backupName, @RequestParam(required = false) String baseBackupName) {
+        return performOperation(StringUtils.EMPTY, StringUtils.defaultString(baseBackupName), StringUtils.EMPTY, backupName, BackupAction.INCREMENTAL_BACKUP);
+    }
+
+    /**
+     * Endpoint to restore an incremental database backup.
+     * <p>
+     * The backup directory {@code backupName} and the directories of its base backups must all be located
+     * in the storage specified by {@code storageID}.
+     *
+     * @param storageID  The unique identifier for the storage location of the backups in hexadecimal.
+     * @param backupName The name of the backup directory to be restored.
+     * @return A response entity indicating the status and details of the restore operation.
+     * <ul>
+     * <li>HTTP 200 (OK) - If the backup has been successfully restored.
+     * <li>HTTP 400 (Bad Request) - If {@code backupName} is missing or {@code storageID} does not match an existing directory.
+     * <li>HTTP 404 (Not Found) - If the backup directory specified by {@code backupName} does not exist.
+     * <li>HTTP 429 (Too Many Requests) - If another operation (backup/restore/delete) is already in progress.
+     * <li>HTTP 500 (Internal Server Error) - If an unexpected error occurs during the restore process.
+     * <li>HTTP 501 (Not Implemented) - If secrets are stored in MVStore, they are not covered by backups.
+     * </ul>
+     */
+    @PostMapping("/{storageID}/restore-incremental-backup")
+    ResponseEntity<Void> restoreIncrementalBackup(@PathVariable String storageID, @RequestParam String backupName) {
+        return performOperation(storageID, backupName, StringUtils.EMPTY, StringUtils.EMPTY, BackupAction.INCREMENTAL_RESTORE);
+    }
+
+    /**
+     * Endpoint to start an AES key rotation.
+     * <p>
+     * A new key is generated and used for all following encryptions, the previous one is only kept for decryption.
+     * Stored values are re-encrypted in background with the new key, the SMS keeps serving requests meanwhile.
+     *
+     * @return A response entity containing the rotation status.
+     * <ul>
+     * <li>HTTP 202 (Accepted) - If the rotation has been started.
+     * <li>HTTP 429 (Too Many Requests) - If a rotation or another operation (backup/restore/delete/replicate/copy) is already in progress.
+     * <li>HTTP 500 (Internal Server Error) - If an unexpected error occurs.
+     * <li>HTTP 501 (Not Implemented) - If secrets are stored in MVStore, their values would not be re-encrypted.
+     * </ul>
+     */
+    @PostMapping("/encryption/rotate-key")
+    ResponseEntity<KeyRotationService.RotationStatus> rotateKey() {
+        if (mvStoreBackend) {
+            log.warn("Key rotation is not supported with the MVStore persistence backend");
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+        try {
+            if (!tryToAcquireLock() || !keyRotationService.startRotation()) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+            }
+            return ResponseEntity.accepted().body(keyRotationService.getStatus());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } finally {
+            tryToReleaseLock();
+        }
+    }
+
+    /**
+     * Endpoint to follow an AES key rotation.
+     *
+     * @return A response entity containing the state of the current rotation, or of the last one if none is running,
+     * with counts of values to scan, already scanned and re-encrypted.
+     */
+    @GetMapping("/encryption/rotation")
+    ResponseEntity<KeyRotationService.RotationStatus> getKeyRotationStatus() {
+        return ResponseEntity.ok(keyRotationService.getStatus());
+    }
+
+    /**
+     * Endpoint to run a database backup operation in background.
+     * <p>
+     * Parameters are checked before the job is queued, the outcome of the operation is then reported by
+     * {@link #getJob(String)}. Jobs run one at a time and never concurrently with synchronous operations.
+     * <ul>
+     * <li>{@code backup} and {@code incremental-backup} write to the default backup storage,
+     * the incremental backup is named {@code destinationFileName} and is based on {@code fileName} if provided.
+     * <li>{@code replicate} copies the default backup to {@code destinationStorageID}.
+     * <li>{@code restore}, {@code incremental-restore} and {@code delete} use {@code storageID} and {@code fileName}.
+     * <li>{@code copy} copies {@code fileName} from {@code storageID} to {@code destinationStorageID}.
+     * </ul>
+     *
+     * @param operation            The operation to run, one of {@link BackupAction} written in kebab case.
+     * @param storageID            The unique identifier for the storage location of the dump in hexadecimal.
+     * @param fileName             The name of the dump file to be operated on.
+     * @param destinationStorageID The unique identifier for the destination storage location of the dump in hexadecimal.
+     * @param destinationFileName  The name of the destination file, can be empty for a copy.
+     * @return A response entity containing the queued job.
+     * <ul>
+     * <li>HTTP 202 (Accepted) - If the job has been queued.
+     * <li>HTTP 400 (Bad Request) - If the operation is unknown, parameters are missing or a storage ID does not match an existing directory.
+     * <li>HTTP 429 (Too Many Requests) - If too many jobs are already queued.
+     * <li>HTTP 500 (Internal Server Error) - If an unexpected error occurs.
+     * <li>HTTP 501 (Not Implemented) - If the operation is a backup or a restore and secrets are stored in MVStore.
+     * </ul>
+     */
+    @PostMapping("/jobs/{operation}")
+    ResponseEntity<AdminJob> submitJob(@PathVariable String operation,
+                                       @RequestParam(required = false) String storageID,
+                                       @RequestParam(required = false) String fileName,
+                                       @RequestParam(required = false) String destinationStorageID,
+                                       @RequestParam(required = false) String destinationFileName) {
+        final BackupAction operationType;
+        try {
+            operationType = BackupAction.valueOf(operation.toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        final String sourceStorageID = StringUtils.defaultString(storageID);
+        final String sourceFileName = StringUtils.defaultString(fileName);
+        final String destinationName = operationType == BackupAction.COPY && StringUtils.isBlank(destinationFileName)
+                ? sourceFileName : StringUtils.defaultString(destinationFileName);
+        if (invalidSource(sourceStorageID, sourceFileName, operationType)
+                || invalidDestination(destinationStorageID, destinationName, operationType)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (isUnsupportedByPersistenceBackend(operationType)) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+        try {
+            final String sourceStoragePath = getStoragePathFromID(sourceStorageID);
+            final String destinationStoragePath = getDestinationStoragePath(destinationStorageID, operationType);
+            final Path source = getJobSource(sourceStoragePath, sourceFileName, operationType);
+            final Path destination = getJobDestination(destinationStoragePath, destinationName, operationType);
+            final LongSupplier progressSupplier = operationType == BackupAction.RESTORE
+                    ? adminService::getRestoredBytes
+                    : () -> getFileSize(destination);
+            // Interrupting a restore would leave a partially restored database
+            final boolean cancellable = operationType != BackupAction.RESTORE && operationType != BackupAction.INCREMENTAL_RESTORE;
+            return adminJobService.submit(operationType.name(), cancellable, getJobTotalBytes(source, destination, operationType),
+                            progressSupplier,
+                            () -> runJob(sourceStoragePath, sourceFileName, destinationStoragePath, destinationName, operationType))
+                    .map(job -> ResponseEntity.accepted().body(job))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+        } catch (FileSystemNotFoundException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Endpoint to follow a job submitted with {@link #submitJob(String, String, String, String, String)}.
+     *
+     * @param jobId The job identifier.
+     * @return A response entity containing the job state, bytes processed and estimated remaining time.
+     * <ul>
+     * <li>HTTP 200 (OK) - If the job exists.
+     * <li>HTTP 404 (Not Found) - If the job is unknown or has been evicted from the job history.
+     * </ul>
+     */
+    @GetMapping("/jobs/{jobId}")
+    ResponseEntity<AdminJob> getJob(@PathVariable String jobId) {
+        return ResponseEntity.of(adminJobService.get(jobId));
+    }
+
+    /**
+     * Endpoint to cancel a job submitted with {@link #submitJob(String, String, String, String, String)}.
+     * <p>
+     * A queued job is removed from the queue, a running job is interrupted unless it is a restore.
+     * An interrupted job stays running until the operation returns, partial outputs are then removed.
+     *
+     * @param jobId The job identifier.
+     * @return A response entity containing the cancelled job.
+     * <ul>
+     * <li>HTTP 200 (OK) - If the job has been cancelled or is being cancelled.
+     * <li>HTTP 404 (Not Found) - If the job is unknown or has been evicted from the job history.
+     * <li>HTTP 409 (Conflict) - If the job is already finished or is a running restore.
+     * </ul>
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    ResponseEntity<AdminJob> cancelJob(@PathVariable String jobId) {
+        final Optional<AdminJob> job = adminJobService.get(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!adminJobService.cancel(job.get())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job.get());
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    /**
+     * Runs an operation from the job thread, waiting for synchronous operations to release the lock.
+     */
+    private boolean runJob(String sourceStoragePath, String sourceFileName, String destinationStoragePath, String destinationFileName, BackupAction operationType) throws InterruptedException {
+        rLock.lockInterruptibly();
+        try {
+            if (keyRotationService.isRunning()) {
+                throw new IllegalStateException("A key rotation is running");
+            }
+            return executeOperation(sourceStoragePath, sourceFileName, destinationStoragePath, destinationFileName, operationType);
+        } finally {
+            rLock.unlock();
+        }
+    }
+
+    private Path getJobSource(String sourceStoragePath, String sourceFileName, BackupAction operationType) {
+        switch (operationType) {
+            case RESTORE:
+            case COPY:
+                return Path.of(sourceStoragePath, sourceFileName);
+            case REPLICATE:
+                return Path.of(adminStorageLocation + BACKUP_STORAGE_LOCATION, adminService.getBackupFileName());
+            default:
+                return null;
+        }
+    }
+
+    private Path getJobDestination(String destinationStoragePath, String destinationFileName, BackupAction operationType) {
+        switch (operationType) {
+            case BACKUP:
+                return Path.of(adminStorageLocation + BACKUP_STORAGE_LOCATION, adminService.getBackupFileName());
+            case COPY:
+            case REPLICATE:
+                return Path.of(destinationStoragePath, destinationFileName);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Estimates the size of the job, a new backup is expected to be as large as the one it replaces.
+     */
+    private long getJobTotalBytes(Path source, Path destination, BackupAction operationType) {
+        final Path file = operationType == BackupAction.BACKUP ? destination : source;
+        return file != null && Files.isRegularFile(file) ? getFileSize(file) : -1;
+    }
+
+    private long getFileSize(Path file) {
+        try {
+            return file != null ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     /**
      * Common method for database backup operations.
      *
@@ -189,41 +476,22 @@ public class AdminController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
             }
 
-            if (!tryToAcquireLock()) {
+            if (isUnsupportedByPersistenceBackend(operationType)) {
+                return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+            }
+
+            // A backup taken during a key rotation could miss the key of re-encrypted values
+            if (!tryToAcquireLock() || keyRotationService.isRunning()) {
                 return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
             }
 
             final String sourceStoragePath = getStoragePathFromID(sourceStorageID);
-            String destinationStoragePath = "";
-
-            boolean operationSuccessful = false;
-
-            switch (operationType) {
-                case BACKUP:
-                    operationSuccessful = adminService.createBackupFile(adminStorageLocation + BACKUP_STORAGE_LOCATION, BACKUP_DATABASE_FILENAME);
-                    break;
-                case RESTORE:
-                    operationSuccessful = adminService.restoreDatabaseFromBackupFile(sourceStoragePath, sourceFileName);
-                    break;
-                case DELETE:
-                    operationSuccessful = adminService.deleteBackupFileFromStorage(sourceStoragePath, sourceFileName);
-                    break;
-                case REPLICATE:
-                    destinationStoragePath = getStoragePathFromID(destinationStorageID);
-                    operationSuccessful = adminService.copyBackupFile(
-                            adminStorageLocation + BACKUP_STORAGE_LOCATION, BACKUP_DATABASE_FILENAME, destinationStoragePath, destinationFileName);
-                    break;
-                case COPY:
-                    destinationStoragePath = getStoragePathFromID(destinationStorageID);
-                    operationSuccessful = adminService.copyBackupFile(
-                            sourceStoragePath, sourceFileName, destinationStoragePath, destinationFileName);
-                    break;
-                default:
-                    break;
-            }
+            final String destinationStoragePath = getDestinationStoragePath(destinationStorageID, operationType);
+            final boolean operationSuccessful = executeOperation(
+                    sourceStoragePath, sourceFileName, destinationStoragePath, destinationFileName, operationType);
 
             if (operationSuccessful) {
-                if (operationType == BackupAction.BACKUP) {
+                if (operationType == BackupAction.BACKUP || operationType == BackupAction.INCREMENTAL_BACKUP) {
                     return ResponseEntity.status(HttpStatus.CREATED).build();
                 }
                 return ResponseEntity.ok().build();
@@ -242,6 +510,61 @@ public class AdminController {
         }
     }
 
+    /**
+     * Backups and restores only cover the H2 database, secrets stored in MVStore would be lost.
+     * Operations on existing backup files are still allowed.
+     */
+    private boolean isUnsupportedByPersistenceBackend(BackupAction operationType) {
+        final boolean unsupported = mvStoreBackend && (operationType == BackupAction.BACKUP
+                || operationType == BackupAction.RESTORE
+                || operationType == BackupAction.INCREMENTAL_BACKUP
+                || operationType == BackupAction.INCREMENTAL_RESTORE);
+        if (unsupported) {
+            log.warn("Operation is not supported with the MVStore persistence backend [operation:{}]", operationType);
+        }
+        return unsupported;
+    }
+
+    private String getDestinationStoragePath(String destinationStorageID, BackupAction operationType) {
+        return operationType == BackupAction.COPY || operationType == BackupAction.REPLICATE
+                ? getStoragePathFromID(destinationStorageID)
+                : "";
+    }
+
+    /**
+     * Executes a database backup operation, storage IDs must have been resolved beforehand.
+     *
+     * @param sourceStoragePath      The storage path of the dump.
+     * @param sourceFileName         The name of the dump file to be operated on.
+     * @param destinationStoragePath The destination storage path of the dump.
+     * @param destinationFileName    The name of the destination file, can be empty.
+     * @param operationType          The type of operation {{@link BackupAction}.
+     * @return {@code true} if the operation was successful, {@code false} otherwise.
+     */
+    private boolean executeOperation(String sourceStoragePath, String sourceFileName, String destinationStoragePath, String destinationFileName, BackupAction operationType) {
+        switch (operationType) {
+            case BACKUP:
+                return adminService.createBackupFile(adminStorageLocation + BACKUP_STORAGE_LOCATION, adminService.getBackupFileName());
+            case RESTORE:
+                return adminService.restoreDatabaseFromBackupFile(sourceStoragePath, sourceFileName);
+            case DELETE:
+                return adminService.deleteBackupFileFromStorage(sourceStoragePath, sourceFileName);
+            case REPLICATE:
+                return adminService.copyBackupFile(
+                        adminStorageLocation + BACKUP_STORAGE_LOCATION, adminService.getBackupFileName(), destinationStoragePath, destinationFileName);
+            case COPY:
+                return adminService.copyBackupFile(
+                        sourceStoragePath, sourceFileName, destinationStoragePath, destinationFileName);
+            case INCREMENTAL_BACKUP:
+                return incrementalBackupService.createIncrementalBackup(
+                        adminStorageLocation + BACKUP_STORAGE_LOCATION, destinationFileName, sourceFileName);
+            case INCREMENTAL_RESTORE:
+                return incrementalBackupService.restoreIncrementalBackup(sourceStoragePath, sourceFileName);
+            default:
+                return false;
+        }
+    }
+
     /**
      * Converts {@code storageID} to an ascii string and checks if it is an existing folder.
      *
@@ -263,11 +586,13 @@ public class AdminController {
 
     private boolean invalidSource(String sourceStorageID, String sourceFileName, BackupAction operationType) {
         return (StringUtils.isBlank(sourceStorageID) || StringUtils.isBlank(sourceFileName))
-                && operationType != BackupAction.REPLICATE && operationType != BackupAction.BACKUP;
+                && operationType != BackupAction.REPLICATE && operationType != BackupAction.BACKUP
+                && operationType != BackupAction.INCREMENTAL_BACKUP;
     }
 
     private boolean invalidDestination(String destinationStorageID, String destinationFileName, BackupAction operationType) {
-        return (StringUtils.isBlank(destinationStorageID) || StringUtils.isBlank(destinationFileName)) && (operationType == BackupAction.COPY || operationType == BackupAction.REPLICATE);
+        return (StringUtils.isBlank(destinationStorageID) || StringUtils.isBlank(destinationFileName)) && (operationType == BackupAction.COPY || operationType == BackupAction.REPLICATE)
+                || StringUtils.isBlank(destinationFileName) && operationType == BackupAction.INCREMENTAL_BACKUP;
     }
 
     private boolean tryToAcquireLock() throws InterruptedException {
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.admin;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+
+/**
+ * Admin operation running in background, see {@link AdminJobService}.
+ * <p>
+ * Progress is reported in bytes of the backup file processed so far, {@code totalBytes} is negative when unknown.
+ */
+@Getter
+public class AdminJob {
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String operation;
+    private final boolean cancellable;
+    private final long totalBytes;
+    private final Instant createdAt = Instant.now();
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    /**
+     * Set when an admin cancels the job while it is running, the job stays {@link State#RUNNING} until
+     * the operation really returns.
+     */
+    private volatile boolean cancellationRequested;
+
+    @Getter(AccessLevel.NONE)
+    private final LongSupplier progressSupplier;
+    @Getter(AccessLevel.NONE)
+    private volatile long finalProcessedBytes;
+    @Getter(AccessLevel.NONE)
+    private volatile Future<?> future;
+
+    AdminJob(String operation, boolean cancellable, long totalBytes, LongSupplier progressSupplier) {
+        this.operation = operation;
+        this.cancellable = cancellable;
+        this.totalBytes = totalBytes;
+        this.progressSupplier = progressSupplier;
+    }
+
+    /**
+     * Gets the number of bytes processed so far, the value is frozen once the job is finished.
+     *
+     * @return Number of bytes processed
+     */
+    public long getProcessedBytes() {
+        return state == State.RUNNING ? progressSupplier.getAsLong() : finalProcessedBytes;
+    }
+
+    /**
+     * Estimates the remaining duration of a running job from its average throughput.
+     *
+     * @return Remaining duration in seconds, or {@literal null} if it cannot be estimated
+     */
+    public Long getEtaSeconds() {
+        final long processedBytes = getProcessedBytes();
+        if (state != State.RUNNING || totalBytes <= 0 || processedBytes <= 0 || startedAt == null) {
+            return null;
+        }
+        final long elapsedMillis = Duration.between(startedAt, Instant.now()).toMillis();
+        final long remainingBytes = Math.max(0, totalBytes - processedBytes);
+        return elapsedMillis * remainingBytes / processedBytes / 1000;
+    }
+
+    @JsonIgnore
+    Future<?> getFuture() {
+        return future;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    synchronized boolean start() {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        return true;
+    }
+
+    synchronized boolean requestCancellation() {
+        if (state != State.RUNNING) {
+            return false;
+        }
+        cancellationRequested = true;
+        return true;
+    }
+
+    synchronized void finish(State finalState, String errorMessage) {
+        if (state.isFinished()) {
+            return;
+        }
+        finalProcessedBytes = state == State.RUNNING ? progressSupplier.getAsLong() : 0;
+        state = finalState;
+        error = errorMessage;
+        finishedAt = Instant.now();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.admin;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs admin operations in background, one at a time, so that HTTP calls do not wait for large backups.
+ * <p>
+ * Jobs wait in a bounded queue, submissions are rejected when it is full.
+ * The last finished jobs are kept in memory so that their outcome can be queried.
+ */
+@Slf4j
+@Service
+public class AdminJobService {
+    static final String JOB_COUNTER_NAME = "iexec.sms.admin.jobs";
+    private static final String CANCELLED_BY_ADMIN = "Cancelled by admin";
+
+    private final ExecutorService jobExecutorService;
+    private final int historySize;
+    private final Map<String, AdminJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> jobIds = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public AdminJobService(@Value("${admin.jobs.queue-size}") int queueSize,
+                           @Value("${admin.jobs.history-size}") int historySize) {
+        this(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueSize),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "admin-job");
+                    thread.setDaemon(true);
+                    return thread;
+                }), historySize);
+    }
+
+    AdminJobService(ExecutorService jobExecutorService, int historySize) {
+        this.jobExecutorService = jobExecutorService;
+        this.historySize = historySize;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobExecutorService.shutdownNow();
+    }
+
+    /**
+     * Submits an operation to be run in background.
+     *
+     * @param operation        Name of the operation, for display purpose
+     * @param cancellable      Whether the operation can be interrupted while running
+     * @param totalBytes       Number of bytes to process, negative if unknown
+     * @param progressSupplier Supplies the number of bytes processed so far while the operation is running
+     * @param task             Operation returning {@literal true} on success
+     * @return The queued job, or an empty {@link Optional} if the queue is full
+     */
+    public Optional<AdminJob> submit(String operation, boolean cancellable, long totalBytes,
+                                     LongSupplier progressSupplier, Callable<Boolean> task) {
+        final AdminJob job = new AdminJob(operation, cancellable, totalBytes, progressSupplier);
+        try {
+            job.setFuture(jobExecutorService.submit(() -> run(job, task)));
+        } catch (RejectedExecutionException e) {
+            log.warn("Admin job rejected, queue is full [operation:{}]", operation);
+            return Optional.empty();
+        }
+        jobs.put(job.getId(), job);
+        jobIds.add(job.getId());
+        evictOldJobs();
+        log.info("Admin job queued [id:{}, operation:{}]", job.getId(), operation);
+        return Optional.of(job);
+    }
+
+    public Optional<AdminJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Cancels a job. A queued job will never run, a running job is interrupted if it is cancellable.
+     * <p>
+     * A running job keeps its lock and its {@link AdminJob.State#RUNNING} state until the operation returns,
+     * it is then reported {@link AdminJob.State#CANCELLED} unless the operation succeeded in the meantime.
+     *
+     * @param job Job to cancel
+     * @return {@literal true} if the job has been cancelled or its cancellation has been requested,
+     * {@literal false} if it is already finished or cannot be interrupted
+     */
+    public boolean cancel(AdminJob job) {
+        final boolean queued;
+        synchronized (job) {
+            final AdminJob.State state = job.getState();
+            if (state.isFinished() || (state == AdminJob.State.RUNNING && !job.isCancellable())) {
+                return false;
+            }
+            queued = state == AdminJob.State.QUEUED;
+            if (queued) {
+                job.finish(AdminJob.State.CANCELLED, CANCELLED_BY_ADMIN);
+            } else {
+                job.requestCancellation();
+            }
+        }
+        job.getFuture().cancel(true);
+        if (queued) {
+            Metrics.counter(JOB_COUNTER_NAME, "operation", job.getOperation(), "state", AdminJob.State.CANCELLED.name()).increment();
+            log.info("Admin job cancelled [id:{}, operation:{}]", job.getId(), job.getOperation());
+        } else {
+            log.info("Admin job cancellation requested [id:{}, operation:{}]", job.getId(), job.getOperation());
+        }
+        return true;
+    }
+
+    void run(AdminJob job, Callable<Boolean> task) {
+        if (!job.start()) {
+            return;
+        }
+        log.info("Admin job started [id:{}, operation:{}]", job.getId(), job.getOperation());
+        AdminJob.State finalState;
+        String error = null;
+        try {
+            finalState = Boolean.TRUE.equals(task.call()) ? AdminJob.State.SUCCEEDED : AdminJob.State.FAILED;
+            if (finalState == AdminJob.State.FAILED) {
+                error = "Operation failed";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finalState = AdminJob.State.CANCELLED;
+            error = "Interrupted";
+        } catch (Exception e) {
+            log.error("Admin job failed [id:{}, operation:{}]", job.getId(), job.getOperation(), e);
+            finalState = AdminJob.State.FAILED;
+            error = e.getMessage();
+        }
+        synchronized (job) {
+            if (job.isCancellationRequested() && finalState != AdminJob.State.SUCCEEDED) {
+                finalState = AdminJob.State.CANCELLED;
+                error = CANCELLED_BY_ADMIN;
+            }
+            job.finish(finalState, error);
+        }
+        Metrics.counter(JOB_COUNTER_NAME, "operation", job.getOperation(), "state", finalState.name()).increment();
+        log.info("Admin job finished [id:{}, operation:{}, state:{}, processedBytes:{}]",
+                job.getId(), job.getOperation(), finalState, job.getProcessedBytes());
+    }
+
+    private void evictOldJobs() {
+        while (jobIds.size() > historySize) {
+            final String id = jobIds.poll();
+            if (id != null) {
+                jobs.remove(id);
+            }
+        }
+    }
+}
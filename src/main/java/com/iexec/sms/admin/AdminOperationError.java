@@ -26,7 +26,8 @@ public enum AdminOperationError {
     REPLICATE_OR_COPY_FILE_OUTSIDE_STORAGE("Replicated or Copied backup file destination is outside of storage file system"),
     DATABASE_FILE_ALREADY_EXIST("A file already exists at the destination of database file"),
     AES_KEY_FILE_ALREADY_EXIST("A file already exists at the destination of AES Key file"),
-    AES_KEY_FILE_WRITE_PERMISSIONS("Can't add write permissions to AES Key file permissions");
+    AES_KEY_FILE_WRITE_PERMISSIONS("Can't add write permissions to AES Key file permissions"),
+    BACKUP_FILE_CHECKSUM_MISMATCH("Backup file does not match its manifest checksum");
 
     private final String description;
 
@@ -17,57 +17,154 @@
 package com.iexec.sms.admin;
 
 import com.iexec.sms.encryption.EncryptionService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.h2.message.DbException;
+import org.h2.tools.Restore;
 import org.h2.tools.RunScript;
 import org.h2.tools.Script;
+import org.h2.util.ScriptReader;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 @Slf4j
 @Service
 public class AdminService {
 
+    public static final String BACKUP_DURATION_TIMER_NAME = "iexec.sms.admin.backup.duration";
+    public static final String BACKUP_SIZE_SUMMARY_NAME = "iexec.sms.admin.backup.size";
+    public static final String RESTORE_DURATION_TIMER_NAME = "iexec.sms.admin.restore.duration";
+
+    /**
+     * Format of the database backups created by this SMS.
+     * <p>
+     * Restores accept both formats whatever the configured one, binary backups are recognized by their zip header.
+     */
+    public enum BackupFormat {
+        /**
+         * Full SQL text dump written by {@link Script}.
+         */
+        SQL("backup.sql"),
+        /**
+         * Binary copy of the database files, written by the H2 {@code BACKUP TO} command while the database is in use.
+         */
+        BINARY("backup.zip");
+
+        @Getter
+        private final String fileName;
+
+        BackupFormat(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private static final byte[] ZIP_HEADER = {'P', 'K', 3, 4};
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b};
+    private static final String H2_DATABASE_FILE_SUFFIX = ".mv.db";
+    /**
+     * SHA-256 checksums of the database and AES key backup files, in {@code sha256sum} format.
+     */
+    public static final String MANIFEST_FILENAME_EXTENSION = ".sha256";
+    static final String COMPRESSED_FILENAME_EXTENSION = ".gz";
+    // Number of INSERT statements sent on a connection by a restore worker, each statement holds several rows
+    private static final int RESTORE_INSERT_BATCH_SIZE = 50;
+
     // Used to print formatted date in log
     private final DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
     public static final String AES_KEY_FILENAME_EXTENSION = ".key";
     private static final String AES_KEY_LOG_DESCRIPTION = "AES Key";
+    private static final String RETIRED_AES_KEY_LOG_DESCRIPTION = "Retired AES Key";
     private final String datasourceUrl;
     private final String datasourceUsername;
     private final String datasourcePassword;
     private final String adminStorageLocation;
     private final EncryptionService encryptionService;
+    private final ApplicationEventPublisher eventPublisher;
+    @Getter
+    private final BackupFormat backupFormat;
+    private final boolean backupCompression;
+    private final int restoreParallelism;
+    // Bytes of the backup file read by the current or last restore
+    private final AtomicLong restoredBytes = new AtomicLong();
 
     @Getter
     private boolean smsOnline;
 
+    @Autowired
     public AdminService(EncryptionService encryptionService,
+                        ApplicationEventPublisher eventPublisher,
                         @Value("${spring.datasource.url}") String datasourceUrl,
                         @Value("${spring.datasource.username}") String datasourceUsername,
                         @Value("${spring.datasource.password}") String datasourcePassword,
-                        @Value("${admin.storage-location}") String adminStorageLocation) {
+                        @Value("${admin.storage-location}") String adminStorageLocation,
+                        @Value("${admin.backup-format}") BackupFormat backupFormat,
+                        @Value("${admin.backup-compression}") boolean backupCompression,
+                        @Value("${admin.restore-parallelism}") int restoreParallelism) {
         this.datasourceUrl = datasourceUrl;
         this.datasourceUsername = datasourceUsername;
         this.datasourcePassword = datasourcePassword;
         this.adminStorageLocation = adminStorageLocation;
         this.encryptionService = encryptionService;
+        this.eventPublisher = eventPublisher;
+        this.backupFormat = backupFormat;
+        this.backupCompression = backupCompression;
+        this.restoreParallelism = Math.max(restoreParallelism, 1);
+    }
+
+    AdminService(EncryptionService encryptionService,
+                 ApplicationEventPublisher eventPublisher,
+                 String datasourceUrl,
+                 String datasourceUsername,
+                 String datasourcePassword,
+                 String adminStorageLocation) {
+        this(encryptionService, eventPublisher, datasourceUrl, datasourceUsername, datasourcePassword,
+                adminStorageLocation, BackupFormat.SQL, false, 1);
     }
 
     /**
-     * Creates a backup of the H2 database and associated AES key at the specified location.
+     * Gets the name of backup files created with the configured format.
+     *
+     * @return {@code backup.sql}, {@code backup.sql.gz} or {@code backup.zip}
+     */
+    public String getBackupFileName() {
+        return backupFormat == BackupFormat.SQL && backupCompression
+                ? backupFormat.getFileName() + COMPRESSED_FILENAME_EXTENSION
+                : backupFormat.getFileName();
+    }
+
+    /**
+     * Creates a backup of the H2 database and associated AES keys at the specified location.
+     * <p>
+     * Retired keys are backed up next to the current one, values not re-encrypted yet stay readable after a restore.
      *
      * @param storageLocation The location where the backup file will be saved, must be an existing directory.
      * @param backupFileName  The name of the backup file.
@@ -89,10 +186,25 @@ public class AdminService {
             final File backupFile = new File(storageLocation + File.separator + backupFileName);
             final String databaseBackupFileLocation = backupFile.getCanonicalPath();
             final String aesKeyBackupFileLocation = databaseBackupFileLocation + AES_KEY_FILENAME_EXTENSION;
-            //Backup aes key
-            Files.copy(Path.of(encryptionService.getAesKeyPath()), Path.of(aesKeyBackupFileLocation), StandardCopyOption.REPLACE_EXISTING);
-            log.debug("Backup AES Key created [fileName:{}]", aesKeyBackupFileLocation);
-            return databaseDump(databaseBackupFileLocation);
+            boolean completed = false;
+            try {
+                //Backup aes keys
+                final Path aesKeyPath = Path.of(encryptionService.getAesKeyPath());
+                Files.copy(aesKeyPath, Path.of(aesKeyBackupFileLocation), StandardCopyOption.REPLACE_EXISTING);
+                deleteRetiredAesKeys(Path.of(aesKeyBackupFileLocation));
+                copyRetiredAesKeys(aesKeyPath, Path.of(aesKeyBackupFileLocation));
+                log.debug("Backup AES Key created [fileName:{}]", aesKeyBackupFileLocation);
+                if (!databaseDump(databaseBackupFileLocation)) {
+                    return false;
+                }
+                writeManifest(Path.of(databaseBackupFileLocation), Path.of(aesKeyBackupFileLocation));
+                completed = true;
+                return true;
+            } finally {
+                if (!completed) {
+                    deletePartialBackup(Path.of(databaseBackupFileLocation));
+                }
+            }
         } catch (IOException e) {
             log.error("An error occurred while creating backup", e);
         }
@@ -100,6 +212,10 @@ public class AdminService {
     }
 
     /**
+     * Writes a backup of the database with the configured format.
+     * <p>
+     * Neither format locks tables, the SMS keeps serving requests during the backup.
+     *
      * @param fullBackupFileName complete fileName (location and filename)
      * @return {@code true} if the backup was successful, {@code false} if any error occurs.
      */
@@ -111,13 +227,26 @@ public class AdminService {
         }
 
         try {
-            log.info("Starting the backup process [fullBackupFileName:{}]", fullBackupFileName);
+            log.info("Starting the backup process [fullBackupFileName:{}, format:{}, compression:{}]",
+                    fullBackupFileName, backupFormat, backupCompression);
             final long start = System.currentTimeMillis();
-            Script.process(datasourceUrl, datasourceUsername, datasourcePassword, fullBackupFileName, "DROP", "");
+            if (backupFormat == BackupFormat.BINARY) {
+                binaryBackup(fullBackupFileName);
+            } else {
+                Script.process(datasourceUrl, datasourceUsername, datasourcePassword, fullBackupFileName,
+                        "DROP", backupCompression ? "COMPRESSION GZIP" : "");
+            }
             final long stop = System.currentTimeMillis();
             final long size = new File(fullBackupFileName).length();
-            log.info("New backup created [fullBackupFileName:{}, timestamp:{}, duration:{} ms, size:{}]",
-                    fullBackupFileName, dateFormat.format(new Date(start)), stop - start, size);
+            Metrics.timer(BACKUP_DURATION_TIMER_NAME, "format", backupFormat.name().toLowerCase())
+                    .record(stop - start, TimeUnit.MILLISECONDS);
+            DistributionSummary.builder(BACKUP_SIZE_SUMMARY_NAME)
+                    .baseUnit("bytes")
+                    .tag("format", backupFormat.name().toLowerCase())
+                    .register(Metrics.globalRegistry)
+                    .record(size);
+            log.info("New backup created [fullBackupFileName:{}, format:{}, timestamp:{}, duration:{} ms, size:{}]",
+                    fullBackupFileName, backupFormat, dateFormat.format(new Date(start)), stop - start, size);
         } catch (SQLException e) {
             log.error("SQL error occurred during backup", e);
             return false;
@@ -125,10 +254,28 @@ public class AdminService {
         return true;
     }
 
+    /**
+     * Copies database files to a zip archive with H2 {@code BACKUP TO}.
+     * <p>
+     * Objects are not locked, the copy is transactionally consistent.
+     *
+     * @param fullBackupFileName complete fileName of the zip archive
+     * @throws SQLException If the database cannot be reached or the archive cannot be written
+     */
+    private void binaryBackup(String fullBackupFileName) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(datasourceUrl, datasourceUsername, datasourcePassword);
+             PreparedStatement statement = connection.prepareStatement("BACKUP TO ?")) {
+            statement.setString(1, fullBackupFileName);
+            statement.execute();
+        }
+    }
+
     /**
      * Restores a backup from provided inputs.
      * <p>
      * The location is checked against a configuration property value provided by an admin.
+     * Once the database restoration has started, a {@link DatabaseRestoredEvent} is published even if it fails,
+     * as tables may have been partially modified. Bloom filters and caches are then rebuilt from their actual content.
      *
      * @param storageLocation Where to find the backup file
      * @param backupFileName  The file to restore
@@ -151,10 +298,17 @@ public class AdminService {
                 throw new FileSystemNotFoundException(AdminOperationError.AES_KEY_BACKUP_FILE_NOT_EXIST.toString());
             }
 
+            verifyManifest(backupDatabaseFileLocation, backupAesKeyFileLocationPath);
+
             final long startRestoration = System.currentTimeMillis();
             log.info("Starting the full restore process [backupFileLocation:{},backupAesKeyFileLocationPath:{}]", backupFileLocation, backupAesKeyFileLocationPath);
             restoreAesKey(backupAesKeyFileLocationPath);
-            restoreDatabase(backupDatabaseFileLocation);
+            try {
+                restoreDatabase(backupDatabaseFileLocation);
+            } finally {
+                // A failed restore may have already dropped and inserted rows, state derived from tables is rebuilt anyway
+                eventPublisher.publishEvent(new DatabaseRestoredEvent(backupFileLocation));
+            }
             final long stopRestoration = System.currentTimeMillis();
             log.info("Ending the full restore process [backupFileLocation:{},backupAesKeyFileLocationPath:{},timestamp:{}, duration:{} ms]", backupFileLocation, backupAesKeyFileLocationPath, dateFormat.format(new Date(startRestoration)), stopRestoration - startRestoration);
 
@@ -163,6 +317,9 @@ public class AdminService {
             log.error("Invalid backup file operation", e);
         } catch (SQLException e) {
             log.error("SQL error occurred during restore", e);
+        } catch (InterruptedException e) {
+            log.error("Restore interrupted", e);
+            Thread.currentThread().interrupt();
         } finally {
             putSmsOnline();
         }
@@ -170,14 +327,20 @@ public class AdminService {
     }
 
     /**
-     * Restore the AES Key from backup
+     * Restore the AES Key from backup, with the retired keys backed up next to it
+     * <p>
+     * The replaced key is retired, values it encrypted after the backup stay readable.
      *
      * @param backupAesKeyFileLocation The location of AES key backup
      * @throws IOException If an error occurred during AES Key file manipulation
      */
-    private void restoreAesKey(Path backupAesKeyFileLocation) throws IOException {
+    void restoreAesKey(Path backupAesKeyFileLocation) throws IOException {
         final long startAesKeyRestoration = System.currentTimeMillis();
         final long databaseAesKeyBackupFileSize = backupAesKeyFileLocation.toFile().length();
+        copyRetiredAesKeys(backupAesKeyFileLocation, Path.of(encryptionService.getAesKeyPath()));
+        if (!Arrays.equals(Files.readAllBytes(backupAesKeyFileLocation), Files.readAllBytes(Path.of(encryptionService.getAesKeyPath())))) {
+            encryptionService.retireAesKey();
+        }
         final boolean successWrite = encryptionService.setWritePermissions();
         if (!successWrite) {
             throw new IOException(AdminOperationError.AES_KEY_FILE_WRITE_PERMISSIONS.toString());
@@ -190,23 +353,316 @@ public class AdminService {
                 backupAesKeyFileLocation, dateFormat.format(new Date(startAesKeyRestoration)), stopAesKeyRestoration - startAesKeyRestoration, databaseAesKeyBackupFileSize);
     }
 
+    /**
+     * Copies the retired keys found next to a key file next to another key file, with the same suffixes.
+     * <p>
+     * A retired key file name holds the key id, existing destination files are kept as they hold the same key.
+     *
+     * @param sourceAesKeyFile      Key file whose retired keys are copied
+     * @param destinationAesKeyFile Key file next to which retired keys are copied
+     * @throws IOException If a retired key cannot be copied
+     */
+    void copyRetiredAesKeys(Path sourceAesKeyFile, Path destinationAesKeyFile) throws IOException {
+        final int prefixLength = sourceAesKeyFile.getFileName().toString().length();
+        for (Path retiredAesKeyFile : EncryptionService.findRetiredAesKeyFiles(sourceAesKeyFile)) {
+            final Path destination = Path.of(destinationAesKeyFile
+                    + retiredAesKeyFile.getFileName().toString().substring(prefixLength));
+            if (!destination.toFile().exists()) {
+                processCopyFile(retiredAesKeyFile, destination, RETIRED_AES_KEY_LOG_DESCRIPTION, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+    }
+
+    /**
+     * Deletes the retired keys found next to a key file.
+     *
+     * @param aesKeyFile Key file whose retired keys are deleted
+     * @throws IOException If a retired key cannot be deleted
+     */
+    void deleteRetiredAesKeys(Path aesKeyFile) throws IOException {
+        for (Path retiredAesKeyFile : EncryptionService.findRetiredAesKeyFiles(aesKeyFile)) {
+            processDeleteFile(retiredAesKeyFile, RETIRED_AES_KEY_LOG_DESCRIPTION);
+        }
+    }
+
     /**
      * Restore the database from backup
      *
      * @param backupDatabaseFileLocation The location of database backup
-     * @throws SQLException If an error occurred during sql script execution
+     * @throws SQLException         If an error occurred during sql script execution
+     * @throws IOException          If a binary backup cannot be extracted
+     * @throws InterruptedException If interrupted while waiting for restore workers
      */
-    private void restoreDatabase(Path backupDatabaseFileLocation) throws SQLException {
+    private void restoreDatabase(Path backupDatabaseFileLocation) throws SQLException, IOException, InterruptedException {
         final long databaseBackupFileSize = backupDatabaseFileLocation.toFile().length();
         final long startDatabaseRestoration = System.currentTimeMillis();
-        log.info("Starting the restore process for the database");
-        RunScript.execute(datasourceUrl, datasourceUsername, datasourcePassword,
-                backupDatabaseFileLocation.toString(), Charset.defaultCharset(), true);
+        final boolean binaryBackup = isBinaryBackup(backupDatabaseFileLocation);
+        restoredBytes.set(0);
+        log.info("Starting the restore process for the database [binaryBackup:{}]", binaryBackup);
+        if (binaryBackup) {
+            restoreBinaryBackup(backupDatabaseFileLocation);
+        } else {
+            runScript(backupDatabaseFileLocation);
+        }
         final long stopDatabaseRestoration = System.currentTimeMillis();
+        Metrics.timer(RESTORE_DURATION_TIMER_NAME, "format", (binaryBackup ? BackupFormat.BINARY : BackupFormat.SQL).name().toLowerCase())
+                .record(stopDatabaseRestoration - startDatabaseRestoration, TimeUnit.MILLISECONDS);
         log.info("Database has been restored [backupFileLocation:{}, timestamp:{}, duration:{} ms, size:{}]",
                 backupDatabaseFileLocation, dateFormat.format(new Date(startDatabaseRestoration)), stopDatabaseRestoration - startDatabaseRestoration, databaseBackupFileSize);
     }
 
+    private boolean isBinaryBackup(Path backupDatabaseFileLocation) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(backupDatabaseFileLocation)) {
+            return Arrays.equals(inputStream.readNBytes(ZIP_HEADER.length), ZIP_HEADER);
+        }
+    }
+
+    /**
+     * Restores a binary backup in the running database.
+     * <p>
+     * The archive is extracted in a temporary directory, the extracted database is dumped as SQL and the script is
+     * executed on the running database. Database files in use cannot be replaced without stopping the SMS.
+     *
+     * @param backupDatabaseFileLocation The location of the zip archive
+     * @throws SQLException         If the extracted database cannot be dumped or the script cannot be executed
+     * @throws IOException          If the archive does not contain a database
+     * @throws InterruptedException If interrupted while waiting for restore workers
+     */
+    private void restoreBinaryBackup(Path backupDatabaseFileLocation) throws SQLException, IOException, InterruptedException {
+        final Path extractionDirectory = Files.createTempDirectory("iexec-sms-restore");
+        try {
+            Restore.execute(backupDatabaseFileLocation.toString(), extractionDirectory.toString(), null);
+            final Path extractedDatabase;
+            try (Stream<Path> files = Files.walk(extractionDirectory)) {
+                extractedDatabase = files
+                        .filter(file -> file.getFileName().toString().endsWith(H2_DATABASE_FILE_SUFFIX))
+                        .findFirst()
+                        .orElseThrow(() -> new IOException(AdminOperationError.DATABASE_BACKUP_FILE_NOT_EXIST.toString()));
+            }
+            final String extractedDatabaseName = extractedDatabase.toString()
+                    .substring(0, extractedDatabase.toString().length() - H2_DATABASE_FILE_SUFFIX.length());
+            final Path script = extractionDirectory.resolve("backup.sql");
+            Script.process("jdbc:h2:file:" + extractedDatabaseName, datasourceUsername, datasourcePassword,
+                    script.toString(), "DROP", "");
+            runScript(script);
+        } finally {
+            try (Stream<Path> files = Files.walk(extractionDirectory)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Executes a SQL backup script, gzip compressed or not, on the running database.
+     * <p>
+     * Statements are executed in order, except consecutive INSERT statements which are sent by batches to
+     * {@code restoreParallelism} workers, each one on its own connection. Workers are awaited before executing
+     * the next statement of another kind, the rows of each table are thus inserted after its creation and before
+     * its constraints. As with {@link RunScript} in continue-on-error mode, a failing statement is logged and skipped.
+     *
+     * @param script The location of the SQL script
+     * @throws SQLException         If the database cannot be reached
+     * @throws IOException          If the script cannot be read
+     * @throws InterruptedException If interrupted while waiting for restore workers
+     */
+    private void runScript(Path script) throws SQLException, IOException, InterruptedException {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService restoreExecutor = Executors.newFixedThreadPool(restoreParallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "restore-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bounds the number of batches read ahead of workers
+        final Semaphore pendingBatches = new Semaphore(restoreParallelism * 2);
+        final List<Future<?>> insertTasks = new ArrayList<>();
+        try (Reader reader = new BufferedReader(new InputStreamReader(openBackupStream(script), Charset.defaultCharset()));
+             ScriptReader scriptReader = new ScriptReader(reader);
+             Connection connection = DriverManager.getConnection(datasourceUrl, datasourceUsername, datasourcePassword)) {
+            scriptReader.setSkipRemarks(true);
+            List<String> batch = new ArrayList<>(RESTORE_INSERT_BATCH_SIZE);
+            String sql;
+            while ((sql = scriptReader.readStatement()) != null) {
+                sql = sql.trim();
+                if (sql.isEmpty()) {
+                    continue;
+                }
+                if (sql.regionMatches(true, 0, "INSERT", 0, 6)) {
+                    batch.add(sql);
+                    if (batch.size() == RESTORE_INSERT_BATCH_SIZE) {
+                        insertTasks.add(submitInsertBatch(restoreExecutor, pendingBatches, batch));
+                        batch = new ArrayList<>(RESTORE_INSERT_BATCH_SIZE);
+                    }
+                    continue;
+                }
+                if (!batch.isEmpty()) {
+                    insertTasks.add(submitInsertBatch(restoreExecutor, pendingBatches, batch));
+                    batch = new ArrayList<>(RESTORE_INSERT_BATCH_SIZE);
+                }
+                awaitInsertTasks(insertTasks);
+                executeStatements(connection, List.of(sql));
+            }
+            if (!batch.isEmpty()) {
+                insertTasks.add(submitInsertBatch(restoreExecutor, pendingBatches, batch));
+            }
+            awaitInsertTasks(insertTasks);
+        } catch (DbException e) {
+            // ScriptReader reports read errors, such as a truncated gzip stream, as unchecked exceptions
+            throw e.getSQLException();
+        } finally {
+            restoreExecutor.shutdownNow();
+        }
+    }
+
+    private Future<?> submitInsertBatch(ExecutorService restoreExecutor, Semaphore pendingBatches, List<String> batch)
+            throws InterruptedException {
+        pendingBatches.acquire();
+        return restoreExecutor.submit(() -> {
+            try (Connection connection = DriverManager.getConnection(datasourceUrl, datasourceUsername, datasourcePassword)) {
+                executeStatements(connection, batch);
+            } finally {
+                pendingBatches.release();
+            }
+            return null;
+        });
+    }
+
+    private void awaitInsertTasks(List<Future<?>> insertTasks) throws SQLException, InterruptedException {
+        try {
+            for (Future<?> insertTask : insertTasks) {
+                insertTask.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Restore worker failed", e.getCause());
+        } finally {
+            insertTasks.clear();
+        }
+    }
+
+    private void executeStatements(Connection connection, List<String> statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                try {
+                    statement.execute(sql);
+                } catch (SQLException e) {
+                    log.error("Failed to execute restore statement, skipping it [errorCode:{}, message:{}]",
+                            e.getErrorCode(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of bytes of the backup file read by the current restore, or by the last one.
+     * Binary backups are restored from an intermediate SQL script whose bytes are counted instead.
+     *
+     * @return Number of bytes read
+     */
+    public long getRestoredBytes() {
+        return restoredBytes.get();
+    }
+
+    private InputStream openBackupStream(Path backupFileLocation) throws IOException {
+        final InputStream inputStream = new BufferedInputStream(new FilterInputStream(Files.newInputStream(backupFileLocation)) {
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                if (b >= 0) {
+                    restoredBytes.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                final int count = super.read(b, off, len);
+                if (count > 0) {
+                    restoredBytes.addAndGet(count);
+                }
+                return count;
+            }
+        });
+        inputStream.mark(GZIP_HEADER.length);
+        final boolean compressed = Arrays.equals(inputStream.readNBytes(GZIP_HEADER.length), GZIP_HEADER);
+        inputStream.reset();
+        return compressed ? new GZIPInputStream(inputStream) : inputStream;
+    }
+
+    /**
+     * Writes the SHA-256 checksums of a database backup and of its AES keys next to them.
+     *
+     * @param databaseBackupFile The database backup file
+     * @param aesKeyBackupFile   The AES key backup file, retired keys backed up next to it are included
+     * @throws IOException If a file cannot be read or the manifest cannot be written
+     */
+    void writeManifest(Path databaseBackupFile, Path aesKeyBackupFile) throws IOException {
+        final Path manifest = Path.of(databaseBackupFile + MANIFEST_FILENAME_EXTENSION);
+        final StringBuilder content = new StringBuilder();
+        for (Path file : getBackupFiles(databaseBackupFile, aesKeyBackupFile)) {
+            content.append(sha256(file)).append("  ").append(file.getFileName()).append("\n");
+        }
+        Files.writeString(manifest, content, StandardCharsets.UTF_8);
+        log.debug("Backup manifest created [fileName:{}]", manifest);
+    }
+
+    private static List<Path> getBackupFiles(Path databaseBackupFile, Path aesKeyBackupFile) {
+        final List<Path> files = new ArrayList<>(List.of(databaseBackupFile, aesKeyBackupFile));
+        files.addAll(EncryptionService.findRetiredAesKeyFiles(aesKeyBackupFile));
+        return files;
+    }
+
+    /**
+     * Checks a database backup and its AES keys against the checksums of their manifest.
+     * <p>
+     * Backups created before manifests were introduced are accepted without check.
+     * Retired keys listed in the manifest must be present.
+     *
+     * @param databaseBackupFile The database backup file
+     * @param aesKeyBackupFile   The AES key backup file
+     * @throws IOException If a checksum is missing or does not match
+     */
+    void verifyManifest(Path databaseBackupFile, Path aesKeyBackupFile) throws IOException {
+        final Path manifest = Path.of(databaseBackupFile + MANIFEST_FILENAME_EXTENSION);
+        if (!manifest.toFile().exists()) {
+            log.warn("No backup manifest, integrity cannot be checked [backupFileLocation:{}]", databaseBackupFile);
+            return;
+        }
+        final Map<String, String> checksums = new HashMap<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            final String[] parts = line.trim().split("\\s+", 2);
+            if (parts.length == 2) {
+                checksums.put(parts[1], parts[0]);
+            }
+        }
+        final Set<Path> files = new LinkedHashSet<>(getBackupFiles(databaseBackupFile, aesKeyBackupFile));
+        final String retiredAesKeyPrefix = aesKeyBackupFile.getFileName() + EncryptionService.RETIRED_KEY_SUFFIX;
+        checksums.keySet().stream()
+                .filter(fileName -> fileName.startsWith(retiredAesKeyPrefix) && !StringUtils.containsAny(fileName, "/\\"))
+                .forEach(fileName -> files.add(aesKeyBackupFile.resolveSibling(fileName)));
+        for (Path file : files) {
+            if (!file.toFile().exists() || !sha256(file).equals(checksums.get(file.getFileName().toString()))) {
+                throw new IOException(AdminOperationError.BACKUP_FILE_CHECKSUM_MISMATCH + " [file:" + file + "]");
+            }
+        }
+        log.info("Backup manifest verified [backupFileLocation:{}]", databaseBackupFile);
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance("SHA-256"))) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+            final byte[] hash = ((DigestInputStream) inputStream).getMessageDigest().digest();
+            final StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * Delete a backup of the H2 database from a location
      *
@@ -229,6 +685,8 @@ public class AdminService {
 
             final boolean deleteSuccessfulDB = processDeleteFile(backupDatabaseFileLocationPath, "Database");
             final boolean deleteSuccessfulAESKey = processDeleteFile(backupAesKeyFileLocationPath, AES_KEY_LOG_DESCRIPTION);
+            deleteRetiredAesKeys(backupAesKeyFileLocationPath);
+            Files.deleteIfExists(Path.of(backupDatabaseFileLocationPath + MANIFEST_FILENAME_EXTENSION));
 
             return deleteSuccessfulDB && deleteSuccessfulAESKey;
         } catch (IOException e) {
@@ -237,6 +695,24 @@ public class AdminService {
         return false;
     }
 
+    /**
+     * Deletes the files written by a backup or a copy which did not complete, they must not be restored.
+     *
+     * @param databaseBackupFile The database backup file, AES keys and manifest are found next to it
+     */
+    private void deletePartialBackup(Path databaseBackupFile) {
+        try {
+            final Path aesKeyBackupFile = Path.of(databaseBackupFile + AES_KEY_FILENAME_EXTENSION);
+            Files.deleteIfExists(databaseBackupFile);
+            Files.deleteIfExists(aesKeyBackupFile);
+            deleteRetiredAesKeys(aesKeyBackupFile);
+            Files.deleteIfExists(Path.of(databaseBackupFile + MANIFEST_FILENAME_EXTENSION));
+            log.warn("Partial backup deleted [backupFileLocation:{}]", databaseBackupFile);
+        } catch (IOException e) {
+            log.error("Failed to delete partial backup [backupFileLocation:{}]", databaseBackupFile, e);
+        }
+    }
+
     /**
      * Delete a file if exist with detailed trace information
      *
@@ -299,9 +775,22 @@ public class AdminService {
             checkDestinationFileNotExists(destinationAesKeyBackupFileLocation, AdminOperationError.AES_KEY_FILE_ALREADY_EXIST);
 
             //Process copy
-            processCopyFile(sourceDatabaseBackupFileLocation, destinationDatabaseBackupFileLocation, "Database", StandardCopyOption.COPY_ATTRIBUTES);
-            processCopyFile(sourceAesKeyBackupFileLocation, destinationAesKeyBackupFileLocation, AES_KEY_LOG_DESCRIPTION, StandardCopyOption.COPY_ATTRIBUTES);
-            return true;
+            verifyManifest(sourceDatabaseBackupFileLocation, sourceAesKeyBackupFileLocation);
+            boolean completed = false;
+            try {
+                processCopyFile(sourceDatabaseBackupFileLocation, destinationDatabaseBackupFileLocation, "Database", StandardCopyOption.COPY_ATTRIBUTES);
+                processCopyFile(sourceAesKeyBackupFileLocation, destinationAesKeyBackupFileLocation, AES_KEY_LOG_DESCRIPTION, StandardCopyOption.COPY_ATTRIBUTES);
+                copyRetiredAesKeys(sourceAesKeyBackupFileLocation, destinationAesKeyBackupFileLocation);
+                if (Path.of(sourceDatabaseBackupFileLocation + MANIFEST_FILENAME_EXTENSION).toFile().exists()) {
+                    writeManifest(destinationDatabaseBackupFileLocation, destinationAesKeyBackupFileLocation);
+                }
+                completed = true;
+                return true;
+            } finally {
+                if (!completed) {
+                    deletePartialBackup(destinationDatabaseBackupFileLocation);
+                }
+            }
         } catch (IOException e) {
             log.error("An error occurred while copying backup", e);
         }
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.iexec.sms.encryption.EncryptionService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Incremental backups of the SMS tables.
+ * <p>
+ * A backup is a directory holding a manifest, a copy of the AES keys and gzip compressed chunks of rows.
+ * Rows are grouped in chunks of {@code chunkSize} consecutive H2 row ids and each chunk is identified by the
+ * SHA-256 hash of its content. When a backup is based on a previous one, only chunks whose hash has changed are
+ * written, others are referenced from the directory where they have been written first.
+ * A manifest always lists all chunks of the database, restoring a backup restores its base and increments at once.
+ * <p>
+ * Tables are read in a single read-only transaction, the backup is consistent and the SMS keeps serving requests.
+ */
+@Slf4j
+@Service
+public class IncrementalBackupService {
+    static final String MANIFEST_FILENAME = "manifest.json";
+    static final String AES_KEY_FILENAME = "aes.key";
+    static final int MANIFEST_VERSION = 1;
+    static final String CHUNK_FILENAME_EXTENSION = ".jsonl.gz";
+
+    /**
+     * Backed up tables, in insertion order: {@code tee_challenge} references {@code ethereum_credentials}.
+     */
+    static final List<String> TABLES = List.of(
+            "web2secret",
+            "web3secret",
+            "tee_task_compute_secret",
+            "ethereum_credentials",
+            "tee_challenge"
+    );
+
+    private final AdminService adminService;
+    private final EncryptionService encryptionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransactionTemplate;
+    private final TransactionTemplate writeTransactionTemplate;
+    private final int chunkSize;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader rowReader = objectMapper.readerFor(Object[].class);
+
+    public IncrementalBackupService(AdminService adminService,
+                                    EncryptionService encryptionService,
+                                    ApplicationEventPublisher eventPublisher,
+                                    JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${admin.incremental-backup.chunk-size}") int chunkSize) {
+        this.adminService = adminService;
+        this.encryptionService = encryptionService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readTransactionTemplate.setReadOnly(true);
+        this.writeTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    /**
+     * Creates an incremental backup.
+     *
+     * @param storageLocation The location where the backup directory will be created, must be an existing directory.
+     * @param backupName      The name of the backup directory, must not exist yet.
+     * @param baseBackupName  The name of a previous backup in the same location, a full backup is created if blank.
+     * @return {@code true} if the backup was successful, {@code false} if any error occurs.
+     */
+    boolean createIncrementalBackup(String storageLocation, String backupName, String baseBackupName) {
+        try {
+            if (!adminService.checkCommonParameters(storageLocation, backupName)) {
+                return false;
+            }
+            if (!new File(storageLocation).isDirectory()) {
+                log.error("storageLocation must be an existing directory [storageLocation:{}]", storageLocation);
+                return false;
+            }
+            final Path backupDirectory = Path.of(adminService.checkBackupFileLocation(
+                    storageLocation + File.separator + backupName, AdminOperationError.BACKUP_FILE_OUTSIDE_STORAGE));
+            final Manifest baseManifest = StringUtils.isBlank(baseBackupName)
+                    ? null
+                    : readManifest(checkBaseBackupDirectory(backupDirectory, baseBackupName));
+            Files.createDirectory(backupDirectory);
+            log.info("Starting the incremental backup process [backupDirectory:{}, baseBackupName:{}]",
+                    backupDirectory, baseBackupName);
+            final long start = System.currentTimeMillis();
+            final Manifest manifest;
+            boolean completed = false;
+            try {
+                Files.copy(Path.of(encryptionService.getAesKeyPath()), backupDirectory.resolve(AES_KEY_FILENAME),
+                        StandardCopyOption.REPLACE_EXISTING);
+                adminService.copyRetiredAesKeys(Path.of(encryptionService.getAesKeyPath()),
+                        backupDirectory.resolve(AES_KEY_FILENAME));
+                manifest = readTransactionTemplate.execute(
+                        status -> writeChunks(backupDirectory, baseManifest));
+                objectMapper.writeValue(backupDirectory.resolve(MANIFEST_FILENAME).toFile(), manifest);
+                completed = true;
+            } finally {
+                if (!completed) {
+                    deletePartialBackup(backupDirectory);
+                }
+            }
+            final long stop = System.currentTimeMillis();
+            final long writtenChunks = manifest.getTables().values().stream()
+                    .flatMap(table -> table.getChunks().stream())
+                    .filter(chunk -> backupName.equals(chunk.getBackup()))
+                    .count();
+            final long totalChunks = manifest.getTables().values().stream()
+                    .mapToLong(table -> table.getChunks().size())
+                    .sum();
+            log.info("New incremental backup created [backupDirectory:{}, baseBackupName:{}, duration:{} ms, writtenChunks:{}, totalChunks:{}]",
+                    backupDirectory, baseBackupName, stop - start, writtenChunks, totalChunks);
+            return true;
+        } catch (IOException | UncheckedIOException | DataAccessException | TransactionException e) {
+            log.error("An error occurred while creating incremental backup", e);
+        }
+        return false;
+    }
+
+    /**
+     * Restores an incremental backup, with all chunks it references from its base backups.
+     * <p>
+     * Chunk hashes are checked before being applied, all tables are replaced in a single transaction.
+     *
+     * @param storageLocation Where to find the backup directory
+     * @param backupName      The backup directory to restore
+     * @return {@code true} if the restoration was successful, {@code false} if any error occurs.
+     */
+    boolean restoreIncrementalBackup(String storageLocation, String backupName) {
+        try {
+            adminService.putSmsOffline();
+            final Path backupDirectory = Path.of(adminService.checkBackupFileLocation(
+                    storageLocation + File.separator + backupName, AdminOperationError.BACKUP_FILE_OUTSIDE_STORAGE));
+            final Manifest manifest = readManifest(backupDirectory);
+            final Path aesKeyBackup = backupDirectory.resolve(AES_KEY_FILENAME);
+            if (!aesKeyBackup.toFile().exists()) {
+                throw new FileSystemNotFoundException(AdminOperationError.AES_KEY_BACKUP_FILE_NOT_EXIST.toString());
+            }
+            log.info("Starting the incremental restore process [backupDirectory:{}, base:{}]",
+                    backupDirectory, manifest.getBase());
+            final long start = System.currentTimeMillis();
+            adminService.restoreAesKey(aesKeyBackup);
+            writeTransactionTemplate.executeWithoutResult(status -> restoreChunks(backupDirectory, manifest));
+            eventPublisher.publishEvent(new DatabaseRestoredEvent(backupDirectory.toString()));
+            final long stop = System.currentTimeMillis();
+            log.info("Incremental backup has been restored [backupDirectory:{}, duration:{} ms]",
+                    backupDirectory, stop - start);
+            return true;
+        } catch (IOException | UncheckedIOException | DataAccessException | TransactionException e) {
+            log.error("An error occurred while restoring incremental backup", e);
+        } finally {
+            adminService.putSmsOnline();
+        }
+        return false;
+    }
+
+    /**
+     * Deletes a backup directory which did not get its manifest, it must not be restored nor used as a base.
+     */
+    private void deletePartialBackup(Path backupDirectory) {
+        try (Stream<Path> files = Files.walk(backupDirectory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            log.warn("Partial incremental backup deleted [backupDirectory:{}]", backupDirectory);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to delete partial incremental backup [backupDirectory:{}]", backupDirectory, e);
+        }
+    }
+
+    /**
+     * Resolves a backup referenced by another one, it must be a directory of the same location.
+     *
+     * @param backupDirectory The referencing backup directory
+     * @param baseBackupName  The name of the referenced backup
+     * @return The referenced backup directory
+     * @throws IOException If the name is not a plain directory name or resolves outside of the storage
+     */
+    private Path checkBaseBackupDirectory(Path backupDirectory, String baseBackupName) throws IOException {
+        if (StringUtils.containsAny(baseBackupName, "/\\") || "..".equals(baseBackupName) || ".".equals(baseBackupName)) {
+            throw new IOException(AdminOperationError.BACKUP_FILE_OUTSIDE_STORAGE.toString());
+        }
+        return Path.of(adminService.checkBackupFileLocation(
+                backupDirectory.resolveSibling(baseBackupName).toString(), AdminOperationError.BACKUP_FILE_OUTSIDE_STORAGE));
+    }
+
+    private Manifest readManifest(Path backupDirectory) throws IOException {
+        final File manifestFile = backupDirectory.resolve(MANIFEST_FILENAME).toFile();
+        if (!manifestFile.exists()) {
+            throw new FileSystemNotFoundException(AdminOperationError.DATABASE_BACKUP_FILE_NOT_EXIST.toString());
+        }
+        final Manifest manifest = objectMapper.readValue(manifestFile, Manifest.class);
+        if (manifest.getVersion() != MANIFEST_VERSION) {
+            throw new IOException("Unsupported manifest version [version:" + manifest.getVersion() + "]");
+        }
+        return manifest;
+    }
+
+    // region backup
+    private Manifest writeChunks(Path backupDirectory, Manifest baseManifest) {
+        final String backupName = backupDirectory.getFileName().toString();
+        final Map<String, TableManifest> tables = new LinkedHashMap<>();
+        for (String table : TABLES) {
+            final TableManifest baseTable = baseManifest != null ? baseManifest.getTables().get(table) : null;
+            final ChunkWriter chunkWriter = new ChunkWriter(backupDirectory, table, baseTable);
+            jdbcTemplate.query("SELECT _ROWID_, * FROM \"" + table + "\" ORDER BY _ROWID_", chunkWriter);
+            tables.put(table, chunkWriter.finish());
+        }
+        return new Manifest(MANIFEST_VERSION, backupName,
+                baseManifest != null ? baseManifest.getName() : null, System.currentTimeMillis(), tables);
+    }
+
+    /**
+     * Streams rows of a table and writes each chunk as soon as all its rows have been read.
+     */
+    private class ChunkWriter implements RowCallbackHandler {
+        private final Path backupDirectory;
+        private final String table;
+        private final Map<Long, ChunkManifest> baseChunks;
+        private final List<ChunkManifest> chunks = new ArrayList<>();
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private List<String> columns;
+        private long chunkIndex = -1;
+        private int rows;
+
+        private ChunkWriter(Path backupDirectory, String table, TableManifest baseTable) {
+            this.backupDirectory = backupDirectory;
+            this.table = table;
+            this.baseChunks = baseTable == null ? Map.of() : baseTable.getChunks().stream()
+                    .collect(Collectors.toMap(ChunkManifest::getIndex, chunk -> chunk));
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            final ResultSetMetaData metaData = rs.getMetaData();
+            if (columns == null) {
+                columns = new ArrayList<>();
+                for (int i = 2; i <= metaData.getColumnCount(); i++) {
+                    columns.add(metaData.getColumnName(i));
+                }
+            }
+            final long index = Math.floorDiv(rs.getLong(1), chunkSize);
+            if (index != chunkIndex) {
+                flush();
+                chunkIndex = index;
+            }
+            final Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 2);
+            }
+            try {
+                content.write(objectMapper.writeValueAsBytes(row));
+                content.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+
+        private void flush() {
+            if (rows == 0) {
+                return;
+            }
+            final byte[] bytes = content.toByteArray();
+            final String sha256 = sha256(bytes);
+            final ChunkManifest baseChunk = baseChunks.get(chunkIndex);
+            if (baseChunk != null && baseChunk.getSha256().equals(sha256)) {
+                chunks.add(baseChunk);
+            } else {
+                final String backupName = backupDirectory.getFileName().toString();
+                try (OutputStream outputStream = new GZIPOutputStream(
+                        Files.newOutputStream(backupDirectory.resolve(chunkFileName(table, chunkIndex))))) {
+                    outputStream.write(bytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                chunks.add(new ChunkManifest(chunkIndex, rows, sha256, backupName));
+            }
+            content.reset();
+            rows = 0;
+        }
+
+        private TableManifest finish() {
+            flush();
+            return new TableManifest(columns != null ? columns : List.of(), chunks);
+        }
+    }
+    // endregion
+
+    // region restore
+    private void restoreChunks(Path backupDirectory, Manifest manifest) {
+        final List<String> reversedTables = new ArrayList<>(TABLES);
+        Collections.reverse(reversedTables);
+        for (String table : reversedTables) {
+            jdbcTemplate.update("DELETE FROM \"" + table + "\"");
+        }
+        for (String table : TABLES) {
+            final TableManifest tableManifest = manifest.getTables().get(table);
+            if (tableManifest == null || tableManifest.getChunks().isEmpty()) {
+                continue;
+            }
+            final String insertQuery = "INSERT INTO \"" + table + "\" ("
+                    + tableManifest.getColumns().stream().map(column -> "\"" + column + "\"").collect(Collectors.joining(", "))
+                    + ") VALUES ("
+                    + tableManifest.getColumns().stream().map(column -> "?").collect(Collectors.joining(", "))
+                    + ")";
+            for (ChunkManifest chunk : tableManifest.getChunks()) {
+                jdbcTemplate.batchUpdate(insertQuery, readChunk(backupDirectory, table, chunk));
+            }
+            log.debug("Table restored [table:{}, chunks:{}]", table, tableManifest.getChunks().size());
+        }
+    }
+
+    private List<Object[]> readChunk(Path backupDirectory, String table, ChunkManifest chunk) {
+        final Path chunkFile;
+        try {
+            chunkFile = checkBaseBackupDirectory(backupDirectory, chunk.getBackup()).resolve(chunkFileName(table, chunk.getIndex()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final byte[] bytes;
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(chunkFile))) {
+            bytes = inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!sha256(bytes).equals(chunk.getSha256())) {
+            throw new UncheckedIOException(new IOException("Corrupted chunk [file:" + chunkFile + "]"));
+        }
+        final List<Object[]> rows = new ArrayList<>(chunk.getRows());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(rowReader.readValue(line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+    // endregion
+
+    static String chunkFileName(String table, long index) {
+        return table + "-" + index + CHUNK_FILENAME_EXTENSION;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            final StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Manifest {
+        private int version;
+        private String name;
+        private String base;
+        private long createdAt;
+        private Map<String, TableManifest> tables;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class TableManifest {
+        private List<String> columns;
+        private List<ChunkManifest> chunks;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class ChunkManifest {
+        private long index;
+        private int rows;
+        private String sha256;
+        private String backup;
+    }
+}
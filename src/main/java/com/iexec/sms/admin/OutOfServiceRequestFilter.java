@@ -15,25 +15,40 @@
  */
 package com.iexec.sms.admin;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.web.filter.GenericFilterBean;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Set;
 
 /**
  * This filter can be used to disable incoming requests.
+ * <p>
+ * While a backup is being restored, the SMS runs in a degraded read-only mode.
+ * Reads are let through and are answered from in-memory caches, which still hold the state preceding the restoration.
+ * Writes, session generations and reads which would need the database are rejected with a 503 and a Retry-After header.
  */
 public class OutOfServiceRequestFilter extends GenericFilterBean {
 
     public static final String MAINTENANCE_ERROR = "The server is temporarily unable to serve your request due to maintenance downtime";
+    private static final Set<String> READ_METHODS = Set.of(HttpMethod.GET.name(), HttpMethod.HEAD.name());
+    private static final String BATCH_PRESENCE_PATH = "/secrets/batch/presence";
+
     private final AdminService adminService;
+    private final long retryAfterSeconds;
 
-    public OutOfServiceRequestFilter(AdminService adminService) {
+    public OutOfServiceRequestFilter(AdminService adminService, long retryAfterSeconds) {
         this.adminService = adminService;
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 
     @Override
@@ -42,13 +57,34 @@ public class OutOfServiceRequestFilter extends GenericFilterBean {
         //SMS is online, we let the requests through
         if (adminService.isSmsOnline()) {
             chain.doFilter(request, response);
+        } else if (isReadRequest((HttpServletRequest) request)) {
+            //reads are served from caches, they are rejected if the database is needed
+            try {
+                chain.doFilter(request, response);
+            } catch (ServletException | RuntimeException e) {
+                if (ExceptionUtils.indexOfType(e, DatabaseUnavailableException.class) < 0 || response.isCommitted()) {
+                    throw e;
+                }
+                rejectRequest(response);
+            }
         } else {
             //otherwise we systematically return a 503
-            final HttpServletResponse resp = (HttpServletResponse) response;
-            resp.reset();
-            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
-            response.setContentLength(MAINTENANCE_ERROR.length());
-            response.getWriter().write(MAINTENANCE_ERROR);
+            rejectRequest(response);
         }
     }
+
+    private boolean isReadRequest(HttpServletRequest request) {
+        final String path = StringUtils.removeStart(request.getRequestURI(), request.getContextPath());
+        return READ_METHODS.contains(request.getMethod())
+                || (HttpMethod.POST.matches(request.getMethod()) && BATCH_PRESENCE_PATH.equals(path));
+    }
+
+    private void rejectRequest(ServletResponse response) throws IOException {
+        final HttpServletResponse resp = (HttpServletResponse) response;
+        resp.reset();
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        resp.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentLength(MAINTENANCE_ERROR.length());
+        response.getWriter().write(MAINTENANCE_ERROR);
+    }
 }
@@ -27,11 +27,21 @@ import com.iexec.commons.poco.utils.HashUtils;
 import com.iexec.commons.poco.utils.SignatureUtils;
 import com.iexec.sms.blockchain.IexecHubService;
 import lombok.extern.slf4j.Slf4j;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.crypto.Hash;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static com.iexec.sms.App.DOMAIN;
 import static com.iexec.sms.authorization.AuthorizationError.*;
@@ -41,9 +51,33 @@ import static com.iexec.sms.authorization.AuthorizationError.*;
 public class AuthorizationService {
 
     private final IexecHubService iexecHubService;
+    private final long taskCacheTtlInSeconds;
+    /**
+     * Deals are immutable once created, they only have to be bounded in number.
+     */
+    private final ExpiringMap<String, ChainDeal> dealCache;
+    /**
+     * Active tasks can move to another status at any time, they are only kept for a short period.
+     */
+    private final ExpiringMap<String, ChainTask> taskCache;
+    private final Map<String, CompletableFuture<Optional<ChainDeal>>> ongoingDealLookups = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Optional<ChainTask>>> ongoingTaskLookups = new ConcurrentHashMap<>();
 
-    public AuthorizationService(IexecHubService iexecHubService) {
+    public AuthorizationService(IexecHubService iexecHubService,
+                                @Value("${authorization.cache.max-size}") int cacheMaxSize,
+                                @Value("${authorization.cache.task-ttl}") long taskCacheTtlInSeconds) {
         this.iexecHubService = iexecHubService;
+        this.taskCacheTtlInSeconds = taskCacheTtlInSeconds;
+        this.dealCache = ExpiringMap.builder()
+                .maxSize(Math.max(cacheMaxSize, 1))
+                .expiration(1, TimeUnit.DAYS)
+                .expirationPolicy(ExpirationPolicy.ACCESSED)
+                .build();
+        this.taskCache = ExpiringMap.builder()
+                .maxSize(Math.max(cacheMaxSize, 1))
+                .expiration(Math.max(taskCacheTtlInSeconds, 1), TimeUnit.SECONDS)
+                .expirationPolicy(ExpirationPolicy.CREATED)
+                .build();
     }
 
     /**
@@ -59,7 +93,7 @@ public class AuthorizationService {
         }
 
         final String chainTaskId = workerpoolAuthorization.getChainTaskId();
-        final ChainTask chainTask = iexecHubService.getChainTask(chainTaskId).orElse(null);
+        final ChainTask chainTask = getChainTask(chainTaskId).orElse(null);
         if (chainTask == null) {
             log.error("Could not get chainTask [chainTaskId:{}]", chainTaskId);
             return Optional.of(GET_CHAIN_TASK_FAILED);
@@ -72,7 +106,7 @@ public class AuthorizationService {
             return Optional.of(TASK_NOT_ACTIVE);
         }
 
-        final ChainDeal chainDeal = iexecHubService.getChainDeal(chainDealId).orElse(null);
+        final ChainDeal chainDeal = getChainDeal(chainDealId).orElse(null);
         if (chainDeal == null) {
             log.error("isAuthorizedOnExecution failed (getChainDeal failed) [chainTaskId:{}]", chainTaskId);
             return Optional.of(GET_CHAIN_DEAL_FAILED);
@@ -97,6 +131,72 @@ public class AuthorizationService {
         return Optional.empty();
     }
 
+    // region on-chain lookups
+    /**
+     * Reads a task from the cache or from the blockchain.
+     * <p>
+     * Only {@link ChainTaskStatus#ACTIVE} tasks are cached, other statuses are either rejected or about to change.
+     *
+     * @param chainTaskId ID of the task
+     * @return The task if found, an empty {@code Optional} otherwise
+     */
+    Optional<ChainTask> getChainTask(String chainTaskId) {
+        return getOrLoad(chainTaskId, taskCache, ongoingTaskLookups, iexecHubService::getChainTask,
+                chainTask -> taskCacheTtlInSeconds > 0 && chainTask.getStatus() == ChainTaskStatus.ACTIVE);
+    }
+
+    /**
+     * Reads a deal from the cache or from the blockchain.
+     *
+     * @param chainDealId ID of the deal
+     * @return The deal if found, an empty {@code Optional} otherwise
+     */
+    Optional<ChainDeal> getChainDeal(String chainDealId) {
+        return getOrLoad(chainDealId, dealCache, ongoingDealLookups, iexecHubService::getChainDeal, chainDeal -> true);
+    }
+
+    /**
+     * Returns a cached value or loads it.
+     * <p>
+     * Concurrent calls with the same ID share a single load, so a burst of requests only leads to one RPC call.
+     * Failed lookups are never cached.
+     */
+    private <T> Optional<T> getOrLoad(String id,
+                                      Map<String, T> cache,
+                                      Map<String, CompletableFuture<Optional<T>>> ongoingLookups,
+                                      Function<String, Optional<T>> loader,
+                                      Predicate<T> isCacheable) {
+        if (StringUtils.isEmpty(id)) {
+            return loader.apply(id);
+        }
+        final T cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final CompletableFuture<Optional<T>> lookup = new CompletableFuture<>();
+        final CompletableFuture<Optional<T>> ongoingLookup = ongoingLookups.putIfAbsent(id, lookup);
+        if (ongoingLookup != null) {
+            try {
+                return ongoingLookup.join();
+            } catch (CompletionException e) {
+                log.warn("Shared on-chain lookup failed [id:{}]", id, e.getCause());
+                return Optional.empty();
+            }
+        }
+        try {
+            final Optional<T> loaded = loader.apply(id);
+            loaded.filter(isCacheable).ifPresent(value -> cache.put(id, value));
+            lookup.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            ongoingLookups.remove(id, lookup);
+        }
+    }
+    // endregion
+
     // region isSignedBy
     public boolean isSignedByHimself(String message, String signature, String address) {
         return SignatureUtils.isSignatureValid(BytesUtils.stringToBytes(message), new Signature(signature), address);
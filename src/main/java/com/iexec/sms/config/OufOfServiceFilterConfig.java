@@ -17,6 +17,7 @@ package com.iexec.sms.config;
 
 import com.iexec.sms.admin.AdminService;
 import com.iexec.sms.admin.OutOfServiceRequestFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -27,16 +28,19 @@ import org.springframework.context.annotation.Configuration;
  * The filter will be activated only if the configuration is enabled.
  * In addition, the endpoints /admin, /actuator/*, /version, /metrics, /swagger-ui/index.html, /v3/api-docs
  * are out of the filter scope and will always be served.
- * The main purpose of activating this filter is to prevent database insertion during a restore.
+ * The main purpose of activating this filter is to prevent database insertion during a restore,
+ * reads are still served from in-memory caches meanwhile.
  */
 @Configuration
 @ConditionalOnExpression("'${admin.out-of-service.enabled}'=='true'")
 public class OufOfServiceFilterConfig {
 
     @Bean
-    public FilterRegistrationBean<OutOfServiceRequestFilter> oufOfServiceFilterRegistrationBean(AdminService adminService) {
+    public FilterRegistrationBean<OutOfServiceRequestFilter> oufOfServiceFilterRegistrationBean(
+            AdminService adminService,
+            @Value("${admin.out-of-service.retry-after}") long retryAfterSeconds) {
         FilterRegistrationBean<OutOfServiceRequestFilter> registrationBean = new FilterRegistrationBean<>();
-        OutOfServiceRequestFilter outOfServiceRequestFilter = new OutOfServiceRequestFilter(adminService);
+        OutOfServiceRequestFilter outOfServiceRequestFilter = new OutOfServiceRequestFilter(adminService, retryAfterSeconds);
 
         registrationBean.setFilter(outOfServiceRequestFilter);
         registrationBean.addUrlPatterns("/tee/*", "/secrets/*", "/apps/*", "/requesters/*");
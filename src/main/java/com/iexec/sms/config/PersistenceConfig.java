@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.config;
+
+import com.iexec.sms.secret.compute.TeeTaskComputeSecret;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretCodec;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretHeader;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretJdbcStore;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretRepository;
+import com.iexec.sms.secret.store.MVStoreSecretStore;
+import com.iexec.sms.secret.store.SecretCodec;
+import com.iexec.sms.secret.store.SecretExistenceFilterService;
+import com.iexec.sms.secret.store.SecretStore;
+import com.iexec.sms.secret.web2.*;
+import com.iexec.sms.secret.web3.*;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.mvstore.MVStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.function.Consumer;
+
+/**
+ * Selects where secrets are stored with the {@code persistence.backend} property.
+ * <ul>
+ * <li>{@code H2} - default, secrets are stored in the H2 database with JPA.
+ * <li>{@code MVSTORE} - secrets are stored as key-value entries in a dedicated MVStore file.
+ * Lookups by header skip Hibernate and SQL parsing altogether.
+ * On startup, secrets of the H2 tables are imported into the MVStore maps which are still empty,
+ * so that an existing node can switch to this backend. H2 tables are left untouched and are not updated afterwards,
+ * secrets added with this backend are lost when switching back to {@code H2}.
+ * Admin backups and background re-encryption only cover the H2 database, the admin API refuses backups,
+ * restores and key rotations with this backend.
+ * </ul>
+ * TEE challenges and Ethereum credentials always remain in the H2 database.
+ * <p>
+ * Whatever the backend, stores are put behind a {@link SecretExistenceFilterService} Bloom filter.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Configuration
+    @ConditionalOnProperty(name = "persistence.backend", havingValue = "H2", matchIfMissing = true)
+    static class H2PersistenceConfig {
+        @Bean
+        SecretStore<Web2SecretHeader, Web2Secret> web2SecretStore(JdbcTemplate jdbcTemplate,
+                                                                  Web2SecretRepository web2SecretRepository,
+                                                                  SecretExistenceFilterService filterService) {
+            return filterService.withExistenceFilter("web2",
+                    new Web2SecretJdbcStore(jdbcTemplate, web2SecretRepository), new Web2SecretCodec());
+        }
+
+        @Bean
+        SecretStore<Web3SecretHeader, Web3Secret> web3SecretStore(JdbcTemplate jdbcTemplate,
+                                                                  Web3SecretRepository web3SecretRepository,
+                                                                  SecretExistenceFilterService filterService) {
+            return filterService.withExistenceFilter("web3",
+                    new Web3SecretJdbcStore(jdbcTemplate, web3SecretRepository), new Web3SecretCodec());
+        }
+
+        @Bean
+        SecretStore<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> teeTaskComputeSecretStore(
+                JdbcTemplate jdbcTemplate,
+                TeeTaskComputeSecretRepository teeTaskComputeSecretRepository,
+                SecretExistenceFilterService filterService) {
+            return filterService.withExistenceFilter("compute",
+                    new TeeTaskComputeSecretJdbcStore(jdbcTemplate, teeTaskComputeSecretRepository),
+                    new TeeTaskComputeSecretCodec());
+        }
+    }
+
+    @Slf4j
+    @Configuration
+    @ConditionalOnProperty(name = "persistence.backend", havingValue = "MVSTORE")
+    static class MVStorePersistenceConfig {
+        @Bean(destroyMethod = "close")
+        MVStore secretMVStore(@Value("${persistence.mvstore.path}") String path,
+                              @Value("${persistence.mvstore.cache-size}") int cacheSize) {
+            log.info("Storing secrets in MVStore [path:{}, cacheSize:{} MB]", path, cacheSize);
+            // Every write is committed explicitly, no background writer is needed
+            return new MVStore.Builder()
+                    .fileName(path)
+                    .cacheSize(cacheSize)
+                    .autoCommitDisabled()
+                    .open();
+        }
+
+        @Bean
+        SecretStore<Web2SecretHeader, Web2Secret> web2SecretStore(MVStore secretMVStore,
+                                                                  JdbcTemplate jdbcTemplate,
+                                                                  Web2SecretRepository web2SecretRepository,
+                                                                  SecretExistenceFilterService filterService) {
+            final Web2SecretCodec codec = new Web2SecretCodec();
+            importFromH2(secretMVStore, "web2secret", codec,
+                    new Web2SecretJdbcStore(jdbcTemplate, web2SecretRepository)::forEachSecret);
+            return filterService.withExistenceFilter("web2",
+                    new MVStoreSecretStore<>(secretMVStore, "web2secret", codec), codec);
+        }
+
+        @Bean
+        SecretStore<Web3SecretHeader, Web3Secret> web3SecretStore(MVStore secretMVStore,
+                                                                  JdbcTemplate jdbcTemplate,
+                                                                  Web3SecretRepository web3SecretRepository,
+                                                                  SecretExistenceFilterService filterService) {
+            final Web3SecretCodec codec = new Web3SecretCodec();
+            importFromH2(secretMVStore, "web3secret", codec,
+                    new Web3SecretJdbcStore(jdbcTemplate, web3SecretRepository)::forEachSecret);
+            return filterService.withExistenceFilter("web3",
+                    new MVStoreSecretStore<>(secretMVStore, "web3secret", codec), codec);
+        }
+
+        @Bean
+        SecretStore<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> teeTaskComputeSecretStore(
+                MVStore secretMVStore,
+                JdbcTemplate jdbcTemplate,
+                TeeTaskComputeSecretRepository teeTaskComputeSecretRepository,
+                SecretExistenceFilterService filterService) {
+            final TeeTaskComputeSecretCodec codec = new TeeTaskComputeSecretCodec();
+            importFromH2(secretMVStore, "tee_task_compute_secret", codec,
+                    new TeeTaskComputeSecretJdbcStore(jdbcTemplate, teeTaskComputeSecretRepository)::forEachSecret);
+            return filterService.withExistenceFilter("compute",
+                    new MVStoreSecretStore<>(secretMVStore, "tee_task_compute_secret", codec), codec);
+        }
+
+        /**
+         * Imports secrets of an H2 table if its MVStore map does not hold any secret yet.
+         */
+        private static <H, S> void importFromH2(MVStore secretMVStore, String mapName, SecretCodec<H, S> codec,
+                                                Consumer<Consumer<S>> h2Secrets) {
+            final long start = System.nanoTime();
+            final long count = MVStoreSecretStore.importSecretsIfEmpty(secretMVStore, mapName, codec, h2Secrets);
+            if (count > 0) {
+                log.info("Secrets imported from H2 into MVStore [map:{}, count:{}, duration:{}ms]",
+                        mapName, count, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+    }
+}
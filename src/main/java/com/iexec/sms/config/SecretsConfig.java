@@ -16,15 +16,18 @@
 
 package com.iexec.sms.config;
 
+import com.iexec.sms.admin.AdminService;
 import com.iexec.sms.metric.MetricsService;
 import com.iexec.sms.secret.CacheSecretService;
+import com.iexec.sms.secret.CacheSecretValueService;
 import com.iexec.sms.secret.MeasuredSecretService;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecret;
 import com.iexec.sms.secret.compute.TeeTaskComputeSecretHeader;
-import com.iexec.sms.secret.compute.TeeTaskComputeSecretRepository;
+import com.iexec.sms.secret.store.SecretStore;
+import com.iexec.sms.secret.web2.Web2Secret;
 import com.iexec.sms.secret.web2.Web2SecretHeader;
-import com.iexec.sms.secret.web2.Web2SecretRepository;
+import com.iexec.sms.secret.web3.Web3Secret;
 import com.iexec.sms.secret.web3.Web3SecretHeader;
-import com.iexec.sms.secret.web3.Web3SecretRepository;
 import com.iexec.sms.tee.challenge.EthereumCredentialsRepository;
 import com.iexec.sms.tee.challenge.TeeChallengeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -69,13 +72,13 @@ public class SecretsConfig {
 
     @Bean
     MeasuredSecretService web2MeasuredSecretService(CacheSecretService<Web2SecretHeader> web2CacheSecretService,
-                                                    Web2SecretRepository web2SecretRepository,
+                                                    SecretStore<Web2SecretHeader, Web2Secret> web2SecretStore,
                                                     @Value("${metrics.storage.refresh-interval}") int storedSecretsCountPeriod) {
         return metricsService.registerNewMeasuredSecretService(
                 new MeasuredSecretService(
                         "web2",
                         "iexec.sms.secrets.web2.",
-                        web2SecretRepository::count,
+                        web2SecretStore::count,
                         web2CacheSecretService::count,
                         storageMetricsExecutorService,
                         storedSecretsCountPeriod
@@ -85,13 +88,13 @@ public class SecretsConfig {
 
     @Bean
     MeasuredSecretService web3MeasuredSecretService(CacheSecretService<Web3SecretHeader> web3CacheSecretService,
-                                                    Web3SecretRepository web3SecretRepository,
+                                                    SecretStore<Web3SecretHeader, Web3Secret> web3SecretStore,
                                                     @Value("${metrics.storage.refresh-interval}") int storedSecretsCountPeriod) {
         return metricsService.registerNewMeasuredSecretService(
                 new MeasuredSecretService(
                         "web3",
                         "iexec.sms.secrets.web3.",
-                        web3SecretRepository::count,
+                        web3SecretStore::count,
                         web3CacheSecretService::count,
                         storageMetricsExecutorService,
                         storedSecretsCountPeriod
@@ -101,13 +104,13 @@ public class SecretsConfig {
 
     @Bean
     MeasuredSecretService computeMeasuredSecretService(CacheSecretService<TeeTaskComputeSecretHeader> teeTaskComputeCacheSecretService,
-                                                       TeeTaskComputeSecretRepository teeTaskComputeSecretRepository,
+                                                       SecretStore<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> teeTaskComputeSecretStore,
                                                        @Value("${metrics.storage.refresh-interval}") int storedSecretsCountPeriod) {
         return metricsService.registerNewMeasuredSecretService(
                 new MeasuredSecretService(
                         "compute",
                         "iexec.sms.secrets.compute.",
-                        teeTaskComputeSecretRepository::count,
+                        teeTaskComputeSecretStore::count,
                         teeTaskComputeCacheSecretService::count,
                         storageMetricsExecutorService,
                         storedSecretsCountPeriod
@@ -146,17 +149,56 @@ public class SecretsConfig {
     }
 
     @Bean
-    CacheSecretService<Web3SecretHeader> web3CacheSecretService() {
-        return new CacheSecretService<>();
+    CacheSecretService<Web3SecretHeader> web3CacheSecretService(
+            AdminService adminService,
+            @Value("${secrets.existence-cache.web3.max-size}") int maxSize,
+            @Value("${secrets.existence-cache.web3.present-ttl}") long presentTtl,
+            @Value("${secrets.existence-cache.web3.missing-ttl}") long missingTtl) {
+        return new CacheSecretService<>("iexec.sms.secrets.web3.", maxSize, presentTtl, missingTtl,
+                adminService::isSmsOnline);
     }
 
     @Bean
-    CacheSecretService<Web2SecretHeader> web2CacheSecretService() {
-        return new CacheSecretService<>();
+    CacheSecretService<Web2SecretHeader> web2CacheSecretService(
+            AdminService adminService,
+            @Value("${secrets.existence-cache.web2.max-size}") int maxSize,
+            @Value("${secrets.existence-cache.web2.present-ttl}") long presentTtl,
+            @Value("${secrets.existence-cache.web2.missing-ttl}") long missingTtl) {
+        return new CacheSecretService<>("iexec.sms.secrets.web2.", maxSize, presentTtl, missingTtl,
+                adminService::isSmsOnline);
     }
 
     @Bean
-    CacheSecretService<TeeTaskComputeSecretHeader> teeTaskComputeCacheSecretService() {
-        return new CacheSecretService<>();
+    CacheSecretService<TeeTaskComputeSecretHeader> teeTaskComputeCacheSecretService(
+            AdminService adminService,
+            @Value("${secrets.existence-cache.compute.max-size}") int maxSize,
+            @Value("${secrets.existence-cache.compute.present-ttl}") long presentTtl,
+            @Value("${secrets.existence-cache.compute.missing-ttl}") long missingTtl) {
+        return new CacheSecretService<>("iexec.sms.secrets.compute.", maxSize, presentTtl, missingTtl,
+                adminService::isSmsOnline);
+    }
+
+    @Bean
+    CacheSecretValueService<Web3SecretHeader, Web3Secret> web3CacheSecretValueService(
+            @Value("${secrets.value-cache.enabled}") boolean enabled,
+            @Value("${secrets.value-cache.max-size}") int maxSize,
+            @Value("${secrets.value-cache.ttl}") long ttl) {
+        return new CacheSecretValueService<>(enabled, maxSize, ttl);
+    }
+
+    @Bean
+    CacheSecretValueService<Web2SecretHeader, Web2Secret> web2CacheSecretValueService(
+            @Value("${secrets.value-cache.enabled}") boolean enabled,
+            @Value("${secrets.value-cache.max-size}") int maxSize,
+            @Value("${secrets.value-cache.ttl}") long ttl) {
+        return new CacheSecretValueService<>(enabled, maxSize, ttl);
+    }
+
+    @Bean
+    CacheSecretValueService<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> teeTaskComputeCacheSecretValueService(
+            @Value("${secrets.value-cache.enabled}") boolean enabled,
+            @Value("${secrets.value-cache.max-size}") int maxSize,
+            @Value("${secrets.value-cache.ttl}") long ttl) {
+        return new CacheSecretValueService<>(enabled, maxSize, ttl);
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.encryption;
+
+import lombok.Getter;
+import org.web3j.crypto.Hash;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+
+/**
+ * AES key prepared for ciphers, with an identifier written in encrypted values.
+ * <p>
+ * The identifier is made of the first 4 bytes of the key hash, it allows to find which key encrypted a value.
+ */
+@Getter
+class AesKey {
+    private static final String AES_ALGORITHM = "AES";
+
+    private final int id;
+    private final SecretKeySpec spec;
+
+    private AesKey(int id, SecretKeySpec spec) {
+        this.id = id;
+        this.spec = spec;
+    }
+
+    static AesKey of(byte[] key) {
+        return new AesKey(ByteBuffer.wrap(Hash.sha3(key)).getInt(), new SecretKeySpec(key, AES_ALGORITHM));
+    }
+}
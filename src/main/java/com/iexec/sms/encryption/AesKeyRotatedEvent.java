@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.encryption;
+
+import lombok.Value;
+
+/**
+ * Published once a new AES key is used for encryptions, before values of the previous key are re-encrypted.
+ * <p>
+ * Components keeping values encrypted with the previous key in memory have to drop them on reception.
+ */
+@Value
+public class AesKeyRotatedEvent {
+    int previousKeyId;
+    int keyId;
+}
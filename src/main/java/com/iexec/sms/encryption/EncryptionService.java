@@ -27,7 +27,20 @@ import org.springframework.stereotype.Service;
 import org.web3j.crypto.Hash;
 
 import javax.annotation.PostConstruct;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.iexec.common.utils.FileHelper.createFileWithContent;
 
@@ -36,14 +49,151 @@ import static com.iexec.common.utils.FileHelper.createFileWithContent;
 public class EncryptionService {
 
     private final String DEFAULT_MESSAGE = "Hello message to test AES key integrity";
-    private byte[] aesKey;
+    private static final byte[] EMPTY = new byte[0];
+    /**
+     * Versioned envelope written since AES-GCM storage: {@code $} followed by
+     * base64(version || key id || nonce || AES-GCM ciphertext and tag).
+     * Version, key id and nonce are authenticated as additional data.
+     * <p>
+     * {@code $} is not part of the base64 alphabet, values without this prefix use the legacy format.
+     */
+    static final byte ENVELOPE_PREFIX = '$';
+    static final byte ENVELOPE_VERSION = 1;
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_NONCE_SIZE = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final int ENVELOPE_HEADER_SIZE = 1 + Integer.BYTES + GCM_NONCE_SIZE;
+    // Legacy format, same as CipherHelper: base64(IV || AES-CBC ciphertext)
+    private static final String CBC_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int CBC_IV_SIZE = 16;
+
+    /**
+     * {@link Cipher} instances are not thread-safe, each thread keeps its own and re-initializes it on every call.
+     */
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> newCipher(GCM_TRANSFORMATION));
+    private static final ThreadLocal<Cipher> CBC_CIPHER = ThreadLocal.withInitial(() -> newCipher(CBC_TRANSFORMATION));
+
+    /**
+     * Previous keys are kept decrypt-only next to the current key, in files suffixed with their hexadecimal id.
+     */
+    public static final String RETIRED_KEY_SUFFIX = ".retired-";
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private volatile AesKey aesKey;
+    // Immutable, replaced as a whole on rotation and reload
+    private volatile Map<Integer, AesKey> retiredAesKeys = Map.of();
 
     @Getter
     private final String aesKeyPath;
 
     public EncryptionService(EncryptionConfiguration configuration) {
         this.aesKeyPath = configuration.getAesKeyPath();
-        this.aesKey = getOrCreateAesKey(configuration.getAesKeyPath());
+        this.aesKey = AesKey.of(getOrCreateAesKey(configuration.getAesKeyPath()));
+        loadRetiredAesKeys();
+    }
+
+    private void loadRetiredAesKeys() {
+        final Map<Integer, AesKey> loadedAesKeys = new HashMap<>();
+        for (Path retiredKeyFile : findRetiredAesKeyFiles(Path.of(aesKeyPath))) {
+            final byte[] retiredKey = FileHelper.readFileBytes(retiredKeyFile.toString());
+            if (retiredKey == null || retiredKey.length == 0) {
+                log.warn("Failed to load retired AES key [path:{}]", retiredKeyFile);
+                continue;
+            }
+            final AesKey retiredAesKey = AesKey.of(retiredKey);
+            loadedAesKeys.put(retiredAesKey.getId(), retiredAesKey);
+        }
+        retiredAesKeys = Map.copyOf(loadedAesKeys);
+        log.info("Retired AES keys loaded [count:{}]", loadedAesKeys.size());
+    }
+
+    /**
+     * Lists the retired key files stored next to a key file, or next to a backup of this key file.
+     *
+     * @param aesKeyFile Key file whose name prefixes retired key file names
+     * @return Retired key files sorted by name, an empty list if there is none
+     */
+    public static List<Path> findRetiredAesKeyFiles(Path aesKeyFile) {
+        final String prefix = aesKeyFile.getFileName() + RETIRED_KEY_SUFFIX;
+        final File[] retiredKeyFiles = aesKeyFile.toAbsolutePath().getParent().toFile()
+                .listFiles((dir, name) -> name.startsWith(prefix));
+        if (retiredKeyFiles == null) {
+            return List.of();
+        }
+        return Arrays.stream(retiredKeyFiles)
+                .map(File::toPath)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the identifier of the key used for new encryptions.
+     *
+     * @return Current key id
+     */
+    public int getAesKeyId() {
+        return aesKey.getId();
+    }
+
+    /**
+     * Generates a new AES key used for all following encryptions.
+     * <p>
+     * The previous key is written to a retired key file and stays available for decryption,
+     * values it encrypted are expected to be re-encrypted afterwards.
+     * Key files are written to a temporary file first and then atomically moved, a crash never leaves
+     * a truncated key behind.
+     *
+     * @return Id of the new key
+     * @throws IOException if a key file could not be written
+     */
+    public synchronized int rotateAesKey() throws IOException {
+        final AesKey previousAesKey = aesKey;
+        retireAesKey();
+        final byte[] newAesKey = CipherHelper.generateAesKey();
+        if (newAesKey == null) {
+            throw new IOException("Failed to generate AES key");
+        }
+        writeKeyFile(Path.of(aesKeyPath), newAesKey);
+        final Map<Integer, AesKey> updatedRetiredAesKeys = new HashMap<>(retiredAesKeys);
+        updatedRetiredAesKeys.put(previousAesKey.getId(), previousAesKey);
+        retiredAesKeys = Map.copyOf(updatedRetiredAesKeys);
+        aesKey = AesKey.of(newAesKey);
+        checkAlgoAndPermissions();
+        log.info("AES key rotated [previousKeyId:{}, keyId:{}]",
+                String.format("%08x", previousAesKey.getId()), String.format("%08x", aesKey.getId()));
+        return aesKey.getId();
+    }
+
+    /**
+     * Writes the current key to a retired key file, values it encrypted stay readable once the key file is replaced.
+     *
+     * @throws IOException if the retired key file could not be written
+     */
+    public synchronized void retireAesKey() throws IOException {
+        final AesKey currentAesKey = aesKey;
+        final Path retiredKeyPath = Path.of(aesKeyPath + RETIRED_KEY_SUFFIX + String.format("%08x", currentAesKey.getId()));
+        if (!Files.exists(retiredKeyPath)) {
+            writeKeyFile(retiredKeyPath, currentAesKey.getSpec().getEncoded());
+        }
+        checkOrFixReadOnlyPermissions(retiredKeyPath.toString());
+    }
+
+    /**
+     * Writes a key to a temporary file of the same directory, then replaces the key file with it.
+     * <p>
+     * The temporary file name starts with a dot, it is never mistaken for a retired key file.
+     */
+    private static void writeKeyFile(Path keyPath, byte[] key) throws IOException {
+        final Path absoluteKeyPath = keyPath.toAbsolutePath();
+        final Path temporaryKeyPath = Files.createTempFile(absoluteKeyPath.getParent(),
+                "." + absoluteKeyPath.getFileName(), ".tmp");
+        try {
+            Files.write(temporaryKeyPath, key);
+            Files.move(temporaryKeyPath, absoluteKeyPath,
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryKeyPath);
+        }
     }
 
     @PostConstruct
@@ -59,10 +209,13 @@ public class EncryptionService {
     /**
      * Enables to reload the AES Key at runtime
      * Use after the restoration process
+     * <p>
+     * Retired keys are reloaded from disk as well, keys whose file is gone are forgotten.
      */
     public void reloadAESKey() {
         log.info("Reload AES Key [aesKeyPath={}]", this.aesKeyPath);
-        this.aesKey = getOrCreateAesKey(this.aesKeyPath);
+        this.aesKey = AesKey.of(getOrCreateAesKey(this.aesKeyPath));
+        loadRetiredAesKeys();
         checkAlgoAndPermissions();
     }
 
@@ -96,26 +249,151 @@ public class EncryptionService {
         return aesKey;
     }
 
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES cipher is not available [transformation:" + transformation + "]", e);
+        }
+    }
+
+    /**
+     * Encrypts a UTF-8 string.
+     *
+     * @param data Plain text
+     * @return Encrypted envelope, an empty string if data is blank or encryption failed
+     */
     public String encrypt(String data) {
         if (StringUtils.isNotBlank(data)) {
-            final byte[] encryptedData = CipherHelper.aesEncrypt(data.getBytes(), aesKey);
-            if (encryptedData != null) {
-                return new String(encryptedData);
-            }
+            return new String(encrypt(data.getBytes(StandardCharsets.UTF_8)), StandardCharsets.US_ASCII);
         }
         return "";
     }
 
+    /**
+     * Decrypts a value produced by {@link #encrypt(String)}, or stored with the legacy format.
+     *
+     * @param encryptedData Encrypted envelope or legacy base64 encoded IV and ciphertext
+     * @return Plain text, an empty string if data is blank or decryption failed
+     */
     public String decrypt(String encryptedData) {
         if (StringUtils.isNotBlank(encryptedData)) {
-            final byte[] decryptedData = CipherHelper.aesDecrypt(encryptedData.getBytes(), aesKey);
-            if (decryptedData != null) {
-                return new String(decryptedData);
-            }
+            return new String(decrypt(encryptedData.getBytes(StandardCharsets.US_ASCII)), StandardCharsets.UTF_8);
         }
         return "";
     }
 
+    /**
+     * Encrypts bytes with AES-GCM and the current key, a random nonce is used for each call.
+     *
+     * @param data Plain bytes
+     * @return Encrypted envelope, an empty array if data is empty or encryption failed
+     */
+    public byte[] encrypt(byte[] data) {
+        if (data == null || data.length == 0) {
+            return EMPTY;
+        }
+        final AesKey key = aesKey;
+        try {
+            final Cipher cipher = GCM_CIPHER.get();
+            final byte[] envelope = new byte[ENVELOPE_HEADER_SIZE + data.length + GCM_TAG_BITS / 8];
+            final ByteBuffer header = ByteBuffer.wrap(envelope, 0, ENVELOPE_HEADER_SIZE)
+                    .put(ENVELOPE_VERSION)
+                    .putInt(key.getId());
+            final byte[] nonce = new byte[GCM_NONCE_SIZE];
+            secureRandom.nextBytes(nonce);
+            header.put(nonce);
+            cipher.init(Cipher.ENCRYPT_MODE, key.getSpec(), new GCMParameterSpec(GCM_TAG_BITS, nonce));
+            cipher.updateAAD(envelope, 0, ENVELOPE_HEADER_SIZE);
+            cipher.doFinal(data, 0, data.length, envelope, ENVELOPE_HEADER_SIZE);
+            final byte[] encodedEnvelope = Base64.getEncoder().encode(envelope);
+            final byte[] encryptedData = new byte[encodedEnvelope.length + 1];
+            encryptedData[0] = ENVELOPE_PREFIX;
+            System.arraycopy(encodedEnvelope, 0, encryptedData, 1, encodedEnvelope.length);
+            return encryptedData;
+        } catch (GeneralSecurityException e) {
+            log.error("Failed to encrypt data [keyId:{}]", key.getId(), e);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Decrypts bytes produced by {@link #encrypt(byte[])}, or stored with the legacy format.
+     *
+     * @param encryptedData Encrypted envelope or legacy base64 encoded IV and ciphertext
+     * @return Plain bytes, an empty array if data is empty or decryption failed
+     */
+    public byte[] decrypt(byte[] encryptedData) {
+        if (encryptedData == null || encryptedData.length == 0) {
+            return EMPTY;
+        }
+        try {
+            return encryptedData[0] == ENVELOPE_PREFIX
+                    ? decryptEnvelope(encryptedData)
+                    : decryptLegacy(encryptedData);
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            log.error("Failed to decrypt data", e);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Checks whether a value has been encrypted with the current format and key.
+     * Other values are still readable, they should be re-encrypted.
+     *
+     * @param encryptedData Value as stored in database
+     * @return {@literal true} if there is no need to encrypt the value again
+     */
+    public boolean isUpToDate(String encryptedData) {
+        if (StringUtils.isBlank(encryptedData)) {
+            return true;
+        }
+        if (encryptedData.charAt(0) != ENVELOPE_PREFIX) {
+            return false;
+        }
+        try {
+            final ByteBuffer envelope = ByteBuffer.wrap(Base64.getDecoder().decode(encryptedData.substring(1)));
+            return envelope.remaining() > ENVELOPE_HEADER_SIZE
+                    && envelope.get() == ENVELOPE_VERSION
+                    && envelope.getInt() == aesKey.getId();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private byte[] decryptEnvelope(byte[] encryptedData) throws GeneralSecurityException {
+        final byte[] envelope = Base64.getDecoder().decode(Arrays.copyOfRange(encryptedData, 1, encryptedData.length));
+        if (envelope.length <= ENVELOPE_HEADER_SIZE) {
+            throw new GeneralSecurityException("Envelope is too short [length:" + envelope.length + "]");
+        }
+        final ByteBuffer header = ByteBuffer.wrap(envelope, 0, ENVELOPE_HEADER_SIZE);
+        final byte version = header.get();
+        if (version != ENVELOPE_VERSION) {
+            throw new GeneralSecurityException("Unsupported envelope version [version:" + version + "]");
+        }
+        final int keyId = header.getInt();
+        final AesKey currentKey = aesKey;
+        final AesKey key = keyId == currentKey.getId() ? currentKey : retiredAesKeys.get(keyId);
+        if (key == null) {
+            throw new GeneralSecurityException("Unknown key [keyId:" + keyId + "]");
+        }
+        final Cipher cipher = GCM_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key.getSpec(),
+                new GCMParameterSpec(GCM_TAG_BITS, envelope, header.position(), GCM_NONCE_SIZE));
+        cipher.updateAAD(envelope, 0, ENVELOPE_HEADER_SIZE);
+        return cipher.doFinal(envelope, ENVELOPE_HEADER_SIZE, envelope.length - ENVELOPE_HEADER_SIZE);
+    }
+
+    private byte[] decryptLegacy(byte[] encryptedData) throws GeneralSecurityException {
+        final byte[] ivAndEncryptedData = Base64.getDecoder().decode(encryptedData);
+        if (ivAndEncryptedData.length <= CBC_IV_SIZE) {
+            throw new GeneralSecurityException("Encrypted data is too short [length:" + ivAndEncryptedData.length + "]");
+        }
+        final Cipher cipher = CBC_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, aesKey.getSpec(), new IvParameterSpec(ivAndEncryptedData, 0, CBC_IV_SIZE));
+        return cipher.doFinal(ivAndEncryptedData, CBC_IV_SIZE, ivAndEncryptedData.length - CBC_IV_SIZE);
+    }
+
     boolean checkOrFixReadOnlyPermissions(String aesKeyPath) {
         final File file = new File(aesKeyPath);
         if (file.canWrite()) {
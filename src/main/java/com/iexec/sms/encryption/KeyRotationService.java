@@ -0,0 +1,175 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.encryption;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rotates the AES key while the SMS keeps serving requests.
+ * <p>
+ * A rotation runs in background and goes through the following phases:
+ * <ol>
+ *     <li>values still stored with the legacy format are re-encrypted with the current key,
+ *     the legacy format does not embed a key id and could not be decrypted after the rotation</li>
+ *     <li>a new key is generated, it is used for all new encryptions while the previous one becomes decrypt-only,
+ *     an {@link AesKeyRotatedEvent} is published</li>
+ *     <li>values encrypted with the previous key are re-encrypted with the new one, by throttled batches</li>
+ * </ol>
+ * Only one rotation can run at a time.
+ */
+@Slf4j
+@Service
+public class KeyRotationService {
+    static final String ROTATION_COUNTER_NAME = "iexec.sms.encryption.key_rotations";
+
+    public enum State {
+        IDLE, MIGRATING, RE_ENCRYPTING, COMPLETED, FAILED;
+
+        boolean isRunning() {
+            return this == MIGRATING || this == RE_ENCRYPTING;
+        }
+    }
+
+    private final EncryptionService encryptionService;
+    private final ReEncryptionService reEncryptionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService rotationExecutorService;
+
+    private volatile State state = State.IDLE;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    @Autowired
+    public KeyRotationService(EncryptionService encryptionService,
+                              ReEncryptionService reEncryptionService,
+                              ApplicationEventPublisher eventPublisher) {
+        this(encryptionService, reEncryptionService, eventPublisher, Executors.newSingleThreadExecutor(
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "key-rotation");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    KeyRotationService(EncryptionService encryptionService,
+                       ReEncryptionService reEncryptionService,
+                       ApplicationEventPublisher eventPublisher,
+                       ExecutorService rotationExecutorService) {
+        this.encryptionService = encryptionService;
+        this.reEncryptionService = reEncryptionService;
+        this.eventPublisher = eventPublisher;
+        this.rotationExecutorService = rotationExecutorService;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rotationExecutorService.shutdownNow();
+    }
+
+    /**
+     * Starts a key rotation in background.
+     *
+     * @return {@literal false} if a rotation is already running, {@literal true} otherwise
+     */
+    public synchronized boolean startRotation() {
+        if (state.isRunning()) {
+            log.warn("Key rotation already running [keyId:{}, startedAt:{}]", getKeyId(), startedAt);
+            return false;
+        }
+        state = State.MIGRATING;
+        startedAt = Instant.now();
+        finishedAt = null;
+        rotationExecutorService.execute(this::rotate);
+        return true;
+    }
+
+    public boolean isRunning() {
+        return state.isRunning();
+    }
+
+    /**
+     * Gets the state of the current rotation, or of the last one if none is running.
+     *
+     * @return Rotation state and re-encryption progress
+     */
+    public RotationStatus getStatus() {
+        final ReEncryptionService.Progress progress = reEncryptionService.getProgress();
+        return RotationStatus.builder()
+                .state(state)
+                .keyId(getKeyId())
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .total(progress.getTotal())
+                .scanned(progress.getScanned())
+                .reEncrypted(progress.getReEncrypted())
+                .build();
+    }
+
+    void rotate() {
+        try {
+            log.info("Key rotation started, migrating legacy values [keyId:{}]", getKeyId());
+            reEncryptionService.reEncryptAll();
+            final int previousKeyId = encryptionService.getAesKeyId();
+            final int keyId = encryptionService.rotateAesKey();
+            eventPublisher.publishEvent(new AesKeyRotatedEvent(previousKeyId, keyId));
+            state = State.RE_ENCRYPTING;
+            log.info("Key rotated, re-encrypting values [keyId:{}]", getKeyId());
+            final long reEncrypted = reEncryptionService.reEncryptAll();
+            state = State.COMPLETED;
+            Metrics.counter(ROTATION_COUNTER_NAME, "result", "completed").increment();
+            log.info("Key rotation completed [keyId:{}, reEncrypted:{}]", getKeyId(), reEncrypted);
+        } catch (InterruptedException e) {
+            state = State.FAILED;
+            Metrics.counter(ROTATION_COUNTER_NAME, "result", "failed").increment();
+            log.warn("Key rotation interrupted [keyId:{}]", getKeyId());
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            state = State.FAILED;
+            Metrics.counter(ROTATION_COUNTER_NAME, "result", "failed").increment();
+            log.error("Key rotation failed [keyId:{}]", getKeyId(), e);
+        } finally {
+            finishedAt = Instant.now();
+        }
+    }
+
+    private String getKeyId() {
+        return String.format("%08x", encryptionService.getAesKeyId());
+    }
+
+    @Getter
+    @Builder
+    public static class RotationStatus {
+        private final State state;
+        private final String keyId;
+        private final Instant startedAt;
+        private final Instant finishedAt;
+        private final long total;
+        private final long scanned;
+        private final long reEncrypted;
+    }
+}
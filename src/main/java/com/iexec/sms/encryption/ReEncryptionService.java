@@ -0,0 +1,247 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.encryption;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encrypts in background values stored with a previous format or key.
+ * <p>
+ * Rows are read in batches of {@code batchSize} following their H2 row id, values which are not up-to-date are
+ * decrypted and encrypted again. An update only succeeds if the value has not been modified in the meantime.
+ * A pause of {@code batchDelay} milliseconds between batches keeps the database available for regular requests.
+ */
+@Slf4j
+@Service
+public class ReEncryptionService {
+    static final String RE_ENCRYPTED_COUNTER_NAME = "iexec.sms.encryption.re_encrypted";
+    static final String PROGRESS_GAUGE_PREFIX = "iexec.sms.encryption.re_encryption.";
+
+    static final List<EncryptedColumn> ENCRYPTED_COLUMNS = List.of(
+            new EncryptedColumn("web2secret", "value", ""),
+            new EncryptedColumn("web3secret", "value", ""),
+            new EncryptedColumn("tee_task_compute_secret", "value", ""),
+            new EncryptedColumn("ethereum_credentials", "private_key", " AND \"is_encrypted\" = TRUE")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EncryptionService encryptionService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long interval;
+    private final long batchDelay;
+    private final ScheduledExecutorService reEncryptionExecutorService;
+    // Progress of the current or last run
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong reEncrypted = new AtomicLong();
+
+    @Autowired
+    public ReEncryptionService(JdbcTemplate jdbcTemplate,
+                               EncryptionService encryptionService,
+                               @Value("${encryption.re-encryption.enabled}") boolean enabled,
+                               @Value("${encryption.re-encryption.batch-size}") int batchSize,
+                               @Value("${encryption.re-encryption.interval}") long interval,
+                               @Value("${encryption.re-encryption.batch-delay}") long batchDelay) {
+        this(jdbcTemplate, encryptionService, enabled, batchSize, interval, batchDelay, Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "re-encryption");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    ReEncryptionService(JdbcTemplate jdbcTemplate,
+                        EncryptionService encryptionService,
+                        boolean enabled,
+                        int batchSize,
+                        long interval,
+                        long batchDelay,
+                        ScheduledExecutorService reEncryptionExecutorService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.encryptionService = encryptionService;
+        this.enabled = enabled && batchSize > 0 && interval > 0;
+        this.batchSize = Math.max(batchSize, 1);
+        this.interval = Math.max(interval, 1);
+        this.batchDelay = Math.max(batchDelay, 0);
+        this.reEncryptionExecutorService = reEncryptionExecutorService;
+        Metrics.gauge(PROGRESS_GAUGE_PREFIX + "total", total);
+        Metrics.gauge(PROGRESS_GAUGE_PREFIX + "scanned", scanned);
+    }
+
+    @PostConstruct
+    void init() {
+        log.info("Re-encryption configured [enabled:{}, batchSize:{}, interval:{}s, batchDelay:{}ms]",
+                enabled, batchSize, interval, batchDelay);
+        if (enabled) {
+            reEncryptionExecutorService.scheduleWithFixedDelay(this::reEncryptAllSafely, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reEncryptionExecutorService.shutdownNow();
+    }
+
+    private void reEncryptAllSafely() {
+        try {
+            reEncryptAll();
+        } catch (InterruptedException e) {
+            log.warn("Re-encryption interrupted");
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Re-encryption failed", e);
+        }
+    }
+
+    /**
+     * Re-encrypts all outdated values of all encrypted columns.
+     * Runs are serialized, a call waits for the end of a scheduled run.
+     *
+     * @return Number of re-encrypted values
+     * @throws InterruptedException if interrupted while pausing between batches
+     */
+    public synchronized long reEncryptAll() throws InterruptedException {
+        long totalCount = 0;
+        for (EncryptedColumn column : ENCRYPTED_COLUMNS) {
+            totalCount += jdbcTemplate.queryForObject(column.countQuery(), Long.class);
+        }
+        total.set(totalCount);
+        scanned.set(0);
+        reEncrypted.set(0);
+        long count = 0;
+        for (EncryptedColumn column : ENCRYPTED_COLUMNS) {
+            count += reEncrypt(column);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the progress of the current run, or of the last one if none is running.
+     *
+     * @return Counts of values to scan, already scanned and re-encrypted
+     */
+    public Progress getProgress() {
+        return Progress.builder()
+                .total(total.get())
+                .scanned(scanned.get())
+                .reEncrypted(reEncrypted.get())
+                .build();
+    }
+
+    long reEncrypt(EncryptedColumn column) throws InterruptedException {
+        long count = 0;
+        long lastRowId = Long.MIN_VALUE;
+        List<EncryptedValue> batch;
+        do {
+            batch = jdbcTemplate.query(column.selectQuery(),
+                    (rs, rowNum) -> new EncryptedValue(rs.getLong(1), rs.getString(2)),
+                    lastRowId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastRowId = batch.get(batch.size() - 1).rowId;
+            scanned.addAndGet(batch.size());
+            final List<Object[]> updates = new ArrayList<>();
+            for (EncryptedValue encryptedValue : batch) {
+                if (encryptionService.isUpToDate(encryptedValue.value)) {
+                    continue;
+                }
+                final String plainValue = encryptionService.decrypt(encryptedValue.value);
+                if (plainValue.isEmpty()) {
+                    log.warn("Failed to decrypt value, it won't be re-encrypted [table:{}, rowId:{}]",
+                            column.table, encryptedValue.rowId);
+                    continue;
+                }
+                updates.add(new Object[]{encryptionService.encrypt(plainValue), encryptedValue.rowId, encryptedValue.value});
+            }
+            if (!updates.isEmpty()) {
+                for (int updated : jdbcTemplate.batchUpdate(column.updateQuery(), updates)) {
+                    count += Math.max(updated, 0);
+                    reEncrypted.addAndGet(Math.max(updated, 0));
+                }
+                if (batchDelay > 0) {
+                    Thread.sleep(batchDelay);
+                }
+            }
+        } while (batch.size() == batchSize);
+        if (count > 0) {
+            Metrics.counter(RE_ENCRYPTED_COUNTER_NAME, "table", column.table).increment(count);
+            log.info("Values re-encrypted [table:{}, count:{}]", column.table, count);
+        }
+        return count;
+    }
+
+    static class EncryptedColumn {
+        private final String table;
+        private final String column;
+        private final String condition;
+
+        EncryptedColumn(String table, String column, String condition) {
+            this.table = table;
+            this.column = column;
+            this.condition = condition;
+        }
+
+        String countQuery() {
+            return "SELECT COUNT(*) FROM \"" + table + "\" WHERE TRUE" + condition;
+        }
+
+        String selectQuery() {
+            return "SELECT _ROWID_, \"" + column + "\" FROM \"" + table + "\""
+                    + " WHERE _ROWID_ > ?" + condition + " ORDER BY _ROWID_ LIMIT ?";
+        }
+
+        String updateQuery() {
+            return "UPDATE \"" + table + "\" SET \"" + column + "\" = ? WHERE _ROWID_ = ? AND \"" + column + "\" = ?";
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Progress {
+        private final long total;
+        private final long scanned;
+        private final long reEncrypted;
+    }
+
+    private static class EncryptedValue {
+        private final long rowId;
+        private final String value;
+
+        private EncryptedValue(long rowId, String value) {
+            this.rowId = rowId;
+            this.value = value;
+        }
+    }
+}
@@ -14,35 +14,149 @@
  * limitations under the License.
  */
 package com.iexec.sms.secret;
+package com.iexec.sms.secret;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.iexec.sms.admin.DatabaseRestoredEvent;
+import com.iexec.sms.admin.DatabaseUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
-import net.jodah.expiringmap.ExpirationPolicy;
-import net.jodah.expiringmap.ExpiringMap;
+import org.springframework.context.event.EventListener;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
+/**
+ * Caches whether secrets exist, to avoid database round trips on repeated lookups.
+ * <p>
+ * The cache is bounded in size and evicts entries with a frequency-aware policy (W-TinyLFU),
+ * so that a scan of random addresses cannot push out frequently read secrets.
+ * Existing and missing secrets have their own time to live.
+ * <p>
+ * When a metrics prefix is given, hits, misses, evictions and database loads are published with it.
+ *
+ * @param <K> Secret header type
+ */
 @Slf4j
 public class CacheSecretService<K> {
+    static final int DEFAULT_MAX_SIZE = 100_000;
+    static final long DEFAULT_TTL_IN_SECONDS = 60;
+
+    private final Cache<K, Boolean> secretExistenceCache;
+    private final BooleanSupplier databaseAvailable;
+
+    public CacheSecretService() {
+        this(() -> true);
+    }
+
+    public CacheSecretService(BooleanSupplier databaseAvailable) {
+        this(null, DEFAULT_MAX_SIZE, DEFAULT_TTL_IN_SECONDS, DEFAULT_TTL_IN_SECONDS, databaseAvailable);
+    }
+
+    /**
+     * Creates an existence cache which acts as the only source of truth while the database is unavailable.
+     * <p>
+     * Entries read while the database is unavailable have their expiration pushed back,
+     * they are a snapshot of secrets existing before a restoration.
+     *
+     * @param metricsPrefix       Prefix of published metrics, none are published if {@literal null}
+     * @param maxSize             Maximum number of cached entries
+     * @param presentTtlInSeconds Time to live of entries for existing secrets
+     * @param missingTtlInSeconds Time to live of entries for missing secrets
+     * @param databaseAvailable   Whether secrets missing from the cache can be looked up in database
+     */
+    public CacheSecretService(String metricsPrefix,
+                              int maxSize,
+                              long presentTtlInSeconds,
+                              long missingTtlInSeconds,
+                              BooleanSupplier databaseAvailable) {
+        this(metricsPrefix, maxSize, presentTtlInSeconds, missingTtlInSeconds, databaseAvailable, Ticker.systemTicker());
+    }
+
+    CacheSecretService(String metricsPrefix,
+                       int maxSize,
+                       long presentTtlInSeconds,
+                       long missingTtlInSeconds,
+                       BooleanSupplier databaseAvailable,
+                       Ticker ticker) {
+        this.databaseAvailable = databaseAvailable;
+        final long presentTtl = TimeUnit.SECONDS.toNanos(Math.max(presentTtlInSeconds, 1));
+        final long missingTtl = TimeUnit.SECONDS.toNanos(Math.max(missingTtlInSeconds, 1));
+        this.secretExistenceCache = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxSize, 1))
+                .expireAfter(new Expiry<K, Boolean>() {
+                    @Override
+                    public long expireAfterCreate(K key, Boolean exists, long currentTime) {
+                        return Boolean.TRUE.equals(exists) ? presentTtl : missingTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(K key, Boolean exists, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, exists, currentTime);
+                    }
 
-    private final ExpiringMap<K, Boolean> secretExistenceCache = ExpiringMap.builder()
-            .expiration(1, TimeUnit.MINUTES)
-            .expirationPolicy(ExpirationPolicy.CREATED)
-            .build();
+                    @Override
+                    public long expireAfterRead(K key, Boolean exists, long currentTime, long currentDuration) {
+                        return databaseAvailable.getAsBoolean()
+                                ? currentDuration
+                                : Math.max(currentDuration, expireAfterCreate(key, exists, currentTime));
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        if (metricsPrefix != null) {
+            registerMetrics(metricsPrefix);
+        }
+        log.info("Secret existence cache configured [metricsPrefix:{}, maxSize:{}, presentTtl:{}s, missingTtl:{}s]",
+                metricsPrefix, maxSize, presentTtlInSeconds, missingTtlInSeconds);
+    }
+
+    private void registerMetrics(String metricsPrefix) {
+        FunctionCounter.builder(metricsPrefix + "cache.hits", secretExistenceCache, cache -> cache.stats().hitCount())
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder(metricsPrefix + "cache.misses", secretExistenceCache, cache -> cache.stats().missCount())
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder(metricsPrefix + "cache.evictions", secretExistenceCache, cache -> cache.stats().evictionCount())
+                .register(Metrics.globalRegistry);
+        FunctionTimer.builder(metricsPrefix + "cache.loads", secretExistenceCache,
+                        cache -> cache.stats().loadCount(),
+                        cache -> cache.stats().totalLoadTime(),
+                        TimeUnit.NANOSECONDS)
+                .description("Database lookups made on cache misses")
+                .register(Metrics.globalRegistry);
+    }
 
     /**
      * Count how many entries are currently in the cache
      *
-     * @return
+     * @return Number of cached entries
      */
     public long count() {
-        return secretExistenceCache.size();
+        return secretExistenceCache.estimatedSize();
     }
 
     /**
      * Reset entries in the cache
      */
     public void clear() {
-        secretExistenceCache.clear();
+        secretExistenceCache.invalidateAll();
+    }
+
+    /**
+     * Drops all entries after a database restoration, restored secrets may differ from cached ones.
+     */
+    @EventListener
+    public void onDatabaseRestored(DatabaseRestoredEvent event) {
+        log.info("Clearing secret existence cache after database restoration [count:{}]", count());
+        clear();
     }
 
     /**
@@ -65,6 +179,7 @@ public class CacheSecretService<K> {
      *
      * @param key The key to use for cache
      * @return true if an entry was found in cache and false otherwise.
+     * @throws DatabaseUnavailableException if no entry was found and the database cannot be read
      */
     public Boolean lookSecretExistenceInCache(K key) {
         log.debug("Search secret existence in cache[key:{}]", key);
@@ -73,12 +188,51 @@ public class CacheSecretService<K> {
             log.warn("Key is NULL, unable to use cache");
             return false;
         }
-        final Boolean found = secretExistenceCache.get(key);
+        final Boolean found = secretExistenceCache.getIfPresent(key);
         if (found == null) {
             log.debug("Secret existence was not found in cache[key:{}]", key);
+            checkDatabaseAvailable();
         } else {
             log.debug("Secret existence was found in cache[key:{}, exist:{}]", key, found);
         }
         return found;
     }
+
+    /**
+     * Gets the existence of the secret from the cache, or looks it up in database and caches it on a miss.
+     * <p>
+     * Concurrent lookups of the same missing key result in a single database lookup.
+     *
+     * @param key              The key to use for cache
+     * @param existsInDatabase Looks up the secret in database
+     * @return true if the secret exists, false otherwise
+     * @throws DatabaseUnavailableException if no entry was found and the database cannot be read
+     */
+    public boolean lookSecretExistence(K key, Predicate<K> existsInDatabase) {
+        log.debug("Search secret existence in cache[key:{}]", key);
+        if (null == key) {
+            //no strong coupling with cache, no exception handling
+            log.warn("Key is NULL, unable to use cache");
+            return false;
+        }
+        final AtomicBoolean loaded = new AtomicBoolean(false);
+        final boolean found = secretExistenceCache.get(key, missingKey -> {
+            log.debug("Secret existence was not found in cache[key:{}]", missingKey);
+            checkDatabaseAvailable();
+            loaded.set(true);
+            final boolean isPresentInDB = existsInDatabase.test(missingKey);
+            log.debug("Put secret existence in cache[key:{}]", missingKey);
+            return isPresentInDB;
+        });
+        if (!loaded.get()) {
+            log.debug("Secret existence was found in cache[key:{}, exist:{}]", key, found);
+        }
+        return found;
+    }
+
+    private void checkDatabaseAvailable() {
+        if (!databaseAvailable.getAsBoolean()) {
+            throw new DatabaseUnavailableException("Secret existence is unknown while database is being restored");
+        }
+    }
 }
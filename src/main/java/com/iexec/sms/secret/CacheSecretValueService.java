@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret;
+
+import com.iexec.sms.admin.DatabaseRestoredEvent;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+import org.springframework.context.event.EventListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Second-level cache holding secrets as they are stored in database.
+ * <p>
+ * Only encrypted values are expected to be cached, decryption still happens on each read.
+ * The cache is bounded both in size and in time, when disabled every lookup is a miss.
+ *
+ * @param <K> Secret header type
+ * @param <V> Secret entity type
+ */
+@Slf4j
+public class CacheSecretValueService<K, V> {
+
+    @Getter
+    private final boolean enabled;
+    private final ExpiringMap<K, V> secretValueCache;
+
+    public CacheSecretValueService(boolean enabled, int maxSize, long ttlInSeconds) {
+        this.enabled = enabled && maxSize > 0 && ttlInSeconds > 0;
+        this.secretValueCache = ExpiringMap.builder()
+                .maxSize(Math.max(maxSize, 1))
+                .expiration(Math.max(ttlInSeconds, 1), TimeUnit.SECONDS)
+                .expirationPolicy(ExpirationPolicy.CREATED)
+                .build();
+        log.info("Secret value cache configured [enabled:{}, maxSize:{}, ttl:{}s]", this.enabled, maxSize, ttlInSeconds);
+    }
+
+    /**
+     * Count how many entries are currently in the cache
+     *
+     * @return Number of cached secrets
+     */
+    public long count() {
+        return secretValueCache.size();
+    }
+
+    /**
+     * Reset entries in the cache
+     */
+    public void clear() {
+        secretValueCache.clear();
+    }
+
+    /**
+     * Drops all entries after a database restoration, cached values could have been encrypted with another key.
+     */
+    @EventListener
+    public void onDatabaseRestored(DatabaseRestoredEvent event) {
+        log.info("Clearing secret value cache after database restoration [count:{}]", count());
+        clear();
+    }
+
+    /**
+     * Caches the secret as stored in database.
+     *
+     * @param key   The key to use for cache
+     * @param value The secret with its encrypted value
+     */
+    public void putSecretValueInCache(K key, V value) {
+        if (!enabled) {
+            return;
+        }
+        if (null == key || null == value) {
+            //no strong coupling with cache, no exception handling
+            log.warn("Key or value is NULL, unable to use cache");
+            return;
+        }
+        log.debug("Put secret value in cache[key:{}]", key);
+        secretValueCache.put(key, value);
+    }
+
+    /**
+     * Look in the cache for a secret.
+     *
+     * @param key The key to use for cache
+     * @return The cached secret if found, {@literal null} otherwise.
+     */
+    public V lookSecretValueInCache(K key) {
+        if (!enabled || null == key) {
+            return null;
+        }
+        final V found = secretValueCache.get(key);
+        log.debug("Search secret value in cache[key:{}, found:{}]", key, found != null);
+        return found;
+    }
+
+    /**
+     * Removes a secret from the cache.
+     *
+     * @param key The key to use for cache
+     */
+    public void evictSecretValueFromCache(K key) {
+        if (null != key) {
+            secretValueCache.remove(key);
+        }
+    }
+}
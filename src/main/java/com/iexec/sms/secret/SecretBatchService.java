@@ -0,0 +1,452 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.secret;
+
+import com.iexec.sms.api.SecretBatchItem;
+import com.iexec.sms.api.SecretBatchItemResult;
+import com.iexec.sms.api.SecretBatchItemStatus;
+import com.iexec.sms.api.SecretHeader;
+import com.iexec.sms.api.SecretPresence;
+import com.iexec.sms.api.SecretType;
+import com.iexec.sms.api.SmsClient;
+import com.iexec.sms.authorization.AuthorizationService;
+import com.iexec.sms.secret.compute.OnChainObjectType;
+import com.iexec.sms.secret.compute.SecretOwnerRole;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecret;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretHeader;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretService;
+import com.iexec.sms.secret.web2.Web2Secret;
+import com.iexec.sms.secret.web2.Web2SecretHeader;
+import com.iexec.sms.secret.web2.Web2SecretService;
+import com.iexec.sms.secret.web3.Web3Secret;
+import com.iexec.sms.secret.web3.Web3SecretHeader;
+import com.iexec.sms.secret.web3.Web3SecretService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.iexec.sms.api.SecretBatchItemStatus.*;
+
+/**
+ * Provisions several signed secrets of mixed types at once, or checks whether they exist.
+ * <p>
+ * Signatures and ownerships are verified in parallel, accepted secrets are then inserted
+ * with one JDBC batch per table in a single transaction.
+ * If the batch insert fails, the transaction is rolled back and accepted secrets are inserted one by one
+ * to report which ones were conflicting. Values are only encrypted once, a secret already stored with its
+ * encrypted value has been written by this batch and is reported as added.
+ */
+@Slf4j
+@Service
+public class SecretBatchService {
+
+    private final AuthorizationService authorizationService;
+    private final Web2SecretService web2SecretService;
+    private final Web3SecretService web3SecretService;
+    private final TeeTaskComputeSecretService teeTaskComputeSecretService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService verificationExecutor;
+
+    @Autowired
+    public SecretBatchService(AuthorizationService authorizationService,
+                              Web2SecretService web2SecretService,
+                              Web3SecretService web3SecretService,
+                              TeeTaskComputeSecretService teeTaskComputeSecretService,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${secrets.batch.verification-pool-size}") int verificationPoolSize) {
+        this(authorizationService, web2SecretService, web3SecretService, teeTaskComputeSecretService,
+                transactionTemplate, createVerificationExecutor(verificationPoolSize));
+    }
+
+    SecretBatchService(AuthorizationService authorizationService,
+                       Web2SecretService web2SecretService,
+                       Web3SecretService web3SecretService,
+                       TeeTaskComputeSecretService teeTaskComputeSecretService,
+                       TransactionTemplate transactionTemplate,
+                       ExecutorService verificationExecutor) {
+        this.authorizationService = authorizationService;
+        this.web2SecretService = web2SecretService;
+        this.web3SecretService = web3SecretService;
+        this.teeTaskComputeSecretService = teeTaskComputeSecretService;
+        this.transactionTemplate = transactionTemplate;
+        this.verificationExecutor = verificationExecutor;
+    }
+
+    private static ExecutorService createVerificationExecutor(int poolSize) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        log.info("Secret batch verification executor configured [poolSize:{}]", poolSize);
+        return Executors.newFixedThreadPool(Math.max(poolSize, 1), runnable -> {
+            final Thread thread = new Thread(runnable, "secret-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        verificationExecutor.shutdown();
+    }
+
+    /**
+     * Verifies and saves a batch of secrets.
+     *
+     * @param items Signed secrets to add
+     * @return The status of each secret, in the order of the submitted items
+     */
+    public List<SecretBatchItemResult> addSecrets(List<SecretBatchItem> items) {
+        final List<SecretBatchItem> normalizedItems = items.stream()
+                .map(SecretBatchService::normalizeItem)
+                .collect(Collectors.toList());
+        final SecretBatchItemStatus[] statuses = verifyAll(normalizedItems);
+
+        final Set<String> identities = new HashSet<>();
+        final List<Integer> acceptedIndexes = new ArrayList<>();
+        for (int i = 0; i < normalizedItems.size(); i++) {
+            if (statuses[i] != null) {
+                continue;
+            }
+            if (identities.add(getIdentity(normalizedItems.get(i)))) {
+                acceptedIndexes.add(i);
+            } else {
+                statuses[i] = DUPLICATED_IN_BATCH;
+            }
+        }
+
+        if (!acceptedIndexes.isEmpty()) {
+            saveAll(normalizedItems, acceptedIndexes, statuses);
+        }
+
+        final List<SecretBatchItemResult> results = new ArrayList<>(normalizedItems.size());
+        for (int i = 0; i < normalizedItems.size(); i++) {
+            final SecretBatchItem item = normalizedItems.get(i);
+            results.add(SecretBatchItemResult.builder()
+                    .type(item.getType())
+                    .address(item.getAddress())
+                    .key(item.getKey())
+                    .status(statuses[i])
+                    .build());
+        }
+        log.info("Secrets batch processed [size:{}, added:{}]",
+                results.size(), results.stream().filter(result -> result.getStatus() == ADDED).count());
+        return results;
+    }
+
+    /**
+     * Checks whether secrets exist, with at most one query per table for secrets missing from caches.
+     * <p>
+     * Invalid headers are reported as absent.
+     *
+     * @param headers Secrets to look for
+     * @return The presence of each secret, in the order of the submitted headers
+     */
+    public List<SecretPresence> findPresentSecrets(List<SecretHeader> headers) {
+        final List<SecretHeader> normalizedHeaders = headers.stream()
+                .map(SecretBatchService::normalizeHeader)
+                .collect(Collectors.toList());
+        final List<Web2SecretHeader> web2Headers = new ArrayList<>();
+        final List<Web3SecretHeader> web3Headers = new ArrayList<>();
+        final List<TeeTaskComputeSecretHeader> computeHeaders = new ArrayList<>();
+        final Object[] typedHeaders = new Object[normalizedHeaders.size()];
+        for (int i = 0; i < normalizedHeaders.size(); i++) {
+            final SecretHeader header = normalizedHeaders.get(i);
+            if (!isValid(header)) {
+                continue;
+            }
+            switch (header.getType()) {
+                case WEB2:
+                    final Web2SecretHeader web2Header = new Web2SecretHeader(header.getAddress(), header.getKey());
+                    web2Headers.add(web2Header);
+                    typedHeaders[i] = web2Header;
+                    break;
+                case WEB3:
+                    final Web3SecretHeader web3Header = new Web3SecretHeader(header.getAddress());
+                    web3Headers.add(web3Header);
+                    typedHeaders[i] = web3Header;
+                    break;
+                default:
+                    final TeeTaskComputeSecretHeader computeHeader = toComputeSecretHeader(
+                            header.getType(), header.getAddress(), header.getKey());
+                    computeHeaders.add(computeHeader);
+                    typedHeaders[i] = computeHeader;
+                    break;
+            }
+        }
+
+        final Set<Object> presentHeaders = new HashSet<>();
+        if (!web2Headers.isEmpty()) {
+            presentHeaders.addAll(web2SecretService.findPresentSecrets(web2Headers));
+        }
+        if (!web3Headers.isEmpty()) {
+            presentHeaders.addAll(web3SecretService.findPresentSecrets(web3Headers));
+        }
+        if (!computeHeaders.isEmpty()) {
+            presentHeaders.addAll(teeTaskComputeSecretService.findPresentSecrets(computeHeaders));
+        }
+
+        final List<SecretPresence> presences = new ArrayList<>(normalizedHeaders.size());
+        for (int i = 0; i < normalizedHeaders.size(); i++) {
+            final SecretHeader header = normalizedHeaders.get(i);
+            presences.add(SecretPresence.builder()
+                    .type(header.getType())
+                    .address(header.getAddress())
+                    .key(header.getKey())
+                    .present(typedHeaders[i] != null && presentHeaders.contains(typedHeaders[i]))
+                    .build());
+        }
+        log.debug("Secrets presence checked [size:{}, web2:{}, web3:{}, compute:{}]",
+                presences.size(), web2Headers.size(), web3Headers.size(), computeHeaders.size());
+        return presences;
+    }
+
+    private static SecretHeader normalizeHeader(SecretHeader header) {
+        if (header.getType() == null || header.getAddress() == null) {
+            return header;
+        }
+        return new SecretHeader(header.getType(),
+                normalizeAddress(header.getType(), header.getAddress()),
+                normalizeKey(header.getType(), header.getKey()));
+    }
+
+    private static boolean isValid(SecretHeader header) {
+        if (header.getType() == null || StringUtils.isEmpty(header.getAddress())) {
+            return false;
+        }
+        switch (header.getType()) {
+            case WEB2:
+                return !StringUtils.isEmpty(header.getKey());
+            case REQUESTER:
+                return header.getKey() != null && SecretUtils.isSecretKeyValid(header.getKey());
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Application and requester addresses are stored in lower case, as done by single secret endpoints.
+     */
+    private static String normalizeAddress(SecretType type, String address) {
+        return type == SecretType.APP_DEVELOPER || type == SecretType.REQUESTER ? address.toLowerCase() : address;
+    }
+
+    private static String normalizeKey(SecretType type, String key) {
+        switch (type) {
+            case APP_DEVELOPER:
+                return SmsClient.APP_DEVELOPER_SECRET_INDEX;
+            case WEB3:
+                return null;
+            default:
+                return key;
+        }
+    }
+
+    private static SecretBatchItem normalizeItem(SecretBatchItem item) {
+        if (item.getType() == null || item.getAddress() == null) {
+            return item;
+        }
+        return new SecretBatchItem(item.getType(),
+                normalizeAddress(item.getType(), item.getAddress()),
+                normalizeKey(item.getType(), item.getKey()),
+                item.getValue(), item.getAuthorization());
+    }
+
+    /**
+     * Verifies all items in parallel.
+     *
+     * @return An array where accepted items have a {@literal null} status
+     */
+    private SecretBatchItemStatus[] verifyAll(List<SecretBatchItem> items) {
+        final List<CompletableFuture<SecretBatchItemStatus>> verifications = items.stream()
+                .map(item -> CompletableFuture.supplyAsync(() -> verify(item), verificationExecutor)
+                        .exceptionally(throwable -> {
+                            log.warn("Secret verification failed [item:{}]", item, throwable);
+                            return FAILED;
+                        }))
+                .collect(Collectors.toList());
+        final SecretBatchItemStatus[] statuses = new SecretBatchItemStatus[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            statuses[i] = verifications.get(i).join();
+        }
+        return statuses;
+    }
+
+    /**
+     * Runs the same checks as single secret endpoints.
+     *
+     * @return {@literal null} if the secret can be saved, the rejection status otherwise
+     */
+    SecretBatchItemStatus verify(SecretBatchItem item) {
+        if (item.getType() == null || StringUtils.isEmpty(item.getAddress())
+                || item.getValue() == null || StringUtils.isEmpty(item.getAuthorization())) {
+            return INVALID;
+        }
+        final String challenge;
+        final boolean isSigned;
+        switch (item.getType()) {
+            case WEB2:
+                if (StringUtils.isEmpty(item.getKey())) {
+                    return INVALID;
+                }
+                challenge = authorizationService.getChallengeForSetWeb2Secret(
+                        item.getAddress(), item.getKey(), item.getValue());
+                isSigned = authorizationService.isSignedByHimself(challenge, item.getAuthorization(), item.getAddress());
+                break;
+            case WEB3:
+                challenge = authorizationService.getChallengeForSetWeb3Secret(item.getAddress(), item.getValue());
+                isSigned = authorizationService.isSignedByOwner(challenge, item.getAuthorization(), item.getAddress());
+                break;
+            case APP_DEVELOPER:
+                challenge = authorizationService.getChallengeForSetAppDeveloperAppComputeSecret(
+                        item.getAddress(), SmsClient.APP_DEVELOPER_SECRET_INDEX, item.getValue());
+                isSigned = authorizationService.isSignedByOwner(challenge, item.getAuthorization(), item.getAddress());
+                break;
+            case REQUESTER:
+                if (item.getKey() == null || !SecretUtils.isSecretKeyValid(item.getKey())) {
+                    return INVALID;
+                }
+                challenge = authorizationService.getChallengeForSetRequesterAppComputeSecret(
+                        item.getAddress(), item.getKey(), item.getValue());
+                isSigned = authorizationService.isSignedByHimself(challenge, item.getAuthorization(), item.getAddress());
+                break;
+            default:
+                return INVALID;
+        }
+        if (!isSigned) {
+            log.error("Unauthorized to add secret in batch [item:{}, expectedChallenge:{}]", item, challenge);
+            return UNAUTHORIZED;
+        }
+        if (!SecretUtils.isSecretSizeValid(item.getValue())) {
+            return PAYLOAD_TOO_LARGE;
+        }
+        return null;
+    }
+
+    private static String getIdentity(SecretBatchItem item) {
+        return item.getType() + "|" + item.getAddress() + "|" + item.getKey();
+    }
+
+    private void saveAll(List<SecretBatchItem> items, List<Integer> acceptedIndexes, SecretBatchItemStatus[] statuses) {
+        final List<Integer> web2Indexes = new ArrayList<>();
+        final List<Integer> web3Indexes = new ArrayList<>();
+        final List<Integer> computeIndexes = new ArrayList<>();
+        final List<Web2Secret> plainWeb2Secrets = new ArrayList<>();
+        final List<Web3Secret> plainWeb3Secrets = new ArrayList<>();
+        final List<TeeTaskComputeSecret> plainComputeSecrets = new ArrayList<>();
+        for (int index : acceptedIndexes) {
+            final SecretBatchItem item = items.get(index);
+            switch (item.getType()) {
+                case WEB2:
+                    web2Indexes.add(index);
+                    plainWeb2Secrets.add(new Web2Secret(item.getAddress(), item.getKey(), item.getValue()));
+                    break;
+                case WEB3:
+                    web3Indexes.add(index);
+                    plainWeb3Secrets.add(new Web3Secret(item.getAddress(), item.getValue()));
+                    break;
+                default:
+                    computeIndexes.add(index);
+                    plainComputeSecrets.add(toComputeSecret(item));
+                    break;
+            }
+        }
+
+        // Values are encrypted once, the same encrypted values are used if secrets are then saved one by one
+        final List<Web2Secret> web2Secrets;
+        final List<Web3Secret> web3Secrets;
+        final List<TeeTaskComputeSecret> computeSecrets;
+        try {
+            web2Secrets = web2SecretService.encryptSecrets(plainWeb2Secrets);
+            web3Secrets = web3SecretService.encryptSecrets(plainWeb3Secrets);
+            computeSecrets = teeTaskComputeSecretService.encryptSecrets(plainComputeSecrets);
+        } catch (RuntimeException e) {
+            log.error("Secrets batch encryption failed [size:{}]", acceptedIndexes.size(), e);
+            acceptedIndexes.forEach(index -> statuses[index] = FAILED);
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                web2SecretService.addEncryptedSecretsInBatch(web2Secrets);
+                web3SecretService.addEncryptedSecretsInBatch(web3Secrets);
+                teeTaskComputeSecretService.addEncryptedSecretsInBatch(computeSecrets);
+            });
+            acceptedIndexes.forEach(index -> statuses[index] = ADDED);
+            return;
+        } catch (DuplicateKeyException e) {
+            log.info("Secrets batch contains existing secrets, adding them one by one [size:{}]", acceptedIndexes.size());
+        } catch (DataAccessException e) {
+            log.error("Secrets batch insert failed, adding them one by one [size:{}]", acceptedIndexes.size(), e);
+        }
+        saveOneByOne(web2Indexes, web2Secrets, web2SecretService::addEncryptedSecret, statuses);
+        saveOneByOne(web3Indexes, web3Secrets, web3SecretService::addEncryptedSecret, statuses);
+        saveOneByOne(computeIndexes, computeSecrets, teeTaskComputeSecretService::addEncryptedSecret, statuses);
+    }
+
+    /**
+     * Saves secrets of a single type one by one, after their batch insert failed.
+     * <p>
+     * A secret is only reported as {@link SecretBatchItemStatus#ALREADY_EXISTS} if another secret is stored with
+     * the same header, other errors are reported as {@link SecretBatchItemStatus#FAILED}.
+     */
+    private static <S> void saveOneByOne(List<Integer> indexes, List<S> encryptedSecrets,
+                                         Predicate<S> saver, SecretBatchItemStatus[] statuses) {
+        for (int i = 0; i < indexes.size(); i++) {
+            final int index = indexes.get(i);
+            try {
+                statuses[index] = saver.test(encryptedSecrets.get(i)) ? ADDED : ALREADY_EXISTS;
+            } catch (RuntimeException e) {
+                log.error("Secret insert failed [index:{}]", index, e);
+                statuses[index] = FAILED;
+            }
+        }
+    }
+
+    private static TeeTaskComputeSecretHeader toComputeSecretHeader(SecretType type, String address, String key) {
+        final boolean isAppDeveloper = type == SecretType.APP_DEVELOPER;
+        return new TeeTaskComputeSecretHeader(
+                OnChainObjectType.APPLICATION,
+                isAppDeveloper ? address : "",
+                isAppDeveloper ? SecretOwnerRole.APPLICATION_DEVELOPER : SecretOwnerRole.REQUESTER,
+                isAppDeveloper ? "" : address,
+                key);
+    }
+
+    private static TeeTaskComputeSecret toComputeSecret(SecretBatchItem item) {
+        final boolean isAppDeveloper = item.getType() == SecretType.APP_DEVELOPER;
+        return TeeTaskComputeSecret.builder()
+                .onChainObjectType(OnChainObjectType.APPLICATION)
+                .onChainObjectAddress(isAppDeveloper ? item.getAddress() : "")
+                .secretOwnerRole(isAppDeveloper ? SecretOwnerRole.APPLICATION_DEVELOPER : SecretOwnerRole.REQUESTER)
+                .fixedSecretOwner(isAppDeveloper ? "" : item.getAddress())
+                .key(item.getKey())
+                .value(item.getValue())
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.iexec.sms.secret;
+
+import com.iexec.sms.encryption.EncryptionService;
+import com.iexec.sms.secret.store.SecretCodec;
+import com.iexec.sms.secret.store.SecretStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Saves new secrets of a given type for {@link SecretBatchService}, whatever their {@link SecretStore}.
+ * <p>
+ * Values are encrypted once with {@link #encryptSecrets(List)}, the same encrypted values are then saved
+ * at once with {@link #addEncryptedSecretsInBatch(List)} or, if the batch failed,
+ * one by one with {@link #addEncryptedSecret(Object)}.
+ * Encrypted values are unique, a stored secret with the same encrypted value has been written by the caller.
+ * It happens when a batch has been rolled back after its secrets were written to a store
+ * which is not part of the transaction, such secrets are reported as added.
+ *
+ * @param <H> Type of the secret header
+ * @param <S> Type of the secret
+ */
+@Slf4j
+public class SecretBatchWriter<H, S> {
+    private final String secretsType;
+    private final SecretStore<H, S> secretStore;
+    private final SecretCodec<H, S> codec;
+    private final EncryptionService encryptionService;
+    private final MeasuredSecretService measuredSecretService;
+    private final CacheSecretService<H> cacheSecretService;
+    private final CacheSecretValueService<H, S> cacheSecretValueService;
+
+    public SecretBatchWriter(String secretsType,
+                             SecretStore<H, S> secretStore,
+                             SecretCodec<H, S> codec,
+                             EncryptionService encryptionService,
+                             MeasuredSecretService measuredSecretService,
+                             CacheSecretService<H> cacheSecretService,
+                             CacheSecretValueService<H, S> cacheSecretValueService) {
+        this.secretsType = secretsType;
+        this.secretStore = secretStore;
+        this.codec = codec;
+        this.encryptionService = encryptionService;
+        this.measuredSecretService = measuredSecretService;
+        this.cacheSecretService = cacheSecretService;
+        this.cacheSecretValueService = cacheSecretValueService;
+    }
+
+    /**
+     * Encrypts values of new secrets.
+     *
+     * @param secrets Secrets with unencrypted values.
+     * @return Secrets with encrypted values.
+     */
+    public List<S> encryptSecrets(List<S> secrets) {
+        return secrets.stream()
+                .map(secret -> codec.create(codec.getId(secret), encryptionService.encrypt(codec.getValue(secret))))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Saves new secrets at once, values are already encrypted.
+     * <p>
+     * When called within a transaction, caches are only updated once it has been committed.
+     *
+     * @param encryptedSecrets Secrets with encrypted values.
+     * @throws DuplicateKeyException if one of the secrets already exists.
+     */
+    public void addEncryptedSecretsInBatch(List<S> encryptedSecrets) {
+        if (encryptedSecrets.isEmpty()) {
+            return;
+        }
+        secretStore.insertAll(encryptedSecrets);
+        SecretUtils.runAfterCommit(() -> encryptedSecrets.forEach(this::onSecretAdded));
+        log.info("Added secrets in batch [type:{}, count:{}]", secretsType, encryptedSecrets.size());
+    }
+
+    /**
+     * Saves a new secret whose value is already encrypted.
+     *
+     * @param encryptedSecret Secret with an encrypted value.
+     * @return {@literal true} if the secret is stored with this encrypted value,
+     * {@literal false} if another secret with the same header already exists.
+     * @throws DataAccessException if the secret could not be saved for another reason.
+     */
+    public boolean addEncryptedSecret(S encryptedSecret) {
+        final H header = codec.getId(encryptedSecret);
+        try {
+            secretStore.insert(encryptedSecret);
+        } catch (DuplicateKeyException e) {
+            final boolean isSameSecret = secretStore.findById(header)
+                    .map(storedSecret -> Objects.equals(codec.getValue(storedSecret), codec.getValue(encryptedSecret)))
+                    .orElse(false);
+            if (!isSameSecret) {
+                log.debug(e.getMostSpecificCause().getMessage());
+                return false;
+            }
+        }
+        onSecretAdded(encryptedSecret);
+        return true;
+    }
+
+    private void onSecretAdded(S encryptedSecret) {
+        final H header = codec.getId(encryptedSecret);
+        cacheSecretService.putSecretExistenceInCache(header, true);
+        cacheSecretValueService.putSecretValueInCache(header, encryptedSecret);
+        measuredSecretService.newlyAddedSecret();
+    }
+}
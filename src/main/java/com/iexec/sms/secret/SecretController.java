@@ -16,16 +16,22 @@
 
 package com.iexec.sms.secret;
 
+import com.iexec.sms.api.SecretBatchItem;
+import com.iexec.sms.api.SecretBatchItemResult;
+import com.iexec.sms.api.SecretHeader;
+import com.iexec.sms.api.SecretPresence;
 import com.iexec.sms.authorization.AuthorizationService;
 import com.iexec.sms.secret.web2.NotAnExistingSecretException;
 import com.iexec.sms.secret.web2.SameSecretException;
 import com.iexec.sms.secret.web2.Web2SecretService;
 import com.iexec.sms.secret.web3.Web3SecretService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 
 @Slf4j
@@ -37,13 +43,61 @@ public class SecretController {
     private final AuthorizationService authorizationService;
     private final Web3SecretService web3SecretService;
     private final Web2SecretService web2SecretService;
+    private final SecretBatchService secretBatchService;
+    private final int batchMaxSize;
 
     public SecretController(AuthorizationService authorizationService,
                             Web2SecretService web2SecretService,
-                            Web3SecretService web3SecretService) {
+                            Web3SecretService web3SecretService,
+                            SecretBatchService secretBatchService,
+                            @Value("${secrets.batch.max-size}") int batchMaxSize) {
         this.web2SecretService = web2SecretService;
         this.authorizationService = authorizationService;
         this.web3SecretService = web3SecretService;
+        this.secretBatchService = secretBatchService;
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    // Batch
+
+    /**
+     * Adds several signed secrets of mixed types.
+     * <p>
+     * Each item is checked as it would be by its single secret endpoint, a status is returned for each of them.
+     *
+     * @param secrets Signed secrets to add
+     * @return 200 with a status per secret in submitted order,
+     * 400 if the batch is empty, 413 if it contains more than {@code secrets.batch.max-size} items.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<SecretBatchItemResult>> addSecrets(@RequestBody List<SecretBatchItem> secrets) {
+        if (secrets == null || secrets.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (secrets.size() > batchMaxSize) {
+            log.error("Too many secrets in batch [size:{}, maxSize:{}]", secrets.size(), batchMaxSize);
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(secretBatchService.addSecrets(secrets));
+    }
+
+    /**
+     * Checks whether several secrets of mixed types exist.
+     *
+     * @param headers Secrets to look for
+     * @return 200 with the presence of each secret in submitted order,
+     * 400 if the list is empty, 413 if it contains more than {@code secrets.batch.max-size} items.
+     */
+    @PostMapping("/batch/presence")
+    public ResponseEntity<List<SecretPresence>> areSecretsPresent(@RequestBody List<SecretHeader> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (headers.size() > batchMaxSize) {
+            log.error("Too many secrets in presence check [size:{}, maxSize:{}]", headers.size(), batchMaxSize);
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(secretBatchService.findPresentSecrets(headers));
     }
 
     // Web3
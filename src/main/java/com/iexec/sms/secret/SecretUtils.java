@@ -1,5 +1,5 @@
 /*
- * Copyright 2021 IEXEC BLOCKCHAIN TECH
+ * Copyright 2021-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,12 @@
 
 package com.iexec.sms.secret;
 
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretHeader;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
 import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
 
 public abstract class SecretUtils {
     /**
@@ -24,7 +29,38 @@ public abstract class SecretUtils {
      */
     public static final int SECRET_MAX_SIZE = 4096;
 
+    private static final Pattern SECRET_KEY_PATTERN = Pattern.compile("^[\\p{Alnum}-_]{"
+            + TeeTaskComputeSecretHeader.SECRET_KEY_MIN_LENGTH + ","
+            + TeeTaskComputeSecretHeader.SECRET_KEY_MAX_LENGTH + "}$");
+
     public static boolean isSecretSizeValid(String secretValue) {
         return secretValue.getBytes(StandardCharsets.UTF_8).length <= SECRET_MAX_SIZE;
     }
+
+    /**
+     * Checks a requester secret key contains at most 64 characters from [0-9A-Za-z-_].
+     */
+    public static boolean isSecretKeyValid(String secretKey) {
+        return SECRET_KEY_PATTERN.matcher(secretKey).matches();
+    }
+
+    /**
+     * Runs an action once the current transaction has been committed, or immediately without transaction.
+     * <p>
+     * Caches must not reference rows which could still be rolled back.
+     *
+     * @param action Action to run
+     */
+    public static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
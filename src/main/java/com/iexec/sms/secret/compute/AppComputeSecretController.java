@@ -28,7 +28,6 @@ import org.springframework.web.bind.annotation.*;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 @Slf4j
 @CrossOrigin
@@ -43,9 +42,6 @@ public class AppComputeSecretController {
     static final String INVALID_SECRET_INDEX_FORMAT_MSG = "Secret index should be a positive number";
     static final String INVALID_SECRET_KEY_FORMAT_MSG = "Secret key should contain at most 64 characters from [0-9A-Za-z-_]";
     static final String SECRET_NOT_FOUND_MSG = "Secret not found";
-    private static final Pattern secretKeyPattern = Pattern.compile("^[\\p{Alnum}-_]{"
-            + TeeTaskComputeSecretHeader.SECRET_KEY_MIN_LENGTH + ","
-            + TeeTaskComputeSecretHeader.SECRET_KEY_MAX_LENGTH + "}$");
 
     public AppComputeSecretController(AuthorizationService authorizationService,
                                       TeeTaskComputeSecretService teeTaskComputeSecretService) {
@@ -186,7 +182,7 @@ public class AppComputeSecretController {
                     .body(invalidAuthorizationPayload);
         }
 
-        if (!secretKeyPattern.matcher(secretKey).matches()) {
+        if (!SecretUtils.isSecretKeyValid(secretKey)) {
             return ResponseEntity
                     .badRequest()
                     .body(createErrorPayload(INVALID_SECRET_KEY_FORMAT_MSG));
@@ -240,7 +236,7 @@ public class AppComputeSecretController {
             @PathVariable String secretKey) {
         requesterAddress = requesterAddress.toLowerCase();
 
-        if (!secretKeyPattern.matcher(secretKey).matches()) {
+        if (!SecretUtils.isSecretKeyValid(secretKey)) {
             return ResponseEntity
                     .badRequest()
                     .body(createErrorPayload(INVALID_SECRET_KEY_FORMAT_MSG));
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.compute;
+
+import com.iexec.sms.secret.store.SecretCodec;
+
+public class TeeTaskComputeSecretCodec implements SecretCodec<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> {
+    @Override
+    public String encodeId(TeeTaskComputeSecretHeader header) {
+        return SecretCodec.joinFields(
+                header.getOnChainObjectType().name(),
+                header.getOnChainObjectAddress(),
+                header.getSecretOwnerRole().name(),
+                header.getFixedSecretOwner(),
+                header.getKey());
+    }
+
+    @Override
+    public TeeTaskComputeSecretHeader getId(TeeTaskComputeSecret secret) {
+        return secret.getHeader();
+    }
+
+    @Override
+    public String getValue(TeeTaskComputeSecret secret) {
+        return secret.getValue();
+    }
+
+    @Override
+    public TeeTaskComputeSecret create(TeeTaskComputeSecretHeader header, String value) {
+        return TeeTaskComputeSecret.builder()
+                .onChainObjectType(header.getOnChainObjectType())
+                .onChainObjectAddress(header.getOnChainObjectAddress())
+                .secretOwnerRole(header.getSecretOwnerRole())
+                .fixedSecretOwner(header.getFixedSecretOwner())
+                .key(header.getKey())
+                .value(value)
+                .build();
+    }
+}
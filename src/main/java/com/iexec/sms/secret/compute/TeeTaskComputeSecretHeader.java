@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 IEXEC BLOCKCHAIN TECH
+ * Copyright 2022-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,12 +24,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.persistence.Embeddable;
-import javax.validation.*;
+import javax.validation.ValidationException;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 @Embeddable
 @Slf4j
@@ -81,14 +81,35 @@ public class TeeTaskComputeSecretHeader implements Serializable {
         validateFields();
     }
 
+    /**
+     * Checks the constraints declared by the bean validation annotations of the fields.
+     * <p>
+     * They are checked by hand as a header is created on each secret lookup,
+     * building a validator would cost far more than the lookup itself.
+     * Address fields cannot be {@literal null} at this point, they have been replaced by empty strings.
+     */
     private void validateFields() {
-        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
-            final Validator validator = factory.getValidator();
-            final Set<ConstraintViolation<TeeTaskComputeSecretHeader>> issues = validator.validate(this);
-            if (!issues.isEmpty()) {
-                log.warn("{}", issues.stream().map(ConstraintViolation::getMessage).collect(Collectors.toList()));
-                throw new ValidationException("Can't create TeeTaskComputeSecretHeader.");
-            }
+        List<String> issues = null;
+        if (onChainObjectType == null) {
+            issues = addIssue(issues, "onChainObjectType must not be null");
+        }
+        if (secretOwnerRole == null) {
+            issues = addIssue(issues, "secretOwnerRole must not be null");
         }
+        if (key == null) {
+            issues = addIssue(issues, "key must not be null");
+        } else if (key.length() < SECRET_KEY_MIN_LENGTH || key.length() > SECRET_KEY_MAX_LENGTH) {
+            issues = addIssue(issues, "key size must be between " + SECRET_KEY_MIN_LENGTH + " and " + SECRET_KEY_MAX_LENGTH);
+        }
+        if (issues != null) {
+            log.warn("{}", issues);
+            throw new ValidationException("Can't create TeeTaskComputeSecretHeader.");
+        }
+    }
+
+    private static List<String> addIssue(List<String> issues, String issue) {
+        final List<String> allIssues = issues != null ? issues : new ArrayList<>();
+        allIssues.add(issue);
+        return allIssues;
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.compute;
+
+import com.iexec.sms.secret.store.SecretCodec;
+import com.iexec.sms.secret.store.SecretStore;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stores {@link TeeTaskComputeSecret}s in the H2 database, with JPA for lookups and plain SQL for inserts.
+ */
+public class TeeTaskComputeSecretJdbcStore implements SecretStore<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> {
+    private static final String INSERT_QUERY = "INSERT INTO \"tee_task_compute_secret\" "
+            + "(\"on_chain_object_type\", \"on_chain_object_address\", \"secret_owner_role\", \"fixed_secret_owner\", \"key\", \"value\") VALUES "
+            + "(?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TeeTaskComputeSecretRepository teeTaskComputeSecretRepository;
+
+    public TeeTaskComputeSecretJdbcStore(JdbcTemplate jdbcTemplate,
+                                         TeeTaskComputeSecretRepository teeTaskComputeSecretRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.teeTaskComputeSecretRepository = teeTaskComputeSecretRepository;
+    }
+
+    @Override
+    public Optional<TeeTaskComputeSecret> findById(TeeTaskComputeSecretHeader header) {
+        return teeTaskComputeSecretRepository.findById(header);
+    }
+
+    /**
+     * Only reads the primary key index, values are neither loaded nor mapped.
+     */
+    @Override
+    public boolean existsById(TeeTaskComputeSecretHeader header) {
+        return teeTaskComputeSecretRepository.existsById(header);
+    }
+
+    @Override
+    public List<TeeTaskComputeSecret> findAllById(Iterable<TeeTaskComputeSecretHeader> headers) {
+        return teeTaskComputeSecretRepository.findAllById(headers);
+    }
+
+    @Override
+    public Set<TeeTaskComputeSecretHeader> findExistingIds(Collection<TeeTaskComputeSecretHeader> headers) {
+        if (headers.isEmpty()) {
+            return Set.of();
+        }
+        final String query = "SELECT \"on_chain_object_type\", \"on_chain_object_address\", \"secret_owner_role\", \"fixed_secret_owner\", \"key\" "
+                + "FROM \"tee_task_compute_secret\" "
+                + "WHERE (\"on_chain_object_type\", \"on_chain_object_address\", \"secret_owner_role\", \"fixed_secret_owner\", \"key\") IN ("
+                + String.join(", ", Collections.nCopies(headers.size(), "(?, ?, ?, ?, ?)")) + ")";
+        final Object[] args = headers.stream()
+                .flatMap(header -> Stream.of(
+                        header.getOnChainObjectType().ordinal(),
+                        header.getOnChainObjectAddress(),
+                        header.getSecretOwnerRole().ordinal(),
+                        header.getFixedSecretOwner(),
+                        header.getKey()))
+                .toArray();
+        return new HashSet<>(jdbcTemplate.query(query,
+                (rs, rowNum) -> new TeeTaskComputeSecretHeader(
+                        OnChainObjectType.values()[rs.getInt(1)],
+                        rs.getString(2),
+                        SecretOwnerRole.values()[rs.getInt(3)],
+                        rs.getString(4),
+                        rs.getString(5)),
+                args));
+    }
+
+    @Override
+    public void insert(TeeTaskComputeSecret secret) {
+        final TeeTaskComputeSecretHeader header = secret.getHeader();
+        final int result = jdbcTemplate.update(INSERT_QUERY,
+                header.getOnChainObjectType().ordinal(), header.getOnChainObjectAddress(),
+                header.getSecretOwnerRole().ordinal(), header.getFixedSecretOwner(),
+                header.getKey(), secret.getValue());
+        // With SQL INSERT INTO and a single set VALUES, at most 1 row can be added and result can only be 0 or 1
+        // When value should be 0, an exception should have been thrown
+        // This check is only there as a fallback and cannot be reached in tests at the moment
+        if (result != 1) {
+            throw new IncorrectResultSizeDataAccessException("Data insert did not work but did not produce an exception", 1);
+        }
+    }
+
+    @Override
+    public void insertAll(List<TeeTaskComputeSecret> secrets) {
+        jdbcTemplate.batchUpdate(INSERT_QUERY, secrets, secrets.size(), (ps, secret) -> {
+            final TeeTaskComputeSecretHeader header = secret.getHeader();
+            ps.setInt(1, header.getOnChainObjectType().ordinal());
+            ps.setString(2, header.getOnChainObjectAddress());
+            ps.setInt(3, header.getSecretOwnerRole().ordinal());
+            ps.setString(4, header.getFixedSecretOwner());
+            ps.setString(5, header.getKey());
+            ps.setString(6, secret.getValue());
+        });
+    }
+
+    @Override
+    public TeeTaskComputeSecret update(TeeTaskComputeSecret secret) {
+        return teeTaskComputeSecretRepository.save(secret);
+    }
+
+    @Override
+    public long count() {
+        return teeTaskComputeSecretRepository.count();
+    }
+
+    /**
+     * Keys are built as in {@link TeeTaskComputeSecretCodec#encodeId(TeeTaskComputeSecretHeader)}.
+     */
+    @Override
+    public void forEachEncodedId(Consumer<String> action) {
+        jdbcTemplate.query("SELECT \"on_chain_object_type\", \"on_chain_object_address\", \"secret_owner_role\", \"fixed_secret_owner\", \"key\" "
+                        + "FROM \"tee_task_compute_secret\"",
+                rs -> action.accept(SecretCodec.joinFields(
+                        OnChainObjectType.values()[rs.getInt(1)].name(),
+                        rs.getString(2),
+                        SecretOwnerRole.values()[rs.getInt(3)].name(),
+                        rs.getString(4),
+                        rs.getString(5))));
+    }
+
+    /**
+     * Scans all stored secrets with their encrypted values, rows are streamed and not loaded at once.
+     *
+     * @param action Called with each stored secret
+     */
+    public void forEachSecret(Consumer<TeeTaskComputeSecret> action) {
+        jdbcTemplate.query("SELECT \"on_chain_object_type\", \"on_chain_object_address\", \"secret_owner_role\", \"fixed_secret_owner\", \"key\", \"value\" "
+                        + "FROM \"tee_task_compute_secret\"",
+                rs -> action.accept(TeeTaskComputeSecret.builder()
+                        .onChainObjectType(OnChainObjectType.values()[rs.getInt(1)])
+                        .onChainObjectAddress(rs.getString(2))
+                        .secretOwnerRole(SecretOwnerRole.values()[rs.getInt(3)])
+                        .fixedSecretOwner(rs.getString(4))
+                        .key(rs.getString(5))
+                        .value(rs.getString(6))
+                        .build()));
+    }
+}
@@ -18,37 +18,53 @@ package com.iexec.sms.secret.compute;
 
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.CacheSecretService;
+import com.iexec.sms.secret.CacheSecretValueService;
 import com.iexec.sms.secret.MeasuredSecretService;
+import com.iexec.sms.secret.SecretBatchWriter;
+import com.iexec.sms.secret.store.SecretStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DuplicateKeyException;
-import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class TeeTaskComputeSecretService {
-    private final JdbcTemplate jdbcTemplate;
-    private final TeeTaskComputeSecretRepository teeTaskComputeSecretRepository;
+    private final SecretStore<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> secretStore;
     private final EncryptionService encryptionService;
     private final MeasuredSecretService measuredSecretService;
     private final CacheSecretService<TeeTaskComputeSecretHeader> cacheSecretService;
+    private final CacheSecretValueService<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> cacheSecretValueService;
+    private final SecretBatchWriter<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> batchWriter;
 
-    protected TeeTaskComputeSecretService(JdbcTemplate jdbcTemplate,
-                                          TeeTaskComputeSecretRepository teeTaskComputeSecretRepository,
+    @Autowired
+    protected TeeTaskComputeSecretService(SecretStore<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> teeTaskComputeSecretStore,
                                           EncryptionService encryptionService,
                                           MeasuredSecretService computeMeasuredSecretService,
-                                          CacheSecretService<TeeTaskComputeSecretHeader> teeTaskComputeCacheSecretService) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.teeTaskComputeSecretRepository = teeTaskComputeSecretRepository;
+                                          CacheSecretService<TeeTaskComputeSecretHeader> teeTaskComputeCacheSecretService,
+                                          CacheSecretValueService<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> teeTaskComputeCacheSecretValueService) {
+        this.secretStore = teeTaskComputeSecretStore;
         this.encryptionService = encryptionService;
         this.measuredSecretService = computeMeasuredSecretService;
         this.cacheSecretService = teeTaskComputeCacheSecretService;
+        this.cacheSecretValueService = teeTaskComputeCacheSecretValueService;
+        this.batchWriter = new SecretBatchWriter<>("compute", secretStore, new TeeTaskComputeSecretCodec(), encryptionService,
+                measuredSecretService, cacheSecretService, cacheSecretValueService);
+    }
+
+    TeeTaskComputeSecretService(JdbcTemplate jdbcTemplate,
+                                TeeTaskComputeSecretRepository teeTaskComputeSecretRepository,
+                                EncryptionService encryptionService,
+                                MeasuredSecretService computeMeasuredSecretService,
+                                CacheSecretService<TeeTaskComputeSecretHeader> teeTaskComputeCacheSecretService,
+                                CacheSecretValueService<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> teeTaskComputeCacheSecretValueService) {
+        this(new TeeTaskComputeSecretJdbcStore(jdbcTemplate, teeTaskComputeSecretRepository), encryptionService,
+                computeMeasuredSecretService, teeTaskComputeCacheSecretService, teeTaskComputeCacheSecretValueService);
     }
 
     /**
@@ -68,25 +84,52 @@ public class TeeTaskComputeSecretService {
                 secretOwner,
                 secretKey
         );
-        final Optional<TeeTaskComputeSecret> oSecret = teeTaskComputeSecretRepository
-                .findById(header);
-        if (oSecret.isEmpty()) {
-            return Optional.empty();
+        TeeTaskComputeSecret secret = cacheSecretValueService.lookSecretValueInCache(header);
+        if (secret == null) {
+            final Optional<TeeTaskComputeSecret> oSecret = secretStore.findById(header);
+            if (oSecret.isEmpty()) {
+                return Optional.empty();
+            }
+            secret = oSecret.get();
+            cacheSecretValueService.putSecretValueInCache(header, secret);
         }
-        final TeeTaskComputeSecret secret = oSecret.get();
         final String decryptedValue = encryptionService.decrypt(secret.getValue());
         TeeTaskComputeSecret decryptedSecret = secret.withValue(decryptedValue);
         return Optional.of(decryptedSecret);
     }
 
+    /**
+     * Retrieves secrets required by a TEE session and decrypts their values.
+     * <p>
+     * Secrets found in the value cache are not requested again from the database.
+     *
+     * @param ids Headers of the secrets to retrieve.
+     * @return Found secrets with decrypted values, missing secrets are ignored.
+     */
     public List<TeeTaskComputeSecret> getSecretsForTeeSession(Iterable<TeeTaskComputeSecretHeader> ids) {
-        return teeTaskComputeSecretRepository.findAllById(ids).stream()
+        final List<TeeTaskComputeSecret> secrets = new ArrayList<>();
+        final List<TeeTaskComputeSecretHeader> missingIds = new ArrayList<>();
+        for (TeeTaskComputeSecretHeader id : ids) {
+            final TeeTaskComputeSecret cachedSecret = cacheSecretValueService.lookSecretValueInCache(id);
+            if (cachedSecret != null) {
+                secrets.add(cachedSecret);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            for (TeeTaskComputeSecret secret : secretStore.findAllById(missingIds)) {
+                cacheSecretValueService.putSecretValueInCache(secret.getHeader(), secret);
+                secrets.add(secret);
+            }
+        }
+        return secrets.stream()
                 .map(secret -> secret.withValue(encryptionService.decrypt(secret.getValue())))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Check whether a secret exists.
+     * Check whether a secret exists, its value is neither read nor decrypted.
      *
      * @return {@code true} if the secret exists in the database, {@code false} otherwise.
      */
@@ -103,21 +146,40 @@ public class TeeTaskComputeSecretService {
                 secretOwner,
                 secretKey
         );
-        final Boolean found = cacheSecretService.lookSecretExistenceInCache(key);
-        if (found != null) {
-            return found;
-        }
-
-        final boolean isPresentInDB = getSecret(
-                onChainObjectType,
-                deployedObjectAddress,
-                secretOwnerRole,
-                secretOwner,
-                secretKey
-        ).isPresent();
+        return cacheSecretService.lookSecretExistence(key, secretStore::existsById);
+    }
 
-        cacheSecretService.putSecretExistenceInCache(key, isPresentInDB);
-        return isPresentInDB;
+    /**
+     * Checks which secrets exist among the given ones.
+     * <p>
+     * Secrets missing from the existence cache are looked up at once, without reading their values.
+     *
+     * @param headers Headers of the secrets to look for.
+     * @return Headers of existing secrets.
+     */
+    public Set<TeeTaskComputeSecretHeader> findPresentSecrets(Collection<TeeTaskComputeSecretHeader> headers) {
+        final Set<TeeTaskComputeSecretHeader> presentHeaders = new HashSet<>();
+        final List<TeeTaskComputeSecretHeader> missingHeaders = new ArrayList<>();
+        for (TeeTaskComputeSecretHeader header : new LinkedHashSet<>(headers)) {
+            final Boolean found = cacheSecretService.lookSecretExistenceInCache(header);
+            if (found == null) {
+                missingHeaders.add(header);
+            } else if (found) {
+                presentHeaders.add(header);
+            }
+        }
+        if (missingHeaders.isEmpty()) {
+            return presentHeaders;
+        }
+        final Set<TeeTaskComputeSecretHeader> foundHeaders = secretStore.findExistingIds(missingHeaders);
+        for (TeeTaskComputeSecretHeader header : missingHeaders) {
+            final boolean isPresentInDB = foundHeaders.contains(header);
+            cacheSecretService.putSecretExistenceInCache(header, isPresentInDB);
+            if (isPresentInDB) {
+                presentHeaders.add(header);
+            }
+        }
+        return presentHeaders;
     }
 
     /**
@@ -142,19 +204,9 @@ public class TeeTaskComputeSecretService {
                     .value(encryptionService.encrypt(secretValue))
                     .build();
             log.info("Adding new tee task compute secret [secret:{}]", secret);
-            final int result = jdbcTemplate.update("INSERT INTO \"tee_task_compute_secret\" "
-                            + "(\"on_chain_object_type\", \"on_chain_object_address\", \"secret_owner_role\", \"fixed_secret_owner\", \"key\", \"value\") VALUES "
-                            + "(?, ?, ?, ?, ?, ?)",
-                    secret.getHeader().getOnChainObjectType().ordinal(), secret.getHeader().getOnChainObjectAddress(),
-                    secret.getHeader().getSecretOwnerRole().ordinal(), secret.getHeader().getFixedSecretOwner(),
-                    secret.getHeader().getKey(), secret.getValue());
-            // With SQL INSERT INTO and a single set VALUES, at most 1 row can be added and result can only be 0 or 1
-            // When value should be 0, an exception should have been thrown
-            // This check is only there as a fallback and cannot be reached in tests at the moment
-            if (result != 1) {
-                throw new IncorrectResultSizeDataAccessException("Data insert did not work but did not produce an exception", 1);
-            }
+            secretStore.insert(secret);
             cacheSecretService.putSecretExistenceInCache(secret.getHeader(), true);
+            cacheSecretValueService.putSecretValueInCache(secret.getHeader(), secret);
             measuredSecretService.newlyAddedSecret();
             return true;
         } catch (DuplicateKeyException e) {
@@ -166,4 +218,25 @@ public class TeeTaskComputeSecretService {
         }
         return false;
     }
+
+    /**
+     * Encrypts values of new {@link TeeTaskComputeSecret}s, see {@link SecretBatchWriter#encryptSecrets(List)}.
+     */
+    public List<TeeTaskComputeSecret> encryptSecrets(List<TeeTaskComputeSecret> secrets) {
+        return batchWriter.encryptSecrets(secrets);
+    }
+
+    /**
+     * Saves new {@link TeeTaskComputeSecret}s at once, see {@link SecretBatchWriter#addEncryptedSecretsInBatch(List)}.
+     */
+    public void addEncryptedSecretsInBatch(List<TeeTaskComputeSecret> encryptedSecrets) {
+        batchWriter.addEncryptedSecretsInBatch(encryptedSecrets);
+    }
+
+    /**
+     * Saves a new {@link TeeTaskComputeSecret}, see {@link SecretBatchWriter#addEncryptedSecret(Object)}.
+     */
+    public boolean addEncryptedSecret(TeeTaskComputeSecret encryptedSecret) {
+        return batchWriter.addEncryptedSecret(encryptedSecret);
+    }
 }
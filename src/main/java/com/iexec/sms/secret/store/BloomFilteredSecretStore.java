@@ -0,0 +1,216 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Answers lookups of secrets which definitely do not exist without reaching the underlying store.
+ * <p>
+ * A Bloom filter of all stored headers is built from the store and updated on each insert.
+ * Secrets reported as absent by the filter are never looked up, others are looked up as usual.
+ * The filter has to be rebuilt when secrets are stored without going through this class, e.g. on a database restore.
+ *
+ * @param <H> Type of the secret header
+ * @param <S> Type of the secret
+ */
+@Slf4j
+public class BloomFilteredSecretStore<H, S> implements SecretStore<H, S> {
+    private final String secretsType;
+    private final SecretStore<H, S> delegate;
+    private final SecretCodec<H, S> codec;
+    private final double fpp;
+    private final long minCapacity;
+    private final Timer rebuildTimer;
+    private final Counter skippedLookupsCounter;
+
+    private volatile SecretBloomFilter filter;
+    private volatile SecretBloomFilter nextFilter;
+
+    /**
+     * Wraps a store, the filter has to be built with {@link #rebuild()} before it is used.
+     * Until then, every lookup reaches the store.
+     *
+     * @param metricsPrefix Prefix of published metrics
+     * @param secretsType   Type of secrets, for display purpose
+     * @param delegate      Store holding the secrets
+     * @param codec         Encodes headers to filter keys
+     * @param fpp           Target false positive probability
+     * @param minCapacity   Minimum number of keys the filter is sized for
+     */
+    public BloomFilteredSecretStore(String metricsPrefix, String secretsType, SecretStore<H, S> delegate,
+                                    SecretCodec<H, S> codec, double fpp, long minCapacity) {
+        this.secretsType = secretsType;
+        this.delegate = delegate;
+        this.codec = codec;
+        this.fpp = fpp;
+        this.minCapacity = minCapacity;
+        this.rebuildTimer = Metrics.timer(metricsPrefix + "filter.rebuild");
+        this.skippedLookupsCounter = Metrics.counter(metricsPrefix + "filter.skipped");
+        Gauge.builder(metricsPrefix + "filter.fpp", this, BloomFilteredSecretStore::getEstimatedFpp)
+                .description("Estimated false positive probability of the existence filter")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Builds a new filter from all stored secrets and replaces the current one.
+     * <p>
+     * The filter is sized for twice the current number of secrets.
+     * Secrets inserted during the scan are added to both filters so that none is missed.
+     */
+    public synchronized void rebuild() {
+        final long start = System.nanoTime();
+        final long capacity = Math.max(minCapacity, 2 * delegate.count());
+        final SecretBloomFilter rebuiltFilter = new SecretBloomFilter(capacity, fpp);
+        nextFilter = rebuiltFilter;
+        try {
+            delegate.forEachEncodedId(rebuiltFilter::put);
+            filter = rebuiltFilter;
+        } finally {
+            nextFilter = null;
+        }
+        final long duration = System.nanoTime() - start;
+        rebuildTimer.record(duration, TimeUnit.NANOSECONDS);
+        log.info("Secret existence filter rebuilt [type:{}, capacity:{}, estimatedFpp:{}, duration:{}ms]",
+                secretsType, capacity, rebuiltFilter.estimatedFpp(), duration / 1_000_000);
+    }
+
+    /**
+     * Estimates the false positive probability of the current filter, it grows as secrets are inserted.
+     *
+     * @return Estimated probability, 1 if the filter has not been built yet
+     */
+    public double getEstimatedFpp() {
+        final SecretBloomFilter currentFilter = filter;
+        return currentFilter != null ? currentFilter.estimatedFpp() : 1;
+    }
+
+    boolean mightExist(H header) {
+        final SecretBloomFilter currentFilter = filter;
+        if (currentFilter == null || currentFilter.mightContain(codec.encodeId(header))) {
+            return true;
+        }
+        skippedLookupsCounter.increment();
+        return false;
+    }
+
+    @Override
+    public Optional<S> findById(H header) {
+        return mightExist(header) ? delegate.findById(header) : Optional.empty();
+    }
+
+    @Override
+    public boolean existsById(H header) {
+        return mightExist(header) && delegate.existsById(header);
+    }
+
+    @Override
+    public List<S> findAllById(Iterable<H> headers) {
+        final List<H> candidates = new ArrayList<>();
+        headers.forEach(header -> {
+            if (mightExist(header)) {
+                candidates.add(header);
+            }
+        });
+        return candidates.isEmpty() ? List.of() : delegate.findAllById(candidates);
+    }
+
+    @Override
+    public Set<H> findExistingIds(Collection<H> headers) {
+        final List<H> candidates = headers.stream()
+                .filter(this::mightExist)
+                .collect(Collectors.toList());
+        return candidates.isEmpty() ? Set.of() : delegate.findExistingIds(candidates);
+    }
+
+    @Override
+    public void insert(S secret) {
+        final List<String> keys = List.of(codec.encodeId(codec.getId(secret)));
+        record(keys);
+        delegate.insert(secret);
+        recordAfterCommit(keys);
+    }
+
+    @Override
+    public void insertAll(List<S> secrets) {
+        final List<String> keys = secrets.stream()
+                .map(secret -> codec.encodeId(codec.getId(secret)))
+                .collect(Collectors.toList());
+        record(keys);
+        delegate.insertAll(secrets);
+        recordAfterCommit(keys);
+    }
+
+    @Override
+    public S update(S secret) {
+        return delegate.update(secret);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public void forEachEncodedId(Consumer<String> action) {
+        delegate.forEachEncodedId(action);
+    }
+
+    /**
+     * Keys are added before inserting secrets, so that lookups racing with the insert reach the store.
+     * A failed insert only leaves a false positive behind.
+     */
+    private void record(List<String> keys) {
+        final SecretBloomFilter currentFilter = filter;
+        final SecretBloomFilter rebuiltFilter = nextFilter;
+        for (String key : keys) {
+            if (currentFilter != null) {
+                currentFilter.put(key);
+            }
+            if (rebuiltFilter != null) {
+                rebuiltFilter.put(key);
+            }
+        }
+    }
+
+    /**
+     * Keys are added again once secrets are visible to other transactions,
+     * in case a rebuild has started and scanned the table in the meantime.
+     */
+    private void recordAfterCommit(List<String> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(keys);
+            }
+        });
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Stores secrets of a given type in a map of an embedded MVStore, without any SQL or ORM layer.
+ * <p>
+ * Each secret is a single entry whose key is its encoded header and whose value is its encrypted value,
+ * a lookup is a B-tree search on the key.
+ * Writes are committed to disk before returning. They are not enlisted in Spring transactions,
+ * {@link #insertAll(List)} is atomic but a batch spanning several secret types is not.
+ *
+ * @param <H> Type of the secret header
+ * @param <S> Type of the secret
+ */
+public class MVStoreSecretStore<H, S> implements SecretStore<H, S> {
+    private static final String IMPORT_MAP_SUFFIX = ".import";
+    private static final long IMPORT_COMMIT_INTERVAL = 10_000;
+
+    private final MVStore mvStore;
+    private final MVMap<String, String> secrets;
+    private final SecretCodec<H, S> codec;
+
+    public MVStoreSecretStore(MVStore mvStore, String mapName, SecretCodec<H, S> codec) {
+        this.mvStore = mvStore;
+        this.secrets = mvStore.openMap(mapName);
+        this.codec = codec;
+    }
+
+    @Override
+    public Optional<S> findById(H header) {
+        return Optional.ofNullable(secrets.get(codec.encodeId(header)))
+                .map(value -> codec.create(header, value));
+    }
+
+    @Override
+    public boolean existsById(H header) {
+        return secrets.containsKey(codec.encodeId(header));
+    }
+
+    @Override
+    public List<S> findAllById(Iterable<H> headers) {
+        final List<S> found = new ArrayList<>();
+        for (H header : headers) {
+            findById(header).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public Set<H> findExistingIds(Collection<H> headers) {
+        return headers.stream()
+                .filter(header -> secrets.containsKey(codec.encodeId(header)))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public synchronized void insert(S secret) {
+        final String key = codec.encodeId(codec.getId(secret));
+        if (secrets.putIfAbsent(key, codec.getValue(secret)) != null) {
+            throw new DuplicateKeyException("Secret already exists [map:" + secrets.getName() + ", key:" + key + "]");
+        }
+        mvStore.commit();
+    }
+
+    @Override
+    public synchronized void insertAll(List<S> secrets) {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        for (S secret : secrets) {
+            final String key = codec.encodeId(codec.getId(secret));
+            if (entries.put(key, codec.getValue(secret)) != null || this.secrets.containsKey(key)) {
+                throw new DuplicateKeyException("Secret already exists [map:" + this.secrets.getName() + ", key:" + key + "]");
+            }
+        }
+        this.secrets.putAll(entries);
+        mvStore.commit();
+    }
+
+    @Override
+    public synchronized S update(S secret) {
+        secrets.put(codec.encodeId(codec.getId(secret)), codec.getValue(secret));
+        mvStore.commit();
+        return secret;
+    }
+
+    @Override
+    public long count() {
+        return secrets.sizeAsLong();
+    }
+
+    @Override
+    public void forEachEncodedId(Consumer<String> action) {
+        secrets.keySet().forEach(action);
+    }
+
+    /**
+     * Copies secrets of another store into a map of the MVStore, if this map does not hold any secret yet.
+     * <p>
+     * Secrets are written to a temporary map which only replaces the target map once all of them have been copied,
+     * an interrupted import is started again from scratch. Values are copied as is, they remain encrypted.
+     *
+     * @param mvStore MVStore holding the map
+     * @param mapName Name of the map to fill
+     * @param codec   Codec of the secret type
+     * @param source  Scans all secrets of the source store
+     * @param <H>     Type of the secret header
+     * @param <S>     Type of the secret
+     * @return Number of imported secrets, 0 if the map already held secrets
+     */
+    public static <H, S> long importSecretsIfEmpty(MVStore mvStore, String mapName, SecretCodec<H, S> codec,
+                                                   Consumer<Consumer<S>> source) {
+        if (mvStore.hasMap(mapName) && !mvStore.openMap(mapName).isEmpty()) {
+            return 0;
+        }
+        final String importMapName = mapName + IMPORT_MAP_SUFFIX;
+        if (mvStore.hasMap(importMapName)) {
+            mvStore.removeMap(importMapName);
+        }
+        final MVMap<String, String> importMap = mvStore.openMap(importMapName);
+        source.accept(secret -> {
+            importMap.put(codec.encodeId(codec.getId(secret)), codec.getValue(secret));
+            if (importMap.sizeAsLong() % IMPORT_COMMIT_INTERVAL == 0) {
+                mvStore.commit();
+            }
+        });
+        final long count = importMap.sizeAsLong();
+        if (count == 0) {
+            mvStore.removeMap(importMap);
+        } else {
+            if (mvStore.hasMap(mapName)) {
+                mvStore.removeMap(mapName);
+            }
+            mvStore.renameMap(importMap, mapName);
+        }
+        mvStore.commit();
+        return count;
+    }
+}
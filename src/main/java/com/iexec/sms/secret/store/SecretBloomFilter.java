@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of encoded secret headers.
+ * <p>
+ * A key which has been added is always reported as possibly present,
+ * a key which has not been added is reported as possibly present with a false positive probability.
+ */
+class SecretBloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong setBitCount = new AtomicLong();
+
+    /**
+     * Sizes a filter for a number of keys and a target false positive probability.
+     *
+     * @param capacity Expected number of keys
+     * @param fpp      Target false positive probability, between 0 and 1
+     */
+    SecretBloomFilter(long capacity, double fpp) {
+        final long expectedKeys = Math.max(capacity, 1);
+        final long optimalBitCount = (long) Math.ceil(-expectedKeys * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        final int longCount = (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(1, (optimalBitCount + 63) / 64));
+        this.bits = new AtomicLongArray(longCount);
+        this.bitCount = longCount * 64L;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedKeys * Math.log(2)));
+    }
+
+    void put(String key) {
+        final long hash1 = hash(key);
+        final long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bitIndex = Math.floorMod(hash1 + i * hash2, bitCount);
+            final int longIndex = (int) (bitIndex >>> 6);
+            final long mask = 1L << bitIndex;
+            long current = bits.get(longIndex);
+            while ((current & mask) == 0) {
+                if (bits.compareAndSet(longIndex, current, current | mask)) {
+                    setBitCount.incrementAndGet();
+                    break;
+                }
+                current = bits.get(longIndex);
+            }
+        }
+    }
+
+    boolean mightContain(String key) {
+        final long hash1 = hash(key);
+        final long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bitIndex = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the false positive probability from the proportion of bits currently set.
+     *
+     * @return Probability that an absent key is reported as possibly present
+     */
+    double estimatedFpp() {
+        return Math.pow((double) setBitCount.get() / bitCount, hashCount);
+    }
+
+    /**
+     * FNV-1a hash of the UTF-8 bytes of the key, followed by a MurmurHash3 finalizer to spread bits.
+     */
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB93FE1A85EC3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+/**
+ * Converts secrets of a given type to key-value entries for {@link MVStoreSecretStore}.
+ * <p>
+ * Encoded headers are also the keys of {@link BloomFilteredSecretStore} filters, whatever the backend.
+ *
+ * @param <H> Type of the secret header
+ * @param <S> Type of the secret
+ */
+public interface SecretCodec<H, S> {
+
+    String encodeId(H header);
+
+    H getId(S secret);
+
+    String getValue(S secret);
+
+    S create(H header, String value);
+
+    /**
+     * Joins header fields in a single key, each field being prefixed with its length.
+     * Two different headers can then never share the same key, whatever the characters found in their fields.
+     *
+     * @param fields Header fields, {@literal null} fields are stored as empty strings
+     * @return The encoded key
+     */
+    static String joinFields(String... fields) {
+        final StringBuilder sb = new StringBuilder();
+        for (String field : fields) {
+            final String value = field == null ? "" : field;
+            sb.append(value.length()).append(':').append(value);
+        }
+        return sb.toString();
+    }
+}
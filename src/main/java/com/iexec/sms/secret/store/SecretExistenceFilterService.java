@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import com.iexec.sms.admin.DatabaseRestoredEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Puts a Bloom filter in front of secret stores, so that lookups of missing secrets do not reach the database.
+ * <p>
+ * Filters are built when stores are created at startup, and rebuilt after a database restoration.
+ */
+@Slf4j
+@Service
+public class SecretExistenceFilterService {
+    private final boolean enabled;
+    private final double fpp;
+    private final long minCapacity;
+    private final List<BloomFilteredSecretStore<?, ?>> filteredStores = new CopyOnWriteArrayList<>();
+
+    public SecretExistenceFilterService(@Value("${secrets.existence-filter.enabled}") boolean enabled,
+                                        @Value("${secrets.existence-filter.fpp}") double fpp,
+                                        @Value("${secrets.existence-filter.min-capacity}") long minCapacity) {
+        this.enabled = enabled && fpp > 0 && fpp < 1;
+        this.fpp = fpp;
+        this.minCapacity = minCapacity;
+        log.info("Secret existence filters configured [enabled:{}, fpp:{}, minCapacity:{}]", this.enabled, fpp, minCapacity);
+    }
+
+    /**
+     * Wraps a store with a filter built from its content, if filters are enabled.
+     *
+     * @param secretsType Type of secrets, used in metric names
+     * @param store       Store holding the secrets
+     * @param codec       Encodes headers to filter keys
+     * @return The filtered store, or the given one if filters are disabled
+     */
+    public <H, S> SecretStore<H, S> withExistenceFilter(String secretsType, SecretStore<H, S> store,
+                                                        SecretCodec<H, S> codec) {
+        if (!enabled) {
+            return store;
+        }
+        final BloomFilteredSecretStore<H, S> filteredStore = new BloomFilteredSecretStore<>(
+                "iexec.sms.secrets." + secretsType + ".", secretsType, store, codec, fpp, minCapacity);
+        filteredStore.rebuild();
+        filteredStores.add(filteredStore);
+        return filteredStore;
+    }
+
+    /**
+     * Rebuilds all filters after a database restoration, restored secrets have not been added to them.
+     */
+    @EventListener
+    public void onDatabaseRestored(DatabaseRestoredEvent event) {
+        filteredStores.forEach(BloomFilteredSecretStore::rebuild);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Persistence SPI for secrets, which are only ever accessed by their header.
+ * <p>
+ * Values are stored as provided, they have to be encrypted beforehand.
+ * Implementations report failures with Spring {@link org.springframework.dao.DataAccessException}s.
+ *
+ * @param <H> Type of the secret header, used as primary key
+ * @param <S> Type of the secret
+ */
+public interface SecretStore<H, S> {
+
+    Optional<S> findById(H header);
+
+    /**
+     * Checks whether a secret exists, without reading its value.
+     *
+     * @param header Header of the secret to look for
+     * @return {@literal true} if the secret exists, {@literal false} otherwise
+     */
+    boolean existsById(H header);
+
+    /**
+     * Retrieves several secrets, missing ones are ignored.
+     *
+     * @param headers Headers of the secrets to retrieve
+     * @return Found secrets, in no particular order
+     */
+    List<S> findAllById(Iterable<H> headers);
+
+    /**
+     * Checks which secrets exist among the given ones, without reading their values.
+     *
+     * @param headers Headers of the secrets to look for
+     * @return Headers of existing secrets
+     */
+    Set<H> findExistingIds(Collection<H> headers);
+
+    /**
+     * Stores a new secret.
+     *
+     * @param secret Secret with an encrypted value
+     * @throws DuplicateKeyException if a secret with the same header already exists
+     */
+    void insert(S secret);
+
+    /**
+     * Stores several new secrets, none of them is stored if one already exists.
+     *
+     * @param secrets Secrets with encrypted values
+     * @throws DuplicateKeyException if one of the secrets already exists
+     */
+    void insertAll(List<S> secrets);
+
+    /**
+     * Replaces the value of an existing secret.
+     *
+     * @param secret Secret with its new encrypted value
+     * @return The saved secret
+     */
+    S update(S secret);
+
+    long count();
+
+    /**
+     * Scans the keys of all stored secrets, encoded as with {@link SecretCodec#encodeId(Object)}.
+     * Headers are not built, so that whole tables can be scanned cheaply.
+     *
+     * @param action Called with the key of each stored secret
+     */
+    void forEachEncodedId(Consumer<String> action);
+}
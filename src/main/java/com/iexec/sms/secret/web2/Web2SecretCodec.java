@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.web2;
+
+import com.iexec.sms.secret.store.SecretCodec;
+
+public class Web2SecretCodec implements SecretCodec<Web2SecretHeader, Web2Secret> {
+    @Override
+    public String encodeId(Web2SecretHeader header) {
+        return SecretCodec.joinFields(header.getOwnerAddress(), header.getAddress());
+    }
+
+    @Override
+    public Web2SecretHeader getId(Web2Secret secret) {
+        return secret.getHeader();
+    }
+
+    @Override
+    public String getValue(Web2Secret secret) {
+        return secret.getValue();
+    }
+
+    @Override
+    public Web2Secret create(Web2SecretHeader header, String value) {
+        return new Web2Secret(header.getOwnerAddress(), header.getAddress(), value);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.web2;
+
+import com.iexec.sms.secret.store.SecretCodec;
+import com.iexec.sms.secret.store.SecretStore;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stores {@link Web2Secret}s in the H2 database, with JPA for lookups and plain SQL for inserts.
+ */
+public class Web2SecretJdbcStore implements SecretStore<Web2SecretHeader, Web2Secret> {
+    private static final String INSERT_QUERY = "INSERT INTO \"web2secret\" (\"owner_address\", \"address\", \"value\") VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Web2SecretRepository web2SecretRepository;
+
+    public Web2SecretJdbcStore(JdbcTemplate jdbcTemplate, Web2SecretRepository web2SecretRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.web2SecretRepository = web2SecretRepository;
+    }
+
+    @Override
+    public Optional<Web2Secret> findById(Web2SecretHeader header) {
+        return web2SecretRepository.findById(header);
+    }
+
+    /**
+     * Only reads the primary key index, values are neither loaded nor mapped.
+     */
+    @Override
+    public boolean existsById(Web2SecretHeader header) {
+        return web2SecretRepository.existsById(header);
+    }
+
+    @Override
+    public List<Web2Secret> findAllById(Iterable<Web2SecretHeader> headers) {
+        return web2SecretRepository.findAllById(headers);
+    }
+
+    @Override
+    public Set<Web2SecretHeader> findExistingIds(Collection<Web2SecretHeader> headers) {
+        if (headers.isEmpty()) {
+            return Set.of();
+        }
+        final String query = "SELECT \"owner_address\", \"address\" FROM \"web2secret\" WHERE (\"owner_address\", \"address\") IN ("
+                + String.join(", ", Collections.nCopies(headers.size(), "(?, ?)")) + ")";
+        final Object[] args = headers.stream()
+                .flatMap(header -> Stream.of(header.getOwnerAddress(), header.getAddress()))
+                .toArray();
+        return new HashSet<>(jdbcTemplate.query(query,
+                (rs, rowNum) -> new Web2SecretHeader(rs.getString(1), rs.getString(2)), args));
+    }
+
+    @Override
+    public void insert(Web2Secret secret) {
+        final int result = jdbcTemplate.update(INSERT_QUERY,
+                secret.getHeader().getOwnerAddress(), secret.getHeader().getAddress(), secret.getValue());
+        // With SQL INSERT INTO and a single set VALUES, at most 1 row can be added and result can only be 0 or 1
+        // When value should be 0, an exception should have been thrown
+        // This check is only there as a fallback and cannot be reached in tests at the moment
+        if (result != 1) {
+            throw new IncorrectResultSizeDataAccessException("Data insert did not work but did not produce an exception", 1);
+        }
+    }
+
+    @Override
+    public void insertAll(List<Web2Secret> secrets) {
+        jdbcTemplate.batchUpdate(INSERT_QUERY, secrets, secrets.size(), (ps, secret) -> {
+            ps.setString(1, secret.getHeader().getOwnerAddress());
+            ps.setString(2, secret.getHeader().getAddress());
+            ps.setString(3, secret.getValue());
+        });
+    }
+
+    @Override
+    public Web2Secret update(Web2Secret secret) {
+        return web2SecretRepository.save(secret);
+    }
+
+    @Override
+    public long count() {
+        return web2SecretRepository.count();
+    }
+
+    /**
+     * Keys are built as in {@link Web2SecretCodec#encodeId(Web2SecretHeader)}.
+     */
+    @Override
+    public void forEachEncodedId(Consumer<String> action) {
+        jdbcTemplate.query("SELECT \"owner_address\", \"address\" FROM \"web2secret\"",
+                rs -> action.accept(SecretCodec.joinFields(rs.getString(1), rs.getString(2))));
+    }
+
+    /**
+     * Scans all stored secrets with their encrypted values, rows are streamed and not loaded at once.
+     *
+     * @param action Called with each stored secret
+     */
+    public void forEachSecret(Consumer<Web2Secret> action) {
+        jdbcTemplate.query("SELECT \"owner_address\", \"address\", \"value\" FROM \"web2secret\"",
+                rs -> action.accept(new Web2Secret(rs.getString(1), rs.getString(2), rs.getString(3))));
+    }
+}
@@ -18,38 +18,53 @@ package com.iexec.sms.secret.web2;
 
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.CacheSecretService;
+import com.iexec.sms.secret.CacheSecretValueService;
 import com.iexec.sms.secret.MeasuredSecretService;
+import com.iexec.sms.secret.SecretBatchWriter;
+import com.iexec.sms.secret.store.SecretStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DuplicateKeyException;
-import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class Web2SecretService {
-    private final JdbcTemplate jdbcTemplate;
-    private final Web2SecretRepository web2SecretRepository;
+    private final SecretStore<Web2SecretHeader, Web2Secret> secretStore;
     private final EncryptionService encryptionService;
     private final MeasuredSecretService measuredSecretService;
     private final CacheSecretService<Web2SecretHeader> cacheSecretService;
+    private final CacheSecretValueService<Web2SecretHeader, Web2Secret> cacheSecretValueService;
+    private final SecretBatchWriter<Web2SecretHeader, Web2Secret> batchWriter;
 
-    protected Web2SecretService(JdbcTemplate jdbcTemplate,
-                                Web2SecretRepository web2SecretRepository,
+    @Autowired
+    protected Web2SecretService(SecretStore<Web2SecretHeader, Web2Secret> web2SecretStore,
                                 EncryptionService encryptionService,
                                 MeasuredSecretService web2MeasuredSecretService,
-                                CacheSecretService<Web2SecretHeader> web2CacheSecretService) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.web2SecretRepository = web2SecretRepository;
+                                CacheSecretService<Web2SecretHeader> web2CacheSecretService,
+                                CacheSecretValueService<Web2SecretHeader, Web2Secret> web2CacheSecretValueService) {
+        this.secretStore = web2SecretStore;
         this.encryptionService = encryptionService;
         this.measuredSecretService = web2MeasuredSecretService;
         this.cacheSecretService = web2CacheSecretService;
+        this.cacheSecretValueService = web2CacheSecretValueService;
+        this.batchWriter = new SecretBatchWriter<>("web2", secretStore, new Web2SecretCodec(), encryptionService,
+                measuredSecretService, cacheSecretService, cacheSecretValueService);
+    }
+
+    Web2SecretService(JdbcTemplate jdbcTemplate,
+                      Web2SecretRepository web2SecretRepository,
+                      EncryptionService encryptionService,
+                      MeasuredSecretService web2MeasuredSecretService,
+                      CacheSecretService<Web2SecretHeader> web2CacheSecretService,
+                      CacheSecretValueService<Web2SecretHeader, Web2Secret> web2CacheSecretValueService) {
+        this(new Web2SecretJdbcStore(jdbcTemplate, web2SecretRepository), encryptionService,
+                web2MeasuredSecretService, web2CacheSecretService, web2CacheSecretValueService);
     }
 
     /**
@@ -62,7 +77,14 @@ public class Web2SecretService {
      * an {@link Optional} containing the secret if it exists.
      */
     Optional<Web2Secret> getSecret(String ownerAddress, String secretAddress) {
-        return web2SecretRepository.findById(new Web2SecretHeader(ownerAddress, secretAddress));
+        final Web2SecretHeader key = new Web2SecretHeader(ownerAddress, secretAddress);
+        final Web2Secret cachedSecret = cacheSecretValueService.lookSecretValueInCache(key);
+        if (cachedSecret != null) {
+            return Optional.of(cachedSecret);
+        }
+        final Optional<Web2Secret> secret = secretStore.findById(key);
+        secret.ifPresent(value -> cacheSecretValueService.putSecretValueInCache(key, value));
+        return secret;
     }
 
     public Optional<String> getDecryptedValue(String ownerAddress, String secretAddress) {
@@ -70,21 +92,72 @@ public class Web2SecretService {
                 .map(secret -> encryptionService.decrypt(secret.getValue()));
     }
 
+    /**
+     * Retrieves secrets required by a TEE session and decrypts their values.
+     * <p>
+     * Secrets found in the value cache are not requested again from the database.
+     *
+     * @param ids Headers of the secrets to retrieve.
+     * @return Found secrets with decrypted values, missing secrets are ignored.
+     */
     public List<Web2Secret> getSecretsForTeeSession(Iterable<Web2SecretHeader> ids) {
-        return web2SecretRepository.findAllById(ids).stream()
+        final List<Web2Secret> secrets = new ArrayList<>();
+        final List<Web2SecretHeader> missingIds = new ArrayList<>();
+        for (Web2SecretHeader id : ids) {
+            final Web2Secret cachedSecret = cacheSecretValueService.lookSecretValueInCache(id);
+            if (cachedSecret != null) {
+                secrets.add(cachedSecret);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            for (Web2Secret secret : secretStore.findAllById(missingIds)) {
+                cacheSecretValueService.putSecretValueInCache(secret.getHeader(), secret);
+                secrets.add(secret);
+            }
+        }
+        return secrets.stream()
                 .map(secret -> secret.withValue(encryptionService.decrypt(secret.getValue())))
                 .collect(Collectors.toList());
     }
 
     public boolean isSecretPresent(String ownerAddress, String secretAddress) {
         final Web2SecretHeader key = new Web2SecretHeader(ownerAddress, secretAddress);
-        final Boolean found = cacheSecretService.lookSecretExistenceInCache(key);
-        if (found != null) {
-            return found;
+        return cacheSecretService.lookSecretExistence(key, secretStore::existsById);
+    }
+
+    /**
+     * Checks which secrets exist among the given ones.
+     * <p>
+     * Secrets missing from the existence cache are looked up at once, without reading their values.
+     *
+     * @param headers Headers of the secrets to look for.
+     * @return Headers of existing secrets.
+     */
+    public Set<Web2SecretHeader> findPresentSecrets(Collection<Web2SecretHeader> headers) {
+        final Set<Web2SecretHeader> presentHeaders = new HashSet<>();
+        final List<Web2SecretHeader> missingHeaders = new ArrayList<>();
+        for (Web2SecretHeader header : new LinkedHashSet<>(headers)) {
+            final Boolean found = cacheSecretService.lookSecretExistenceInCache(header);
+            if (found == null) {
+                missingHeaders.add(header);
+            } else if (found) {
+                presentHeaders.add(header);
+            }
         }
-        final boolean isPresentInDB = getSecret(ownerAddress, secretAddress).isPresent();
-        cacheSecretService.putSecretExistenceInCache(key, isPresentInDB);
-        return isPresentInDB;
+        if (missingHeaders.isEmpty()) {
+            return presentHeaders;
+        }
+        final Set<Web2SecretHeader> foundHeaders = secretStore.findExistingIds(missingHeaders);
+        for (Web2SecretHeader header : missingHeaders) {
+            final boolean isPresentInDB = foundHeaders.contains(header);
+            cacheSecretService.putSecretExistenceInCache(header, isPresentInDB);
+            if (isPresentInDB) {
+                presentHeaders.add(header);
+            }
+        }
+        return presentHeaders;
     }
 
     /**
@@ -100,15 +173,9 @@ public class Web2SecretService {
         try {
             final String encryptedValue = encryptionService.encrypt(secretValue);
             final Web2Secret web2Secret = new Web2Secret(ownerAddress, secretAddress, encryptedValue);
-            final int result = jdbcTemplate.update("INSERT INTO \"web2secret\" (\"owner_address\", \"address\", \"value\") VALUES (?, ?, ?)",
-                    web2Secret.getHeader().getOwnerAddress(), web2Secret.getHeader().getAddress(), web2Secret.getValue());
-            // With SQL INSERT INTO and a single set VALUES, at most 1 row can be added and result can only be 0 or 1
-            // When value should be 0, an exception should have been thrown
-            // This check is only there as a fallback and cannot be reached in tests at the moment
-            if (result != 1) {
-                throw new IncorrectResultSizeDataAccessException("Data insert did not work but did not produce an exception", 1);
-            }
+            secretStore.insert(web2Secret);
             cacheSecretService.putSecretExistenceInCache(web2Secret.getHeader(), true);
+            cacheSecretValueService.putSecretValueInCache(web2Secret.getHeader(), web2Secret);
             measuredSecretService.newlyAddedSecret();
             return true;
         } catch (DuplicateKeyException e) {
@@ -121,6 +188,27 @@ public class Web2SecretService {
         return false;
     }
 
+    /**
+     * Encrypts values of new {@link Web2Secret}s, see {@link SecretBatchWriter#encryptSecrets(List)}.
+     */
+    public List<Web2Secret> encryptSecrets(List<Web2Secret> secrets) {
+        return batchWriter.encryptSecrets(secrets);
+    }
+
+    /**
+     * Saves new {@link Web2Secret}s at once, see {@link SecretBatchWriter#addEncryptedSecretsInBatch(List)}.
+     */
+    public void addEncryptedSecretsInBatch(List<Web2Secret> encryptedSecrets) {
+        batchWriter.addEncryptedSecretsInBatch(encryptedSecrets);
+    }
+
+    /**
+     * Saves a new {@link Web2Secret}, see {@link SecretBatchWriter#addEncryptedSecret(Object)}.
+     */
+    public boolean addEncryptedSecret(Web2Secret encryptedSecret) {
+        return batchWriter.addEncryptedSecret(encryptedSecret);
+    }
+
     /**
      * Updates an existing {@link Web2Secret}.
      * If the secret does not already exist, then cancels the save.
@@ -150,8 +238,9 @@ public class Web2SecretService {
         }
 
         final Web2Secret newSecret = secret.withValue(encryptedValue);
-        final Web2Secret savedSecret = web2SecretRepository.save(newSecret);
+        final Web2Secret savedSecret = secretStore.update(newSecret);
         cacheSecretService.putSecretExistenceInCache(savedSecret.getHeader(), true);
+        cacheSecretValueService.putSecretValueInCache(savedSecret.getHeader(), savedSecret);
         return savedSecret;
     }
 }
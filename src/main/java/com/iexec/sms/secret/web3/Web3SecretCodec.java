@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.web3;
+
+import com.iexec.sms.secret.store.SecretCodec;
+
+public class Web3SecretCodec implements SecretCodec<Web3SecretHeader, Web3Secret> {
+    @Override
+    public String encodeId(Web3SecretHeader header) {
+        return SecretCodec.joinFields(header.getAddress());
+    }
+
+    @Override
+    public Web3SecretHeader getId(Web3Secret secret) {
+        return secret.getHeader();
+    }
+
+    @Override
+    public String getValue(Web3Secret secret) {
+        return secret.getValue();
+    }
+
+    @Override
+    public Web3Secret create(Web3SecretHeader header, String value) {
+        return new Web3Secret(header.getAddress(), value);
+    }
+}
@@ -33,7 +33,7 @@ public class Web3SecretHeader implements Serializable {
     private static final long serialVersionUID = -6181164795694317827L;
     private String address;
 
-    Web3SecretHeader(String address) {
+    public Web3SecretHeader(String address) {
         Objects.requireNonNull(address, "Web3 secret address can't be null.");
 
         this.address = address.toLowerCase();
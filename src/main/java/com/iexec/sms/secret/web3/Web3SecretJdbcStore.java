@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.web3;
+
+import com.iexec.sms.secret.store.SecretCodec;
+import com.iexec.sms.secret.store.SecretStore;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Stores {@link Web3Secret}s in the H2 database, with JPA for lookups and plain SQL for inserts.
+ */
+public class Web3SecretJdbcStore implements SecretStore<Web3SecretHeader, Web3Secret> {
+    private static final String INSERT_QUERY = "INSERT INTO \"web3secret\" (\"address\", \"value\") VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Web3SecretRepository web3SecretRepository;
+
+    public Web3SecretJdbcStore(JdbcTemplate jdbcTemplate, Web3SecretRepository web3SecretRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.web3SecretRepository = web3SecretRepository;
+    }
+
+    @Override
+    public Optional<Web3Secret> findById(Web3SecretHeader header) {
+        return web3SecretRepository.findById(header);
+    }
+
+    /**
+     * Only reads the primary key index, values are neither loaded nor mapped.
+     */
+    @Override
+    public boolean existsById(Web3SecretHeader header) {
+        return web3SecretRepository.existsById(header);
+    }
+
+    @Override
+    public List<Web3Secret> findAllById(Iterable<Web3SecretHeader> headers) {
+        return web3SecretRepository.findAllById(headers);
+    }
+
+    @Override
+    public Set<Web3SecretHeader> findExistingIds(Collection<Web3SecretHeader> headers) {
+        if (headers.isEmpty()) {
+            return Set.of();
+        }
+        final String query = "SELECT \"address\" FROM \"web3secret\" WHERE \"address\" IN ("
+                + String.join(", ", Collections.nCopies(headers.size(), "?")) + ")";
+        final Object[] args = headers.stream()
+                .map(Web3SecretHeader::getAddress)
+                .toArray();
+        return new HashSet<>(jdbcTemplate.query(query,
+                (rs, rowNum) -> new Web3SecretHeader(rs.getString(1)), args));
+    }
+
+    @Override
+    public void insert(Web3Secret secret) {
+        final int result = jdbcTemplate.update(INSERT_QUERY,
+                secret.getHeader().getAddress(), secret.getValue());
+        // With SQL INSERT INTO and a single set VALUES, at most 1 row can be added and result can only be 0 or 1
+        // When value should be 0, an exception should have been thrown
+        // This check is only there as a fallback and cannot be reached in tests at the moment
+        if (result != 1) {
+            throw new IncorrectResultSizeDataAccessException("Data insert did not work but did not produce an exception", 1);
+        }
+    }
+
+    @Override
+    public void insertAll(List<Web3Secret> secrets) {
+        jdbcTemplate.batchUpdate(INSERT_QUERY, secrets, secrets.size(), (ps, secret) -> {
+            ps.setString(1, secret.getHeader().getAddress());
+            ps.setString(2, secret.getValue());
+        });
+    }
+
+    @Override
+    public Web3Secret update(Web3Secret secret) {
+        return web3SecretRepository.save(secret);
+    }
+
+    @Override
+    public long count() {
+        return web3SecretRepository.count();
+    }
+
+    /**
+     * Keys are built as in {@link Web3SecretCodec#encodeId(Web3SecretHeader)}.
+     */
+    @Override
+    public void forEachEncodedId(Consumer<String> action) {
+        jdbcTemplate.query("SELECT \"address\" FROM \"web3secret\"",
+                rs -> action.accept(SecretCodec.joinFields(rs.getString(1))));
+    }
+
+    /**
+     * Scans all stored secrets with their encrypted values, rows are streamed and not loaded at once.
+     *
+     * @param action Called with each stored secret
+     */
+    public void forEachSecret(Consumer<Web3Secret> action) {
+        jdbcTemplate.query("SELECT \"address\", \"value\" FROM \"web3secret\"",
+                rs -> action.accept(new Web3Secret(rs.getString(1), rs.getString(2))));
+    }
+}
@@ -18,36 +18,53 @@ package com.iexec.sms.secret.web3;
 
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.CacheSecretService;
+import com.iexec.sms.secret.CacheSecretValueService;
 import com.iexec.sms.secret.MeasuredSecretService;
+import com.iexec.sms.secret.SecretBatchWriter;
+import com.iexec.sms.secret.store.SecretStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DuplicateKeyException;
-import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.*;
 
 @Slf4j
 @Service
 public class Web3SecretService {
-    private final JdbcTemplate jdbcTemplate;
-    private final Web3SecretRepository web3SecretRepository;
+    private final SecretStore<Web3SecretHeader, Web3Secret> secretStore;
     private final EncryptionService encryptionService;
     private final MeasuredSecretService measuredSecretService;
 
     private final CacheSecretService<Web3SecretHeader> cacheSecretService;
+    private final CacheSecretValueService<Web3SecretHeader, Web3Secret> cacheSecretValueService;
+    private final SecretBatchWriter<Web3SecretHeader, Web3Secret> batchWriter;
 
-    protected Web3SecretService(JdbcTemplate jdbcTemplate,
-                                Web3SecretRepository web3SecretRepository,
+    @Autowired
+    protected Web3SecretService(SecretStore<Web3SecretHeader, Web3Secret> web3SecretStore,
                                 EncryptionService encryptionService,
                                 MeasuredSecretService web3MeasuredSecretService,
-                                CacheSecretService<Web3SecretHeader> web3CacheSecretService) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.web3SecretRepository = web3SecretRepository;
+                                CacheSecretService<Web3SecretHeader> web3CacheSecretService,
+                                CacheSecretValueService<Web3SecretHeader, Web3Secret> web3CacheSecretValueService) {
+        this.secretStore = web3SecretStore;
         this.encryptionService = encryptionService;
         this.measuredSecretService = web3MeasuredSecretService;
         this.cacheSecretService = web3CacheSecretService;
+        this.cacheSecretValueService = web3CacheSecretValueService;
+        this.batchWriter = new SecretBatchWriter<>("web3", secretStore, new Web3SecretCodec(), encryptionService,
+                measuredSecretService, cacheSecretService, cacheSecretValueService);
+    }
+
+    Web3SecretService(JdbcTemplate jdbcTemplate,
+                      Web3SecretRepository web3SecretRepository,
+                      EncryptionService encryptionService,
+                      MeasuredSecretService web3MeasuredSecretService,
+                      CacheSecretService<Web3SecretHeader> web3CacheSecretService,
+                      CacheSecretValueService<Web3SecretHeader, Web3Secret> web3CacheSecretValueService) {
+        this(new Web3SecretJdbcStore(jdbcTemplate, web3SecretRepository), encryptionService,
+                web3MeasuredSecretService, web3CacheSecretService, web3CacheSecretValueService);
     }
 
     /**
@@ -59,7 +76,14 @@ public class Web3SecretService {
      * an {@link Optional} containing the secret if it exists.
      */
     Optional<Web3Secret> getSecret(String secretAddress) {
-        return web3SecretRepository.findById(new Web3SecretHeader(secretAddress));
+        final Web3SecretHeader key = new Web3SecretHeader(secretAddress);
+        final Web3Secret cachedSecret = cacheSecretValueService.lookSecretValueInCache(key);
+        if (cachedSecret != null) {
+            return Optional.of(cachedSecret);
+        }
+        final Optional<Web3Secret> secret = secretStore.findById(key);
+        secret.ifPresent(value -> cacheSecretValueService.putSecretValueInCache(key, value));
+        return secret;
     }
 
     public Optional<String> getDecryptedValue(String secretAddress) {
@@ -69,13 +93,40 @@ public class Web3SecretService {
 
     public boolean isSecretPresent(String secretAddress) {
         final Web3SecretHeader key = new Web3SecretHeader(secretAddress);
-        final Boolean found = cacheSecretService.lookSecretExistenceInCache(key);
-        if (found != null) {
-            return found;
+        return cacheSecretService.lookSecretExistence(key, secretStore::existsById);
+    }
+
+    /**
+     * Checks which secrets exist among the given ones.
+     * <p>
+     * Secrets missing from the existence cache are looked up at once, without reading their values.
+     *
+     * @param headers Headers of the secrets to look for.
+     * @return Headers of existing secrets.
+     */
+    public Set<Web3SecretHeader> findPresentSecrets(Collection<Web3SecretHeader> headers) {
+        final Set<Web3SecretHeader> presentHeaders = new HashSet<>();
+        final List<Web3SecretHeader> missingHeaders = new ArrayList<>();
+        for (Web3SecretHeader header : new LinkedHashSet<>(headers)) {
+            final Boolean found = cacheSecretService.lookSecretExistenceInCache(header);
+            if (found == null) {
+                missingHeaders.add(header);
+            } else if (found) {
+                presentHeaders.add(header);
+            }
+        }
+        if (missingHeaders.isEmpty()) {
+            return presentHeaders;
+        }
+        final Set<Web3SecretHeader> foundHeaders = secretStore.findExistingIds(missingHeaders);
+        for (Web3SecretHeader header : missingHeaders) {
+            final boolean isPresentInDB = foundHeaders.contains(header);
+            cacheSecretService.putSecretExistenceInCache(header, isPresentInDB);
+            if (isPresentInDB) {
+                presentHeaders.add(header);
+            }
         }
-        final boolean isPresentInDB = getSecret(secretAddress).isPresent();
-        cacheSecretService.putSecretExistenceInCache(key, isPresentInDB);
-        return isPresentInDB;
+        return presentHeaders;
     }
 
     /*
@@ -89,15 +140,9 @@ public class Web3SecretService {
                     secretAddress, encryptedValue);
 
             final Web3Secret web3Secret = new Web3Secret(secretAddress, encryptedValue);
-            final int result = jdbcTemplate.update("INSERT INTO \"web3secret\" (\"address\", \"value\") VALUES (?, ?)",
-                    web3Secret.getHeader().getAddress(), web3Secret.getValue());
-            // With SQL INSERT INTO and a single set VALUES, at most 1 row can be added and result can only be 0 or 1
-            // When value should be 0, an exception should have been thrown
-            // This check is only there as a fallback and cannot be reached in tests at the moment
-            if (result != 1) {
-                throw new IncorrectResultSizeDataAccessException("Data insert did not work but did not produce an exception", 1);
-            }
+            secretStore.insert(web3Secret);
             cacheSecretService.putSecretExistenceInCache(web3Secret.getHeader(), true);
+            cacheSecretValueService.putSecretValueInCache(web3Secret.getHeader(), web3Secret);
             measuredSecretService.newlyAddedSecret();
             return true;
         } catch (DuplicateKeyException e) {
@@ -109,4 +154,25 @@ public class Web3SecretService {
         }
         return false;
     }
+
+    /**
+     * Encrypts values of new {@link Web3Secret}s, see {@link SecretBatchWriter#encryptSecrets(List)}.
+     */
+    public List<Web3Secret> encryptSecrets(List<Web3Secret> secrets) {
+        return batchWriter.encryptSecrets(secrets);
+    }
+
+    /**
+     * Saves new {@link Web3Secret}s at once, see {@link SecretBatchWriter#addEncryptedSecretsInBatch(List)}.
+     */
+    public void addEncryptedSecretsInBatch(List<Web3Secret> encryptedSecrets) {
+        batchWriter.addEncryptedSecretsInBatch(encryptedSecrets);
+    }
+
+    /**
+     * Saves a new {@link Web3Secret}, see {@link SecretBatchWriter#addEncryptedSecret(Object)}.
+     */
+    public boolean addEncryptedSecret(Web3Secret encryptedSecret) {
+        return batchWriter.addEncryptedSecret(encryptedSecret);
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2020-2023 IEXEC BLOCKCHAIN TECH
+ * Copyright 2020-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,43 +18,153 @@ package com.iexec.sms.ssl;
 
 import com.iexec.commons.poco.tee.TeeFramework;
 import com.iexec.sms.tee.ConditionalOnTeeFramework;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Configuration
 @ConditionalOnTeeFramework(frameworks = TeeFramework.SCONE)
 public class TwoWaySslClient {
 
     private final SslConfig sslConfig;
+    private final ReloadableSslSocketFactory sslSocketFactory;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private long keystoreLastModified = -1;
 
-    public TwoWaySslClient(SslConfig sslConfig) {
+    public TwoWaySslClient(SslConfig sslConfig,
+                           @Value("${tee.ssl.client.max-connections}") int maxConnections,
+                           @Value("${tee.ssl.client.connect-timeout}") int connectTimeout,
+                           @Value("${tee.ssl.client.read-timeout}") int readTimeout,
+                           @Value("${tee.ssl.client.connection-request-timeout}") int connectionRequestTimeout,
+                           @Value("${tee.ssl.client.idle-timeout}") long idleTimeout) {
         this.sslConfig = sslConfig;
+        this.sslSocketFactory = new ReloadableSslSocketFactory();
+        this.connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("https", sslSocketFactory)
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .build());
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(readTimeout)
+                        .setConnectionRequestTimeout(connectionRequestTimeout)
+                        .build())
+                // Connections are authenticated with the client certificate, they are not bound to a user token
+                // so they can be leased again by any following request.
+                .disableConnectionState()
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.SECONDS)
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "cas").bindTo(Metrics.globalRegistry);
+        log.info("Two-way SSL client configured [maxConnections:{}, connectTimeout:{}ms, readTimeout:{}ms, idleTimeout:{}s]",
+                maxConnections, connectTimeout, readTimeout, idleTimeout);
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        httpClient.close();
     }
 
     /*
      * Using RestTemplate for connections requiring 2-way SSL authentication
-     * It needs a fresh sslContext on each call (see getFreshSslContext()).
-     * If you don't do this, you will get a 200 response on the first call followed by a 401 response on next calls
+     * A single pooled client is shared by all calls, keep-alive connections and TLS sessions are reused.
+     * Keystore is only reloaded when its file has been modified, idle connections are then closed
+     * so that next requests authenticate with the new key material.
      *
-     * Note: currently not able to avoid 401 responses with feignClient (see feignClient() method starter below)
+     * A fresh SSL context used to be created on each call, otherwise CAS answered a 200 response on the first call
+     * followed by a 401 response on next calls. Successive calls over a pooled mutual TLS connection must keep
+     * succeeding (see TwoWaySslClientTests).
      * */
     public RestTemplate getRestTemplate() {
-        HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-        clientBuilder.setSSLContext(sslConfig.getFreshSslContext());
-        clientBuilder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
-        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory();
-        factory.setHttpClient(clientBuilder.build());
-        return new RestTemplate(factory);
+        reloadSslContextIfNeeded();
+        return restTemplate;
     }
 
-    /*
-    @Bean
-    public Client feignClient() {
-        return new Client.Default(sslConfig.getFreshSslContext().getSocketFactory(), NoopHostnameVerifier.INSTANCE);
+    /**
+     * Loads a new SSL context if none is loaded yet or if the keystore file has been modified since last load.
+     * <p>
+     * If the keystore cannot be loaded, the current SSL context is kept and loading is tried again on next call.
+     * A default SSL context without client certificate is only used when no SSL context has ever been loaded.
+     *
+     * @return {@literal true} if a new SSL context has been loaded
+     */
+    synchronized boolean reloadSslContextIfNeeded() {
+        final long lastModified = new File(sslConfig.getKeystore()).lastModified();
+        if (sslSocketFactory.delegate != null && lastModified == keystoreLastModified) {
+            return false;
+        }
+        final SSLContext sslContext = sslConfig.getFreshSslContext();
+        if (sslContext == null) {
+            log.warn("SSL context not loaded, keeping current one [keystore:{}, lastModified:{}]",
+                    sslConfig.getKeystore(), lastModified);
+            if (sslSocketFactory.delegate == null) {
+                sslSocketFactory.delegate = new SSLConnectionSocketFactory(SSLContexts.createDefault(),
+                        NoopHostnameVerifier.INSTANCE);
+            }
+            return false;
+        }
+        sslSocketFactory.delegate = new SSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE);
+        connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        log.info("SSL context loaded [keystore:{}, previousLastModified:{}, lastModified:{}]",
+                sslConfig.getKeystore(), keystoreLastModified, lastModified);
+        keystoreLastModified = lastModified;
+        return true;
     }
-    */
 
+    /**
+     * Delegates to the socket factory of the current SSL context.
+     */
+    private static class ReloadableSslSocketFactory implements LayeredConnectionSocketFactory {
+        private volatile SSLConnectionSocketFactory delegate;
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return delegate.createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host,
+                                    InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpContext context) throws IOException {
+            return delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            return delegate.createLayeredSocket(socket, target, port, context);
+        }
+    }
 }
@@ -30,6 +30,7 @@ import com.iexec.sms.tee.challenge.TeeChallengeService;
 import com.iexec.sms.tee.session.TeeSessionService;
 import com.iexec.sms.tee.session.generic.TeeSessionGenerationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -37,6 +38,9 @@ import org.web3j.crypto.Keys;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.iexec.sms.api.TeeSessionGenerationError.*;
 import static com.iexec.sms.authorization.AuthorizationError.*;
@@ -45,6 +49,7 @@ import static com.iexec.sms.authorization.AuthorizationError.*;
 @RestController
 @RequestMapping("/tee")
 public class TeeController {
+    private static final String SESSION_RETRY_AFTER_SECONDS = "5";
     private static final Map<AuthorizationError, TeeSessionGenerationError> authorizationToGenerationError =
             Map.of(
                     EMPTY_PARAMS_UNAUTHORIZED, EXECUTION_NOT_AUTHORIZED_EMPTY_PARAMS_UNAUTHORIZED,
@@ -137,11 +142,12 @@ public class TeeController {
      * <ul>
      * <li>200 OK with the session id if success.
      * <li>404 NOT_FOUND if the task is not found.
+     * <li>429 TOO_MANY_REQUESTS with a Retry-After header if too many sessions are already being generated.
      * <li>500 INTERNAL_SERVER_ERROR otherwise.
      * </ul>
      */
     @PostMapping("/sessions")
-    public ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> generateTeeSession(
+    public CompletableFuture<ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>>> generateTeeSession(
             @RequestHeader("Authorization") String authorization,
             @RequestBody WorkerpoolAuthorization workerpoolAuthorization) {
         String workerAddress = workerpoolAuthorization.getWorkerWallet();
@@ -152,9 +158,9 @@ public class TeeController {
                             .error(INVALID_AUTHORIZATION)
                             .build();
 
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                     .status(HttpStatus.UNAUTHORIZED)
-                    .body(body);
+                    .body(body));
         }
         final Optional<AuthorizationError> authorizationError =
                 authorizationService.isAuthorizedOnExecutionWithDetailedIssue(workerpoolAuthorization);
@@ -167,46 +173,63 @@ public class TeeController {
                             .error(teeSessionGenerationError)
                             .build();
 
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                     .status(HttpStatus.UNAUTHORIZED)
-                    .body(body);
+                    .body(body));
         }
-        String taskId = workerpoolAuthorization.getChainTaskId();
-        workerAddress = Keys.toChecksumAddress(workerAddress);
+        final String taskId = workerpoolAuthorization.getChainTaskId();
+        final String checksumWorkerAddress = Keys.toChecksumAddress(workerAddress);
         String attestingEnclave = workerpoolAuthorization.getEnclaveChallenge();
         log.info("TEE session request [taskId:{}, workerAddress:{}]",
-                taskId, workerAddress);
+                taskId, checksumWorkerAddress);
         try {
-            TeeSessionGenerationResponse teeSessionGenerationResponse = teeSessionService
-                    .generateTeeSession(taskId, workerAddress, attestingEnclave);
+            return teeSessionService
+                    .generateTeeSessionAsync(taskId, checksumWorkerAddress, attestingEnclave)
+                    .handle((teeSessionGenerationResponse, throwable) -> throwable == null
+                            ? buildTeeSessionResponse(teeSessionGenerationResponse)
+                            : buildTeeSessionErrorResponse(taskId, checksumWorkerAddress, throwable));
+        } catch (RejectedExecutionException e) {
+            log.warn("Too many TEE session requests, rejecting [taskId:{}, workerAddress:{}]",
+                    taskId, checksumWorkerAddress);
+            return CompletableFuture.completedFuture(ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, SESSION_RETRY_AFTER_SECONDS)
+                    .build());
+        }
+    }
 
-            if (teeSessionGenerationResponse == null) {
-                return ResponseEntity.notFound().build();
-            }
+    private ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> buildTeeSessionResponse(
+            TeeSessionGenerationResponse teeSessionGenerationResponse) {
+        if (teeSessionGenerationResponse == null) {
+            return ResponseEntity.notFound().build();
+        }
 
-            return ResponseEntity.ok(ApiResponseBody.<TeeSessionGenerationResponse, TeeSessionGenerationError>builder()
-                    .data(teeSessionGenerationResponse)
-                    .build());
-        } catch (TeeSessionGenerationException e) {
+        return ResponseEntity.ok(ApiResponseBody.<TeeSessionGenerationResponse, TeeSessionGenerationError>builder()
+                .data(teeSessionGenerationResponse)
+                .build());
+    }
+
+    private ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> buildTeeSessionErrorResponse(
+            String taskId, String workerAddress, Throwable throwable) {
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        final TeeSessionGenerationError error;
+        if (cause instanceof TeeSessionGenerationException) {
             log.error("Failed to generate secure session [taskId:{}, workerAddress:{}]",
-                    taskId, workerAddress, e);
-            final ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError> body =
-                    ApiResponseBody.<TeeSessionGenerationResponse, TeeSessionGenerationError>builder()
-                            .error(e.getError())
-                            .build();
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(body);
-        } catch (Exception e) {
+                    taskId, workerAddress, cause);
+            error = ((TeeSessionGenerationException) cause).getError();
+        } else {
             log.error("Failed to generate secure session with unknown reason [taskId:{}, workerAddress:{}]",
-                    taskId, workerAddress, e);
-            final ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError> body =
-                    ApiResponseBody.<TeeSessionGenerationResponse, TeeSessionGenerationError>builder()
-                            .error(SECURE_SESSION_GENERATION_FAILED)
-                            .build();
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(body);
+                    taskId, workerAddress, cause);
+            error = SECURE_SESSION_GENERATION_FAILED;
         }
+        final ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError> body =
+                ApiResponseBody.<TeeSessionGenerationResponse, TeeSessionGenerationError>builder()
+                        .error(error)
+                        .build();
+        return ResponseEntity
+                .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(body);
     }
 }
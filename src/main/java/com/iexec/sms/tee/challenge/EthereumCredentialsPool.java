@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.challenge;
+
+import com.iexec.sms.admin.DatabaseRestoredEvent;
+import com.iexec.sms.encryption.AesKeyRotatedEvent;
+import com.iexec.sms.encryption.EncryptionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of pre-generated {@link EthereumCredentials}, with already encrypted private keys.
+ * <p>
+ * Key pair generation is expensive, the pool is filled in background whenever its depth
+ * goes below the low-water mark. When the pool is empty, credentials are generated in the request thread.
+ * A pool size of 0 disables pre-generation.
+ */
+@Slf4j
+@Service
+public class EthereumCredentialsPool {
+    private static final String METRICS_PREFIX = "iexec.sms.tee_challenges.credentials_pool.";
+
+    private final EncryptionService encryptionService;
+    private final int size;
+    private final int lowWaterMark;
+    private final BlockingQueue<EthereumCredentials> pool;
+    private final ExecutorService refillExecutorService;
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+    /**
+     * Incremented when the AES key may have changed, credentials encrypted before are dropped.
+     * Guarded by {@link #generationLock} together with the pool clearing and offering.
+     */
+    private final AtomicLong generation = new AtomicLong(0);
+    private final Object generationLock = new Object();
+    private final Counter refilledCounter;
+    private final Timer emptyPoolTimer;
+
+    @Autowired
+    public EthereumCredentialsPool(EncryptionService encryptionService,
+                                   @Value("${tee.challenge.credentials-pool.size}") int size,
+                                   @Value("${tee.challenge.credentials-pool.low-water-mark}") int lowWaterMark) {
+        this(encryptionService, size, lowWaterMark, Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "credentials-pool-refill");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    EthereumCredentialsPool(EncryptionService encryptionService,
+                            int size,
+                            int lowWaterMark,
+                            ExecutorService refillExecutorService) {
+        this(encryptionService, size, lowWaterMark, refillExecutorService,
+                new LinkedBlockingQueue<>(Math.max(Math.max(size, 0), 1)));
+    }
+
+    EthereumCredentialsPool(EncryptionService encryptionService,
+                            int size,
+                            int lowWaterMark,
+                            ExecutorService refillExecutorService,
+                            BlockingQueue<EthereumCredentials> pool) {
+        this.encryptionService = encryptionService;
+        this.size = Math.max(size, 0);
+        this.lowWaterMark = Math.min(Math.max(lowWaterMark, 0), this.size);
+        this.pool = pool;
+        this.refillExecutorService = refillExecutorService;
+        Metrics.gauge(METRICS_PREFIX + "depth", pool, Collection::size);
+        this.refilledCounter = Metrics.counter(METRICS_PREFIX + "refilled");
+        this.emptyPoolTimer = Metrics.timer(METRICS_PREFIX + "empty");
+    }
+
+    @PostConstruct
+    void init() {
+        log.info("Ethereum credentials pool configured [size:{}, lowWaterMark:{}]", size, lowWaterMark);
+        refillIfNeeded(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refillExecutorService.shutdownNow();
+    }
+
+    /**
+     * Drops pooled credentials after a database restoration, they were encrypted with the previous AES key.
+     */
+    @EventListener
+    public void onDatabaseRestored(DatabaseRestoredEvent event) {
+        drop();
+        log.info("Ethereum credentials pool has been emptied after database restoration");
+    }
+
+    /**
+     * Drops pooled credentials after a key rotation, they would be stored with the retired AES key.
+     */
+    @EventListener
+    public void onAesKeyRotated(AesKeyRotatedEvent event) {
+        drop();
+        log.info("Ethereum credentials pool has been emptied after AES key rotation [keyId:{}]",
+                String.format("%08x", event.getKeyId()));
+    }
+
+    private void drop() {
+        synchronized (generationLock) {
+            generation.incrementAndGet();
+            pool.clear();
+        }
+        refillIfNeeded(true);
+    }
+
+    /**
+     * Count how many credentials are currently available.
+     *
+     * @return Pool depth
+     */
+    public int depth() {
+        return pool.size();
+    }
+
+    /**
+     * Takes pre-generated credentials from the pool, or generates them if the pool is empty.
+     *
+     * @return Credentials with an encrypted private key
+     * @throws GeneralSecurityException if key pair generation failed
+     */
+    public EthereumCredentials take() throws GeneralSecurityException {
+        final EthereumCredentials credentials = pool.poll();
+        refillIfNeeded(false);
+        if (credentials != null) {
+            return credentials;
+        }
+        final long start = System.nanoTime();
+        try {
+            return generateEncrypted();
+        } finally {
+            emptyPoolTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private EthereumCredentials generateEncrypted() throws GeneralSecurityException {
+        final EthereumCredentials credentials = EthereumCredentials.generate();
+        credentials.setEncryptedPrivateKey(encryptionService.encrypt(credentials.getPrivateKey()));
+        return credentials;
+    }
+
+    private void refillIfNeeded(boolean force) {
+        if (size == 0 || (!force && pool.size() >= lowWaterMark) || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refillExecutorService.execute(this::refill);
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+            log.warn("Ethereum credentials pool refill rejected");
+        }
+    }
+
+    private void refill() {
+        try {
+            while (pool.size() < size && !Thread.currentThread().isInterrupted()) {
+                final long currentGeneration = generation.get();
+                final EthereumCredentials credentials = generateEncrypted();
+                if (offer(currentGeneration, credentials)) {
+                    refilledCounter.increment();
+                }
+            }
+            log.debug("Ethereum credentials pool refilled [depth:{}]", pool.size());
+        } catch (Exception e) {
+            log.error("Ethereum credentials pool refill failed [depth:{}]", pool.size(), e);
+            refilling.set(false);
+            return;
+        }
+        refilling.set(false);
+        // Credentials may have been taken or dropped while the flag was still set
+        refillIfNeeded(false);
+    }
+
+    private boolean offer(long credentialsGeneration, EthereumCredentials credentials) {
+        synchronized (generationLock) {
+            return credentialsGeneration == generation.get() && pool.offer(credentials);
+        }
+    }
+}
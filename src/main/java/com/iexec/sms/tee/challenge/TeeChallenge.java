@@ -36,6 +36,7 @@ public class TeeChallenge {
     @GenericGenerator(name = "system-uuid", strategy = "uuid")
     private String id;
 
+    @Column(unique = true)
     private String taskId;
 
     @OneToOne(cascade = {CascadeType.ALL})
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.challenge;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Enforces a single TEE challenge per task on databases created before the unique index on {@code task_id}.
+ * <p>
+ * Hibernate only logs a failure when {@code ddl-auto: update} cannot add the unique constraint on a table
+ * already holding duplicates. At startup, duplicated challenges are removed with their credentials,
+ * the one with the smallest ID is kept, and the constraint is added if it is still missing.
+ * Such tasks could not be served before, looking their challenge up returned more than one row.
+ * <p>
+ * Tables are only created or updated by Hibernate once the entity manager factory is built.
+ */
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory")
+public class TeeChallengeDeduplicationService {
+    static final String UNIQUE_CONSTRAINT_NAME = "UK_tee_challenge_task_id";
+
+    private static final String DUPLICATES_CONDITION = " WHERE EXISTS (SELECT 1 FROM \"tee_challenge\" kept"
+            + " WHERE kept.\"task_id\" = \"tee_challenge\".\"task_id\" AND kept.\"id\" < \"tee_challenge\".\"id\")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TeeChallengeDeduplicationService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void init() {
+        final int removed = removeDuplicates();
+        if (!hasUniqueConstraint()) {
+            jdbcTemplate.execute("ALTER TABLE \"tee_challenge\" ADD CONSTRAINT \"" + UNIQUE_CONSTRAINT_NAME
+                    + "\" UNIQUE (\"task_id\")");
+            log.info("Unique constraint added on TEE challenges task ID [removedDuplicates:{}]", removed);
+        }
+    }
+
+    /**
+     * Removes all challenges sharing their task ID with a challenge of smaller ID, and their credentials.
+     *
+     * @return Number of removed challenges
+     */
+    int removeDuplicates() {
+        final Integer removed = transactionTemplate.execute(status -> {
+            final List<String> credentialsIds = jdbcTemplate.queryForList(
+                    "SELECT \"credentials_id\" FROM \"tee_challenge\"" + DUPLICATES_CONDITION, String.class);
+            if (credentialsIds.isEmpty()) {
+                return 0;
+            }
+            final int count = jdbcTemplate.update("DELETE FROM \"tee_challenge\"" + DUPLICATES_CONDITION);
+            jdbcTemplate.batchUpdate("DELETE FROM \"ethereum_credentials\" WHERE \"id\" = ?",
+                    credentialsIds.stream()
+                            .filter(Objects::nonNull)
+                            .map(id -> new Object[]{id})
+                            .collect(Collectors.toList()));
+            return count;
+        });
+        final int count = removed != null ? removed : 0;
+        if (count > 0) {
+            log.warn("Duplicated TEE challenges removed [count:{}]", count);
+        }
+        return count;
+    }
+
+    boolean hasUniqueConstraint() {
+        final Long count = jdbcTemplate.queryForObject("SELECT COUNT(*)"
+                + " FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc"
+                + " JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu"
+                + " ON kcu.CONSTRAINT_SCHEMA = tc.CONSTRAINT_SCHEMA AND kcu.CONSTRAINT_NAME = tc.CONSTRAINT_NAME"
+                + " WHERE tc.TABLE_NAME = 'tee_challenge' AND tc.CONSTRAINT_TYPE = 'UNIQUE'"
+                + " AND kcu.COLUMN_NAME = 'task_id'", Long.class);
+        return count != null && count > 0;
+    }
+}
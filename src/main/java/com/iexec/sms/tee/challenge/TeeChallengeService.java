@@ -16,12 +16,23 @@
 
 package com.iexec.sms.tee.challenge;
 
+import com.iexec.sms.admin.DatabaseRestoredEvent;
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.MeasuredSecretService;
 import lombok.extern.slf4j.Slf4j;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -31,48 +42,137 @@ public class TeeChallengeService {
     private final EncryptionService encryptionService;
     private final MeasuredSecretService teeChallengesMeasuredSecretService;
     private final MeasuredSecretService ethereumCredentialsMeasuredSecretService;
+    private final EthereumCredentialsPool ethereumCredentialsPool;
+    /**
+     * Challenges as stored in database, with encrypted keys.
+     * Cached instances are never returned to callers, only copies are.
+     */
+    private final ExpiringMap<String, TeeChallenge> challengeCache;
+    private final Map<String, CompletableFuture<Optional<TeeChallenge>>> ongoingLookups = new ConcurrentHashMap<>();
 
     public TeeChallengeService(TeeChallengeRepository teeChallengeRepository,
                                EncryptionService encryptionService,
                                MeasuredSecretService teeChallengeMeasuredSecretService,
-                               MeasuredSecretService ethereumCredentialsMeasuredSecretService) {
+                               MeasuredSecretService ethereumCredentialsMeasuredSecretService,
+                               EthereumCredentialsPool ethereumCredentialsPool,
+                               @Value("${tee.challenge.cache-max-size}") int challengeCacheMaxSize) {
         this.teeChallengeRepository = teeChallengeRepository;
         this.encryptionService = encryptionService;
         this.teeChallengesMeasuredSecretService = teeChallengeMeasuredSecretService;
         this.ethereumCredentialsMeasuredSecretService = ethereumCredentialsMeasuredSecretService;
+        this.ethereumCredentialsPool = ethereumCredentialsPool;
+        this.challengeCache = ExpiringMap.builder()
+                .maxSize(Math.max(challengeCacheMaxSize, 1))
+                .expiration(1, TimeUnit.HOURS)
+                .expirationPolicy(ExpirationPolicy.ACCESSED)
+                .build();
     }
 
+    /**
+     * Drops all cached challenges after a database restoration.
+     */
+    @EventListener
+    public void onDatabaseRestored(DatabaseRestoredEvent event) {
+        log.info("Clearing TEE challenge cache after database restoration [count:{}]", challengeCache.size());
+        challengeCache.clear();
+    }
+
+    /**
+     * Retrieves the challenge of a task, creates it if it does not exist yet.
+     * <p>
+     * Concurrent calls for the same task share a single database lookup or creation.
+     * Returned challenges are copies, they can be safely modified by callers.
+     *
+     * @param taskId            ID of the task
+     * @param shouldDecryptKeys Whether the private key of the returned challenge should be decrypted
+     * @return The challenge of the task, an empty {@code Optional} if it could not be created.
+     */
     public Optional<TeeChallenge> getOrCreate(String taskId, boolean shouldDecryptKeys) {
+        TeeChallenge storedTeeChallenge = taskId != null ? challengeCache.get(taskId) : null;
+        if (storedTeeChallenge == null) {
+            storedTeeChallenge = loadOrCreateOnce(taskId).orElse(null);
+        }
+        if (storedTeeChallenge == null) {
+            return Optional.empty();
+        }
+        final TeeChallenge teeChallenge = copyOf(storedTeeChallenge);
+        if (shouldDecryptKeys) { //eventually decrypt if wanted
+            decryptChallengeKeys(teeChallenge);
+        }
+        return Optional.of(teeChallenge);
+    }
+
+    private Optional<TeeChallenge> loadOrCreateOnce(String taskId) {
+        if (taskId == null) {
+            return loadOrCreate(null);
+        }
+        final CompletableFuture<Optional<TeeChallenge>> lookup = new CompletableFuture<>();
+        final CompletableFuture<Optional<TeeChallenge>> ongoingLookup = ongoingLookups.putIfAbsent(taskId, lookup);
+        if (ongoingLookup != null) {
+            try {
+                return ongoingLookup.join();
+            } catch (CompletionException e) {
+                log.error("Couldn't get shared tee challenge [chainTaskId:{}, exception:{}]",
+                        taskId, e.getCause().getMessage());
+                return Optional.empty();
+            }
+        }
+        try {
+            final Optional<TeeChallenge> teeChallenge = loadOrCreate(taskId);
+            teeChallenge.ifPresent(value -> challengeCache.put(taskId, value));
+            lookup.complete(teeChallenge);
+            return teeChallenge;
+        } catch (RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            ongoingLookups.remove(taskId, lookup);
+        }
+    }
+
+    private Optional<TeeChallenge> loadOrCreate(String taskId) {
         // if existing returns from the db
-        Optional<TeeChallenge> optionalTeeChallenge = teeChallengeRepository.findByTaskId(taskId);
+        final Optional<TeeChallenge> optionalTeeChallenge = teeChallengeRepository.findByTaskId(taskId);
         if (optionalTeeChallenge.isPresent()) {
-            if (shouldDecryptKeys) { //eventually decrypt if wanted
-                decryptChallengeKeys(optionalTeeChallenge.get());
-            }
             return optionalTeeChallenge;
         }
 
         // otherwise create it
         try {
-            TeeChallenge teeChallenge = new TeeChallenge(taskId);
+            TeeChallenge teeChallenge = TeeChallenge.builder()
+                    .taskId(taskId)
+                    .credentials(ethereumCredentialsPool.take())
+                    .build();
             encryptChallengeKeys(teeChallenge);
             teeChallenge = teeChallengeRepository.save(teeChallenge);
             teeChallengesMeasuredSecretService.newlyAddedSecret();
             ethereumCredentialsMeasuredSecretService.newlyAddedSecret();
             log.info("Created tee challenge [chainTaskId:{}, teeChallenge:{}]",
                     taskId, teeChallenge.getCredentials().getAddress());
-
-            if (shouldDecryptKeys) { //eventually decrypt if wanted
-                decryptChallengeKeys(teeChallenge);
-            }
-
             return Optional.of(teeChallenge);
+        } catch (DataIntegrityViolationException e) {
+            // Unique index on task ID, the challenge has been created in the meantime
+            log.warn("Tee challenge already created, reading it [chainTaskId:{}]", taskId);
+            return teeChallengeRepository.findByTaskId(taskId);
         } catch (Exception e) {
             log.error("Couldn't create credentials [exception:{}]", e.getMessage());
             return Optional.empty();
         }
     }
 
+    private static TeeChallenge copyOf(TeeChallenge teeChallenge) {
+        final EthereumCredentials credentials = teeChallenge.getCredentials();
+        return TeeChallenge.builder()
+                .id(teeChallenge.getId())
+                .taskId(teeChallenge.getTaskId())
+                .credentials(new EthereumCredentials(
+                        credentials.getId(),
+                        credentials.getPrivateKey(),
+                        credentials.isEncrypted(),
+                        credentials.getAddress()))
+                .build();
+    }
+
     public void encryptChallengeKeys(TeeChallenge teeChallenge) {
         EthereumCredentials credentials = teeChallenge.getCredentials();
         if (!credentials.isEncrypted()) {
@@ -22,25 +22,97 @@ import com.iexec.sms.api.TeeSessionGenerationResponse;
 import com.iexec.sms.blockchain.IexecHubService;
 import com.iexec.sms.tee.session.generic.TeeSessionGenerationException;
 import com.iexec.sms.tee.session.generic.TeeSessionHandler;
+import com.iexec.sms.tee.session.generic.TeeSessionMetrics;
 import com.iexec.sms.tee.session.generic.TeeSessionRequest;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.iexec.sms.api.TeeSessionGenerationError.GET_TASK_DESCRIPTION_FAILED;
 import static com.iexec.sms.api.TeeSessionGenerationError.SECURE_SESSION_NO_TEE_FRAMEWORK;
 
+@Slf4j
 @Service
 public class TeeSessionService {
 
     private final IexecHubService iexecHubService;
     private final TeeSessionHandler teeSessionHandler;
+    private final Executor sessionExecutor;
 
-
+    @Autowired
     public TeeSessionService(
             IexecHubService iexecService,
-            TeeSessionHandler teeSessionHandler) {
+            TeeSessionHandler teeSessionHandler,
+            @Value("${tee.session.executor.pool-size}") int poolSize,
+            @Value("${tee.session.executor.queue-size}") int queueSize) {
+        this(iexecService, teeSessionHandler, createSessionExecutor(poolSize, queueSize));
+    }
+
+    TeeSessionService(
+            IexecHubService iexecService,
+            TeeSessionHandler teeSessionHandler,
+            Executor sessionExecutor) {
         this.iexecHubService = iexecService;
         this.teeSessionHandler = teeSessionHandler;
+        this.sessionExecutor = sessionExecutor;
+    }
+
+    /**
+     * Creates a fixed size executor with a bounded queue, rejecting submissions once the queue is full.
+     */
+    private static ThreadPoolExecutor createSessionExecutor(int poolSize, int queueSize) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueSize, 1)),
+                runnable -> new Thread(runnable, "tee-session-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        Metrics.gauge("iexec.sms.tee_sessions.queued", executor.getQueue(), Collection::size);
+        Metrics.gauge("iexec.sms.tee_sessions.active", executor, ThreadPoolExecutor::getActiveCount);
+        log.info("TEE session executor configured [poolSize:{}, queueSize:{}]", poolSize, queueSize);
+        return executor;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (sessionExecutor instanceof ExecutorService) {
+            ((ExecutorService) sessionExecutor).shutdown();
+        }
+    }
+
+    /**
+     * Generates a TEE session on the dedicated session executor.
+     * <p>
+     * Request threads are not held while the session is built and posted to the secret provisioning service.
+     *
+     * @param taskId        ID of the task
+     * @param workerAddress Address of the worker
+     * @param teeChallenge  Enclave challenge
+     * @return A future completed with the session, or exceptionally with a {@link TeeSessionGenerationException}.
+     * @throws RejectedExecutionException if too many sessions are already waiting to be generated
+     */
+    public CompletableFuture<TeeSessionGenerationResponse> generateTeeSessionAsync(
+            String taskId,
+            String workerAddress,
+            String teeChallenge) {
+        final Timer.Sample queueSample = Timer.start();
+        return CompletableFuture.supplyAsync(() -> {
+            queueSample.stop(TeeSessionMetrics.stageTimer(TeeSessionMetrics.QUEUE_STAGE));
+            try {
+                return generateTeeSession(taskId, workerAddress, teeChallenge);
+            } catch (TeeSessionGenerationException e) {
+                throw new CompletionException(e);
+            }
+        }, sessionExecutor);
     }
 
     public TeeSessionGenerationResponse generateTeeSession(
@@ -32,12 +32,19 @@ import com.iexec.sms.tee.challenge.TeeChallengeService;
 import com.iexec.sms.tee.session.base.SecretEnclaveBase.SecretEnclaveBaseBuilder;
 import com.iexec.sms.tee.session.base.SecretSessionBase.SecretSessionBaseBuilder;
 import com.iexec.sms.tee.session.generic.TeeSessionGenerationException;
+import com.iexec.sms.tee.session.generic.TeeSessionMetrics;
 import com.iexec.sms.tee.session.generic.TeeSessionRequest;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.iexec.common.precompute.PreComputeUtils.IS_DATASET_REQUIRED;
 import static com.iexec.common.worker.result.ResultUtils.*;
@@ -69,18 +76,77 @@ public class SecretSessionBaseService {
     private final TeeChallengeService teeChallengeService;
     private final TeeServicesProperties teeServicesConfig;
     private final TeeTaskComputeSecretService teeTaskComputeSecretService;
+    private final ExecutorService secretsLookupExecutor;
 
+    @Autowired
+    public SecretSessionBaseService(
+            Web3SecretService web3SecretService,
+            Web2SecretService web2SecretService,
+            TeeChallengeService teeChallengeService,
+            TeeServicesProperties teeServicesConfig,
+            TeeTaskComputeSecretService teeTaskComputeSecretService,
+            @Value("${tee.session.secrets-lookup.pool-size}") int secretsLookupPoolSize) {
+        this(web3SecretService, web2SecretService, teeChallengeService, teeServicesConfig,
+                teeTaskComputeSecretService, createSecretsLookupExecutor(secretsLookupPoolSize));
+    }
+
+    /**
+     * Creates a service resolving secrets of all stages sequentially, on the calling thread.
+     */
     public SecretSessionBaseService(
             Web3SecretService web3SecretService,
             Web2SecretService web2SecretService,
             TeeChallengeService teeChallengeService,
             TeeServicesProperties teeServicesConfig,
             TeeTaskComputeSecretService teeTaskComputeSecretService) {
+        this(web3SecretService, web2SecretService, teeChallengeService, teeServicesConfig,
+                teeTaskComputeSecretService, (ExecutorService) null);
+    }
+
+    SecretSessionBaseService(
+            Web3SecretService web3SecretService,
+            Web2SecretService web2SecretService,
+            TeeChallengeService teeChallengeService,
+            TeeServicesProperties teeServicesConfig,
+            TeeTaskComputeSecretService teeTaskComputeSecretService,
+            ExecutorService secretsLookupExecutor) {
         this.web3SecretService = web3SecretService;
         this.web2SecretService = web2SecretService;
         this.teeChallengeService = teeChallengeService;
         this.teeServicesConfig = teeServicesConfig;
         this.teeTaskComputeSecretService = teeTaskComputeSecretService;
+        this.secretsLookupExecutor = secretsLookupExecutor;
+    }
+
+    /**
+     * Creates an executor without queue, a stage which cannot be handed over to an idle thread
+     * is run by the session thread itself. Lookups are then never blocked waiting for each other.
+     *
+     * @param poolSize Maximum number of threads, 0 disables parallel lookups
+     * @return The executor, or {@literal null} if parallel lookups are disabled
+     */
+    private static ExecutorService createSecretsLookupExecutor(int poolSize) {
+        log.info("TEE session secrets lookup executor configured [poolSize:{}]", poolSize);
+        if (poolSize <= 0) {
+            return null;
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "session-secrets-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (secretsLookupExecutor != null) {
+            secretsLookupExecutor.shutdown();
+        }
     }
 
     /**
@@ -90,6 +156,15 @@ public class SecretSessionBaseService {
      * @return All common tokens for a session, whatever TEE technology is used
      */
     public SecretSessionBase getSecretsTokens(TeeSessionRequest request) throws TeeSessionGenerationException {
+        final Timer.Sample sample = Timer.start();
+        try {
+            return buildSecretsTokens(request);
+        } finally {
+            sample.stop(TeeSessionMetrics.stageTimer(TeeSessionMetrics.SECRETS_STAGE));
+        }
+    }
+
+    private SecretSessionBase buildSecretsTokens(TeeSessionRequest request) throws TeeSessionGenerationException {
         if (request == null) {
             throw new TeeSessionGenerationException(
                     NO_SESSION_REQUEST,
@@ -100,11 +175,14 @@ public class SecretSessionBaseService {
                     NO_TASK_DESCRIPTION,
                     "Task description must not be null");
         }
-        SecretSessionBaseBuilder sessionBase = SecretSessionBase.builder();
         TaskDescription taskDescription = request.getTaskDescription();
-        // pre-compute
         boolean isPreComputeRequired = taskDescription.containsDataset() ||
                 !taskDescription.getInputFiles().isEmpty();
+        if (secretsLookupExecutor != null) {
+            return buildSecretsTokensInParallel(request, isPreComputeRequired);
+        }
+        SecretSessionBaseBuilder sessionBase = SecretSessionBase.builder();
+        // pre-compute
         if (isPreComputeRequired) {
             sessionBase.preCompute(getPreComputeTokens(request));
         }
@@ -115,6 +193,63 @@ public class SecretSessionBaseService {
         return sessionBase.build();
     }
 
+    /**
+     * Resolves tokens of the pre-compute, app and post-compute stages concurrently.
+     * The post-compute secrets lookup and the TEE challenge lookup or creation run concurrently as well.
+     * <p>
+     * Errors are reported as in a sequential resolution: if several stages fail, the error of the first one is thrown.
+     * Stages following a failed one still run to completion, e.g. a TEE challenge can be created for a failed session.
+     */
+    private SecretSessionBase buildSecretsTokensInParallel(TeeSessionRequest request, boolean isPreComputeRequired)
+            throws TeeSessionGenerationException {
+        final CompletableFuture<SecretEnclaveBase> preCompute = isPreComputeRequired
+                ? supplyStageTokens(() -> getPreComputeTokens(request))
+                : CompletableFuture.completedFuture(null);
+        final CompletableFuture<SecretEnclaveBase> appCompute = supplyStageTokens(() -> getAppTokens(request));
+        final CompletableFuture<Map<String, Object>> postComputeSecrets =
+                supplyStageTokens(() -> getPostComputeSecretsTokens(request));
+        final CompletableFuture<Map<String, String>> postComputeSign =
+                supplyStageTokens(() -> getPostComputeSignTokens(request));
+        final SecretSessionBaseBuilder sessionBase = SecretSessionBase.builder()
+                .preCompute(joinStageTokens(preCompute))
+                .appCompute(joinStageTokens(appCompute));
+        final Map<String, Object> postComputeTokens = joinStageTokens(postComputeSecrets);
+        postComputeTokens.putAll(joinStageTokens(postComputeSign));
+        return sessionBase
+                .postCompute(buildPostComputeEnclave(postComputeTokens))
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface StageTokensSupplier<T> {
+        T get() throws TeeSessionGenerationException;
+    }
+
+    private <T> CompletableFuture<T> supplyStageTokens(StageTokensSupplier<T> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return supplier.get();
+            } catch (TeeSessionGenerationException e) {
+                throw new CompletionException(e);
+            }
+        }, secretsLookupExecutor);
+    }
+
+    private static <T> T joinStageTokens(CompletableFuture<T> stageTokens)
+            throws TeeSessionGenerationException {
+        try {
+            return stageTokens.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TeeSessionGenerationException) {
+                throw (TeeSessionGenerationException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
      * Get tokens to be injected in the pre-compute enclave.
      *
@@ -288,9 +423,29 @@ public class SecretSessionBaseService {
      */
     public SecretEnclaveBase getPostComputeTokens(TeeSessionRequest request)
             throws TeeSessionGenerationException {
-        SecretEnclaveBaseBuilder enclaveBase = SecretEnclaveBase.builder()
+        final Map<String, Object> tokens = getPostComputeSecretsTokens(request);
+        // enclave signature
+        tokens.putAll(getPostComputeSignTokens(request));
+        return buildPostComputeEnclave(tokens);
+    }
+
+    private SecretEnclaveBase buildPostComputeEnclave(Map<String, Object> tokens) {
+        return SecretEnclaveBase.builder()
                 .name("post-compute")
-                .mrenclave(teeServicesConfig.getPostComputeProperties().getFingerprint());
+                .mrenclave(teeServicesConfig.getPostComputeProperties().getFingerprint())
+                .environment(tokens)
+                .build();
+    }
+
+    /**
+     * Get result encryption and storage tokens of the post-compute enclave, from the requester and worker secrets.
+     *
+     * @param request Session request details
+     * @return Mutable map of tokens
+     * @throws TeeSessionGenerationException if {@code TaskDescription} is {@literal null} or a secret is missing
+     */
+    private Map<String, Object> getPostComputeSecretsTokens(TeeSessionRequest request)
+            throws TeeSessionGenerationException {
         Map<String, Object> tokens = new HashMap<>();
         TaskDescription taskDescription = request.getTaskDescription();
         if (taskDescription == null) {
@@ -336,12 +491,7 @@ public class SecretSessionBaseService {
                     isWorkerTokenPresent, tokenOwner);
             tokens.putAll(getPostComputeStorageTokens(request, storageToken));
         }
-        // enclave signature
-        Map<String, String> signTokens = getPostComputeSignTokens(request);
-        tokens.putAll(signTokens);
-        return enclaveBase
-                .environment(tokens)
-                .build();
+        return tokens;
     }
 
     List<Web2SecretHeader> getPostComputeSecretHeaders(TaskDescription taskDescription, String workerAddress) {
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.session.generic;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency metrics of the TEE session generation pipeline, one timer per stage, and size of serialized sessions.
+ */
+public final class TeeSessionMetrics {
+    public static final String STAGE_TIMER_NAME = "iexec.sms.tee_sessions.stage";
+    public static final String SIZE_SUMMARY_NAME = "iexec.sms.tee_sessions.size";
+
+    public static final String QUEUE_STAGE = "queue";
+    public static final String BUILD_STAGE = "build";
+    public static final String SECRETS_STAGE = "secrets";
+    public static final String SERIALIZE_STAGE = "serialize";
+    public static final String POST_STAGE = "post";
+
+    private TeeSessionMetrics() {
+    }
+
+    public static Timer stageTimer(String stage) {
+        return Metrics.timer(STAGE_TIMER_NAME, "stage", stage);
+    }
+
+    public static DistributionSummary sessionSize() {
+        return DistributionSummary.builder(SIZE_SUMMARY_NAME)
+                .baseUnit("bytes")
+                .register(Metrics.globalRegistry);
+    }
+}
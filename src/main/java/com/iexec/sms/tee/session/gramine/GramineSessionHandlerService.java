@@ -1,5 +1,5 @@
 /*
- * Copyright 2022-2023 IEXEC BLOCKCHAIN TECH
+ * Copyright 2022-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,9 +21,11 @@ import com.iexec.sms.api.TeeSessionGenerationError;
 import com.iexec.sms.tee.ConditionalOnTeeFramework;
 import com.iexec.sms.tee.session.generic.TeeSessionGenerationException;
 import com.iexec.sms.tee.session.generic.TeeSessionHandler;
+import com.iexec.sms.tee.session.generic.TeeSessionMetrics;
 import com.iexec.sms.tee.session.generic.TeeSessionRequest;
 import com.iexec.sms.tee.session.gramine.sps.GramineSession;
 import com.iexec.sms.tee.session.gramine.sps.SpsConfiguration;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -50,8 +52,12 @@ public class GramineSessionHandlerService implements TeeSessionHandler {
     @Override
     public String buildAndPostSession(TeeSessionRequest request)
             throws TeeSessionGenerationException {
+        final Timer.Sample buildSample = Timer.start();
         GramineSession session = sessionService.generateSession(request);
+        buildSample.stop(TeeSessionMetrics.stageTimer(TeeSessionMetrics.BUILD_STAGE));
 
+        // Session is serialized by the Feign encoder, serialization time is included in the post stage
+        final Timer.Sample postSample = Timer.start();
         try {
             spsConfiguration.getInstance().postSession(session);
             return spsConfiguration.getEnclaveHost();
@@ -59,6 +65,8 @@ public class GramineSessionHandlerService implements TeeSessionHandler {
             throw new TeeSessionGenerationException(
                     TeeSessionGenerationError.SECURE_SESSION_STORAGE_CALL_FAILED,
                     "Failed to post session: " + e.getMessage());
+        } finally {
+            postSample.stop(TeeSessionMetrics.stageTimer(TeeSessionMetrics.POST_STAGE));
         }
     }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022-2023 IEXEC BLOCKCHAIN TECH
+ * Copyright 2022-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,10 +20,24 @@ import com.iexec.common.utils.FeignBuilder;
 import com.iexec.commons.poco.tee.TeeFramework;
 import com.iexec.sms.tee.ConditionalOnTeeFramework;
 import feign.Logger.Level;
+import feign.Request;
+import feign.httpclient.ApacheHttpClient;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Configuration
 @ConditionalOnTeeFramework(frameworks = TeeFramework.GRAMINE)
 @Getter
@@ -46,7 +60,26 @@ public class SpsConfiguration {
     @Value("${tee.secret-provisioner.enclave.port}")
     private String enclavePort;
 
-    private SpsApiClient spsApiClient;
+    @Value("${tee.gramine.sps.client.max-connections}")
+    private int maxConnections;
+
+    @Value("${tee.gramine.sps.client.connect-timeout}")
+    private long connectTimeout;
+
+    @Value("${tee.gramine.sps.client.read-timeout}")
+    private long readTimeout;
+
+    @Value("${tee.gramine.sps.client.idle-timeout}")
+    private long idleTimeout;
+
+    @Value("${tee.gramine.sps.client.log-level}")
+    private Level logLevel;
+
+    @Getter(AccessLevel.NONE)
+    private CloseableHttpClient httpClient;
+
+    @Getter(AccessLevel.NONE)
+    private volatile SpsApiClient spsApiClient;
 
     public String getWebUrl() {
         return "http://" + webHost + ":" + webPort;
@@ -56,13 +89,50 @@ public class SpsConfiguration {
         return enclaveHostName + ":" + enclavePort;
     }
 
+    /**
+     * Lazily builds the SPS client on a pooled keep-alive HTTP transport.
+     * <p>
+     * {@link Level#FULL} logs session bodies, secrets included, it should only be used for debugging purposes.
+     *
+     * @return The shared SPS client
+     */
     public SpsApiClient getInstance() {
-        if (spsApiClient == null) {
-            spsApiClient = FeignBuilder.createBuilderWithBasicAuth(Level.FULL,
-                    webLogin, webPassword)
-                    .target(SpsApiClient.class, getWebUrl());
+        SpsApiClient client = spsApiClient;
+        if (client == null) {
+            synchronized (this) {
+                client = spsApiClient;
+                if (client == null) {
+                    client = createSpsApiClient();
+                    spsApiClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private SpsApiClient createSpsApiClient() {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.SECONDS)
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "sps").bindTo(Metrics.globalRegistry);
+        log.info("SPS client configured [url:{}, maxConnections:{}, connectTimeout:{}ms, readTimeout:{}ms, logLevel:{}]",
+                getWebUrl(), maxConnections, connectTimeout, readTimeout, logLevel);
+        return FeignBuilder.createBuilderWithBasicAuth(logLevel, webLogin, webPassword)
+                .client(new ApacheHttpClient(httpClient))
+                .options(new Request.Options(connectTimeout, TimeUnit.MILLISECONDS, readTimeout, TimeUnit.MILLISECONDS, true))
+                .target(SpsApiClient.class, getWebUrl());
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
         }
-        return spsApiClient;
     }
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2020-2023 IEXEC BLOCKCHAIN TECH
+ * Copyright 2020-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,11 +19,19 @@ package com.iexec.sms.tee.session.scone.cas;
 import com.iexec.commons.poco.tee.TeeFramework;
 import com.iexec.sms.ssl.TwoWaySslClient;
 import com.iexec.sms.tee.ConditionalOnTeeFramework;
-import org.springframework.http.HttpEntity;
+import com.iexec.sms.tee.session.generic.TeeSessionMetrics;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
 
-import java.nio.charset.StandardCharsets;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @ConditionalOnTeeFramework(frameworks = TeeFramework.SCONE)
@@ -40,13 +48,64 @@ public class CasClient {
 
     /*
      * POST /session of CAS requires 2-way SSL authentication
+     * The session is serialized straight into the request body, serialization time and size are recorded.
+     * Serialization time is excluded from the post stage so that it is only recorded once.
      */
-    public ResponseEntity<String> postSession(String palaemonFile) {
-        String url = casConfiguration.getUrl() + "/session";
-        HttpEntity<byte[]> request = new HttpEntity<>(palaemonFile.getBytes(StandardCharsets.UTF_8));
-        return twoWaySslClient
-                .getRestTemplate()
-                .postForEntity(url, request, String.class);
+    public ResponseEntity<String> postSession(SconeSession session) {
+        final String url = casConfiguration.getUrl() + "/session";
+        final RestTemplate restTemplate = twoWaySslClient.getRestTemplate();
+        final AtomicLong serializeDuration = new AtomicLong();
+        final long start = System.nanoTime();
+        try {
+            return restTemplate.execute(url, HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                        request.getHeaders().setAccept(List.of(MediaType.TEXT_PLAIN, MediaType.ALL));
+                        serializeDuration.set(writeSession(session, request.getBody()));
+                    },
+                    restTemplate.responseEntityExtractor(String.class));
+        } finally {
+            TeeSessionMetrics.stageTimer(TeeSessionMetrics.POST_STAGE)
+                    .record(System.nanoTime() - start - serializeDuration.get(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Writes a session and records its serialization time and size.
+     *
+     * @return Serialization time in nanoseconds
+     */
+    long writeSession(SconeSession session, OutputStream body) throws IOException {
+        final CountingOutputStream countingBody = new CountingOutputStream(body);
+        final long start = System.nanoTime();
+        session.writeTo(countingBody);
+        final long duration = System.nanoTime() - start;
+        TeeSessionMetrics.stageTimer(TeeSessionMetrics.SERIALIZE_STAGE).record(duration, TimeUnit.NANOSECONDS);
+        TeeSessionMetrics.sessionSize().record(countingBody.count);
+        return duration;
+    }
+
+    /**
+     * Counts bytes written to the underlying stream.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
     }
 
 }
\ No newline at end of file
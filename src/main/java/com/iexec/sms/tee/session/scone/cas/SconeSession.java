@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 IEXEC BLOCKCHAIN TECH
+ * Copyright 2022-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,11 +17,15 @@
 package com.iexec.sms.tee.session.scone.cas;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @Slf4j
@@ -32,6 +36,15 @@ import java.util.List;
 @NoArgsConstructor
 public class SconeSession {
 
+    /**
+     * Mappers are thread-safe once configured, a single writer is shared by all sessions.
+     * Target streams are left open, they belong to the HTTP request.
+     */
+    private static final ObjectWriter YAML_WRITER = YAMLMapper.builder()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build()
+            .writer();
+
     @JsonProperty("name")
     private String name;
     @JsonProperty("version")
@@ -99,10 +112,20 @@ public class SconeSession {
         }
     }
 
+    /**
+     * Serializes the session as YAML directly into a stream, without intermediate {@code String} or {@code byte[]}.
+     *
+     * @param outputStream Stream to write to, left open
+     * @throws IOException if serialization or write failed
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        YAML_WRITER.writeValue(outputStream, this);
+    }
+
     @Override
     public String toString() {
         try {
-            return new YAMLMapper().writeValueAsString(this);
+            return YAML_WRITER.writeValueAsString(this);
         } catch (JsonProcessingException e) {
             log.error("Failed to write SPS session as string [session:{}]", name, e);
             return "";
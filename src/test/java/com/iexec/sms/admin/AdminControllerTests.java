@@ -17,6 +17,7 @@
 package com.iexec.sms.admin;
 
 import com.iexec.sms.encryption.EncryptionService;
+import com.iexec.sms.encryption.KeyRotationService;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,10 +25,14 @@ import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -40,6 +45,8 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
@@ -47,6 +54,9 @@ import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrowsExactly;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @Slf4j
@@ -61,6 +71,14 @@ class AdminControllerTests {
     private AdminService adminService;
     @Mock
     private EncryptionService encryptionService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private KeyRotationService keyRotationService;
+    @Mock
+    private IncrementalBackupService incrementalBackupService;
+    @Mock
+    private AdminJobService adminJobService;
     @InjectMocks
     private AdminController adminController;
 
@@ -84,7 +102,7 @@ class AdminControllerTests {
 
     @Test
     void shouldReturnTooManyRequestWhenBackupProcessIsAlreadyRunning() throws InterruptedException {
-        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, "", "", "", "") {
+        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, eventPublisher, "", "", "", "") {
             @Override
             public boolean createBackupFile(String storageLocation, String backupFileName) {
                 try {
@@ -95,7 +113,7 @@ class AdminControllerTests {
                 }
                 return true;
             }
-        }, "");
+        }, keyRotationService, incrementalBackupService, adminJobService, "");
 
         final List<ResponseEntity<Void>> responses = Collections.synchronizedList(new ArrayList<>(3));
 
@@ -155,7 +173,7 @@ class AdminControllerTests {
 
     @Test
     void testTooManyRequestOnReplicate(@TempDir Path tempDir) throws InterruptedException {
-        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, "", "", "", "") {
+        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, eventPublisher, "", "", "", "") {
             @Override
             public boolean copyBackupFile(String backupStoragePath, String backupFileName, String replicateStoragePath, String replicateFileName) {
                 try {
@@ -166,7 +184,7 @@ class AdminControllerTests {
                 }
                 return true;
             }
-        }, "");
+        }, keyRotationService, incrementalBackupService, adminJobService, "");
 
         final List<ResponseEntity<Void>> responses = Collections.synchronizedList(new ArrayList<>(3));
         final String storageID = convertToHex(tempDir.toString());
@@ -227,7 +245,7 @@ class AdminControllerTests {
 
     @Test
     void testTooManyRequestOnRestore(@TempDir Path tempDir) throws InterruptedException {
-        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, "", "", "", "") {
+        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, eventPublisher, "", "", "", "") {
             @Override
             public boolean restoreDatabaseFromBackupFile(String storageId, String fileName) {
                 try {
@@ -238,7 +256,7 @@ class AdminControllerTests {
                 }
                 return true;
             }
-        }, "");
+        }, keyRotationService, incrementalBackupService, adminJobService, "");
 
         final List<ResponseEntity<Void>> responses = Collections.synchronizedList(new ArrayList<>(3));
         final String storageID = convertToHex(tempDir.toString());
@@ -322,7 +340,7 @@ class AdminControllerTests {
 
     @Test
     void testTooManyRequestOnDelete(@TempDir Path tempDir) throws InterruptedException {
-        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, "", "", "", "") {
+        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, eventPublisher, "", "", "", "") {
             @Override
             public boolean deleteBackupFileFromStorage(String storageLocation, String backupFileName) {
                 try {
@@ -333,7 +351,7 @@ class AdminControllerTests {
                 }
                 return true;
             }
-        }, "");
+        }, keyRotationService, incrementalBackupService, adminJobService, "");
 
         final List<ResponseEntity<Void>> responses = Collections.synchronizedList(new ArrayList<>(3));
         final String storageID = convertToHex(tempDir.toString());
@@ -396,7 +414,7 @@ class AdminControllerTests {
     @Test
     void testTooManyRequestOnCopy(@TempDir Path tempDir) throws InterruptedException {
 
-        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, "", "", "", "") {
+        AdminController adminControllerWithLongAction = new AdminController(new AdminService(encryptionService, eventPublisher, "", "", "", "") {
             @Override
             public boolean copyBackupFile(String sourceStorageLocation, String sourceBackupFileName, String destinationStorageLocation, String destinationBackupFileName) {
                 try {
@@ -407,7 +425,7 @@ class AdminControllerTests {
                 }
                 return true;
             }
-        }, "");
+        }, keyRotationService, incrementalBackupService, adminJobService, "");
 
         final List<ResponseEntity<Void>> responses = Collections.synchronizedList(new ArrayList<>(3));
         final String sourceStorageID = convertToHex(tempDir.toString());
@@ -443,6 +461,188 @@ class AdminControllerTests {
     }
     // endregion
 
+    // region incremental backup
+    @Test
+    void shouldReturnCreatedWhenIncrementalBackupSuccess() {
+        ReflectionTestUtils.setField(adminController, "adminStorageLocation", "");
+        when(incrementalBackupService.createIncrementalBackup(any(), any(), any())).thenReturn(true);
+        assertEquals(HttpStatus.CREATED, adminController.createIncrementalBackup("backup-2", "backup-1").getStatusCode());
+        Mockito.verify(incrementalBackupService).createIncrementalBackup("/work/", "backup-2", "backup-1");
+    }
+
+    @Test
+    void shouldCreateFullIncrementalBackupWhenNoBase() {
+        ReflectionTestUtils.setField(adminController, "adminStorageLocation", "");
+        when(incrementalBackupService.createIncrementalBackup(any(), any(), any())).thenReturn(true);
+        assertEquals(HttpStatus.CREATED, adminController.createIncrementalBackup("backup-1", null).getStatusCode());
+        Mockito.verify(incrementalBackupService).createIncrementalBackup("/work/", "backup-1", "");
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = {"", " "})
+    void shouldReturnBadRequestWhenIncrementalBackupNameMissing(String backupName) {
+        assertEquals(HttpStatus.BAD_REQUEST, adminController.createIncrementalBackup(backupName, null).getStatusCode());
+        Mockito.verifyNoInteractions(incrementalBackupService);
+    }
+
+    @Test
+    void shouldReturnOkWhenIncrementalRestoreSuccess(@TempDir Path tempDir) {
+        final String storageID = convertToHex(tempDir.toString());
+        when(incrementalBackupService.restoreIncrementalBackup(any(), any())).thenReturn(true);
+        assertEquals(HttpStatus.OK, adminController.restoreIncrementalBackup(storageID, "backup-1").getStatusCode());
+    }
+
+    @Test
+    void shouldReturnErrorWhenIncrementalRestoreFail(@TempDir Path tempDir) {
+        final String storageID = convertToHex(tempDir.toString());
+        when(incrementalBackupService.restoreIncrementalBackup(any(), any())).thenReturn(false);
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, adminController.restoreIncrementalBackup(storageID, "backup-1").getStatusCode());
+    }
+    // endregion
+
+    // region key rotation
+    @Test
+    void shouldReturnAcceptedWhenKeyRotationStarted() {
+        final KeyRotationService.RotationStatus status = KeyRotationService.RotationStatus.builder()
+                .state(KeyRotationService.State.MIGRATING)
+                .build();
+        when(keyRotationService.startRotation()).thenReturn(true);
+        when(keyRotationService.getStatus()).thenReturn(status);
+        final ResponseEntity<KeyRotationService.RotationStatus> response = adminController.rotateKey();
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(status, response.getBody());
+    }
+
+    @Test
+    void shouldReturnTooManyRequestWhenKeyRotationIsAlreadyRunning() {
+        when(keyRotationService.startRotation()).thenReturn(false);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, adminController.rotateKey().getStatusCode());
+    }
+
+    @Test
+    void shouldReturnErrorWhenKeyRotationInterrupted() throws InterruptedException {
+        ReflectionTestUtils.setField(adminController, "rLock", rLock);
+        when(rLock.tryLock(100, TimeUnit.MILLISECONDS)).thenThrow(InterruptedException.class);
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, adminController.rotateKey().getStatusCode());
+    }
+
+    @Test
+    void shouldReturnKeyRotationStatus() {
+        final KeyRotationService.RotationStatus status = KeyRotationService.RotationStatus.builder()
+                .state(KeyRotationService.State.RE_ENCRYPTING)
+                .total(10)
+                .scanned(5)
+                .build();
+        when(keyRotationService.getStatus()).thenReturn(status);
+        final ResponseEntity<KeyRotationService.RotationStatus> response = adminController.getKeyRotationStatus();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(status, response.getBody());
+    }
+
+    @Test
+    void shouldReturnTooManyRequestWhenBackupDuringKeyRotation() {
+        when(keyRotationService.isRunning()).thenReturn(true);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, adminController.createBackup().getStatusCode());
+        Mockito.verifyNoInteractions(adminService);
+    }
+    // endregion
+
+    // region MVStore persistence backend
+    @Test
+    void shouldRefuseBackupsRestoresAndKeyRotationWithMVStoreBackend(@TempDir Path tempDir) {
+        final AdminController mvStoreAdminController = new AdminController(adminService, keyRotationService,
+                incrementalBackupService, adminJobService, "", "MVSTORE");
+        final String storageID = convertToHex(tempDir.toString());
+
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, mvStoreAdminController.createBackup().getStatusCode());
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, mvStoreAdminController.restoreBackup(storageID, FILE_NAME).getStatusCode());
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, mvStoreAdminController.createIncrementalBackup("backup-1", null).getStatusCode());
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, mvStoreAdminController.restoreIncrementalBackup(storageID, "backup-1").getStatusCode());
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, mvStoreAdminController.submitJob("backup", null, null, null, null).getStatusCode());
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, mvStoreAdminController.rotateKey().getStatusCode());
+        Mockito.verifyNoInteractions(adminService, incrementalBackupService, adminJobService, keyRotationService);
+    }
+    // endregion
+
+    // region jobs
+    @Test
+    void shouldQueueBackupJob() throws Exception {
+        ReflectionTestUtils.setField(adminController, "adminStorageLocation", "");
+        final AdminJob job = new AdminJob("BACKUP", true, -1, () -> 0);
+        final ArgumentCaptor<Callable<Boolean>> taskCaptor = ArgumentCaptor.forClass(Callable.class);
+        when(adminJobService.submit(eq("BACKUP"), eq(true), anyLong(), any(), taskCaptor.capture()))
+                .thenReturn(Optional.of(job));
+        when(adminService.getBackupFileName()).thenReturn(FILE_NAME);
+        Mockito.doReturn(true).when(adminService).createBackupFile(any(), any());
+
+        final ResponseEntity<AdminJob> response = adminController.submitJob("backup", null, null, null, null);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(job, response.getBody());
+        Mockito.verify(adminService, Mockito.never()).createBackupFile(any(), any());
+        assertEquals(true, taskCaptor.getValue().call());
+        Mockito.verify(adminService).createBackupFile(any(), any());
+    }
+
+    @Test
+    void shouldNotRestoreInJobDuringKeyRotation(@TempDir Path tempDir) {
+        final String storageID = convertToHex(tempDir.toString());
+        final ArgumentCaptor<Callable<Boolean>> taskCaptor = ArgumentCaptor.forClass(Callable.class);
+        when(adminJobService.submit(eq("RESTORE"), eq(false), anyLong(), any(), taskCaptor.capture()))
+                .thenReturn(Optional.of(new AdminJob("RESTORE", false, -1, () -> 0)));
+        when(keyRotationService.isRunning()).thenReturn(true);
+
+        assertEquals(HttpStatus.ACCEPTED, adminController.submitJob("restore", storageID, FILE_NAME, null, null).getStatusCode());
+        final Callable<Boolean> task = taskCaptor.getValue();
+        assertThrowsExactly(IllegalStateException.class, task::call);
+        Mockito.verify(adminService, Mockito.never()).restoreDatabaseFromBackupFile(any(), any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"unknown", "restore", "copy"})
+    void shouldReturnBadRequestWhenJobIsInvalid(String operation) {
+        assertEquals(HttpStatus.BAD_REQUEST, adminController.submitJob(operation, null, null, null, null).getStatusCode());
+        Mockito.verifyNoInteractions(adminJobService);
+    }
+
+    @Test
+    void shouldReturnTooManyRequestWhenJobQueueIsFull() {
+        when(adminJobService.submit(any(), anyBoolean(), anyLong(), any(), any())).thenReturn(Optional.empty());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, adminController.submitJob("backup", null, null, null, null).getStatusCode());
+    }
+
+    @Test
+    void shouldReturnJob() {
+        final AdminJob job = new AdminJob("BACKUP", true, -1, () -> 0);
+        when(adminJobService.get(job.getId())).thenReturn(Optional.of(job));
+        assertEquals(job, adminController.getJob(job.getId()).getBody());
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenJobIsUnknown() {
+        when(adminJobService.get(any())).thenReturn(Optional.empty());
+        assertEquals(HttpStatus.NOT_FOUND, adminController.getJob("unknown").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, adminController.cancelJob("unknown").getStatusCode());
+    }
+
+    @Test
+    void shouldCancelJob() {
+        final AdminJob job = new AdminJob("BACKUP", true, -1, () -> 0);
+        when(adminJobService.get(job.getId())).thenReturn(Optional.of(job));
+        when(adminJobService.cancel(job)).thenReturn(true);
+        assertEquals(HttpStatus.OK, adminController.cancelJob(job.getId()).getStatusCode());
+    }
+
+    @Test
+    void shouldReturnConflictWhenJobCannotBeCancelled() {
+        final AdminJob job = new AdminJob("RESTORE", false, -1, () -> 0);
+        when(adminJobService.get(job.getId())).thenReturn(Optional.of(job));
+        when(adminJobService.cancel(job)).thenReturn(false);
+        assertEquals(HttpStatus.CONFLICT, adminController.cancelJob(job.getId()).getStatusCode());
+    }
+    // endregion
+
     private static Stream<Arguments> provideBadRequestParameters() {
         return Stream.of(
                 Arguments.of(null, null),
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.admin;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AdminJobServiceTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private ExecutorService executorService;
+    @Mock
+    private Future<?> future;
+
+    private AdminJobService adminJobService;
+
+    @BeforeEach
+    void beforeEach() {
+        MockitoAnnotations.openMocks(this);
+        Metrics.globalRegistry.add(meterRegistry);
+        doReturn(future).when(executorService).submit(any(Runnable.class));
+        adminJobService = new AdminJobService(executorService, 2);
+    }
+
+    @AfterEach
+    void afterEach() {
+        meterRegistry.clear();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
+    private AdminJob submit(boolean cancellable, Callable<Boolean> task) {
+        return adminJobService.submit("BACKUP", cancellable, 100, () -> 40, task).orElseThrow();
+    }
+
+    @Test
+    void shouldQueueJob() {
+        final AdminJob job = submit(true, () -> true);
+
+        verify(executorService).submit(any(Runnable.class));
+        assertThat(job.getState()).isEqualTo(AdminJob.State.QUEUED);
+        assertThat(job.getProcessedBytes()).isZero();
+        assertThat(job.getEtaSeconds()).isNull();
+        assertThat(adminJobService.get(job.getId())).contains(job);
+    }
+
+    @Test
+    void shouldReportProgressOfRunningJob() {
+        final AtomicLong processedBytes = new AtomicLong();
+        final AdminJob job = adminJobService.submit("BACKUP", true, 100, processedBytes::get, () -> true)
+                .orElseThrow();
+
+        adminJobService.run(job, () -> {
+            processedBytes.set(25);
+            assertThat(job.getState()).isEqualTo(AdminJob.State.RUNNING);
+            assertThat(job.getProcessedBytes()).isEqualTo(25);
+            assertThat(job.getEtaSeconds()).isNotNull().isNotNegative();
+            processedBytes.set(100);
+            return true;
+        });
+
+        assertThat(job.getState()).isEqualTo(AdminJob.State.SUCCEEDED);
+        assertThat(job.getProcessedBytes()).isEqualTo(100);
+        assertThat(job.getStartedAt()).isNotNull();
+        assertThat(job.getFinishedAt()).isNotNull();
+        assertThat(meterRegistry.find(AdminJobService.JOB_COUNTER_NAME).tag("state", "SUCCEEDED").counter().count())
+                .isOne();
+    }
+
+    @Test
+    void shouldFailJob() {
+        final AdminJob job = submit(true, () -> false);
+        adminJobService.run(job, () -> false);
+        assertThat(job.getState()).isEqualTo(AdminJob.State.FAILED);
+
+        final AdminJob throwingJob = submit(true, () -> true);
+        adminJobService.run(throwingJob, () -> {
+            throw new IllegalStateException("error");
+        });
+        assertThat(throwingJob.getState()).isEqualTo(AdminJob.State.FAILED);
+        assertThat(throwingJob.getError()).isEqualTo("error");
+    }
+
+    @Test
+    void shouldCancelQueuedJob() throws Exception {
+        final Callable<Boolean> task = mock(Callable.class);
+        final AdminJob job = submit(false, task);
+
+        assertThat(adminJobService.cancel(job)).isTrue();
+        adminJobService.run(job, task);
+
+        verify(future).cancel(true);
+        verifyNoInteractions(task);
+        assertThat(job.getState()).isEqualTo(AdminJob.State.CANCELLED);
+        assertThat(adminJobService.cancel(job)).isFalse();
+    }
+
+    @Test
+    void shouldKeepCancelledJobRunningUntilOperationReturns() {
+        final AdminJob job = submit(true, () -> true);
+        adminJobService.run(job, () -> {
+            assertThat(adminJobService.cancel(job)).isTrue();
+            assertThat(job.getState()).isEqualTo(AdminJob.State.RUNNING);
+            assertThat(job.isCancellationRequested()).isTrue();
+            throw new InterruptedException();
+        });
+        Thread.interrupted();
+
+        verify(future).cancel(true);
+        assertThat(job.getState()).isEqualTo(AdminJob.State.CANCELLED);
+        assertThat(job.getError()).isEqualTo("Cancelled by admin");
+        assertThat(job.getProcessedBytes()).isEqualTo(40);
+        assertThat(meterRegistry.find(AdminJobService.JOB_COUNTER_NAME).tag("state", "CANCELLED").counter().count())
+                .isOne();
+    }
+
+    @Test
+    void shouldReportCancelledJobWhenOperationFailsAfterCancellation() {
+        final AdminJob job = submit(true, () -> false);
+        adminJobService.run(job, () -> {
+            adminJobService.cancel(job);
+            return false;
+        });
+        assertThat(job.getState()).isEqualTo(AdminJob.State.CANCELLED);
+    }
+
+    @Test
+    void shouldReportSucceededJobWhenOperationCompletesDespiteCancellation() {
+        final AdminJob job = submit(true, () -> true);
+        adminJobService.run(job, () -> {
+            adminJobService.cancel(job);
+            return true;
+        });
+        assertThat(job.getState()).isEqualTo(AdminJob.State.SUCCEEDED);
+        assertThat(job.isCancellationRequested()).isTrue();
+    }
+
+    @Test
+    void shouldNotCancelRunningJobWhenNotCancellable() {
+        final AdminJob restoreJob = submit(false, () -> true);
+        adminJobService.run(restoreJob, () -> {
+            assertThat(adminJobService.cancel(restoreJob)).isFalse();
+            return true;
+        });
+        verifyNoInteractions(future);
+        assertThat(restoreJob.isCancellationRequested()).isFalse();
+        assertThat(restoreJob.getState()).isEqualTo(AdminJob.State.SUCCEEDED);
+    }
+
+    @Test
+    void shouldRejectJobWhenQueueIsFull() {
+        doThrow(RejectedExecutionException.class).when(executorService).submit(any(Runnable.class));
+        assertThat(adminJobService.submit("BACKUP", true, -1, () -> 0, () -> true)).isEmpty();
+    }
+
+    @Test
+    void shouldEvictOldestJobs() {
+        final AdminJob firstJob = submit(true, () -> true);
+        final AdminJob secondJob = submit(true, () -> true);
+        final AdminJob thirdJob = submit(true, () -> true);
+
+        assertThat(adminJobService.get(firstJob.getId())).isEmpty();
+        assertThat(adminJobService.get(secondJob.getId())).contains(secondJob);
+        assertThat(adminJobService.get(thirdJob.getId())).contains(thirdJob);
+    }
+}
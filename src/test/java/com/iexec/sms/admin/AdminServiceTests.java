@@ -22,6 +22,9 @@ import ch.qos.logback.classic.LoggerContext;
 import com.iexec.sms.MemoryLogAppender;
 import com.iexec.sms.encryption.EncryptionConfiguration;
 import com.iexec.sms.encryption.EncryptionService;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,18 +35,34 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 class AdminServiceTests {
 
@@ -57,6 +76,7 @@ class AdminServiceTests {
     }
 
     private AdminService adminService;
+    private EncryptionService encryptionService;
 
     @TempDir
     File tempStorageLocation;
@@ -64,6 +84,8 @@ class AdminServiceTests {
     @TempDir
     public File tempDir;
     private static MemoryLogAppender memoryLogAppender;
+    private ApplicationEventPublisher eventPublisher;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeAll
     static void initLog() {
@@ -78,9 +100,40 @@ class AdminServiceTests {
     @BeforeEach
     void beforeEach() {
         memoryLogAppender.reset();
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        encryptionService = new EncryptionService(
+                new EncryptionConfiguration(tempDir.getAbsolutePath() + "/aes.key"));
+        adminService = new AdminService(encryptionService, eventPublisher, "jdbc:h2:mem:test", "sa", "", "/tmp/");
+        Metrics.globalRegistry.add(meterRegistry);
+    }
+
+    @AfterEach
+    void afterEach() {
+        meterRegistry.clear();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
+    private AdminService binaryAdminService(String datasourceUrl) {
         final EncryptionService encryptionService = new EncryptionService(
                 new EncryptionConfiguration(tempDir.getAbsolutePath() + "/aes.key"));
-        adminService = new AdminService(encryptionService, "jdbc:h2:mem:test", "sa", "", "/tmp/");
+        return new AdminService(encryptionService, eventPublisher, datasourceUrl, "sa", "", "/tmp/",
+                AdminService.BackupFormat.BINARY, false, 1);
+    }
+
+    private static void execute(String datasourceUrl, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(datasourceUrl, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long countRows(String datasourceUrl) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(datasourceUrl, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM \"secret\"")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
     }
 
     // region backup
@@ -100,6 +153,7 @@ class AdminServiceTests {
 
         Mockito.doReturn(false).when(adminServiceSpy).databaseDump(any());
         assertThat(adminServiceSpy.createBackupFile(tempStorageLocation.getPath(), "backup.sql")).isFalse();
+        assertThat(tempStorageLocation.list()).isEmpty();
     }
 
     @ParameterizedTest
@@ -132,6 +186,45 @@ class AdminServiceTests {
     void shouldReturnFalseWhenBackupFileNameDoesNotExist() {
         assertThat(adminService.databaseDump("/nonexistent/directory/backup.sql")).isFalse();
     }
+
+    @Test
+    void shouldRecordBackupMetrics() {
+        assertThat(adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+        assertThat(meterRegistry.find(AdminService.BACKUP_DURATION_TIMER_NAME).tag("format", "sql").timer().count())
+                .isOne();
+        assertThat(meterRegistry.find(AdminService.BACKUP_SIZE_SUMMARY_NAME).tag("format", "sql").summary().totalAmount())
+                .isEqualTo(new File(tempStorageLocation, "backup.sql").length());
+    }
+
+    @Test
+    void shouldCreateBinaryBackup() throws IOException, SQLException {
+        final String datasourceUrl = "jdbc:h2:file:" + tempDir.getAbsolutePath() + "/sms-h2;DB_CLOSE_DELAY=-1";
+        execute(datasourceUrl, "CREATE TABLE \"secret\" (\"id\" INT PRIMARY KEY)");
+        final AdminService binaryAdminService = binaryAdminService(datasourceUrl);
+        final File backupFile = new File(tempStorageLocation, binaryAdminService.getBackupFileName());
+
+        assertThat(binaryAdminService.createBackupFile(tempStorageLocation.getPath(), backupFile.getName())).isTrue();
+        assertThat(backupFile).hasExtension("zip");
+        assertThat(Files.readAllBytes(backupFile.toPath())).startsWith('P', 'K', 3, 4);
+        assertThat(meterRegistry.find(AdminService.BACKUP_DURATION_TIMER_NAME).tag("format", "binary").timer().count())
+                .isOne();
+        execute(datasourceUrl, "SHUTDOWN");
+    }
+
+    @Test
+    void shouldBackupRetiredAesKeys() throws IOException {
+        final int retiredKeyId = encryptionService.getAesKeyId();
+        encryptionService.rotateAesKey();
+        final String retiredKeySuffix = EncryptionService.RETIRED_KEY_SUFFIX + String.format("%08x", retiredKeyId);
+        final Path aesKeyBackupFile = Path.of(tempStorageLocation.getPath(), "backup.sql" + AdminService.AES_KEY_FILENAME_EXTENSION);
+
+        assertThat(adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+
+        assertThat(Path.of(aesKeyBackupFile + retiredKeySuffix))
+                .hasSameBinaryContentAs(Path.of(encryptionService.getAesKeyPath() + retiredKeySuffix));
+        assertThat(Files.readString(Path.of(tempStorageLocation.getPath(), "backup.sql" + AdminService.MANIFEST_FILENAME_EXTENSION)))
+                .contains(aesKeyBackupFile.getFileName() + retiredKeySuffix);
+    }
     // endregion
 
     // region restore-backup
@@ -144,7 +237,153 @@ class AdminServiceTests {
         assertAll(
                 () -> assertThat(memoryLogAppender.contains("AES Key file has been restored")).isTrue(),
                 () -> assertThat(memoryLogAppender.contains("Database has been restored")).isTrue(),
-                () -> assertThat(memoryLogAppender.contains("SMS is now online")).isTrue()
+                () -> assertThat(memoryLogAppender.contains("SMS is now online")).isTrue(),
+                () -> verify(eventPublisher).publishEvent(any(DatabaseRestoredEvent.class))
+        );
+    }
+
+    @Test
+    void shouldRestoreRetiredAesKeys() throws IOException {
+        final String encryptedData = encryptionService.encrypt("data mock");
+        final int retiredKeyId = encryptionService.getAesKeyId();
+        encryptionService.rotateAesKey();
+        assertThat(adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+        final Path retiredKeyFile = Path.of(encryptionService.getAesKeyPath()
+                + EncryptionService.RETIRED_KEY_SUFFIX + String.format("%08x", retiredKeyId));
+        Files.delete(retiredKeyFile);
+        encryptionService.reloadAESKey();
+        assertThat(encryptionService.decrypt(encryptedData)).isEmpty();
+
+        assertThat(adminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+
+        assertThat(retiredKeyFile).exists();
+        assertThat(encryptionService.decrypt(encryptedData)).isEqualTo("data mock");
+    }
+
+    @Test
+    void shouldRetireReplacedAesKeyOnRestore() throws IOException {
+        final int backupKeyId = encryptionService.getAesKeyId();
+        assertThat(adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+        final int replacedKeyId = encryptionService.rotateAesKey();
+        final String encryptedData = encryptionService.encrypt("data mock");
+
+        assertThat(adminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+
+        assertThat(encryptionService.getAesKeyId()).isEqualTo(backupKeyId);
+        assertThat(Path.of(encryptionService.getAesKeyPath()
+                + EncryptionService.RETIRED_KEY_SUFFIX + String.format("%08x", replacedKeyId))).exists();
+        assertThat(encryptionService.decrypt(encryptedData)).isEqualTo("data mock");
+    }
+
+    @Test
+    void shouldNotRestoreBackupWhenRetiredAesKeyIsMissing() throws IOException {
+        final int retiredKeyId = encryptionService.getAesKeyId();
+        encryptionService.rotateAesKey();
+        assertThat(adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+        Files.delete(Path.of(tempStorageLocation.getPath(), "backup.sql" + AdminService.AES_KEY_FILENAME_EXTENSION
+                + EncryptionService.RETIRED_KEY_SUFFIX + String.format("%08x", retiredKeyId)));
+
+        assertThat(adminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.sql")).isFalse();
+        assertThat(memoryLogAppender.contains(AdminOperationError.BACKUP_FILE_CHECKSUM_MISMATCH.toString())).isTrue();
+    }
+
+    @Test
+    void shouldRestoreBinaryBackup() throws SQLException {
+        final String datasourceUrl = "jdbc:h2:file:" + tempDir.getAbsolutePath() + "/sms-h2;DB_CLOSE_DELAY=-1";
+        execute(datasourceUrl, "CREATE TABLE \"secret\" (\"id\" INT PRIMARY KEY)");
+        execute(datasourceUrl, "INSERT INTO \"secret\" VALUES (1), (2)");
+        final AdminService binaryAdminService = binaryAdminService(datasourceUrl);
+        assertThat(binaryAdminService.createBackupFile(tempStorageLocation.getPath(), "backup.zip")).isTrue();
+        execute(datasourceUrl, "DELETE FROM \"secret\"");
+
+        assertThat(binaryAdminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.zip")).isTrue();
+        assertThat(countRows(datasourceUrl)).isEqualTo(2);
+        assertThat(meterRegistry.find(AdminService.RESTORE_DURATION_TIMER_NAME).tag("format", "binary").timer().count())
+                .isOne();
+        execute(datasourceUrl, "SHUTDOWN");
+    }
+
+    @Test
+    void shouldRestoreCompressedBackupInParallel() throws SQLException {
+        final String datasourceUrl = "jdbc:h2:mem:parallel-restore;DB_CLOSE_DELAY=-1";
+        execute(datasourceUrl, "CREATE TABLE \"secret\" (\"id\" INT PRIMARY KEY)");
+        execute(datasourceUrl, "INSERT INTO \"secret\" SELECT X FROM SYSTEM_RANGE(1, 5000)");
+        final EncryptionService encryptionService = new EncryptionService(
+                new EncryptionConfiguration(tempDir.getAbsolutePath() + "/aes.key"));
+        final AdminService compressedAdminService = new AdminService(encryptionService, eventPublisher,
+                datasourceUrl, "sa", "", "/tmp/", AdminService.BackupFormat.SQL, true, 4);
+        final String backupFileName = compressedAdminService.getBackupFileName();
+
+        assertThat(backupFileName).isEqualTo("backup.sql.gz");
+        assertThat(compressedAdminService.createBackupFile(tempStorageLocation.getPath(), backupFileName)).isTrue();
+        execute(datasourceUrl, "DELETE FROM \"secret\"");
+
+        assertThat(compressedAdminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), backupFileName)).isTrue();
+        assertThat(countRows(datasourceUrl)).isEqualTo(5000);
+        execute(datasourceUrl, "DROP ALL OBJECTS");
+    }
+
+    @Test
+    void shouldPublishRestoredEventWhenRestoreFailsAfterInsertingRows() throws IOException, SQLException {
+        final String datasourceUrl = "jdbc:h2:mem:failed-restore;DB_CLOSE_DELAY=-1";
+        final AdminService failingAdminService = new AdminService(encryptionService, eventPublisher,
+                datasourceUrl, "sa", "", "/tmp/", AdminService.BackupFormat.SQL, true, 1);
+        final StringBuilder restoredStatements = new StringBuilder()
+                .append("CREATE TABLE \"secret\" (\"id\" INT PRIMARY KEY);\n")
+                .append("INSERT INTO \"secret\" VALUES (1), (2);\n")
+                .append("CREATE INDEX \"secret_id\" ON \"secret\"(\"id\");\n");
+        // Remarks are skipped, they only move the truncation point away from executed statements
+        restoredStatements.append("-- padding\n".repeat(2000));
+        final ByteArrayOutputStream script = new ByteArrayOutputStream();
+        final int truncatedLength;
+        try (GZIPOutputStream gzip = new GZIPOutputStream(script, true)) {
+            gzip.write(restoredStatements.toString().getBytes(StandardCharsets.UTF_8));
+            gzip.flush();
+            truncatedLength = script.size();
+            gzip.write("INSERT INTO \"secret\" VALUES (3);\n".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(Path.of(tempStorageLocation.getPath(), "backup.sql.gz"),
+                Arrays.copyOf(script.toByteArray(), truncatedLength));
+        Files.copy(Path.of(encryptionService.getAesKeyPath()),
+                Path.of(tempStorageLocation.getPath(), "backup.sql.gz" + AdminService.AES_KEY_FILENAME_EXTENSION));
+
+        assertThat(failingAdminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.sql.gz")).isFalse();
+        assertThat(countRows(datasourceUrl)).isEqualTo(2);
+        assertThat(memoryLogAppender.contains("SQL error occurred during restore")).isTrue();
+        verify(eventPublisher).publishEvent(any(DatabaseRestoredEvent.class));
+        execute(datasourceUrl, "DROP ALL OBJECTS");
+    }
+
+    @Test
+    void shouldWriteManifestWithBackup() throws IOException {
+        assertThat(adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue();
+        final List<String> manifest = Files.readAllLines(
+                Path.of(tempStorageLocation.getPath(), "backup.sql" + AdminService.MANIFEST_FILENAME_EXTENSION));
+        assertThat(manifest).hasSize(2);
+        assertThat(manifest.get(0)).matches("[0-9a-f]{64}  backup\\.sql");
+        assertThat(manifest.get(1)).matches("[0-9a-f]{64}  backup\\.sql\\.key");
+    }
+
+    @Test
+    void shouldNotRestoreBackupNotMatchingManifest() throws IOException {
+        adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql");
+        Files.writeString(Path.of(tempStorageLocation.getPath(), "backup.sql"), "DROP ALL OBJECTS;", StandardOpenOption.APPEND);
+
+        assertAll(
+                () -> assertThat(adminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.sql")).isFalse(),
+                () -> assertThat(memoryLogAppender.contains(AdminOperationError.BACKUP_FILE_CHECKSUM_MISMATCH.toString())).isTrue(),
+                () -> verifyNoInteractions(eventPublisher)
+        );
+    }
+
+    @Test
+    void shouldRestoreBackupWithoutManifest() throws IOException {
+        adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql");
+        Files.delete(Path.of(tempStorageLocation.getPath(), "backup.sql" + AdminService.MANIFEST_FILENAME_EXTENSION));
+
+        assertAll(
+                () -> assertThat(adminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.sql")).isTrue(),
+                () -> assertThat(memoryLogAppender.contains("No backup manifest")).isTrue()
         );
     }
 
@@ -182,7 +421,7 @@ class AdminServiceTests {
                 new EncryptionConfiguration(tempDir.getAbsolutePath() + "/aes.key")));
         Mockito.doReturn(false).when(encryptionServiceSpy).setWritePermissions();
 
-        final AdminService adminServiceCorrupt = new AdminService(encryptionServiceSpy, "jdbc:h2:mem:test", "sa", "", "/tmp/");
+        final AdminService adminServiceCorrupt = new AdminService(encryptionServiceSpy, eventPublisher, "jdbc:h2:mem:test", "sa", "", "/tmp/");
         final String backupName = "backup.sql";
         assertAll(
                 () -> assertThat(adminServiceCorrupt.createBackupFile(tempStorageLocation.getPath(), backupName)).isTrue(),
@@ -205,11 +444,12 @@ class AdminServiceTests {
         final EncryptionService encryptionService = new EncryptionService(
                 new EncryptionConfiguration(tempDir.getAbsolutePath() + "/aes.key"));
         final String backupFile = Path.of(tempStorageLocation.getPath(), "backup.sql").toString();
-        final AdminService corruptAdminService = new AdminService(encryptionService, "url", "username", "password", "/tmp/");
+        final AdminService corruptAdminService = new AdminService(encryptionService, eventPublisher, "url", "username", "password", "/tmp/");
         adminService.createBackupFile(tempStorageLocation.getPath(), "backup.sql");
         assertThat(new File(backupFile)).exists();
         corruptAdminService.restoreDatabaseFromBackupFile(tempStorageLocation.getPath(), "backup.sql");
         assertThat(memoryLogAppender.contains("SQL error occurred during restore")).isTrue();
+        verifyNoInteractions(eventPublisher);
     }
     // endregion
 
@@ -292,7 +532,8 @@ class AdminServiceTests {
         assertAll(
                 () -> assertThat(adminService.copyBackupFile(validStorageLocation, validBackupFileName, validStorageLocation, "backup-copy.sql")).isTrue(),
                 () -> assertThat(new File(validStorageLocation + File.separator + "backup-copy.sql")).exists(),
-                () -> assertThat(new File(validStorageLocation + File.separator + "backup-copy.sql" + AdminService.AES_KEY_FILENAME_EXTENSION)).exists()
+                () -> assertThat(new File(validStorageLocation + File.separator + "backup-copy.sql" + AdminService.AES_KEY_FILENAME_EXTENSION)).exists(),
+                () -> assertThat(new File(validStorageLocation + File.separator + "backup-copy.sql" + AdminService.MANIFEST_FILENAME_EXTENSION)).exists()
         );
     }
 
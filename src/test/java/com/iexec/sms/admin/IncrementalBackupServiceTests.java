@@ -0,0 +1,197 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iexec.sms.encryption.EncryptionConfiguration;
+import com.iexec.sms.encryption.EncryptionService;
+import com.iexec.sms.secret.web3.Web3Secret;
+import com.iexec.sms.secret.web3.Web3SecretRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+class IncrementalBackupServiceTests {
+    private static final int CHUNK_SIZE = 2;
+
+    @TempDir
+    File tempDir;
+    @TempDir
+    File storageLocation;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Web3SecretRepository web3SecretRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+    private EncryptionService encryptionService;
+    private IncrementalBackupService incrementalBackupService;
+
+    @BeforeEach
+    void beforeEach() {
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        encryptionService = new EncryptionService(
+                new EncryptionConfiguration(tempDir.getAbsolutePath() + "/aes.key"));
+        final AdminService adminService = new AdminService(encryptionService, eventPublisher,
+                "jdbc:h2:mem:test", "sa", "", "/tmp/");
+        incrementalBackupService = new IncrementalBackupService(adminService, encryptionService, eventPublisher,
+                jdbcTemplate, transactionTemplate, CHUNK_SIZE);
+    }
+
+    private void saveSecrets(int from, int to) {
+        for (int i = from; i < to; i++) {
+            web3SecretRepository.saveAndFlush(new Web3Secret("address" + i, "value" + i));
+        }
+    }
+
+    private IncrementalBackupService.Manifest readManifest(String backupName) throws IOException {
+        return new ObjectMapper().readValue(
+                new File(storageLocation, backupName + "/" + IncrementalBackupService.MANIFEST_FILENAME),
+                IncrementalBackupService.Manifest.class);
+    }
+
+    private long countWeb3Secrets() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"web3secret\"", Long.class);
+    }
+
+    @Test
+    void shouldCreateFullBackup() throws IOException {
+        saveSecrets(0, 5);
+
+        assertThat(incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "full", "")).isTrue();
+
+        final IncrementalBackupService.Manifest manifest = readManifest("full");
+        assertThat(manifest.getBase()).isNull();
+        assertThat(manifest.getTables()).containsOnlyKeys(IncrementalBackupService.TABLES);
+        final IncrementalBackupService.TableManifest web3Table = manifest.getTables().get("web3secret");
+        assertThat(web3Table.getChunks()).allMatch(chunk -> "full".equals(chunk.getBackup()));
+        assertThat(web3Table.getChunks().stream().mapToInt(IncrementalBackupService.ChunkManifest::getRows).sum())
+                .isEqualTo(5);
+        assertThat(new File(storageLocation, "full/" + IncrementalBackupService.AES_KEY_FILENAME)).exists();
+    }
+
+    @Test
+    void shouldBackupRetiredAesKeys() throws IOException {
+        final int retiredKeyId = encryptionService.getAesKeyId();
+        encryptionService.rotateAesKey();
+
+        assertThat(incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "full", "")).isTrue();
+
+        assertThat(new File(storageLocation, "full/" + IncrementalBackupService.AES_KEY_FILENAME
+                + EncryptionService.RETIRED_KEY_SUFFIX + String.format("%08x", retiredKeyId))).exists();
+    }
+
+    @Test
+    void shouldOnlyWriteChangedChunks() throws IOException {
+        saveSecrets(0, 6);
+        incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "full", "");
+        saveSecrets(6, 7);
+
+        assertThat(incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "increment", "full")).isTrue();
+
+        final IncrementalBackupService.Manifest manifest = readManifest("increment");
+        assertThat(manifest.getBase()).isEqualTo("full");
+        final IncrementalBackupService.TableManifest web3Table = manifest.getTables().get("web3secret");
+        assertThat(web3Table.getChunks()).filteredOn(chunk -> "increment".equals(chunk.getBackup())).hasSize(1);
+        assertThat(web3Table.getChunks()).filteredOn(chunk -> "full".equals(chunk.getBackup())).isNotEmpty();
+        try (Stream<Path> files = Files.list(storageLocation.toPath().resolve("increment"))) {
+            assertThat(files.filter(file -> file.toString().endsWith(IncrementalBackupService.CHUNK_FILENAME_EXTENSION)))
+                    .hasSize(1);
+        }
+    }
+
+    @Test
+    void shouldRestoreBaseAndIncrements() {
+        saveSecrets(0, 6);
+        incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "full", "");
+        saveSecrets(6, 7);
+        incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "increment", "full");
+        jdbcTemplate.update("DELETE FROM \"web3secret\"");
+
+        assertThat(incrementalBackupService.restoreIncrementalBackup(storageLocation.getPath(), "increment")).isTrue();
+
+        assertThat(countWeb3Secrets()).isEqualTo(7);
+        assertThat(jdbcTemplate.queryForObject("SELECT \"value\" FROM \"web3secret\" WHERE \"address\" = ?",
+                String.class, "address6")).isEqualTo("value6");
+        verify(eventPublisher).publishEvent(any(DatabaseRestoredEvent.class));
+    }
+
+    @Test
+    void shouldNotRestoreCorruptedChunk() throws IOException {
+        saveSecrets(0, 2);
+        incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "full", "");
+        final IncrementalBackupService.ChunkManifest chunk = readManifest("full").getTables().get("web3secret")
+                .getChunks().get(0);
+        final Path chunkFile = storageLocation.toPath().resolve("full")
+                .resolve(IncrementalBackupService.chunkFileName("web3secret", chunk.getIndex()));
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(chunkFile))) {
+            outputStream.write("[\"address\",\"tampered\"]\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(incrementalBackupService.restoreIncrementalBackup(storageLocation.getPath(), "full")).isFalse();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void shouldFailWhenBaseBackupDoesNotExist() {
+        final String location = storageLocation.getPath();
+        assertThatExceptionOfType(FileSystemNotFoundException.class)
+                .isThrownBy(() -> incrementalBackupService.createIncrementalBackup(location, "increment", "missing"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"..", "../full", "full/..", "/tmp"})
+    void shouldNotCreateBackupWhenBaseBackupIsOutsideOfLocation(String baseBackupName) {
+        assertThat(incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "increment", baseBackupName))
+                .isFalse();
+        assertThat(new File(storageLocation, "increment")).doesNotExist();
+    }
+
+    @Test
+    void shouldDeletePartialBackupWhenBackupFails() throws IOException {
+        Files.delete(Path.of(encryptionService.getAesKeyPath()));
+
+        assertThat(incrementalBackupService.createIncrementalBackup(storageLocation.getPath(), "full", "")).isFalse();
+        assertThat(new File(storageLocation, "full")).doesNotExist();
+    }
+}
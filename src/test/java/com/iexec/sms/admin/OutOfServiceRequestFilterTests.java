@@ -17,19 +17,26 @@ package com.iexec.sms.admin;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertAll;
 
 class OutOfServiceRequestFilterTests {
+    private static final long RETRY_AFTER = 30;
 
     private MockHttpServletRequest req;
     private MockHttpServletResponse res;
@@ -49,7 +56,7 @@ class OutOfServiceRequestFilterTests {
     @Test
     void shouldBeOk() throws Exception {
         Mockito.doReturn(true).when(adminService).isSmsOnline();
-        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService);
+        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService, RETRY_AFTER);
 
         filter.doFilter(req, res, chain);
         assertThat(res.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
@@ -58,12 +65,73 @@ class OutOfServiceRequestFilterTests {
     @Test
     void shouldBeOutOfService() throws Exception {
         Mockito.doReturn(false).when(adminService).isSmsOnline();
-        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService);
+        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService, RETRY_AFTER);
         filter.doFilter(req, res, chain);
 
         assertAll(
                 () -> assertThat(res.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE),
-                () -> assertThat(res.getContentAsString()).isEqualTo(OutOfServiceRequestFilter.MAINTENANCE_ERROR)
+                () -> assertThat(res.getContentAsString()).isEqualTo(OutOfServiceRequestFilter.MAINTENANCE_ERROR),
+                () -> assertThat(res.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30")
         );
     }
+
+    @ParameterizedTest
+    @CsvSource({"GET,/tee/framework", "HEAD,/secrets/web3", "HEAD,/apps/0x1/secrets/1", "POST,/secrets/batch/presence"})
+    void shouldServeReadsWhenRestoring(String method, String path) throws Exception {
+        Mockito.doReturn(false).when(adminService).isSmsOnline();
+        req.setMethod(method);
+        req.setRequestURI(path);
+        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService, RETRY_AFTER);
+        filter.doFilter(req, res, chain);
+
+        assertAll(
+                () -> assertThat(res.getStatus()).isEqualTo(HttpServletResponse.SC_OK),
+                () -> assertThat(chain.getRequest()).isEqualTo(req)
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({"POST,/tee/sessions", "POST,/tee/challenges/0x1", "POST,/secrets/web2", "PUT,/secrets/web2", "POST,/secrets/batch"})
+    void shouldRejectWritesWhenRestoring(String method, String path) throws Exception {
+        Mockito.doReturn(false).when(adminService).isSmsOnline();
+        req.setMethod(method);
+        req.setRequestURI(path);
+        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService, RETRY_AFTER);
+        filter.doFilter(req, res, chain);
+
+        assertAll(
+                () -> assertThat(res.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE),
+                () -> assertThat(res.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30"),
+                () -> assertThat(chain.getRequest()).isNull()
+        );
+    }
+
+    @Test
+    void shouldRejectReadWhenDatabaseIsNeeded() throws Exception {
+        Mockito.doReturn(false).when(adminService).isSmsOnline();
+        req.setMethod("HEAD");
+        req.setRequestURI("/secrets/web3");
+        final FilterChain failingChain = Mockito.mock(FilterChain.class);
+        Mockito.doThrow(new ServletException("Request processing failed", new DatabaseUnavailableException("restoring")))
+                .when(failingChain).doFilter(req, res);
+        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService, RETRY_AFTER);
+        filter.doFilter(req, res, failingChain);
+
+        assertAll(
+                () -> assertThat(res.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE),
+                () -> assertThat(res.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30")
+        );
+    }
+
+    @Test
+    void shouldPropagateOtherErrorsWhenRestoring() throws Exception {
+        Mockito.doReturn(false).when(adminService).isSmsOnline();
+        req.setMethod("GET");
+        req.setRequestURI("/tee/framework");
+        final FilterChain failingChain = Mockito.mock(FilterChain.class);
+        Mockito.doThrow(new IllegalStateException()).when(failingChain).doFilter(req, res);
+        OutOfServiceRequestFilter filter = new OutOfServiceRequestFilter(adminService, RETRY_AFTER);
+
+        assertThatThrownBy(() -> filter.doFilter(req, res, failingChain)).isInstanceOf(IllegalStateException.class);
+    }
 }
@@ -27,29 +27,34 @@ import com.iexec.sms.blockchain.IexecHubService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.iexec.commons.poco.chain.ChainTaskStatus.ACTIVE;
 import static com.iexec.commons.poco.chain.ChainTaskStatus.UNSET;
 import static com.iexec.sms.authorization.AuthorizationError.*;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 class AuthorizationServiceTests {
 
     @Mock
     IexecHubService iexecHubService;
 
-    @InjectMocks
     private AuthorizationService authorizationService;
 
     @BeforeEach
     void beforeEach() {
         MockitoAnnotations.openMocks(this);
+        authorizationService = new AuthorizationService(iexecHubService, 10, 5);
     }
 
     // region isAuthorizedOnExecutionWithDetailedIssue
@@ -149,6 +154,78 @@ class AuthorizationServiceTests {
     }
     // endregion
 
+    // region on-chain lookups
+    @Test
+    void shouldReadDealAndActiveTaskFromCache() {
+        ChainDeal chainDeal = getChainDeal();
+        ChainTask chainTask = TestUtils.getChainTask(ACTIVE);
+        WorkerpoolAuthorization auth = TestUtils.getTeeWorkerpoolAuth();
+        when(iexecHubService.getChainTask(auth.getChainTaskId())).thenReturn(Optional.of(chainTask));
+        when(iexecHubService.getChainDeal(chainTask.getDealid())).thenReturn(Optional.of(chainDeal));
+
+        assertThat(authorizationService.isAuthorizedOnExecutionWithDetailedIssue(auth)).isEmpty();
+        assertThat(authorizationService.isAuthorizedOnExecutionWithDetailedIssue(auth)).isEmpty();
+        verify(iexecHubService, times(1)).getChainTask(auth.getChainTaskId());
+        verify(iexecHubService, times(1)).getChainDeal(chainTask.getDealid());
+    }
+
+    @Test
+    void shouldNotCacheInactiveTask() {
+        ChainTask chainTask = TestUtils.getChainTask(UNSET);
+        when(iexecHubService.getChainTask("0xtask")).thenReturn(Optional.of(chainTask));
+
+        authorizationService.getChainTask("0xtask");
+        authorizationService.getChainTask("0xtask");
+        verify(iexecHubService, times(2)).getChainTask("0xtask");
+    }
+
+    @Test
+    void shouldNotCacheTaskWhenTtlIsZero() {
+        final AuthorizationService noTaskCacheService = new AuthorizationService(iexecHubService, 10, 0);
+        ChainTask chainTask = TestUtils.getChainTask(ACTIVE);
+        when(iexecHubService.getChainTask("0xtask")).thenReturn(Optional.of(chainTask));
+
+        noTaskCacheService.getChainTask("0xtask");
+        noTaskCacheService.getChainTask("0xtask");
+        verify(iexecHubService, times(2)).getChainTask("0xtask");
+    }
+
+    @Test
+    void shouldNotCacheMissingDeal() {
+        when(iexecHubService.getChainDeal("0xdeal")).thenReturn(Optional.empty());
+
+        assertThat(authorizationService.getChainDeal("0xdeal")).isEmpty();
+        assertThat(authorizationService.getChainDeal("0xdeal")).isEmpty();
+        verify(iexecHubService, times(2)).getChainDeal("0xdeal");
+    }
+
+    @Test
+    void shouldShareConcurrentDealLookups() throws Exception {
+        final ChainDeal chainDeal = getChainDeal();
+        final CountDownLatch lookupStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLookup = new CountDownLatch(1);
+        when(iexecHubService.getChainDeal("0xdeal")).thenAnswer(invocation -> {
+            lookupStarted.countDown();
+            releaseLookup.await(5, TimeUnit.SECONDS);
+            return Optional.of(chainDeal);
+        });
+
+        final CompletableFuture<Optional<ChainDeal>> firstLookup =
+                CompletableFuture.supplyAsync(() -> authorizationService.getChainDeal("0xdeal"));
+        assertThat(lookupStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        final List<CompletableFuture<Optional<ChainDeal>>> otherLookups = IntStream.range(0, 5)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> authorizationService.getChainDeal("0xdeal")))
+                .collect(Collectors.toList());
+        releaseLookup.countDown();
+
+        assertThat(firstLookup.get(5, TimeUnit.SECONDS)).contains(chainDeal);
+        for (CompletableFuture<Optional<ChainDeal>> lookup : otherLookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).contains(chainDeal);
+        }
+        verify(iexecHubService, times(1)).getChainDeal("0xdeal");
+    }
+    // endregion
+
     // region challenges
     @Test
     void getChallengeForSetRequesterAppComputeSecret() {
@@ -34,7 +34,9 @@ class OufOfServiceFilterConfigTests {
     @TempDir
     public File tempDir;
 
-    private final ApplicationContextRunner runner = new ApplicationContextRunner();
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withPropertyValues("admin.out-of-service.retry-after=30", "admin.backup-format=SQL",
+                    "admin.backup-compression=true", "admin.restore-parallelism=1");
 
     @Test
     void shouldCreateOufOfServiceFilter() {
@@ -16,15 +16,17 @@
 
 package com.iexec.sms.config;
 
+import com.iexec.sms.admin.AdminService;
 import com.iexec.sms.metric.MetricsService;
 import com.iexec.sms.secret.CacheSecretService;
 import com.iexec.sms.secret.MeasuredSecretService;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecret;
 import com.iexec.sms.secret.compute.TeeTaskComputeSecretHeader;
-import com.iexec.sms.secret.compute.TeeTaskComputeSecretRepository;
+import com.iexec.sms.secret.store.SecretStore;
+import com.iexec.sms.secret.web2.Web2Secret;
 import com.iexec.sms.secret.web2.Web2SecretHeader;
-import com.iexec.sms.secret.web2.Web2SecretRepository;
+import com.iexec.sms.secret.web3.Web3Secret;
 import com.iexec.sms.secret.web3.Web3SecretHeader;
-import com.iexec.sms.secret.web3.Web3SecretRepository;
 import com.iexec.sms.tee.challenge.EthereumCredentialsRepository;
 import com.iexec.sms.tee.challenge.TeeChallengeRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -49,6 +51,8 @@ class SecretsConfigTests {
     private static final int STORED_SECRETS_COUNT_PERIOD = 30;
     private final ScheduledExecutorService storageMetricsExecutorService = Executors.newSingleThreadScheduledExecutor();
 
+    @Mock
+    private AdminService adminService;
     @Mock
     private MetricsService metricsService;
 
@@ -92,9 +96,9 @@ class SecretsConfigTests {
     // region MeasuredSecretService bean definitions
     @Test
     void web2MeasuredSecretService() {
-        final Web2SecretRepository repository = mock(Web2SecretRepository.class);
+        final SecretStore<Web2SecretHeader, Web2Secret> secretStore = mock(SecretStore.class);
         final CacheSecretService<Web2SecretHeader> cacheSecretService = new CacheSecretService<>();
-        final MeasuredSecretService measuredSecretService = secretsConfig.web2MeasuredSecretService(cacheSecretService, repository, STORED_SECRETS_COUNT_PERIOD);
+        final MeasuredSecretService measuredSecretService = secretsConfig.web2MeasuredSecretService(cacheSecretService, secretStore, STORED_SECRETS_COUNT_PERIOD);
 
         final String secretsType = (String) ReflectionTestUtils.getField(measuredSecretService, "secretsType");
         final String metricsPrefix = (String) ReflectionTestUtils.getField(measuredSecretService, "metricsPrefix");
@@ -108,9 +112,9 @@ class SecretsConfigTests {
 
     @Test
     void web3MeasuredSecretService() {
-        final Web3SecretRepository repository = mock(Web3SecretRepository.class);
+        final SecretStore<Web3SecretHeader, Web3Secret> secretStore = mock(SecretStore.class);
         final CacheSecretService<Web3SecretHeader> cacheSecretService = new CacheSecretService<>();
-        final MeasuredSecretService measuredSecretService = secretsConfig.web3MeasuredSecretService(cacheSecretService, repository, STORED_SECRETS_COUNT_PERIOD);
+        final MeasuredSecretService measuredSecretService = secretsConfig.web3MeasuredSecretService(cacheSecretService, secretStore, STORED_SECRETS_COUNT_PERIOD);
 
         final String secretsType = (String) ReflectionTestUtils.getField(measuredSecretService, "secretsType");
         final String metricsPrefix = (String) ReflectionTestUtils.getField(measuredSecretService, "metricsPrefix");
@@ -124,9 +128,9 @@ class SecretsConfigTests {
 
     @Test
     void computeMeasuredSecretService() {
-        final TeeTaskComputeSecretRepository repository = mock(TeeTaskComputeSecretRepository.class);
+        final SecretStore<TeeTaskComputeSecretHeader, TeeTaskComputeSecret> secretStore = mock(SecretStore.class);
         final CacheSecretService<TeeTaskComputeSecretHeader> cacheSecretService = new CacheSecretService<>();
-        final MeasuredSecretService measuredSecretService = secretsConfig.computeMeasuredSecretService(cacheSecretService, repository, STORED_SECRETS_COUNT_PERIOD);
+        final MeasuredSecretService measuredSecretService = secretsConfig.computeMeasuredSecretService(cacheSecretService, secretStore, STORED_SECRETS_COUNT_PERIOD);
 
         final String secretsType = (String) ReflectionTestUtils.getField(measuredSecretService, "secretsType");
         final String metricsPrefix = (String) ReflectionTestUtils.getField(measuredSecretService, "metricsPrefix");
@@ -178,9 +182,18 @@ class SecretsConfigTests {
     @Test
     void cachesServicesWereNotNull() {
         assertAll(
-                () -> assertNotNull(secretsConfig.web2CacheSecretService()),
-                () -> assertNotNull(secretsConfig.web3CacheSecretService()),
-                () -> assertNotNull(secretsConfig.teeTaskComputeCacheSecretService())
+                () -> assertNotNull(secretsConfig.web2CacheSecretService(adminService, 10, 60, 30)),
+                () -> assertNotNull(secretsConfig.web3CacheSecretService(adminService, 10, 60, 30)),
+                () -> assertNotNull(secretsConfig.teeTaskComputeCacheSecretService(adminService, 10, 60, 30))
+        );
+    }
+
+    @Test
+    void valueCachesServicesWereNotNull() {
+        assertAll(
+                () -> assertNotNull(secretsConfig.web2CacheSecretValueService(true, 10, 60)),
+                () -> assertNotNull(secretsConfig.web3CacheSecretValueService(true, 10, 60)),
+                () -> assertNotNull(secretsConfig.teeTaskComputeCacheSecretValueService(false, 10, 60))
         );
     }
     // endregion
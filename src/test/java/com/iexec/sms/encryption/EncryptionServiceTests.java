@@ -19,6 +19,8 @@ package com.iexec.sms.encryption;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import com.iexec.common.security.CipherHelper;
+import com.iexec.common.utils.FileHelper;
 import com.iexec.sms.MemoryLogAppender;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -33,6 +35,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -148,9 +159,62 @@ class EncryptionServiceTests {
 
     @Test
     void shouldReturnEmptyIfErrorOccurredAesEncrypt() {
-        ReflectionTestUtils.setField(service, "aesKey", "badKey".getBytes());
+        ReflectionTestUtils.setField(service, "aesKey", AesKey.of("badKey".getBytes()));
         assertThat(service.encrypt("test")).isEmpty();
     }
+
+    @Test
+    void shouldEncryptAndDecryptUtf8() {
+        final String data = "données secrètes ✓";
+        assertThat(service.decrypt(service.encrypt(data))).isEqualTo(data);
+    }
+
+    @Test
+    void shouldEncryptAndDecryptBytes() {
+        final byte[] data = {0, 1, 2, (byte) 0xff};
+        final byte[] encryptedData = service.encrypt(data);
+        assertThat(encryptedData).isNotEqualTo(service.encrypt(data));
+        assertThat(service.decrypt(encryptedData)).isEqualTo(data);
+    }
+
+    @Test
+    void shouldWriteVersionedEnvelope() {
+        final String encryptedData = service.encrypt("data mock");
+        final byte[] envelope = Base64.getDecoder().decode(encryptedData.substring(1));
+        assertThat(encryptedData).startsWith("$");
+        assertThat(envelope[0]).isEqualTo(EncryptionService.ENVELOPE_VERSION);
+        assertThat(service.isUpToDate(encryptedData)).isTrue();
+    }
+
+    @Test
+    void shouldReadLegacyCipherHelperFormat() {
+        final byte[] aesKey = FileHelper.readFileBytes(aesKeyPath);
+        final String data = "data mock";
+        final String legacyEncryptedData = new String(CipherHelper.aesEncrypt(data.getBytes(StandardCharsets.UTF_8), aesKey));
+        assertThat(service.decrypt(legacyEncryptedData)).isEqualTo(data);
+        assertThat(service.isUpToDate(legacyEncryptedData)).isFalse();
+    }
+
+    @Test
+    void shouldNotDecryptTamperedEnvelope() {
+        final byte[] encryptedData = service.encrypt("data mock").getBytes(StandardCharsets.US_ASCII);
+        final byte[] envelope = Base64.getDecoder().decode(Arrays.copyOfRange(encryptedData, 1, encryptedData.length));
+        envelope[envelope.length - 1] ^= 1;
+        final String tamperedData = "$" + Base64.getEncoder().encodeToString(envelope);
+        assertThat(service.decrypt(tamperedData)).isEmpty();
+    }
+
+    @Test
+    void shouldEncryptAndDecryptConcurrently() {
+        final List<String> values = IntStream.range(0, 200)
+                .mapToObj(i -> "value-" + i)
+                .collect(Collectors.toList());
+        final List<String> decryptedValues = values.parallelStream()
+                .map(service::encrypt)
+                .map(service::decrypt)
+                .collect(Collectors.toList());
+        assertThat(decryptedValues).isEqualTo(values);
+    }
     // endregion
 
     // region Decrypt
@@ -160,6 +224,65 @@ class EncryptionServiceTests {
     void shouldReturnEmptyIfFailedToDecryptOrBadInputData(String input) {
         assertThat(service.decrypt(input)).isEmpty();
     }
+
+    @Test
+    void shouldReturnEmptyIfDecryptedWithAnotherKey() {
+        final String encryptedData = service.encrypt("test");
+        ReflectionTestUtils.setField(service, "aesKey", AesKey.of(CipherHelper.generateAesKey()));
+        assertThat(service.isUpToDate(encryptedData)).isFalse();
+        assertThat(service.decrypt(encryptedData)).isEmpty();
+    }
+    // endregion
+
+    // region rotateAesKey
+    @Test
+    void shouldDecryptValuesOfRetiredKeyAfterRotation() throws IOException {
+        final String encryptedData = service.encrypt("data mock");
+        final int previousKeyId = service.getAesKeyId();
+
+        final int keyId = service.rotateAesKey();
+
+        assertThat(keyId).isNotEqualTo(previousKeyId).isEqualTo(service.getAesKeyId());
+        assertThat(service.isUpToDate(encryptedData)).isFalse();
+        assertThat(service.decrypt(encryptedData)).isEqualTo("data mock");
+        assertThat(service.isUpToDate(service.encrypt("data mock"))).isTrue();
+        assertThat(new File(aesKeyPath + EncryptionService.RETIRED_KEY_SUFFIX + String.format("%08x", previousKeyId)))
+                .exists()
+                .isFile();
+    }
+
+    @Test
+    void shouldLoadRetiredKeysOnStartup() throws IOException {
+        final String encryptedData = service.encrypt("data mock");
+        service.rotateAesKey();
+
+        final EncryptionService restartedService = new EncryptionService(new EncryptionConfiguration(aesKeyPath));
+
+        assertThat(restartedService.getAesKeyId()).isEqualTo(service.getAesKeyId());
+        assertThat(restartedService.decrypt(encryptedData)).isEqualTo("data mock");
+    }
+
+    @Test
+    void shouldNotLeaveTemporaryKeyFilesAfterRotation() throws IOException {
+        service.rotateAesKey();
+        service.rotateAesKey();
+
+        assertThat(tempDir.list()).hasSize(3)
+                .allMatch(name -> name.startsWith("aes.key"));
+        assertThat(EncryptionService.findRetiredAesKeyFiles(Path.of(aesKeyPath))).hasSize(2);
+    }
+
+    @Test
+    void shouldForgetRetiredKeysRemovedFromDiskOnReload() throws IOException {
+        final String encryptedData = service.encrypt("data mock");
+        final int previousKeyId = service.getAesKeyId();
+        service.rotateAesKey();
+        Files.delete(Path.of(aesKeyPath + EncryptionService.RETIRED_KEY_SUFFIX + String.format("%08x", previousKeyId)));
+
+        service.reloadAESKey();
+
+        assertThat(service.decrypt(encryptedData)).isEmpty();
+    }
     // endregion
 
     // region setWritePermissions
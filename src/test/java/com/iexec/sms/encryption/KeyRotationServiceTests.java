@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.encryption;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class KeyRotationServiceTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private EncryptionService encryptionService;
+    @Mock
+    private ReEncryptionService reEncryptionService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ExecutorService executorService;
+
+    private KeyRotationService keyRotationService;
+
+    @BeforeEach
+    void beforeEach() {
+        MockitoAnnotations.openMocks(this);
+        Metrics.globalRegistry.add(meterRegistry);
+        when(reEncryptionService.getProgress()).thenReturn(ReEncryptionService.Progress.builder().build());
+        keyRotationService = new KeyRotationService(encryptionService, reEncryptionService, eventPublisher, executorService);
+    }
+
+    @AfterEach
+    void afterEach() {
+        meterRegistry.clear();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
+    @Test
+    void shouldStartRotationInBackground() {
+        assertThat(keyRotationService.startRotation()).isTrue();
+
+        verify(executorService).execute(any());
+        final KeyRotationService.RotationStatus status = keyRotationService.getStatus();
+        assertThat(status.getState()).isEqualTo(KeyRotationService.State.MIGRATING);
+        assertThat(status.getStartedAt()).isNotNull();
+        assertThat(status.getFinishedAt()).isNull();
+        assertThat(keyRotationService.isRunning()).isTrue();
+    }
+
+    @Test
+    void shouldNotStartRotationWhenAlreadyRunning() {
+        keyRotationService.startRotation();
+
+        assertThat(keyRotationService.startRotation()).isFalse();
+        verify(executorService, times(1)).execute(any());
+    }
+
+    @Test
+    void shouldMigrateLegacyValuesBeforeRotatingKey() throws IOException, InterruptedException {
+        when(reEncryptionService.reEncryptAll()).thenReturn(3L);
+        when(encryptionService.getAesKeyId()).thenReturn(1);
+        when(encryptionService.rotateAesKey()).thenReturn(2);
+        keyRotationService.startRotation();
+
+        keyRotationService.rotate();
+
+        final InOrder inOrder = inOrder(reEncryptionService, encryptionService, eventPublisher);
+        inOrder.verify(reEncryptionService).reEncryptAll();
+        inOrder.verify(encryptionService).rotateAesKey();
+        inOrder.verify(eventPublisher).publishEvent(new AesKeyRotatedEvent(1, 2));
+        inOrder.verify(reEncryptionService).reEncryptAll();
+        final KeyRotationService.RotationStatus status = keyRotationService.getStatus();
+        assertThat(status.getState()).isEqualTo(KeyRotationService.State.COMPLETED);
+        assertThat(status.getFinishedAt()).isNotNull();
+        assertThat(keyRotationService.isRunning()).isFalse();
+        assertThat(meterRegistry.find(KeyRotationService.ROTATION_COUNTER_NAME).tag("result", "completed")
+                .counter().count()).isOne();
+    }
+
+    @Test
+    void shouldFailWhenKeyCannotBeWritten() throws IOException, InterruptedException {
+        when(encryptionService.rotateAesKey()).thenThrow(IOException.class);
+        keyRotationService.startRotation();
+
+        keyRotationService.rotate();
+
+        verify(reEncryptionService, times(1)).reEncryptAll();
+        verifyNoInteractions(eventPublisher);
+        assertThat(keyRotationService.getStatus().getState()).isEqualTo(KeyRotationService.State.FAILED);
+        assertThat(keyRotationService.startRotation()).isTrue();
+    }
+}
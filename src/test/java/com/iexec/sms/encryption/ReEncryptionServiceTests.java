@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.encryption;
+
+import com.iexec.common.security.CipherHelper;
+import com.iexec.common.utils.FileHelper;
+import com.iexec.sms.secret.web2.Web2Secret;
+import com.iexec.sms.secret.web2.Web2SecretRepository;
+import com.iexec.sms.secret.web3.Web3Secret;
+import com.iexec.sms.secret.web3.Web3SecretRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+class ReEncryptionServiceTests {
+    @TempDir
+    File tempDir;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private Web2SecretRepository web2SecretRepository;
+    @Autowired
+    private Web3SecretRepository web3SecretRepository;
+
+    private EncryptionService encryptionService;
+    private byte[] aesKey;
+    private ReEncryptionService reEncryptionService;
+
+    @BeforeEach
+    void beforeEach() {
+        final String aesKeyPath = tempDir.getAbsolutePath() + "/aes.key";
+        encryptionService = new EncryptionService(new EncryptionConfiguration(aesKeyPath));
+        aesKey = FileHelper.readFileBytes(aesKeyPath);
+        reEncryptionService = new ReEncryptionService(jdbcTemplate, encryptionService, true, 2, 60, 0,
+                mock(ScheduledExecutorService.class));
+    }
+
+    private String legacyEncrypt(String value) {
+        return new String(CipherHelper.aesEncrypt(value.getBytes(StandardCharsets.UTF_8), aesKey));
+    }
+
+    private String readWeb3Value(String address) {
+        return jdbcTemplate.queryForObject("SELECT \"value\" FROM \"web3secret\" WHERE \"address\" = ?",
+                String.class, address);
+    }
+
+    @Test
+    void shouldReEncryptLegacyValuesByBatches() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            web3SecretRepository.saveAndFlush(new Web3Secret("address" + i, legacyEncrypt("value" + i)));
+        }
+
+        assertThat(reEncryptionService.reEncryptAll()).isEqualTo(5);
+        final ReEncryptionService.Progress progress = reEncryptionService.getProgress();
+        assertThat(progress.getTotal()).isEqualTo(5);
+        assertThat(progress.getScanned()).isEqualTo(5);
+        assertThat(progress.getReEncrypted()).isEqualTo(5);
+
+        for (int i = 0; i < 5; i++) {
+            final String storedValue = readWeb3Value("address" + i);
+            assertThat(storedValue).startsWith("$");
+            assertThat(encryptionService.isUpToDate(storedValue)).isTrue();
+            assertThat(encryptionService.decrypt(storedValue)).isEqualTo("value" + i);
+        }
+        assertThat(reEncryptionService.reEncryptAll()).isZero();
+    }
+
+    @Test
+    void shouldNotReEncryptUpToDateValues() throws InterruptedException {
+        final String encryptedValue = encryptionService.encrypt("value");
+        web2SecretRepository.saveAndFlush(new Web2Secret("owner", "address", encryptedValue));
+
+        assertThat(reEncryptionService.reEncryptAll()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT \"value\" FROM \"web2secret\"", String.class))
+                .isEqualTo(encryptedValue);
+    }
+
+    @Test
+    void shouldSkipValuesWhichCannotBeDecrypted() throws InterruptedException {
+        web3SecretRepository.saveAndFlush(new Web3Secret("address", "corrupted"));
+
+        assertThat(reEncryptionService.reEncryptAll()).isZero();
+        assertThat(readWeb3Value("address")).isEqualTo("corrupted");
+    }
+
+    @Test
+    void shouldScheduleWhenEnabled() {
+        final ScheduledExecutorService executorService = mock(ScheduledExecutorService.class);
+        new ReEncryptionService(jdbcTemplate, encryptionService, true, 100, 60, 0, executorService).init();
+        verify(executorService).scheduleWithFixedDelay(any(), eq(60L), eq(60L), any());
+    }
+
+    @Test
+    void shouldNotScheduleWhenDisabled() {
+        final ScheduledExecutorService executorService = mock(ScheduledExecutorService.class);
+        new ReEncryptionService(jdbcTemplate, encryptionService, false, 100, 60, 0, executorService).init();
+        verifyNoInteractions(executorService);
+    }
+}
@@ -19,10 +19,23 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import com.iexec.sms.MemoryLogAppender;
+import com.iexec.sms.admin.DatabaseUnavailableException;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
 
 class CacheSecretServiceTests {
@@ -32,6 +45,7 @@ class CacheSecretServiceTests {
     private final static String KEY = "KEY";
 
     private static MemoryLogAppender memoryLogAppender;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeAll
     static void initLog() {
@@ -43,6 +57,12 @@ class CacheSecretServiceTests {
         memoryLogAppender.start();
     }
 
+    @AfterEach
+    void afterEach() {
+        meterRegistry.clear();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
     @Test
     void shouldSucceedWithTrueValue() {
         cacheSecretService.putSecretExistenceInCache(KEY, true);
@@ -89,4 +109,96 @@ class CacheSecretServiceTests {
                 () -> assertTrue(memoryLogAppender.contains("Secret existence was not found in cache"))
         );
     }
+
+    @Test
+    void shouldNotFallBackToDatabaseWhenUnavailable() {
+        final CacheSecretService<String> restoringCacheSecretService = new CacheSecretService<>(() -> false);
+        restoringCacheSecretService.putSecretExistenceInCache(KEY, true);
+        assertAll(
+                () -> assertTrue(restoringCacheSecretService.lookSecretExistenceInCache(KEY)),
+                () -> assertThrows(DatabaseUnavailableException.class,
+                        () -> restoringCacheSecretService.lookSecretExistenceInCache("MISSING"))
+        );
+    }
+
+    @Test
+    void shouldLoadSecretExistenceOnlyOnMiss() {
+        final AtomicInteger loads = new AtomicInteger();
+        assertAll(
+                () -> assertTrue(cacheSecretService.lookSecretExistence(KEY, key -> loads.incrementAndGet() > 0)),
+                () -> assertTrue(cacheSecretService.lookSecretExistence(KEY, key -> loads.incrementAndGet() > 0)),
+                () -> assertEquals(1, loads.get()),
+                () -> assertTrue(memoryLogAppender.contains("Secret existence was found in cache[key:KEY, exist:true]"))
+        );
+    }
+
+    @Test
+    void shouldNotLoadSecretExistenceWhenDatabaseUnavailable() {
+        final CacheSecretService<String> restoringCacheSecretService = new CacheSecretService<>(() -> false);
+        assertThrows(DatabaseUnavailableException.class,
+                () -> restoringCacheSecretService.lookSecretExistence("MISSING", key -> true));
+    }
+
+    @Test
+    void shouldExpireMissingAndExistingSecretsSeparately() {
+        final AtomicLong nanos = new AtomicLong();
+        final CacheSecretService<String> ttlCacheSecretService =
+                new CacheSecretService<>(null, 10, 60, 5, () -> true, nanos::get);
+        ttlCacheSecretService.putSecretExistenceInCache("PRESENT", true);
+        ttlCacheSecretService.putSecretExistenceInCache("MISSING", false);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertAll(
+                () -> assertTrue(ttlCacheSecretService.lookSecretExistenceInCache("PRESENT")),
+                () -> assertNull(ttlCacheSecretService.lookSecretExistenceInCache("MISSING"))
+        );
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertNull(ttlCacheSecretService.lookSecretExistenceInCache("PRESENT"));
+    }
+
+    @Test
+    void shouldKeepReadEntriesWhileDatabaseUnavailable() {
+        final AtomicLong nanos = new AtomicLong();
+        final AtomicInteger online = new AtomicInteger(1);
+        final CacheSecretService<String> restoringCacheSecretService =
+                new CacheSecretService<>(null, 10, 60, 60, () -> online.get() == 1, nanos::get);
+        restoringCacheSecretService.putSecretExistenceInCache(KEY, true);
+        online.set(0);
+
+        for (int i = 0; i < 3; i++) {
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(50));
+            assertTrue(restoringCacheSecretService.lookSecretExistenceInCache(KEY));
+        }
+    }
+
+    @Test
+    void shouldBoundCacheSize() {
+        final CacheSecretService<String> boundedCacheSecretService =
+                new CacheSecretService<>(null, 10, 60, 60, () -> true);
+        for (int i = 0; i < 1000; i++) {
+            boundedCacheSecretService.putSecretExistenceInCache(UUID.randomUUID().toString(), false);
+        }
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> boundedCacheSecretService.count() <= 10);
+    }
+
+    @Test
+    void shouldPublishCacheMetrics() {
+        Metrics.globalRegistry.add(meterRegistry);
+        final CacheSecretService<String> measuredCacheSecretService =
+                new CacheSecretService<>("test.", 10, 60, 60, () -> true);
+
+        measuredCacheSecretService.lookSecretExistence(KEY, key -> true);
+        measuredCacheSecretService.lookSecretExistence(KEY, key -> true);
+        measuredCacheSecretService.lookSecretExistenceInCache("MISSING");
+
+        final FunctionTimer loads = meterRegistry.find("test.cache.loads").functionTimer();
+        assertAll(
+                () -> assertThat(meterRegistry.find("test.cache.hits").functionCounter().count()).isEqualTo(1),
+                () -> assertThat(meterRegistry.find("test.cache.misses").functionCounter().count()).isEqualTo(2),
+                () -> assertThat(meterRegistry.find("test.cache.evictions").functionCounter().count()).isZero(),
+                () -> assertThat(loads.count()).isEqualTo(1)
+        );
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret;
+
+import com.iexec.sms.admin.DatabaseRestoredEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheSecretValueServiceTests {
+    private static final String KEY = "KEY";
+    private static final String VALUE = "VALUE";
+
+    @Test
+    void shouldFindValueWhenEnabled() {
+        final CacheSecretValueService<String, String> cache = new CacheSecretValueService<>(true, 10, 60);
+        cache.putSecretValueInCache(KEY, VALUE);
+        assertThat(cache.isEnabled()).isTrue();
+        assertThat(cache.lookSecretValueInCache(KEY)).isEqualTo(VALUE);
+        assertThat(cache.count()).isOne();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"false,10,60", "true,0,60", "true,10,0"})
+    void shouldNotCacheWhenDisabled(boolean enabled, int maxSize, long ttl) {
+        final CacheSecretValueService<String, String> cache = new CacheSecretValueService<>(enabled, maxSize, ttl);
+        cache.putSecretValueInCache(KEY, VALUE);
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.lookSecretValueInCache(KEY)).isNull();
+        assertThat(cache.count()).isZero();
+    }
+
+    @Test
+    void shouldIgnoreNullKeyOrValue() {
+        final CacheSecretValueService<String, String> cache = new CacheSecretValueService<>(true, 10, 60);
+        cache.putSecretValueInCache(null, VALUE);
+        cache.putSecretValueInCache(KEY, null);
+        assertThat(cache.count()).isZero();
+        assertThat(cache.lookSecretValueInCache(null)).isNull();
+    }
+
+    @Test
+    void shouldBeBoundedInSize() {
+        final CacheSecretValueService<String, String> cache = new CacheSecretValueService<>(true, 2, 60);
+        cache.putSecretValueInCache("1", VALUE);
+        cache.putSecretValueInCache("2", VALUE);
+        cache.putSecretValueInCache("3", VALUE);
+        assertThat(cache.count()).isEqualTo(2);
+        assertThat(cache.lookSecretValueInCache("1")).isNull();
+    }
+
+    @Test
+    void shouldEvictValue() {
+        final CacheSecretValueService<String, String> cache = new CacheSecretValueService<>(true, 10, 60);
+        cache.putSecretValueInCache(KEY, VALUE);
+        cache.evictSecretValueFromCache(KEY);
+        assertThat(cache.lookSecretValueInCache(KEY)).isNull();
+    }
+
+    @Test
+    void shouldClearOnDatabaseRestored() {
+        final CacheSecretValueService<String, String> cache = new CacheSecretValueService<>(true, 10, 60);
+        cache.putSecretValueInCache(KEY, VALUE);
+        cache.onDatabaseRestored(new DatabaseRestoredEvent("/backup/backup.sql"));
+        assertThat(cache.count()).isZero();
+    }
+}
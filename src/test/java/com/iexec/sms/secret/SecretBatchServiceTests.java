@@ -0,0 +1,234 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.secret;
+
+import com.iexec.sms.api.SecretBatchItem;
+import com.iexec.sms.api.SecretBatchItemResult;
+import com.iexec.sms.api.SecretHeader;
+import com.iexec.sms.api.SecretPresence;
+import com.iexec.sms.api.SecretType;
+import com.iexec.sms.authorization.AuthorizationService;
+import com.iexec.sms.secret.compute.OnChainObjectType;
+import com.iexec.sms.secret.compute.SecretOwnerRole;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretHeader;
+import com.iexec.sms.secret.compute.TeeTaskComputeSecretService;
+import com.iexec.sms.secret.web2.Web2Secret;
+import com.iexec.sms.secret.web2.Web2SecretHeader;
+import com.iexec.sms.secret.web2.Web2SecretService;
+import com.iexec.sms.secret.web3.Web3SecretService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.iexec.sms.api.SecretBatchItemStatus.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SecretBatchServiceTests {
+    private static final String AUTHORIZATION = "authorization";
+    private static final String CHALLENGE = "challenge";
+    private static final String OWNER_ADDRESS = "0xOwner";
+    private static final String SECRET_NAME = "secretName";
+    private static final String SECRET_VALUE = "secretValue";
+
+    @Mock
+    private AuthorizationService authorizationService;
+    @Mock
+    private Web2SecretService web2SecretService;
+    @Mock
+    private Web3SecretService web3SecretService;
+    @Mock
+    private TeeTaskComputeSecretService teeTaskComputeSecretService;
+
+    private ExecutorService executorService;
+    private SecretBatchService secretBatchService;
+
+    @BeforeEach
+    void beforeEach() {
+        MockitoAnnotations.openMocks(this);
+        executorService = Executors.newFixedThreadPool(2);
+        secretBatchService = new SecretBatchService(authorizationService, web2SecretService, web3SecretService,
+                teeTaskComputeSecretService, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                executorService);
+        when(authorizationService.getChallengeForSetWeb2Secret(any(), any(), any())).thenReturn(CHALLENGE);
+        when(authorizationService.getChallengeForSetWeb3Secret(any(), any())).thenReturn(CHALLENGE);
+        when(authorizationService.getChallengeForSetRequesterAppComputeSecret(any(), any(), any())).thenReturn(CHALLENGE);
+        when(authorizationService.getChallengeForSetAppDeveloperAppComputeSecret(any(), any(), any())).thenReturn(CHALLENGE);
+        when(web2SecretService.encryptSecrets(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(web3SecretService.encryptSecrets(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(teeTaskComputeSecretService.encryptSecrets(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void afterEach() {
+        executorService.shutdownNow();
+    }
+
+    private SecretBatchItem item(SecretType type, String address, String key) {
+        return new SecretBatchItem(type, address, key, SECRET_VALUE, AUTHORIZATION);
+    }
+
+    @Test
+    void shouldAddAllSecretsInOneBatch() {
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS)).thenReturn(true);
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS.toLowerCase())).thenReturn(true);
+        when(authorizationService.isSignedByOwner(eq(CHALLENGE), eq(AUTHORIZATION), any())).thenReturn(true);
+
+        final List<SecretBatchItemResult> results = secretBatchService.addSecrets(List.of(
+                item(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME),
+                item(SecretType.WEB3, "0xSecret", null),
+                item(SecretType.APP_DEVELOPER, "0xApp", null),
+                item(SecretType.REQUESTER, OWNER_ADDRESS, "key")));
+
+        assertThat(results).extracting(SecretBatchItemResult::getStatus).containsExactly(ADDED, ADDED, ADDED, ADDED);
+        assertThat(results.get(3).getAddress()).isEqualTo(OWNER_ADDRESS.toLowerCase());
+        verify(web2SecretService).addEncryptedSecretsInBatch(argThat(secrets -> secrets.size() == 1));
+        verify(web3SecretService).addEncryptedSecretsInBatch(argThat(secrets -> secrets.size() == 1));
+        verify(teeTaskComputeSecretService).addEncryptedSecretsInBatch(argThat(secrets -> secrets.size() == 2
+                && secrets.stream().anyMatch(secret -> secret.getHeader().getSecretOwnerRole() == SecretOwnerRole.APPLICATION_DEVELOPER
+                && secret.getHeader().getOnChainObjectAddress().equals("0xapp"))));
+        verify(web2SecretService, never()).addEncryptedSecret(any());
+    }
+
+    @Test
+    void shouldRejectInvalidUnauthorizedAndDuplicatedItems() {
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS)).thenReturn(true);
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, "0xother")).thenReturn(false);
+
+        final List<SecretBatchItemResult> results = secretBatchService.addSecrets(List.of(
+                item(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME),
+                item(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME),
+                item(SecretType.WEB2, OWNER_ADDRESS, null),
+                item(SecretType.REQUESTER, "0xOther", "key"),
+                item(SecretType.REQUESTER, OWNER_ADDRESS, "invalid key!"),
+                new SecretBatchItem(SecretType.WEB2, OWNER_ADDRESS, "other", "a".repeat(SecretUtils.SECRET_MAX_SIZE + 1), AUTHORIZATION)));
+
+        assertThat(results).extracting(SecretBatchItemResult::getStatus)
+                .containsExactly(ADDED, DUPLICATED_IN_BATCH, INVALID, UNAUTHORIZED, INVALID, PAYLOAD_TOO_LARGE);
+        verify(web2SecretService).addEncryptedSecretsInBatch(argThat(secrets -> secrets.size() == 1));
+    }
+
+    @Test
+    void shouldAddSecretsOneByOneWhenOneAlreadyExists() {
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS)).thenReturn(true);
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS.toLowerCase())).thenReturn(true);
+        doThrow(new DuplicateKeyException("duplicate")).when(web2SecretService).addEncryptedSecretsInBatch(anyList());
+        when(web2SecretService.addEncryptedSecret(any())).thenReturn(false);
+        when(teeTaskComputeSecretService.addEncryptedSecret(argThat(secret ->
+                secret.getHeader().getSecretOwnerRole() == SecretOwnerRole.REQUESTER
+                        && secret.getHeader().getFixedSecretOwner().equals(OWNER_ADDRESS.toLowerCase())
+                        && secret.getHeader().getKey().equals("key")))).thenReturn(true);
+
+        final List<SecretBatchItemResult> results = secretBatchService.addSecrets(List.of(
+                item(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME),
+                item(SecretType.REQUESTER, OWNER_ADDRESS, "key")));
+
+        assertThat(results).extracting(SecretBatchItemResult::getStatus).containsExactly(ALREADY_EXISTS, ADDED);
+    }
+
+    @Test
+    void shouldReportFailedSecretsWhenInsertFailsForAnotherReason() {
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS)).thenReturn(true);
+        when(authorizationService.isSignedByOwner(eq(CHALLENGE), eq(AUTHORIZATION), any())).thenReturn(true);
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(web3SecretService).addEncryptedSecretsInBatch(anyList());
+        when(web2SecretService.addEncryptedSecret(any())).thenReturn(true);
+        when(web3SecretService.addEncryptedSecret(any()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        final List<SecretBatchItemResult> results = secretBatchService.addSecrets(List.of(
+                item(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME),
+                item(SecretType.WEB3, "0xSecret", null)));
+
+        assertThat(results).extracting(SecretBatchItemResult::getStatus).containsExactly(ADDED, FAILED);
+    }
+
+    @Test
+    void shouldEncryptValuesOnceWhenAddingSecretsOneByOne() {
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS)).thenReturn(true);
+        final Web2Secret encryptedSecret = new Web2Secret(OWNER_ADDRESS, SECRET_NAME, "encryptedValue");
+        when(web2SecretService.encryptSecrets(anyList())).thenReturn(List.of(encryptedSecret));
+        doThrow(new DuplicateKeyException("duplicate")).when(web2SecretService).addEncryptedSecretsInBatch(anyList());
+        when(web2SecretService.addEncryptedSecret(encryptedSecret)).thenReturn(true);
+
+        final List<SecretBatchItemResult> results = secretBatchService.addSecrets(List.of(
+                item(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME)));
+
+        assertThat(results).extracting(SecretBatchItemResult::getStatus).containsExactly(ADDED);
+        verify(web2SecretService).encryptSecrets(anyList());
+        verify(web2SecretService).addEncryptedSecretsInBatch(List.of(encryptedSecret));
+        verify(web2SecretService).addEncryptedSecret(encryptedSecret);
+    }
+
+    @Test
+    void shouldReportFailedSecretsWhenEncryptionFails() {
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, OWNER_ADDRESS)).thenReturn(true);
+        when(web2SecretService.encryptSecrets(anyList())).thenThrow(new IllegalStateException("no key"));
+
+        final List<SecretBatchItemResult> results = secretBatchService.addSecrets(List.of(
+                item(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME)));
+
+        assertThat(results).extracting(SecretBatchItemResult::getStatus).containsExactly(FAILED);
+        verify(web2SecretService, never()).addEncryptedSecretsInBatch(anyList());
+    }
+
+    @Test
+    void shouldReportFailedVerification() {
+        when(authorizationService.isSignedByOwner(any(), any(), any())).thenThrow(new RuntimeException("rpc"));
+
+        final List<SecretBatchItemResult> results = secretBatchService.addSecrets(List.of(
+                item(SecretType.WEB3, "0xSecret", null)));
+
+        assertThat(results).extracting(SecretBatchItemResult::getStatus).containsExactly(FAILED);
+        verifyNoInteractions(web3SecretService);
+    }
+
+    @Test
+    void shouldFindPresentSecretsWithOneLookupPerType() {
+        final Web2SecretHeader web2Header = new Web2SecretHeader(OWNER_ADDRESS, SECRET_NAME);
+        final TeeTaskComputeSecretHeader requesterHeader = new TeeTaskComputeSecretHeader(
+                OnChainObjectType.APPLICATION, "", SecretOwnerRole.REQUESTER, OWNER_ADDRESS, "key");
+        when(web2SecretService.findPresentSecrets(anyList())).thenReturn(Set.of(web2Header));
+        when(teeTaskComputeSecretService.findPresentSecrets(anyList())).thenReturn(Set.of(requesterHeader));
+
+        final List<SecretPresence> presences = secretBatchService.findPresentSecrets(List.of(
+                new SecretHeader(SecretType.WEB2, OWNER_ADDRESS, SECRET_NAME),
+                new SecretHeader(SecretType.WEB2, OWNER_ADDRESS, "missing"),
+                new SecretHeader(SecretType.REQUESTER, OWNER_ADDRESS, "key"),
+                new SecretHeader(SecretType.APP_DEVELOPER, "0xApp", null),
+                new SecretHeader(SecretType.REQUESTER, OWNER_ADDRESS, "invalid key!")));
+
+        assertThat(presences).extracting(SecretPresence::isPresent)
+                .containsExactly(true, false, true, false, false);
+        verify(web2SecretService).findPresentSecrets(argThat(headers -> headers.size() == 2));
+        verify(teeTaskComputeSecretService).findPresentSecrets(argThat(headers -> headers.size() == 2));
+        verifyNoInteractions(web3SecretService);
+    }
+}
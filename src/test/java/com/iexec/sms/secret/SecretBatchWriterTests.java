@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.iexec.sms.secret;
+
+import com.iexec.sms.encryption.EncryptionService;
+import com.iexec.sms.secret.store.SecretStore;
+import com.iexec.sms.secret.web3.Web3Secret;
+import com.iexec.sms.secret.web3.Web3SecretCodec;
+import com.iexec.sms.secret.web3.Web3SecretHeader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SecretBatchWriterTests {
+    private static final String ADDRESS = "0xAddress";
+    private static final String PLAIN_VALUE = "plainValue";
+    private static final String ENCRYPTED_VALUE = "encryptedValue";
+    private static final Web3Secret ENCRYPTED_SECRET = new Web3Secret(ADDRESS, ENCRYPTED_VALUE);
+
+    @Mock
+    private SecretStore<Web3SecretHeader, Web3Secret> secretStore;
+    @Mock
+    private EncryptionService encryptionService;
+    @Mock
+    private MeasuredSecretService measuredSecretService;
+    @Mock
+    private CacheSecretService<Web3SecretHeader> cacheSecretService;
+    @Mock
+    private CacheSecretValueService<Web3SecretHeader, Web3Secret> cacheSecretValueService;
+
+    private SecretBatchWriter<Web3SecretHeader, Web3Secret> batchWriter;
+
+    @BeforeEach
+    void beforeEach() {
+        MockitoAnnotations.openMocks(this);
+        batchWriter = new SecretBatchWriter<>("web3", secretStore, new Web3SecretCodec(), encryptionService,
+                measuredSecretService, cacheSecretService, cacheSecretValueService);
+    }
+
+    @Test
+    void shouldEncryptSecrets() {
+        when(encryptionService.encrypt(PLAIN_VALUE)).thenReturn(ENCRYPTED_VALUE);
+
+        final List<Web3Secret> encryptedSecrets = batchWriter.encryptSecrets(List.of(new Web3Secret(ADDRESS, PLAIN_VALUE)));
+        assertThat(encryptedSecrets).hasSize(1);
+        assertThat(encryptedSecrets.get(0).getHeader()).isEqualTo(new Web3SecretHeader(ADDRESS));
+        assertThat(encryptedSecrets.get(0).getValue()).isEqualTo(ENCRYPTED_VALUE);
+    }
+
+    @Test
+    void shouldAddEncryptedSecretsInBatch() {
+        batchWriter.addEncryptedSecretsInBatch(List.of(ENCRYPTED_SECRET));
+
+        verify(secretStore).insertAll(List.of(ENCRYPTED_SECRET));
+        verify(cacheSecretService).putSecretExistenceInCache(ENCRYPTED_SECRET.getHeader(), true);
+        verify(cacheSecretValueService).putSecretValueInCache(ENCRYPTED_SECRET.getHeader(), ENCRYPTED_SECRET);
+        verify(measuredSecretService).newlyAddedSecret();
+    }
+
+    @Test
+    void shouldNotUpdateCachesIfBatchInsertFails() {
+        doThrow(new DuplicateKeyException("duplicate")).when(secretStore).insertAll(anyList());
+
+        final List<Web3Secret> secrets = List.of(ENCRYPTED_SECRET);
+        assertThatThrownBy(() -> batchWriter.addEncryptedSecretsInBatch(secrets))
+                .isInstanceOf(DuplicateKeyException.class);
+        verifyNoInteractions(cacheSecretService, cacheSecretValueService, measuredSecretService);
+    }
+
+    @Test
+    void shouldNotInsertEmptyBatch() {
+        batchWriter.addEncryptedSecretsInBatch(List.of());
+
+        verifyNoInteractions(secretStore);
+    }
+
+    @Test
+    void shouldReportEncryptedSecretAsAddedIfStoredWithSameValue() {
+        doThrow(new DuplicateKeyException("duplicate")).when(secretStore).insert(any());
+        when(secretStore.findById(ENCRYPTED_SECRET.getHeader())).thenReturn(Optional.of(ENCRYPTED_SECRET));
+
+        assertThat(batchWriter.addEncryptedSecret(ENCRYPTED_SECRET)).isTrue();
+        verify(measuredSecretService).newlyAddedSecret();
+    }
+
+    @Test
+    void shouldNotAddEncryptedSecretIfStoredWithAnotherValue() {
+        doThrow(new DuplicateKeyException("duplicate")).when(secretStore).insert(any());
+        when(secretStore.findById(ENCRYPTED_SECRET.getHeader()))
+                .thenReturn(Optional.of(new Web3Secret(ADDRESS, "otherEncryptedValue")));
+
+        assertThat(batchWriter.addEncryptedSecret(ENCRYPTED_SECRET)).isFalse();
+        verifyNoInteractions(cacheSecretService, cacheSecretValueService, measuredSecretService);
+    }
+}
@@ -16,6 +16,12 @@
 
 package com.iexec.sms.secret;
 
+import com.iexec.sms.api.SecretBatchItem;
+import com.iexec.sms.api.SecretBatchItemResult;
+import com.iexec.sms.api.SecretBatchItemStatus;
+import com.iexec.sms.api.SecretHeader;
+import com.iexec.sms.api.SecretPresence;
+import com.iexec.sms.api.SecretType;
 import com.iexec.sms.authorization.AuthorizationService;
 import com.iexec.sms.secret.web2.NotAnExistingSecretException;
 import com.iexec.sms.secret.web2.SameSecretException;
@@ -23,7 +29,6 @@ import com.iexec.sms.secret.web2.Web2SecretService;
 import com.iexec.sms.secret.web3.Web3SecretService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
@@ -31,6 +36,7 @@ import org.springframework.http.ResponseEntity;
 
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -54,7 +60,9 @@ class SecretControllerTests {
     @Mock
     private Web3SecretService web3SecretService;
 
-    @InjectMocks
+    @Mock
+    private SecretBatchService secretBatchService;
+
     private SecretController secretController;
 
     private static final SecureRandom seed = new SecureRandom();
@@ -62,6 +70,8 @@ class SecretControllerTests {
     @BeforeEach
     public void init() {
         MockitoAnnotations.openMocks(this);
+        secretController = new SecretController(authorizationService, web2SecretService, web3SecretService,
+                secretBatchService, 2);
     }
 
     //region isWeb3SecretSet
@@ -261,4 +271,55 @@ class SecretControllerTests {
         return new String(bytes, StandardCharsets.UTF_8);
     }
 
+    //region addSecrets
+    @Test
+    void shouldAddSecretsInBatch() {
+        final List<SecretBatchItem> items = List.of(
+                new SecretBatchItem(SecretType.WEB2, WEB2_OWNER_ADDRESS, WEB2_SECRET_NAME, WEB2_SECRET_VALUE, AUTHORIZATION));
+        final List<SecretBatchItemResult> results = List.of(
+                new SecretBatchItemResult(SecretType.WEB2, WEB2_OWNER_ADDRESS, WEB2_SECRET_NAME, SecretBatchItemStatus.ADDED));
+        when(secretBatchService.addSecrets(items)).thenReturn(results);
+
+        assertThat(secretController.addSecrets(items))
+                .isEqualTo(ResponseEntity.ok(results));
+    }
+
+    @Test
+    void shouldNotAddSecretsWhenBatchIsEmpty() {
+        assertThat(secretController.addSecrets(List.of()))
+                .isEqualTo(ResponseEntity.badRequest().build());
+        verifyNoInteractions(secretBatchService);
+    }
+
+    @Test
+    void shouldNotAddSecretsWhenBatchIsTooLarge() {
+        final SecretBatchItem item = new SecretBatchItem(
+                SecretType.WEB3, WEB3_SECRET_ADDRESS, null, WEB3_SECRET_VALUE, AUTHORIZATION);
+        assertThat(secretController.addSecrets(List.of(item, item, item)))
+                .isEqualTo(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
+        verifyNoInteractions(secretBatchService);
+    }
+    //endregion
+
+    //region areSecretsPresent
+    @Test
+    void shouldCheckSecretsPresence() {
+        final List<SecretHeader> headers = List.of(
+                new SecretHeader(SecretType.WEB3, WEB3_SECRET_ADDRESS, null));
+        final List<SecretPresence> presences = List.of(
+                new SecretPresence(SecretType.WEB3, WEB3_SECRET_ADDRESS, null, true));
+        when(secretBatchService.findPresentSecrets(headers)).thenReturn(presences);
+
+        assertThat(secretController.areSecretsPresent(headers))
+                .isEqualTo(ResponseEntity.ok(presences));
+    }
+
+    @Test
+    void shouldNotCheckSecretsPresenceWhenTooManyHeaders() {
+        final SecretHeader header = new SecretHeader(SecretType.WEB3, WEB3_SECRET_ADDRESS, null);
+        assertThat(secretController.areSecretsPresent(List.of(header, header, header)))
+                .isEqualTo(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
+        verifyNoInteractions(secretBatchService);
+    }
+    //endregion
 }
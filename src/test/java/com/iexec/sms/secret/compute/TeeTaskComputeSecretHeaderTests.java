@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 IEXEC BLOCKCHAIN TECH
+ * Copyright 2022-2024 IEXEC BLOCKCHAIN TECH
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import javax.validation.ValidationException;
 
@@ -52,6 +53,17 @@ class TeeTaskComputeSecretHeaderTests {
                 KEY
         ));
     }
+
+    @Test
+    void shouldConstructSecretHeaderWithKeyOfMaximumLength() {
+        Assertions.assertThatNoException().isThrownBy(() -> new TeeTaskComputeSecretHeader(
+                OnChainObjectType.APPLICATION,
+                "",
+                SecretOwnerRole.REQUESTER,
+                FIXED_SECRET_OWNER,
+                "k".repeat(TeeTaskComputeSecretHeader.SECRET_KEY_MAX_LENGTH)
+        ));
+    }
     // endregion
 
     // region Invalid construction
@@ -113,5 +125,17 @@ class TeeTaskComputeSecretHeaderTests {
                 KEY
         )).isInstanceOf(ValidationException.class);
     }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, TeeTaskComputeSecretHeader.SECRET_KEY_MAX_LENGTH + 1})
+    void shouldNotConstructSecretHeaderBecauseKeyLengthIsInvalid(int keyLength) {
+        Assertions.assertThatThrownBy(() -> new TeeTaskComputeSecretHeader(
+                OnChainObjectType.APPLICATION,
+                "",
+                SecretOwnerRole.REQUESTER,
+                FIXED_SECRET_OWNER,
+                "k".repeat(keyLength)
+        )).isInstanceOf(ValidationException.class);
+    }
     // endregion
 }
@@ -20,6 +20,7 @@ import ch.qos.logback.classic.Logger;
 import com.iexec.sms.MemoryLogAppender;
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.CacheSecretService;
+import com.iexec.sms.secret.CacheSecretValueService;
 import com.iexec.sms.secret.MeasuredSecretService;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -34,7 +35,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -88,7 +92,8 @@ class TeeTaskComputeSecretServiceTest {
         teeTaskComputeSecretRepository.deleteAll();
         teeTaskComputeCacheSecretService.clear();
         teeTaskComputeSecretService = new TeeTaskComputeSecretService(
-                jdbcTemplate, teeTaskComputeSecretRepository, encryptionService, measuredSecretService, teeTaskComputeCacheSecretService);
+                jdbcTemplate, teeTaskComputeSecretRepository, encryptionService, measuredSecretService, teeTaskComputeCacheSecretService,
+                new CacheSecretValueService<>(false, 0, 0));
     }
 
     // region encryptAndSaveSecret
@@ -199,10 +204,71 @@ class TeeTaskComputeSecretServiceTest {
         );
     }
 
+    @Test
+    void shouldNotDecryptSecretToCheckPresence() {
+        teeTaskComputeSecretRepository.save(COMPUTE_SECRET);
+
+        final boolean isSecretPresent = teeTaskComputeSecretService.isSecretPresent(OnChainObjectType.APPLICATION, APP_ADDRESS, SecretOwnerRole.APPLICATION_DEVELOPER, "", "0");
+
+        assertThat(isSecretPresent).isTrue();
+        verifyNoInteractions(encryptionService);
+    }
+
     @Test
     void secretShouldNotExist() {
         final boolean isSecretPresent = teeTaskComputeSecretService.isSecretPresent(OnChainObjectType.APPLICATION, APP_ADDRESS, SecretOwnerRole.APPLICATION_DEVELOPER, "", "0");
         assertThat(isSecretPresent).isFalse();
     }
     // endregion
+
+    // region addEncryptedSecretsInBatch
+    @Test
+    void shouldAddSecretsInBatch() {
+        when(encryptionService.encrypt(DECRYPTED_SECRET_VALUE))
+                .thenReturn(ENCRYPTED_SECRET_VALUE);
+        final TeeTaskComputeSecret requesterSecret = TeeTaskComputeSecret.builder()
+                .onChainObjectType(OnChainObjectType.APPLICATION)
+                .onChainObjectAddress("")
+                .secretOwnerRole(SecretOwnerRole.REQUESTER)
+                .fixedSecretOwner("requesterAddress")
+                .key("key")
+                .value(DECRYPTED_SECRET_VALUE)
+                .build();
+
+        teeTaskComputeSecretService.addEncryptedSecretsInBatch(teeTaskComputeSecretService.encryptSecrets(List.of(
+                COMPUTE_SECRET.withValue(DECRYPTED_SECRET_VALUE), requesterSecret)));
+        assertAll(
+                () -> assertThat(teeTaskComputeSecretRepository.count()).isEqualTo(2),
+                () -> assertThat(teeTaskComputeSecretRepository.findById(requesterSecret.getHeader()))
+                        .contains(requesterSecret.withValue(ENCRYPTED_SECRET_VALUE))
+        );
+    }
+    // endregion
+
+    // region forEachSecret
+    @Test
+    void shouldScanStoredSecretsWithTheirValues() {
+        teeTaskComputeSecretRepository.saveAndFlush(COMPUTE_SECRET);
+
+        final List<TeeTaskComputeSecret> secrets = new ArrayList<>();
+        new TeeTaskComputeSecretJdbcStore(jdbcTemplate, teeTaskComputeSecretRepository).forEachSecret(secrets::add);
+        assertEquals(List.of(COMPUTE_SECRET), secrets);
+    }
+    // endregion
+
+    // region findPresentSecrets
+    @Test
+    void shouldFindPresentSecrets() {
+        teeTaskComputeSecretRepository.saveAndFlush(COMPUTE_SECRET);
+        final TeeTaskComputeSecretHeader missingHeader = new TeeTaskComputeSecretHeader(
+                OnChainObjectType.APPLICATION, "", SecretOwnerRole.REQUESTER, "requesterAddress", "key");
+
+        final Set<TeeTaskComputeSecretHeader> presentHeaders = teeTaskComputeSecretService.findPresentSecrets(
+                List.of(COMPUTE_SECRET.getHeader(), missingHeader));
+        assertAll(
+                () -> assertEquals(Set.of(COMPUTE_SECRET.getHeader()), presentHeaders),
+                () -> assertEquals(Boolean.FALSE, teeTaskComputeCacheSecretService.lookSecretExistenceInCache(missingHeader))
+        );
+    }
+    // endregion
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import com.iexec.sms.secret.web3.Web3Secret;
+import com.iexec.sms.secret.web3.Web3SecretCodec;
+import com.iexec.sms.secret.web3.Web3SecretHeader;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.mvstore.MVStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BloomFilteredSecretStoreTests {
+    private static final String METRICS_PREFIX = "test.";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MVStore mvStore;
+    private SecretStore<Web3SecretHeader, Web3Secret> delegate;
+    private BloomFilteredSecretStore<Web3SecretHeader, Web3Secret> secretStore;
+
+    @BeforeEach
+    void beforeEach() {
+        Metrics.globalRegistry.add(meterRegistry);
+        mvStore = MVStore.open(null);
+        delegate = spy(new MVStoreSecretStore<>(mvStore, "web3secret", new Web3SecretCodec()));
+        delegate.insert(new Web3Secret("0xexisting", "value"));
+        secretStore = new BloomFilteredSecretStore<>(METRICS_PREFIX, "web3", delegate, new Web3SecretCodec(), 0.01, 100);
+        secretStore.rebuild();
+        clearInvocations(delegate);
+    }
+
+    @AfterEach
+    void afterEach() {
+        mvStore.close();
+        meterRegistry.clear();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
+    @Test
+    void shouldNotReachStoreForAbsentSecret() {
+        final Web3SecretHeader missingHeader = new Web3SecretHeader("0xmissing");
+
+        assertThat(secretStore.findById(missingHeader)).isEmpty();
+        assertThat(secretStore.existsById(missingHeader)).isFalse();
+        assertThat(secretStore.findExistingIds(List.of(missingHeader))).isEmpty();
+        assertThat(secretStore.findAllById(List.of(missingHeader))).isEmpty();
+
+        verify(delegate, never()).findById(any());
+        verify(delegate, never()).existsById(any());
+        verify(delegate, never()).findExistingIds(any());
+        verify(delegate, never()).findAllById(any());
+        assertThat(meterRegistry.find(METRICS_PREFIX + "filter.skipped").counter().count()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldOnlyLookUpCandidates() {
+        final Web3SecretHeader existingHeader = new Web3SecretHeader("0xexisting");
+        final Web3SecretHeader missingHeader = new Web3SecretHeader("0xmissing");
+
+        assertThat(secretStore.findById(existingHeader)).isPresent();
+        assertThat(secretStore.findExistingIds(List.of(existingHeader, missingHeader))).containsExactly(existingHeader);
+
+        verify(delegate).findExistingIds(List.of(existingHeader));
+    }
+
+    @Test
+    void shouldFindInsertedSecrets() {
+        secretStore.insert(new Web3Secret("0xinserted", "value"));
+        secretStore.insertAll(List.of(new Web3Secret("0xfirst", "value"), new Web3Secret("0xsecond", "value")));
+
+        assertThat(secretStore.findById(new Web3SecretHeader("0xinserted"))).isPresent();
+        assertThat(secretStore.findExistingIds(List.of(new Web3SecretHeader("0xfirst"), new Web3SecretHeader("0xsecond"))))
+                .hasSize(2);
+    }
+
+    @Test
+    void shouldFindSecretsStoredBehindItsBackAfterRebuild() {
+        final Web3SecretHeader restoredHeader = new Web3SecretHeader("0xrestored");
+        delegate.insert(new Web3Secret("0xrestored", "value"));
+        assertThat(secretStore.findById(restoredHeader)).isEmpty();
+
+        secretStore.rebuild();
+
+        assertThat(secretStore.findById(restoredHeader)).isPresent();
+        assertThat(meterRegistry.find(METRICS_PREFIX + "filter.rebuild").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReachStoreUntilFilterIsBuilt() {
+        final BloomFilteredSecretStore<Web3SecretHeader, Web3Secret> unbuiltStore =
+                new BloomFilteredSecretStore<>(METRICS_PREFIX, "web3", delegate, new Web3SecretCodec(), 0.01, 100);
+
+        assertThat(unbuiltStore.findById(new Web3SecretHeader("0xexisting"))).isPresent();
+        assertThat(unbuiltStore.getEstimatedFpp()).isOne();
+    }
+
+    @Test
+    void shouldPublishEstimatedFpp() {
+        assertThat(meterRegistry.find(METRICS_PREFIX + "filter.fpp").gauge().value())
+                .isEqualTo(secretStore.getEstimatedFpp())
+                .isLessThan(0.01);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import com.iexec.sms.secret.web2.Web2Secret;
+import com.iexec.sms.secret.web2.Web2SecretCodec;
+import com.iexec.sms.secret.web2.Web2SecretHeader;
+import org.h2.mvstore.MVStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class MVStoreSecretStoreTests {
+    private static final String OWNER_ADDRESS = "0xOwner";
+
+    private MVStore mvStore;
+    private MVStoreSecretStore<Web2SecretHeader, Web2Secret> secretStore;
+
+    @BeforeEach
+    void beforeEach() {
+        mvStore = MVStore.open(null);
+        secretStore = new MVStoreSecretStore<>(mvStore, "web2secret", new Web2SecretCodec());
+    }
+
+    @AfterEach
+    void afterEach() {
+        mvStore.close();
+    }
+
+    private static Web2Secret secret(String address, String value) {
+        return new Web2Secret(OWNER_ADDRESS, address, value);
+    }
+
+    @Test
+    void shouldFindInsertedSecret() {
+        secretStore.insert(secret("secret-address", "value"));
+
+        assertThat(secretStore.findById(new Web2SecretHeader(OWNER_ADDRESS, "secret-address")))
+                .get()
+                .extracting(Web2Secret::getValue)
+                .isEqualTo("value");
+        assertThat(secretStore.findById(new Web2SecretHeader(OWNER_ADDRESS, "other-address"))).isEmpty();
+        assertThat(secretStore.existsById(new Web2SecretHeader(OWNER_ADDRESS, "secret-address"))).isTrue();
+        assertThat(secretStore.existsById(new Web2SecretHeader(OWNER_ADDRESS, "other-address"))).isFalse();
+        assertThat(secretStore.count()).isOne();
+    }
+
+    @Test
+    void shouldNotInsertDuplicateSecret() {
+        secretStore.insert(secret("secret-address", "value"));
+        final Web2Secret duplicate = secret("secret-address", "other-value");
+
+        assertThatExceptionOfType(DuplicateKeyException.class).isThrownBy(() -> secretStore.insert(duplicate));
+        assertThat(secretStore.findById(duplicate.getHeader()))
+                .get()
+                .extracting(Web2Secret::getValue)
+                .isEqualTo("value");
+    }
+
+    @Test
+    void shouldInsertAllOrNothing() {
+        secretStore.insert(secret("existing", "value"));
+        final List<Web2Secret> batch = List.of(secret("new", "value"), secret("existing", "other-value"));
+
+        assertThatExceptionOfType(DuplicateKeyException.class).isThrownBy(() -> secretStore.insertAll(batch));
+        assertThat(secretStore.count()).isOne();
+
+        secretStore.insertAll(List.of(secret("first", "value"), secret("second", "value")));
+        assertThat(secretStore.count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldUpdateSecret() {
+        final Web2Secret secret = secret("secret-address", "value");
+        secretStore.insert(secret);
+
+        secretStore.update(secret.withValue("new-value"));
+
+        assertThat(secretStore.findById(secret.getHeader()))
+                .get()
+                .extracting(Web2Secret::getValue)
+                .isEqualTo("new-value");
+        assertThat(secretStore.count()).isOne();
+    }
+
+    @Test
+    void shouldFindExistingIdsOnly() {
+        secretStore.insertAll(List.of(secret("first", "value"), secret("second", "value")));
+        final Web2SecretHeader first = new Web2SecretHeader(OWNER_ADDRESS, "first");
+        final Web2SecretHeader missing = new Web2SecretHeader(OWNER_ADDRESS, "missing");
+
+        assertThat(secretStore.findExistingIds(List.of(first, missing))).containsExactly(first);
+        assertThat(secretStore.findAllById(List.of(first, missing)))
+                .extracting(Web2Secret::getHeader)
+                .containsExactly(first);
+    }
+
+    @Test
+    void shouldNotMixUpFieldsOfEncodedIds() {
+        secretStore.insert(new Web2Secret("0xa", "b|c", "value"));
+
+        assertThat(secretStore.findById(new Web2SecretHeader("0xa|b", "c"))).isEmpty();
+    }
+
+    @Test
+    void shouldImportSecretsIntoEmptyMap() {
+        final long count = MVStoreSecretStore.importSecretsIfEmpty(mvStore, "web2secret", new Web2SecretCodec(),
+                source(secret("first", "value"), secret("second", "other-value")));
+
+        final MVStoreSecretStore<Web2SecretHeader, Web2Secret> importedStore =
+                new MVStoreSecretStore<>(mvStore, "web2secret", new Web2SecretCodec());
+        assertThat(count).isEqualTo(2);
+        assertThat(importedStore.count()).isEqualTo(2);
+        assertThat(importedStore.findById(new Web2SecretHeader(OWNER_ADDRESS, "second")))
+                .get()
+                .extracting(Web2Secret::getValue)
+                .isEqualTo("other-value");
+        assertThat(mvStore.hasMap("web2secret.import")).isFalse();
+    }
+
+    @Test
+    void shouldNotImportSecretsIntoMapHoldingSecrets() {
+        secretStore.insert(secret("existing", "value"));
+
+        final long count = MVStoreSecretStore.importSecretsIfEmpty(mvStore, "web2secret", new Web2SecretCodec(),
+                source(secret("first", "value")));
+
+        assertThat(count).isZero();
+        assertThat(secretStore.count()).isOne();
+        assertThat(secretStore.existsById(new Web2SecretHeader(OWNER_ADDRESS, "first"))).isFalse();
+    }
+
+    @Test
+    void shouldRestartInterruptedImport() {
+        mvStore.<String, String>openMap("web2secret.import").put("stale-key", "value");
+        mvStore.commit();
+
+        final long count = MVStoreSecretStore.importSecretsIfEmpty(mvStore, "web2secret", new Web2SecretCodec(),
+                source(secret("first", "value")));
+
+        final MVStoreSecretStore<Web2SecretHeader, Web2Secret> importedStore =
+                new MVStoreSecretStore<>(mvStore, "web2secret", new Web2SecretCodec());
+        assertThat(count).isOne();
+        assertThat(importedStore.count()).isOne();
+        assertThat(importedStore.existsById(new Web2SecretHeader(OWNER_ADDRESS, "first"))).isTrue();
+    }
+
+    @Test
+    void shouldNotCreateMapWhenNothingIsImported() {
+        final long count = MVStoreSecretStore.importSecretsIfEmpty(mvStore, "web3secret", new Web2SecretCodec(),
+                source());
+
+        assertThat(count).isZero();
+        assertThat(mvStore.hasMap("web3secret.import")).isFalse();
+    }
+
+    private static Consumer<Consumer<Web2Secret>> source(Web2Secret... secrets) {
+        return action -> List.of(secrets).forEach(action);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iexec.sms.secret.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecretBloomFilterTests {
+
+    @Test
+    void shouldContainAllAddedKeys() {
+        final SecretBloomFilter filter = new SecretBloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("present-" + i));
+
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain("present-" + i));
+    }
+
+    @Test
+    void shouldKeepFalsePositivesCloseToTarget() {
+        final SecretBloomFilter filter = new SecretBloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("present-" + i));
+
+        final long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("absent-" + i))
+                .count();
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(filter.estimatedFpp()).isBetween(0.001, 0.02);
+    }
+
+    @Test
+    void shouldBeEmptyWhenCreated() {
+        final SecretBloomFilter filter = new SecretBloomFilter(0, 0.01);
+        assertThat(filter.mightContain("key")).isFalse();
+        assertThat(filter.estimatedFpp()).isZero();
+    }
+}
@@ -20,6 +20,7 @@ import ch.qos.logback.classic.Logger;
 import com.iexec.sms.MemoryLogAppender;
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.CacheSecretService;
+import com.iexec.sms.secret.CacheSecretValueService;
 import com.iexec.sms.secret.MeasuredSecretService;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,8 +31,11 @@ import org.mockito.MockitoAnnotations;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -78,7 +82,8 @@ class Web2SecretServiceTests {
         web2SecretRepository.deleteAll();
         web2CacheSecretService.clear();
         web2SecretService = new Web2SecretService(
-                jdbcTemplate, web2SecretRepository, encryptionService, measuredSecretService, web2CacheSecretService);
+                jdbcTemplate, web2SecretRepository, encryptionService, measuredSecretService, web2CacheSecretService,
+                new CacheSecretValueService<>(false, 0, 0));
     }
 
 
@@ -122,6 +127,25 @@ class Web2SecretServiceTests {
         assertThat(web2SecretService.getDecryptedValue(OWNER_ADDRESS, SECRET_ADDRESS)).isEmpty();
         verifyNoInteractions(encryptionService);
     }
+
+    @Test
+    void shouldGetSecretsForTeeSessionFromValueCache() {
+        final Web2SecretService cachedWeb2SecretService = new Web2SecretService(
+                jdbcTemplate, web2SecretRepository, encryptionService, measuredSecretService, web2CacheSecretService,
+                new CacheSecretValueService<>(true, 10, 60));
+        final Web2Secret encryptedSecret = new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE);
+        web2SecretRepository.save(encryptedSecret);
+        when(encryptionService.decrypt(ENCRYPTED_SECRET_VALUE)).thenReturn(PLAIN_SECRET_VALUE);
+
+        assertThat(cachedWeb2SecretService.getSecretsForTeeSession(List.of(encryptedSecret.getHeader())))
+                .extracting(Web2Secret::getValue)
+                .containsExactly(PLAIN_SECRET_VALUE);
+        web2SecretRepository.deleteAll();
+        assertThat(cachedWeb2SecretService.getSecretsForTeeSession(List.of(encryptedSecret.getHeader())))
+                .extracting(Web2Secret::getValue)
+                .containsExactly(PLAIN_SECRET_VALUE);
+        assertThat(web2SecretService.getSecretsForTeeSession(List.of(encryptedSecret.getHeader()))).isEmpty();
+    }
     // endregion
 
 
@@ -258,4 +282,103 @@ class Web2SecretServiceTests {
         );
     }
     // endregion
+
+    // region addEncryptedSecretsInBatch
+    @Test
+    void shouldAddSecretsInBatch() {
+        when(encryptionService.encrypt(PLAIN_SECRET_VALUE))
+                .thenReturn(ENCRYPTED_SECRET_VALUE);
+
+        web2SecretService.addEncryptedSecretsInBatch(web2SecretService.encryptSecrets(List.of(
+                new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, PLAIN_SECRET_VALUE),
+                new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS + "2", PLAIN_SECRET_VALUE))));
+        assertAll(
+                () -> assertThat(web2SecretRepository.count()).isEqualTo(2),
+                () -> assertThat(web2SecretRepository.findById(new Web2SecretHeader(OWNER_ADDRESS, SECRET_ADDRESS)))
+                        .get().extracting(Web2Secret::getValue).isEqualTo(ENCRYPTED_SECRET_VALUE)
+        );
+    }
+
+    @Test
+    void shouldNotAddSecretsInBatchIfOneAlreadyExists() {
+        web2SecretRepository.saveAndFlush(new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE));
+        when(encryptionService.encrypt(PLAIN_SECRET_VALUE))
+                .thenReturn(ENCRYPTED_SECRET_VALUE);
+
+        final List<Web2Secret> secrets = web2SecretService.encryptSecrets(List.of(
+                new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, PLAIN_SECRET_VALUE)));
+        assertThrows(DuplicateKeyException.class, () -> web2SecretService.addEncryptedSecretsInBatch(secrets));
+        verifyNoInteractions(measuredSecretService);
+    }
+    // endregion
+
+    // region addEncryptedSecret
+    @Test
+    void shouldAddEncryptedSecret() {
+        assertThat(web2SecretService.addEncryptedSecret(
+                new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE))).isTrue();
+
+        assertThat(web2SecretRepository.findById(new Web2SecretHeader(OWNER_ADDRESS, SECRET_ADDRESS)))
+                .get().extracting(Web2Secret::getValue).isEqualTo(ENCRYPTED_SECRET_VALUE);
+        verify(measuredSecretService).newlyAddedSecret();
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void shouldReportEncryptedSecretAsAddedIfStoredWithSameValue() {
+        web2SecretRepository.saveAndFlush(new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE));
+
+        assertThat(web2SecretService.addEncryptedSecret(
+                new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE))).isTrue();
+        assertThat(web2SecretService.isSecretPresent(OWNER_ADDRESS, SECRET_ADDRESS)).isTrue();
+    }
+
+    @Test
+    void shouldNotAddEncryptedSecretIfStoredWithAnotherValue() {
+        web2SecretRepository.saveAndFlush(new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE));
+
+        assertThat(web2SecretService.addEncryptedSecret(
+                new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, "otherEncryptedValue"))).isFalse();
+        verifyNoInteractions(measuredSecretService);
+    }
+    // endregion
+
+    // region forEachSecret
+    @Test
+    void shouldScanStoredSecretsWithTheirValues() {
+        web2SecretRepository.saveAndFlush(new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE));
+
+        final List<Web2Secret> secrets = new ArrayList<>();
+        new Web2SecretJdbcStore(jdbcTemplate, web2SecretRepository).forEachSecret(secrets::add);
+        assertThat(secrets).hasSize(1);
+        assertThat(secrets.get(0).getHeader()).isEqualTo(new Web2SecretHeader(OWNER_ADDRESS, SECRET_ADDRESS));
+        assertThat(secrets.get(0).getValue()).isEqualTo(ENCRYPTED_SECRET_VALUE);
+    }
+    // endregion
+
+    // region findPresentSecrets
+    @Test
+    void shouldFindPresentSecretsWithOneQuery() {
+        web2SecretRepository.saveAndFlush(new Web2Secret(OWNER_ADDRESS, SECRET_ADDRESS, ENCRYPTED_SECRET_VALUE));
+        final Web2SecretHeader presentHeader = new Web2SecretHeader(OWNER_ADDRESS, SECRET_ADDRESS);
+        final Web2SecretHeader missingHeader = new Web2SecretHeader(OWNER_ADDRESS, "missing");
+
+        assertThat(web2SecretService.findPresentSecrets(List.of(presentHeader, missingHeader)))
+                .containsExactly(presentHeader);
+        assertAll(
+                () -> assertThat(web2CacheSecretService.lookSecretExistenceInCache(presentHeader)).isTrue(),
+                () -> assertThat(web2CacheSecretService.lookSecretExistenceInCache(missingHeader)).isFalse()
+        );
+    }
+
+    @Test
+    void shouldFindPresentSecretsFromCache() {
+        final Web2SecretHeader header = new Web2SecretHeader(OWNER_ADDRESS, SECRET_ADDRESS);
+        web2CacheSecretService.putSecretExistenceInCache(header, true);
+
+        assertThat(web2SecretService.findPresentSecrets(List.of(header)))
+                .containsExactly(header);
+        assertThat(web2SecretRepository.count()).isZero();
+    }
+    // endregion
 }
@@ -20,6 +20,7 @@ import ch.qos.logback.classic.Logger;
 import com.iexec.sms.MemoryLogAppender;
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.CacheSecretService;
+import com.iexec.sms.secret.CacheSecretValueService;
 import com.iexec.sms.secret.MeasuredSecretService;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -78,7 +80,8 @@ class Web3SecretServiceTests {
         web3SecretRepository.deleteAll();
         web3CacheSecretService.clear();
         web3SecretService = new Web3SecretService(
-                jdbcTemplate, web3SecretRepository, encryptionService, measuredSecretService, web3CacheSecretService);
+                jdbcTemplate, web3SecretRepository, encryptionService, measuredSecretService, web3CacheSecretService,
+                new CacheSecretValueService<>(false, 0, 0));
     }
 
     // region addSecret
@@ -201,4 +204,31 @@ class Web3SecretServiceTests {
         verifyNoInteractions(encryptionService);
     }
     // endregion
+
+    // region addEncryptedSecretsInBatch
+    @Test
+    void shouldAddSecretsInBatch() {
+        when(encryptionService.encrypt(plainSecretValue)).thenReturn(encryptedSecretValue);
+
+        web3SecretService.addEncryptedSecretsInBatch(web3SecretService.encryptSecrets(List.of(
+                new Web3Secret(secretAddress, plainSecretValue),
+                new Web3Secret(secretAddress + "2", plainSecretValue))));
+        assertThat(web3SecretRepository.count()).isEqualTo(2);
+        assertThat(web3SecretRepository.findById(new Web3SecretHeader(secretAddress)))
+                .get().extracting(Web3Secret::getValue).isEqualTo(encryptedSecretValue);
+    }
+    // endregion
+
+    // region findPresentSecrets
+    @Test
+    void shouldFindPresentSecrets() {
+        web3SecretRepository.saveAndFlush(new Web3Secret(secretAddress, encryptedSecretValue));
+        final Web3SecretHeader presentHeader = new Web3SecretHeader(secretAddress);
+        final Web3SecretHeader missingHeader = new Web3SecretHeader("missing");
+
+        assertThat(web3SecretService.findPresentSecrets(List.of(presentHeader, missingHeader)))
+                .containsExactly(presentHeader);
+        assertThat(web3CacheSecretService.lookSecretExistenceInCache(missingHeader)).isFalse();
+    }
+    // endregion
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.ssl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsExchange;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.ssl.SSLContexts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TwoWaySslClientTests {
+    private static final int MAX_CONNECTIONS = 5;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    File tempDir;
+
+    private File keystore;
+    private SslConfig sslConfig;
+    private TwoWaySslClient twoWaySslClient;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        Metrics.globalRegistry.add(meterRegistry);
+        keystore = new File(tempDir, "ssl-keystore.p12");
+        try (InputStream inputStream = getClass().getResourceAsStream("/ssl-keystore-dev.p12")) {
+            Files.copy(inputStream, keystore.toPath());
+        }
+        sslConfig = new SslConfig(keystore.getAbsolutePath(), "PKCS12", "iexec-core",
+                "whatever".toCharArray());
+        twoWaySslClient = new TwoWaySslClient(sslConfig, MAX_CONNECTIONS, 1000, 1000, 1000, 60);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        twoWaySslClient.shutdown();
+        meterRegistry.clear();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
+    @Test
+    void shouldLoadSslContextOnceWhenKeystoreIsUnchanged() {
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isTrue();
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isFalse();
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isFalse();
+    }
+
+    @Test
+    void shouldReloadSslContextWhenKeystoreIsModified() {
+        twoWaySslClient.reloadSslContextIfNeeded();
+
+        assertThat(keystore.setLastModified(keystore.lastModified() + 10_000)).isTrue();
+
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isTrue();
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isFalse();
+    }
+
+    @Test
+    void shouldKeepSslContextAndRetryWhenKeystoreCannotBeLoaded() throws IOException {
+        final byte[] keystoreContent = Files.readAllBytes(keystore.toPath());
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isTrue();
+
+        Files.write(keystore.toPath(), "half-written".getBytes(StandardCharsets.UTF_8));
+        final long lastModified = keystore.lastModified() + 10_000;
+        assertThat(keystore.setLastModified(lastModified)).isTrue();
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isFalse();
+
+        Files.write(keystore.toPath(), keystoreContent);
+        assertThat(keystore.setLastModified(lastModified)).isTrue();
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isTrue();
+        assertThat(twoWaySslClient.reloadSslContextIfNeeded()).isFalse();
+    }
+
+    @Test
+    void shouldShareSinglePooledClient() {
+        final RestTemplate restTemplate = twoWaySslClient.getRestTemplate();
+
+        assertThat(twoWaySslClient.getRestTemplate()).isSameAs(restTemplate);
+        assertThat(restTemplate.getRequestFactory()).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+        assertThat(meterRegistry.find("httpcomponents.httpclient.pool.total.max").tag("httpclient", "cas")
+                .gauge().value()).isEqualTo(MAX_CONNECTIONS);
+    }
+
+    @Test
+    void shouldReuseKeepAliveConnection() throws IOException {
+        final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            final byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+        try {
+            final String url = "http://localhost:" + server.getAddress().getPort() + "/";
+            assertThat(twoWaySslClient.getRestTemplate().getForObject(url, String.class)).isEqualTo("ok");
+            assertThat(twoWaySslClient.getRestTemplate().getForObject(url, String.class)).isEqualTo("ok");
+        } finally {
+            server.stop(0);
+        }
+
+        assertThat(clientPorts).hasSize(2);
+        assertThat(clientPorts.get(1)).isEqualTo(clientPorts.get(0));
+    }
+
+    @Test
+    void shouldReuseAuthenticatedMutualTlsConnection() throws Exception {
+        final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+        final HttpsServer server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(getServerSslContext()) {
+            @Override
+            public void configure(HttpsParameters params) {
+                final SSLParameters sslParameters = getSSLContext().getDefaultSSLParameters();
+                sslParameters.setNeedClientAuth(true);
+                params.setSSLParameters(sslParameters);
+            }
+        });
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, isClientAuthenticated((HttpsExchange) exchange) ? 200 : 401);
+        });
+        server.start();
+        try {
+            final String url = "https://localhost:" + server.getAddress().getPort() + "/";
+            assertThat(twoWaySslClient.getRestTemplate().getForObject(url, String.class)).isEqualTo("ok");
+            assertThat(twoWaySslClient.getRestTemplate().getForObject(url, String.class)).isEqualTo("ok");
+        } finally {
+            server.stop(0);
+        }
+
+        assertThat(clientPorts).hasSize(2);
+        assertThat(clientPorts.get(1)).isEqualTo(clientPorts.get(0));
+    }
+
+    /**
+     * Server uses the same key material and only trusts the client certificate.
+     */
+    private SSLContext getServerSslContext() throws Exception {
+        final char[] password = sslConfig.getKeystorePassword();
+        final KeyStore keyStore = KeyStore.getInstance(sslConfig.getKeystoreType());
+        try (InputStream inputStream = Files.newInputStream(keystore.toPath())) {
+            keyStore.load(inputStream, password);
+        }
+        final KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("client", keyStore.getCertificate(sslConfig.getKeyAlias()));
+        return SSLContexts.custom()
+                .loadKeyMaterial(keyStore, password)
+                .loadTrustMaterial(trustStore, null)
+                .build();
+    }
+
+    private static boolean isClientAuthenticated(HttpsExchange exchange) {
+        try {
+            return exchange.getSSLSession().getPeerCertificates().length > 0;
+        } catch (SSLPeerUnverifiedException e) {
+            return false;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        final byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
@@ -41,11 +41,15 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.web3j.crypto.Keys;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Stream;
 
 import static com.iexec.sms.api.TeeSessionGenerationError.*;
@@ -265,7 +269,7 @@ class TeeControllerTests {
 
     // region generateTeeSession
     @Test
-    void shouldGenerateTeeSession() throws TeeSessionGenerationException {
+    void shouldGenerateTeeSession() {
         final WorkerpoolAuthorization workerpoolAuthorization = WorkerpoolAuthorization
                 .builder()
                 .chainTaskId(TASK_ID)
@@ -277,11 +281,11 @@ class TeeControllerTests {
         when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, WORKER_ADDRESS)).thenReturn(true);
         when(authorizationService.isAuthorizedOnExecutionWithDetailedIssue(workerpoolAuthorization))
                 .thenReturn(Optional.empty());
-        when(teeSessionService.generateTeeSession(TASK_ID, Keys.toChecksumAddress(WORKER_ADDRESS), ENCLAVE_CHALLENGE))
-                .thenReturn(new TeeSessionGenerationResponse(SESSION_ID, SECRET_PROVISIONING_URL));
+        when(teeSessionService.generateTeeSessionAsync(TASK_ID, Keys.toChecksumAddress(WORKER_ADDRESS), ENCLAVE_CHALLENGE))
+                .thenReturn(CompletableFuture.completedFuture(new TeeSessionGenerationResponse(SESSION_ID, SECRET_PROVISIONING_URL)));
 
         final ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> response = teeController
-                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization);
+                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization).join();
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertNotNull(response.getBody().getData());
@@ -303,7 +307,7 @@ class TeeControllerTests {
         when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, WORKER_ADDRESS)).thenReturn(false);
 
         final ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> response = teeController
-                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization);
+                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization).join();
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         assertNotEquals(null, response.getBody());
         assertNull(response.getBody().getData());
@@ -338,7 +342,7 @@ class TeeControllerTests {
                 .thenReturn(Optional.of(cause));
 
         final ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> response = teeController
-                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization);
+                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization).join();
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         assertNotEquals(null, response.getBody());
         assertNull(response.getBody().getData());
@@ -347,7 +351,7 @@ class TeeControllerTests {
     }
 
     @Test
-    void shouldNotGenerateTeeSessionSinceEmptyResponse() throws TeeSessionGenerationException {
+    void shouldNotGenerateTeeSessionSinceEmptyResponse() {
         final WorkerpoolAuthorization workerpoolAuthorization = WorkerpoolAuthorization
                 .builder()
                 .chainTaskId(TASK_ID)
@@ -359,11 +363,11 @@ class TeeControllerTests {
         when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, WORKER_ADDRESS)).thenReturn(true);
         when(authorizationService.isAuthorizedOnExecutionWithDetailedIssue(workerpoolAuthorization))
                 .thenReturn(Optional.empty());
-        when(teeSessionService.generateTeeSession(TASK_ID, Keys.toChecksumAddress(WORKER_ADDRESS), ENCLAVE_CHALLENGE))
-                .thenReturn(null);
+        when(teeSessionService.generateTeeSessionAsync(TASK_ID, Keys.toChecksumAddress(WORKER_ADDRESS), ENCLAVE_CHALLENGE))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         final ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> response = teeController
-                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization);
+                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization).join();
 
         assertThat(response).isEqualTo(ResponseEntity.notFound().build());
     }
@@ -381,12 +385,11 @@ class TeeControllerTests {
     /**
      * {@link TeeController#generateTeeSession(String, WorkerpoolAuthorization)}
      * should catch every error thrown
-     * by {@link TeeSessionService#generateTeeSession(String, String, String)}.
+     * by {@link TeeSessionService#generateTeeSessionAsync(String, String, String)}.
      */
     @ParameterizedTest
     @MethodSource("exceptionOnSessionIdGeneration")
-    void shouldNotGenerateTeeSessionSinceSessionIdGenerationFailed(Exception exception)
-            throws TeeSessionGenerationException {
+    void shouldNotGenerateTeeSessionSinceSessionIdGenerationFailed(Exception exception) {
         final WorkerpoolAuthorization workerpoolAuthorization = WorkerpoolAuthorization
                 .builder()
                 .chainTaskId(TASK_ID)
@@ -398,16 +401,38 @@ class TeeControllerTests {
         when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, WORKER_ADDRESS)).thenReturn(true);
         when(authorizationService.isAuthorizedOnExecutionWithDetailedIssue(workerpoolAuthorization))
                 .thenReturn(Optional.empty());
-        when(teeSessionService.generateTeeSession(TASK_ID, Keys.toChecksumAddress(WORKER_ADDRESS), ENCLAVE_CHALLENGE))
-                .thenThrow(exception);
+        when(teeSessionService.generateTeeSessionAsync(TASK_ID, Keys.toChecksumAddress(WORKER_ADDRESS), ENCLAVE_CHALLENGE))
+                .thenReturn(CompletableFuture.failedFuture(new CompletionException(exception)));
 
         final ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> response = teeController
-                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization);
+                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization).join();
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertNotEquals(null, response.getBody());
         assertNull(response.getBody().getData());
         assertNotEquals(null, response.getBody().getError());
         assertEquals(SECURE_SESSION_GENERATION_FAILED, response.getBody().getError());
     }
+
+    @Test
+    void shouldNotGenerateTeeSessionSinceTooManyRequests() {
+        final WorkerpoolAuthorization workerpoolAuthorization = WorkerpoolAuthorization
+                .builder()
+                .chainTaskId(TASK_ID)
+                .workerWallet(WORKER_ADDRESS)
+                .enclaveChallenge(ENCLAVE_CHALLENGE)
+                .build();
+
+        when(authorizationService.getChallengeForWorker(workerpoolAuthorization)).thenReturn(CHALLENGE);
+        when(authorizationService.isSignedByHimself(CHALLENGE, AUTHORIZATION, WORKER_ADDRESS)).thenReturn(true);
+        when(authorizationService.isAuthorizedOnExecutionWithDetailedIssue(workerpoolAuthorization))
+                .thenReturn(Optional.empty());
+        when(teeSessionService.generateTeeSessionAsync(TASK_ID, Keys.toChecksumAddress(WORKER_ADDRESS), ENCLAVE_CHALLENGE))
+                .thenThrow(new RejectedExecutionException());
+
+        final ResponseEntity<ApiResponseBody<TeeSessionGenerationResponse, TeeSessionGenerationError>> response = teeController
+                .generateTeeSession(AUTHORIZATION, workerpoolAuthorization).join();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
     // endregion
-}
\ No newline at end of file
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.challenge;
+
+import com.iexec.sms.admin.DatabaseRestoredEvent;
+import com.iexec.sms.encryption.AesKeyRotatedEvent;
+import com.iexec.sms.encryption.EncryptionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EthereumCredentialsPoolTests {
+    private static final String ENC_PRIVATE = "encPrivate";
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void beforeEach() {
+        MockitoAnnotations.openMocks(this);
+        when(encryptionService.encrypt(anyString())).thenReturn(ENC_PRIVATE);
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void afterEach() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void shouldFillPoolOnStartup() {
+        final EthereumCredentialsPool pool = new EthereumCredentialsPool(encryptionService, 5, 2, executorService);
+        pool.init();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 5);
+    }
+
+    @Test
+    void shouldTakeEncryptedCredentials() throws Exception {
+        final EthereumCredentialsPool pool = new EthereumCredentialsPool(encryptionService, 5, 2, executorService);
+        pool.init();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 5);
+
+        final EthereumCredentials credentials = pool.take();
+        assertThat(credentials.isEncrypted()).isTrue();
+        assertThat(credentials.getPrivateKey()).isEqualTo(ENC_PRIVATE);
+        assertThat(credentials.getAddress()).isNotEmpty();
+        assertThat(pool.depth()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldRefillBelowLowWaterMark() throws Exception {
+        final EthereumCredentialsPool pool = new EthereumCredentialsPool(encryptionService, 5, 3, executorService);
+        pool.init();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 5);
+
+        pool.take();
+        pool.take();
+        pool.take();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 5);
+    }
+
+    @Test
+    void shouldGenerateInlineWhenDisabled() throws Exception {
+        final ExecutorService mockedExecutorService = mock(ExecutorService.class);
+        final EthereumCredentialsPool pool = new EthereumCredentialsPool(encryptionService, 0, 0, mockedExecutorService);
+        pool.init();
+
+        final EthereumCredentials credentials = pool.take();
+        assertThat(credentials.isEncrypted()).isTrue();
+        assertThat(pool.depth()).isZero();
+        verifyNoInteractions(mockedExecutorService);
+    }
+
+    @Test
+    void shouldRefillWithNewKeyOnDatabaseRestored() {
+        final EthereumCredentialsPool pool = new EthereumCredentialsPool(encryptionService, 3, 1, executorService);
+        pool.init();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 3);
+
+        pool.onDatabaseRestored(new DatabaseRestoredEvent("backup.sql"));
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 3);
+        verify(encryptionService, atLeast(6)).encrypt(anyString());
+    }
+
+    @Test
+    void shouldRefillWithNewKeyOnAesKeyRotated() throws Exception {
+        final EthereumCredentialsPool pool = new EthereumCredentialsPool(encryptionService, 3, 1, executorService);
+        pool.init();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 3);
+
+        when(encryptionService.encrypt(anyString())).thenReturn("encPrivateWithNewKey");
+        pool.onAesKeyRotated(new AesKeyRotatedEvent(1, 2));
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.depth() == 3);
+        assertThat(pool.take().getPrivateKey()).isEqualTo("encPrivateWithNewKey");
+    }
+
+    @Test
+    void shouldNotPoolStaleCredentialsWhenDroppedBeforeOffer() throws Exception {
+        final AtomicReference<String> encryptedPrivateKey = new AtomicReference<>(ENC_PRIVATE);
+        when(encryptionService.encrypt(anyString())).thenAnswer(invocation -> encryptedPrivateKey.get());
+        final AtomicReference<EthereumCredentialsPool> poolReference = new AtomicReference<>();
+        final AtomicBoolean dropped = new AtomicBoolean(false);
+        final LinkedBlockingQueue<EthereumCredentials> queue = new LinkedBlockingQueue<>(3) {
+            @Override
+            public boolean offer(EthereumCredentials credentials) {
+                if (dropped.compareAndSet(false, true)) {
+                    // Rotate the key after the generation has been read, before the stale credentials are offered
+                    encryptedPrivateKey.set("encPrivateWithNewKey");
+                    final Thread dropThread = new Thread(() ->
+                            poolReference.get().onAesKeyRotated(new AesKeyRotatedEvent(1, 2)));
+                    dropThread.start();
+                    await().atMost(Duration.ofSeconds(10)).until(() ->
+                            dropThread.getState() == Thread.State.BLOCKED
+                                    || dropThread.getState() == Thread.State.TERMINATED);
+                }
+                return super.offer(credentials);
+            }
+        };
+        final EthereumCredentialsPool pool = new EthereumCredentialsPool(encryptionService, 3, 1, executorService, queue);
+        poolReference.set(pool);
+        pool.init();
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> dropped.get() && pool.depth() == 3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(pool.take().getPrivateKey()).isEqualTo("encPrivateWithNewKey");
+        }
+    }
+}
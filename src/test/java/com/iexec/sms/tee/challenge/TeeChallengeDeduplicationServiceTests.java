@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.challenge;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Constraints are altered, which commits in H2, so tests run outside of a rolled back transaction.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TeeChallengeDeduplicationServiceTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TeeChallengeDeduplicationService deduplicationService;
+
+    @BeforeEach
+    void beforeEach() {
+        deduplicationService = new TeeChallengeDeduplicationService(jdbcTemplate, transactionTemplate);
+    }
+
+    @AfterEach
+    void afterEach() {
+        jdbcTemplate.update("DELETE FROM \"tee_challenge\"");
+        jdbcTemplate.update("DELETE FROM \"ethereum_credentials\"");
+    }
+
+    private List<String> uniqueConstraintNames() {
+        return jdbcTemplate.queryForList("SELECT tc.CONSTRAINT_NAME"
+                + " FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc"
+                + " JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu"
+                + " ON kcu.CONSTRAINT_SCHEMA = tc.CONSTRAINT_SCHEMA AND kcu.CONSTRAINT_NAME = tc.CONSTRAINT_NAME"
+                + " WHERE tc.TABLE_NAME = 'tee_challenge' AND tc.CONSTRAINT_TYPE = 'UNIQUE'"
+                + " AND kcu.COLUMN_NAME = 'task_id'", String.class);
+    }
+
+    private void dropUniqueConstraints() {
+        uniqueConstraintNames().forEach(name ->
+                jdbcTemplate.execute("ALTER TABLE \"tee_challenge\" DROP CONSTRAINT \"" + name + "\""));
+    }
+
+    private void insertChallenge(String id, String taskId, String credentialsId) {
+        jdbcTemplate.update("INSERT INTO \"ethereum_credentials\" (\"id\", \"address\", \"is_encrypted\", \"private_key\")"
+                + " VALUES (?, ?, TRUE, ?)", credentialsId, "address-" + credentialsId, "key-" + credentialsId);
+        jdbcTemplate.update("INSERT INTO \"tee_challenge\" (\"id\", \"task_id\", \"credentials_id\") VALUES (?, ?, ?)",
+                id, taskId, credentialsId);
+    }
+
+    @Test
+    void shouldRemoveDuplicatesAndAddUniqueConstraint() {
+        dropUniqueConstraints();
+        insertChallenge("challenge-a", "task1", "credentials-a");
+        insertChallenge("challenge-b", "task1", "credentials-b");
+        insertChallenge("challenge-c", "task2", "credentials-c");
+        assertThat(deduplicationService.hasUniqueConstraint()).isFalse();
+
+        deduplicationService.init();
+
+        assertThat(jdbcTemplate.queryForList("SELECT \"id\" FROM \"tee_challenge\"", String.class))
+                .containsExactlyInAnyOrder("challenge-a", "challenge-c");
+        assertThat(jdbcTemplate.queryForList("SELECT \"id\" FROM \"ethereum_credentials\"", String.class))
+                .containsExactlyInAnyOrder("credentials-a", "credentials-c");
+        assertThat(uniqueConstraintNames()).containsExactly(TeeChallengeDeduplicationService.UNIQUE_CONSTRAINT_NAME);
+    }
+
+    @Test
+    void shouldKeepExistingUniqueConstraint() {
+        final List<String> constraintNames = uniqueConstraintNames();
+        insertChallenge("challenge-a", "task1", "credentials-a");
+
+        deduplicationService.init();
+
+        assertThat(deduplicationService.removeDuplicates()).isZero();
+        assertThat(uniqueConstraintNames()).isEqualTo(constraintNames).hasSize(1);
+        assertThat(jdbcTemplate.queryForList("SELECT \"id\" FROM \"tee_challenge\"", String.class))
+                .containsExactly("challenge-a");
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.iexec.sms.tee.challenge;
 
+import com.iexec.sms.admin.DatabaseRestoredEvent;
 import com.iexec.sms.encryption.EncryptionService;
 import com.iexec.sms.secret.MeasuredSecretService;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,7 +26,13 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -59,7 +66,9 @@ class TeeChallengeServiceTests {
                 teeChallengeRepository,
                 encryptionService,
                 teeChallengeMeasuredSecretService,
-                ethereumCredentialsMeasuredSecretService
+                ethereumCredentialsMeasuredSecretService,
+                new EthereumCredentialsPool(encryptionService, 0, 0),
+                10
         );
     }
 
@@ -122,6 +131,52 @@ class TeeChallengeServiceTests {
         verify(ethereumCredentialsMeasuredSecretService, times(1)).newlyAddedSecret();
     }
 
+    @Test
+    void shouldGetChallengeFromCacheWithoutAlteringIt() {
+        when(encryptionService.encrypt(anyString())).thenReturn(ENC_PRIVATE);
+        when(encryptionService.decrypt(anyString())).thenReturn(PLAIN_PRIVATE);
+
+        final TeeChallenge created = teeChallengeService.getOrCreate(TASK_ID, true).orElseThrow();
+        teeChallengeRepository.deleteAll();
+        final TeeChallenge cached = teeChallengeService.getOrCreate(TASK_ID, false).orElseThrow();
+
+        assertThat(created.getCredentials().getPrivateKey()).isEqualTo(PLAIN_PRIVATE);
+        assertThat(cached.getCredentials().getPrivateKey()).isEqualTo(ENC_PRIVATE);
+        assertThat(cached.getCredentials().getAddress()).isEqualTo(created.getCredentials().getAddress());
+        assertThat(cached).isNotSameAs(teeChallengeService.getOrCreate(TASK_ID, false).orElseThrow());
+        verify(teeChallengeMeasuredSecretService, times(1)).newlyAddedSecret();
+    }
+
+    @Test
+    void shouldReloadChallengeAfterDatabaseRestoration() throws Exception {
+        when(encryptionService.encrypt(anyString())).thenReturn(ENC_PRIVATE);
+        teeChallengeService.getOrCreate(TASK_ID, false);
+        teeChallengeRepository.deleteAll();
+        teeChallengeRepository.flush();
+        final TeeChallenge restored = teeChallengeRepository.save(getEncryptedTeeChallengeStub());
+
+        teeChallengeService.onDatabaseRestored(new DatabaseRestoredEvent("backup.sql"));
+        final TeeChallenge teeChallenge = teeChallengeService.getOrCreate(TASK_ID, false).orElseThrow();
+        assertThat(teeChallenge.getCredentials().getAddress()).isEqualTo(restored.getCredentials().getAddress());
+    }
+
+    @Test
+    void shouldCreateChallengeOnceWithConcurrentCalls() throws Exception {
+        final String taskId = "0xconcurrent";
+        when(encryptionService.encrypt(anyString())).thenReturn(ENC_PRIVATE);
+
+        final List<CompletableFuture<Optional<TeeChallenge>>> calls = IntStream.range(0, 10)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> teeChallengeService.getOrCreate(taskId, false)))
+                .collect(Collectors.toList());
+        final List<String> addresses = new ArrayList<>();
+        for (CompletableFuture<Optional<TeeChallenge>> call : calls) {
+            addresses.add(call.get(10, TimeUnit.SECONDS).orElseThrow().getCredentials().getAddress());
+        }
+
+        assertThat(addresses).containsOnly(addresses.get(0));
+        verify(teeChallengeMeasuredSecretService, times(1)).newlyAddedSecret();
+    }
+
     @Test
     void shouldEncryptChallengeKeys() throws Exception {
         TeeChallenge teeChallenge = new TeeChallenge(TASK_ID);
@@ -29,6 +29,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -49,7 +52,7 @@ class TeeSessionServiceTests {
     @Test
     void shouldGenerateSconeSession()
             throws TeeSessionGenerationException {
-        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService);
+        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService, Runnable::run);
 
         final TaskDescription taskDescription = TaskDescription.builder()
                 .chainTaskId(TASK_ID)
@@ -69,7 +72,7 @@ class TeeSessionServiceTests {
     @Test
     void shouldGenerateGramineSession()
             throws TeeSessionGenerationException {
-        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, gramineService);
+        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, gramineService, Runnable::run);
 
         final TaskDescription taskDescription = TaskDescription.builder()
                 .chainTaskId(TASK_ID)
@@ -88,7 +91,7 @@ class TeeSessionServiceTests {
 
     @Test
     void shouldNotGenerateTeeSessionSinceCantGetTaskDescription() {
-        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService);
+        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService, Runnable::run);
 
         when(iexecHubService.getTaskDescription(TASK_ID)).thenReturn(null);
 
@@ -103,7 +106,7 @@ class TeeSessionServiceTests {
 
     @Test
     void shouldNotGenerateTeeSessionSinceNoTeeFramework() {
-        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService);
+        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService, Runnable::run);
 
         final TaskDescription taskDescription = TaskDescription.builder()
                 .chainTaskId(TASK_ID)
@@ -121,4 +124,48 @@ class TeeSessionServiceTests {
                 teeSessionGenerationException.getMessage());
     }
 
-}
\ No newline at end of file
+    // region generateTeeSessionAsync
+    @Test
+    void shouldGenerateTeeSessionAsync() throws TeeSessionGenerationException {
+        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService, Runnable::run);
+
+        final TaskDescription taskDescription = TaskDescription.builder()
+                .chainTaskId(TASK_ID)
+                .teeFramework(TeeFramework.SCONE)
+                .build();
+        when(iexecHubService.getTaskDescription(TASK_ID)).thenReturn(taskDescription);
+        when(sconeService.buildAndPostSession(any())).thenReturn(SECRET_PROVISIONING_URL);
+
+        final TeeSessionGenerationResponse teeSessionReponse = teeSessionService
+                .generateTeeSessionAsync(TASK_ID, WORKER_ADDRESS, TEE_CHALLENGE)
+                .join();
+        assertEquals(SECRET_PROVISIONING_URL, teeSessionReponse.getSecretProvisioningUrl());
+    }
+
+    @Test
+    void shouldCompleteExceptionallyWhenAsyncGenerationFails() {
+        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService, Runnable::run);
+
+        when(iexecHubService.getTaskDescription(TASK_ID)).thenReturn(null);
+
+        final CompletionException completionException = assertThrows(
+                CompletionException.class,
+                () -> teeSessionService.generateTeeSessionAsync(TASK_ID, WORKER_ADDRESS, TEE_CHALLENGE).join());
+        final TeeSessionGenerationException cause = assertInstanceOf(
+                TeeSessionGenerationException.class, completionException.getCause());
+        assertEquals(TeeSessionGenerationError.GET_TASK_DESCRIPTION_FAILED, cause.getError());
+    }
+
+    @Test
+    void shouldRejectAsyncGenerationWhenQueueIsFull() {
+        final TeeSessionService teeSessionService = new TeeSessionService(iexecHubService, sconeService,
+                runnable -> {
+                    throw new RejectedExecutionException();
+                });
+
+        assertThrows(RejectedExecutionException.class,
+                () -> teeSessionService.generateTeeSessionAsync(TASK_ID, WORKER_ADDRESS, TEE_CHALLENGE));
+        verifyNoInteractions(iexecHubService, sconeService);
+    }
+    // endregion
+}
@@ -48,7 +48,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.iexec.common.worker.result.ResultUtils.RESULT_SIGN_TEE_CHALLENGE_PRIVATE_KEY;
+import static com.iexec.common.worker.result.ResultUtils.RESULT_STORAGE_TOKEN;
 import static com.iexec.sms.secret.ReservedSecretKeyName.*;
 import static com.iexec.sms.tee.session.TeeSessionTestUtils.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -87,7 +94,6 @@ class SecretSessionBaseServiceTests {
     @Mock
     private TeeTaskComputeSecretService teeTaskComputeSecretService;
 
-    @InjectMocks
     private SecretSessionBaseService teeSecretsService;
 
     @Captor
@@ -98,6 +104,8 @@ class SecretSessionBaseServiceTests {
         MockitoAnnotations.openMocks(this);
         when(teeServicesConfig.getPreComputeProperties()).thenReturn(preComputeProperties);
         when(teeServicesConfig.getPostComputeProperties()).thenReturn(postComputeProperties);
+        teeSecretsService = new SecretSessionBaseService(web3SecretService, web2SecretService,
+                teeChallengeService, teeServicesConfig, teeTaskComputeSecretService);
     }
 
     // region getSecretsTokens
@@ -146,6 +154,91 @@ class SecretSessionBaseServiceTests {
                 postComputeBase.getEnvironment());
     }
 
+    @Test
+    void shouldGetSameSecretsTokensInParallel() throws Exception {
+        TaskDescription taskDescription = createTaskDescription(enclaveConfig).build();
+        TeeSessionRequest request = createSessionRequest(taskDescription);
+        String beneficiary = request.getTaskDescription().getBeneficiary();
+        when(web3SecretService.getDecryptedValue(DATASET_ADDRESS))
+                .thenReturn(Optional.of(DATASET_KEY));
+        final Web2Secret resultEncryption = new Web2Secret(beneficiary, IEXEC_RESULT_ENCRYPTION_PUBLIC_KEY, ENCRYPTION_PUBLIC_KEY);
+        final Web2Secret requesterStorageToken = new Web2Secret(taskDescription.getRequester(), IEXEC_RESULT_IEXEC_IPFS_TOKEN, STORAGE_TOKEN);
+        when(web2SecretService.getSecretsForTeeSession(any()))
+                .thenReturn(List.of(resultEncryption, requesterStorageToken));
+        when(teeChallengeService.getOrCreate(TASK_ID, true))
+                .thenReturn(Optional.of(TeeChallenge.builder().credentials(EthereumCredentials.generate()).build()));
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            final SecretSessionBaseService parallelService = new SecretSessionBaseService(web3SecretService,
+                    web2SecretService, teeChallengeService, teeServicesConfig, teeTaskComputeSecretService, executorService);
+
+            final SecretSessionBase parallelSessionBase = parallelService.getSecretsTokens(request);
+            final SecretSessionBase sessionBase = teeSecretsService.getSecretsTokens(request);
+
+            assertThat(parallelSessionBase).usingRecursiveComparison().isEqualTo(sessionBase);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void shouldGetPostComputeSignTokensWhileLookingForStorageTokens() throws Exception {
+        TaskDescription taskDescription = createTaskDescription(enclaveConfig).build();
+        TeeSessionRequest request = createSessionRequest(taskDescription);
+        String beneficiary = request.getTaskDescription().getBeneficiary();
+        when(web3SecretService.getDecryptedValue(DATASET_ADDRESS))
+                .thenReturn(Optional.of(DATASET_KEY));
+        final Web2Secret resultEncryption = new Web2Secret(beneficiary, IEXEC_RESULT_ENCRYPTION_PUBLIC_KEY, ENCRYPTION_PUBLIC_KEY);
+        final Web2Secret requesterStorageToken = new Web2Secret(taskDescription.getRequester(), IEXEC_RESULT_IEXEC_IPFS_TOKEN, STORAGE_TOKEN);
+        final CountDownLatch challengeFetched = new CountDownLatch(1);
+        final AtomicBoolean fetchedDuringStorageLookup = new AtomicBoolean();
+        when(web2SecretService.getSecretsForTeeSession(any())).thenAnswer(invocation -> {
+            fetchedDuringStorageLookup.set(challengeFetched.await(5, TimeUnit.SECONDS));
+            return List.of(resultEncryption, requesterStorageToken);
+        });
+        when(teeChallengeService.getOrCreate(TASK_ID, true)).thenAnswer(invocation -> {
+            challengeFetched.countDown();
+            return Optional.of(TeeChallenge.builder().credentials(EthereumCredentials.generate()).build());
+        });
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final SecretSessionBaseService parallelService = new SecretSessionBaseService(web3SecretService,
+                    web2SecretService, teeChallengeService, teeServicesConfig, teeTaskComputeSecretService, executorService);
+
+            final SecretSessionBase sessionBase = parallelService.getSecretsTokens(request);
+
+            assertThat(fetchedDuringStorageLookup).isTrue();
+            assertThat(sessionBase.getPostCompute().getEnvironment())
+                    .containsEntry(RESULT_STORAGE_TOKEN, STORAGE_TOKEN)
+                    .containsKey(RESULT_SIGN_TEE_CHALLENGE_PRIVATE_KEY);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void shouldReportFirstStageErrorWhenResolvedInParallel() {
+        TaskDescription taskDescription = createTaskDescription(enclaveConfig).build();
+        TeeSessionRequest request = createSessionRequest(taskDescription);
+        when(web3SecretService.getDecryptedValue(DATASET_ADDRESS)).thenReturn(Optional.empty());
+        when(teeChallengeService.getOrCreate(TASK_ID, true)).thenReturn(Optional.empty());
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            final SecretSessionBaseService parallelService = new SecretSessionBaseService(web3SecretService,
+                    web2SecretService, teeChallengeService, teeServicesConfig, teeTaskComputeSecretService, executorService);
+
+            final TeeSessionGenerationException exception = assertThrows(
+                    TeeSessionGenerationException.class,
+                    () -> parallelService.getSecretsTokens(request));
+            assertEquals(TeeSessionGenerationError.PRE_COMPUTE_GET_DATASET_SECRET_FAILED, exception.getError());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
     @Test
     void shouldNotGetSecretsTokensSinceRequestIsNull() {
         final TeeSessionGenerationException exception = assertThrows(
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.session.gramine.sps;
+
+import feign.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpsConfigurationTests {
+
+    private SpsConfiguration spsConfiguration;
+
+    @BeforeEach
+    void beforeEach() {
+        spsConfiguration = new SpsConfiguration();
+        ReflectionTestUtils.setField(spsConfiguration, "webHost", "localhost");
+        ReflectionTestUtils.setField(spsConfiguration, "webPort", "8080");
+        ReflectionTestUtils.setField(spsConfiguration, "webLogin", "admin");
+        ReflectionTestUtils.setField(spsConfiguration, "webPassword", "admin");
+        ReflectionTestUtils.setField(spsConfiguration, "maxConnections", 5);
+        ReflectionTestUtils.setField(spsConfiguration, "connectTimeout", 1000L);
+        ReflectionTestUtils.setField(spsConfiguration, "readTimeout", 1000L);
+        ReflectionTestUtils.setField(spsConfiguration, "idleTimeout", 10L);
+        ReflectionTestUtils.setField(spsConfiguration, "logLevel", Logger.Level.BASIC);
+    }
+
+    @AfterEach
+    void afterEach() throws Exception {
+        spsConfiguration.shutdown();
+    }
+
+    @Test
+    void shouldBuildClientOnce() {
+        final List<CompletableFuture<SpsApiClient>> clients = IntStream.range(0, 10)
+                .mapToObj(i -> CompletableFuture.supplyAsync(spsConfiguration::getInstance))
+                .collect(Collectors.toList());
+
+        final SpsApiClient client = spsConfiguration.getInstance();
+        assertThat(client).isNotNull();
+        assertThat(clients).allSatisfy(future -> assertThat(future.join()).isSameAs(client));
+    }
+}
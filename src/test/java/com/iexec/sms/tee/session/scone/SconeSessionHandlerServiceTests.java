@@ -19,18 +19,24 @@ package com.iexec.sms.tee.session.scone;
 import com.iexec.commons.poco.task.TaskDescription;
 import com.iexec.sms.api.TeeSessionGenerationError;
 import com.iexec.sms.tee.session.generic.TeeSessionGenerationException;
+import com.iexec.sms.tee.session.generic.TeeSessionMetrics;
 import com.iexec.sms.tee.session.generic.TeeSessionRequest;
 import com.iexec.sms.tee.session.scone.cas.CasClient;
 import com.iexec.sms.tee.session.scone.cas.CasConfiguration;
 import com.iexec.sms.tee.session.scone.cas.SconeSession;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
 
 import static com.iexec.sms.tee.session.TeeSessionTestUtils.createSessionRequest;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
@@ -39,6 +45,7 @@ import static org.mockito.Mockito.when;
 class SconeSessionHandlerServiceTests {
 
     private static final String CAS_URL = "casUrl";
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     @Mock
     private SconeSessionMakerService sessionService;
     @Mock
@@ -51,18 +58,24 @@ class SconeSessionHandlerServiceTests {
     @BeforeEach
     void beforeEach() {
         MockitoAnnotations.openMocks(this);
+        Metrics.globalRegistry.add(meterRegistry);
         when(casConfiguration.getEnclaveHost()).thenReturn(CAS_URL);
     }
 
+    @AfterEach
+    void afterEach() {
+        meterRegistry.clear();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
     @Test
     void shouldBuildAndPostSessionWithLogs()
             throws TeeSessionGenerationException {
         TaskDescription taskDescription = TaskDescription.builder().build();
         TeeSessionRequest request = createSessionRequest(taskDescription);
         SconeSession casSession = mock(SconeSession.class);
-        when(casSession.toString()).thenReturn("sessionContent");
         when(sessionService.generateSession(request)).thenReturn(casSession);
-        when(apiClient.postSession(casSession.toString()))
+        when(apiClient.postSession(casSession))
                 .thenReturn(ResponseEntity.created(null).body("sessionId"));
 
         assertEquals(CAS_URL,
@@ -75,9 +88,8 @@ class SconeSessionHandlerServiceTests {
         TaskDescription taskDescription = TaskDescription.builder().build();
         TeeSessionRequest request = createSessionRequest(taskDescription);
         SconeSession casSession = mock(SconeSession.class);
-        when(casSession.toString()).thenReturn("sessionContent");
         when(sessionService.generateSession(request)).thenReturn(casSession);
-        when(apiClient.postSession(casSession.toString()))
+        when(apiClient.postSession(casSession))
                 .thenReturn(ResponseEntity.created(null).body("sessionId"));
 
         assertEquals(CAS_URL,
@@ -105,7 +117,7 @@ class SconeSessionHandlerServiceTests {
         TeeSessionRequest request = createSessionRequest(taskDescription);
         SconeSession casSession = mock(SconeSession.class);
         when(sessionService.generateSession(request)).thenReturn(casSession);
-        when(apiClient.postSession(casSession.toString()))
+        when(apiClient.postSession(casSession))
                 .thenReturn(ResponseEntity.internalServerError().build());
 
         assertThrows(TeeSessionGenerationException.class,
@@ -119,10 +131,26 @@ class SconeSessionHandlerServiceTests {
         TeeSessionRequest request = createSessionRequest(taskDescription);
         SconeSession casSession = mock(SconeSession.class);
         when(sessionService.generateSession(request)).thenReturn(casSession);
-        when(apiClient.postSession(casSession.toString()))
+        when(apiClient.postSession(casSession))
                 .thenReturn(null);
 
         assertThrows(TeeSessionGenerationException.class,
                 () -> sessionHandlerService.buildAndPostSession(request));
     }
+
+    @Test
+    void shouldNotBuildAndPostSessionSinceCallToCasFailed()
+            throws TeeSessionGenerationException {
+        TaskDescription taskDescription = TaskDescription.builder().build();
+        TeeSessionRequest request = createSessionRequest(taskDescription);
+        SconeSession casSession = mock(SconeSession.class);
+        when(sessionService.generateSession(request)).thenReturn(casSession);
+        when(apiClient.postSession(casSession))
+                .thenThrow(new ResourceAccessException("connection refused"));
+
+        assertThrows(ResourceAccessException.class,
+                () -> sessionHandlerService.buildAndPostSession(request));
+        assertThat(meterRegistry.find(TeeSessionMetrics.STAGE_TIMER_NAME)
+                .tag("stage", TeeSessionMetrics.BUILD_STAGE).timer().count()).isOne();
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.session.scone.cas;
+
+import com.iexec.sms.ssl.TwoWaySslClient;
+import com.iexec.sms.tee.session.generic.TeeSessionMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CasClientTests {
+    @Mock
+    private CasConfiguration casConfiguration;
+    @Mock
+    private TwoWaySslClient twoWaySslClient;
+    @Mock
+    private RestTemplate restTemplate;
+
+    private MeterRegistry meterRegistry;
+    private CasClient casClient;
+
+    @BeforeEach
+    void beforeEach() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        Metrics.globalRegistry.add(meterRegistry);
+        when(casConfiguration.getUrl()).thenReturn("https://cas");
+        when(twoWaySslClient.getRestTemplate()).thenReturn(restTemplate);
+        casClient = new CasClient(casConfiguration, twoWaySslClient);
+    }
+
+    private Timer stageTimer(String stage) {
+        return meterRegistry.find(TeeSessionMetrics.STAGE_TIMER_NAME).tag("stage", stage).timer();
+    }
+
+    @AfterEach
+    void afterEach() {
+        meterRegistry.clear();
+        Metrics.globalRegistry.clear();
+    }
+
+    @Test
+    void shouldWriteSessionAndRecordMetrics() throws IOException {
+        final SconeSession session = SconeSession.builder()
+                .name("session")
+                .version("0.3")
+                .accessPolicy(new SconeSession.AccessPolicy(List.of("CREATOR"), List.of("CREATOR")))
+                .build();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        casClient.writeSession(session, body);
+
+        final String expectedSession = session.toString();
+        assertThat(body.toString(StandardCharsets.UTF_8)).isEqualTo(expectedSession);
+        final DistributionSummary sizeSummary = meterRegistry.find(TeeSessionMetrics.SIZE_SUMMARY_NAME).summary();
+        assertThat(sizeSummary).isNotNull();
+        assertThat(sizeSummary.count()).isOne();
+        assertThat(sizeSummary.totalAmount()).isEqualTo(expectedSession.getBytes(StandardCharsets.UTF_8).length);
+        final Timer serializeTimer = meterRegistry.find(TeeSessionMetrics.STAGE_TIMER_NAME)
+                .tag("stage", TeeSessionMetrics.SERIALIZE_STAGE)
+                .timer();
+        assertThat(serializeTimer).isNotNull();
+        assertThat(serializeTimer.count()).isOne();
+    }
+
+    @Test
+    void shouldNotRecordSerializationInPostStage() throws IOException {
+        final SconeSession session = mock(SconeSession.class);
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(100);
+            return null;
+        }).when(session).writeTo(any());
+        when(restTemplate.execute(eq("https://cas/session"), eq(HttpMethod.POST), any(RequestCallback.class), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<RequestCallback>getArgument(2).doWithRequest(new MockClientHttpRequest());
+                    return ResponseEntity.created(null).body("sessionId");
+                });
+
+        assertThat(casClient.postSession(session).getStatusCodeValue()).isEqualTo(201);
+
+        final Timer serializeTimer = stageTimer(TeeSessionMetrics.SERIALIZE_STAGE);
+        final Timer postTimer = stageTimer(TeeSessionMetrics.POST_STAGE);
+        assertThat(serializeTimer.count()).isOne();
+        assertThat(postTimer.count()).isOne();
+        assertThat(serializeTimer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(100);
+        assertThat(postTimer.totalTime(TimeUnit.MILLISECONDS)).isLessThan(100);
+    }
+
+    @Test
+    void shouldRecordPostStageWhenCallFails() {
+        final SconeSession session = mock(SconeSession.class);
+        when(restTemplate.execute(anyString(), eq(HttpMethod.POST), any(RequestCallback.class), any()))
+                .thenThrow(new ResourceAccessException("connection refused"));
+
+        assertThatExceptionOfType(ResourceAccessException.class)
+                .isThrownBy(() -> casClient.postSession(session));
+
+        assertThat(stageTimer(TeeSessionMetrics.POST_STAGE).count()).isOne();
+        assertThat(meterRegistry.find(TeeSessionMetrics.STAGE_TIMER_NAME)
+                .tag("stage", TeeSessionMetrics.SERIALIZE_STAGE)
+                .timers().stream().mapToLong(Timer::count).sum()).isZero();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024-2024 IEXEC BLOCKCHAIN TECH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iexec.sms.tee.session.scone.cas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SconeSessionTests {
+
+    private final SconeSession session = SconeSession.builder()
+            .name("session")
+            .version("0.3")
+            .accessPolicy(new SconeSession.AccessPolicy(List.of("CREATOR"), List.of("NONE")))
+            .volumes(List.of(new SconeSession.Volumes("iexec_in")))
+            .security(new SconeSession.Security(List.of("hyperthreading"), List.of("INTEL-SA-00220")))
+            .build();
+
+    @Test
+    void shouldSerializeAsYaml() {
+        assertThat(session.toString())
+                .contains("name: \"session\"")
+                .contains("access_policy:")
+                .contains("ignore_advisories:");
+    }
+
+    @Test
+    void shouldWriteSameYamlAsToStringWithoutClosingStream() throws IOException {
+        final ByteArrayOutputStream outputStream = spy(new ByteArrayOutputStream());
+
+        session.writeTo(outputStream);
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(session.toString());
+        verify(outputStream, never()).close();
+    }
+}